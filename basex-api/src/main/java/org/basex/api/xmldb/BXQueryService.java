@@ -4,6 +4,7 @@ import static org.basex.util.Token.*;
 
 import java.util.*;
 
+import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.value.*;
@@ -131,7 +132,7 @@ final class BXQueryService implements XPathQueryService, BXXMLDBText {
         qp.close();
         coll.ctx.unregister(qp);
       }
-    } catch(final QueryException ex) {
+    } catch(final QueryException | BaseXException ex) {
       throw new XMLDBException(ErrorCodes.VENDOR_ERROR, ex.getMessage());
     }
   }
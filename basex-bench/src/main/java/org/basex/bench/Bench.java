@@ -0,0 +1,76 @@
+package org.basex.bench;
+
+import java.util.concurrent.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.basex.util.options.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Base class for all benchmarks. Databases are created in a temporary sandbox directory,
+ * which is deleted after the benchmark has been run.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public abstract class Bench {
+  /** Database name. */
+  protected static final String NAME = "bench";
+  /** Database context ({@code null} if no database has been created). */
+  protected Context context;
+  /** Sandbox directory. */
+  private IOFile sandbox;
+
+  /**
+   * Creates a database context in the sandbox directory.
+   * @return database context
+   */
+  protected final Context context() {
+    if(context == null) {
+      sandbox = new IOFile(Prop.TMP, Util.className(this) + '-' + System.nanoTime());
+      Options.setSystem(StaticOptions.DBPATH.name(), sandbox.path());
+      try {
+        context = new Context();
+      } finally {
+        Options.setSystem(StaticOptions.DBPATH.name(), "");
+      }
+    }
+    return context;
+  }
+
+  /**
+   * Creates a database with the specified input and returns its data reference.
+   * @param input input document
+   * @param ftindex create full-text index
+   * @return data reference
+   * @throws BaseXException database exception
+   */
+  protected final Data createDB(final String input, final boolean ftindex)
+      throws BaseXException {
+    final Context ctx = context();
+    ctx.options.set(MainOptions.FTINDEX, ftindex);
+    new CreateDB(NAME, input).execute(ctx);
+    return ctx.data();
+  }
+
+  /**
+   * Closes the database context and deletes the sandbox directory.
+   */
+  @TearDown(Level.Trial)
+  public final void close() {
+    if(context == null) return;
+    context.close();
+    sandbox.delete();
+    context = null;
+  }
+}
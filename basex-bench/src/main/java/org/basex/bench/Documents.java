@@ -0,0 +1,202 @@
+package org.basex.bench;
+
+import java.util.*;
+
+/**
+ * Generator for deterministic test documents. The same seed is used for each call, so all
+ * benchmark runs are performed on identical data.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Documents {
+  /** Seed for the random generator. */
+  private static final long SEED = 0x5EED;
+  /** Number of words in the vocabulary. */
+  private static final int WORDS = 5000;
+  /** Regions of the auction document. */
+  private static final String[] REGIONS = {
+    "africa", "asia", "australia", "europe", "namerica", "samerica"
+  };
+
+  /** String builder. */
+  private final StringBuilder sb = new StringBuilder();
+  /** Random generator. */
+  private final Random rnd = new Random(SEED);
+  /** Vocabulary. */
+  private final String[] words = new String[WORDS];
+
+  /** Private constructor. */
+  private Documents() {
+    for(int w = 0; w < WORDS; w++) words[w] = word(w);
+  }
+
+  /**
+   * Returns a vocabulary word. Words with small numbers occur more frequently in the
+   * generated texts.
+   * @param w word number
+   * @return word
+   */
+  public static String word(final int w) {
+    final StringBuilder wb = new StringBuilder();
+    for(int n = w; ; n /= 26) {
+      wb.append((char) ('a' + n % 26));
+      if(n < 26) break;
+    }
+    return wb.append('x').toString();
+  }
+
+  /**
+   * Creates a flat document with the specified number of records:
+   * <pre>
+   * &lt;records&gt;
+   *   &lt;record id="r0" cat="c5"&gt;
+   *     &lt;name&gt;...&lt;/name&gt;&lt;value&gt;123&lt;/value&gt;&lt;text&gt;...&lt;/text&gt;
+   *   &lt;/record&gt;
+   *   ...
+   * &lt;/records&gt;</pre>
+   * @param count number of records
+   * @return document
+   */
+  public static String records(final int count) {
+    final Documents doc = new Documents();
+    final StringBuilder sb = doc.sb;
+    sb.append("<records>");
+    for(int r = 0; r < count; r++) {
+      sb.append("<record id='r").append(r).append("' cat='c").append(r % 97).append("'>");
+      sb.append("<name>").append(doc.words(2)).append("</name>");
+      sb.append("<value>").append(value(r)).append("</value>");
+      sb.append("<text>").append(doc.words(4 + doc.rnd.nextInt(20))).append("</text>");
+      sb.append("</record>");
+    }
+    return sb.append("</records>").toString();
+  }
+
+  /**
+   * Returns the value of the specified record.
+   * @param r record number
+   * @return value
+   */
+  public static int value(final int r) {
+    return r * 7919 % 100003;
+  }
+
+  /**
+   * Creates an auction document with the structure of the XMark benchmark.
+   * @param persons number of persons (the number of items and auctions is derived from it)
+   * @return document
+   */
+  public static String auction(final int persons) {
+    final Documents doc = new Documents();
+    final StringBuilder sb = doc.sb;
+    final Random rnd = doc.rnd;
+    final int items = persons * 2, open = persons, closed = persons / 2;
+
+    sb.append("<site><regions>");
+    final int rl = REGIONS.length;
+    for(int r = 0; r < rl; r++) {
+      sb.append('<').append(REGIONS[r]).append('>');
+      for(int i = r; i < items; i += rl) {
+        sb.append("<item id='item").append(i).append("'>");
+        sb.append("<location>").append(doc.words(1)).append("</location>");
+        sb.append("<quantity>").append(1 + rnd.nextInt(3)).append("</quantity>");
+        sb.append("<name>").append(doc.words(3)).append("</name>");
+        sb.append("<description>");
+        doc.description(rnd.nextInt(3));
+        sb.append("</description></item>");
+      }
+      sb.append("</").append(REGIONS[r]).append('>');
+    }
+    sb.append("</regions><people>");
+    for(int p = 0; p < persons; p++) {
+      sb.append("<person id='person").append(p).append("'>");
+      sb.append("<name>").append(doc.words(2)).append("</name>");
+      sb.append("<emailaddress>mailto:").append(doc.words(1)).append("@example.com");
+      sb.append("</emailaddress>");
+      if(rnd.nextBoolean()) {
+        sb.append("<homepage>http://example.com/~").append(p).append("</homepage>");
+      }
+      sb.append("<address><street>").append(rnd.nextInt(100)).append(' ');
+      sb.append(doc.words(1)).append(" St</street><city>").append(doc.words(1));
+      sb.append("</city><country>").append(doc.words(1)).append("</country></address>");
+      sb.append("<profile");
+      if(rnd.nextInt(4) != 0) sb.append(" income='").append(5000 + rnd.nextInt(200000)).append("'");
+      sb.append('>');
+      for(int i = rnd.nextInt(4); i > 0; i--) {
+        sb.append("<interest category='category").append(rnd.nextInt(100)).append("'/>");
+      }
+      sb.append("<education>").append(doc.words(1)).append("</education>");
+      sb.append("<gender>").append(rnd.nextBoolean() ? "male" : "female").append("</gender>");
+      sb.append("<age>").append(18 + rnd.nextInt(60)).append("</age></profile></person>");
+    }
+    sb.append("</people><open_auctions>");
+    for(int o = 0; o < open; o++) {
+      sb.append("<open_auction id='open_auction").append(o).append("'>");
+      sb.append("<initial>").append(price(rnd)).append("</initial>");
+      if(rnd.nextBoolean()) sb.append("<reserve>").append(price(rnd)).append("</reserve>");
+      for(int b = rnd.nextInt(6); b > 0; b--) {
+        sb.append("<bidder><personref person='person").append(rnd.nextInt(persons));
+        sb.append("'/><increase>").append(price(rnd)).append("</increase></bidder>");
+      }
+      sb.append("<itemref item='item").append(rnd.nextInt(items)).append("'/>");
+      sb.append("<seller person='person").append(rnd.nextInt(persons)).append("'/>");
+      sb.append("</open_auction>");
+    }
+    sb.append("</open_auctions><closed_auctions>");
+    for(int c = 0; c < closed; c++) {
+      sb.append("<closed_auction>");
+      sb.append("<seller person='person").append(rnd.nextInt(persons)).append("'/>");
+      sb.append("<buyer person='person").append(rnd.nextInt(persons)).append("'/>");
+      sb.append("<itemref item='item").append(rnd.nextInt(items)).append("'/>");
+      sb.append("<price>").append(price(rnd)).append("</price>");
+      sb.append("<annotation><description>");
+      doc.description(rnd.nextInt(3));
+      sb.append("</description></annotation></closed_auction>");
+    }
+    return sb.append("</closed_auctions></site>").toString();
+  }
+
+  /**
+   * Adds a description, which consists of a text or a nested list.
+   * @param depth depth of nested lists
+   */
+  private void description(final int depth) {
+    if(depth == 0) {
+      sb.append("<text>").append(words(5)).append(" <emph><keyword>").append(words(1));
+      sb.append("</keyword></emph> ").append(words(5)).append("</text>");
+    } else {
+      sb.append("<parlist>");
+      for(int l = 1 + rnd.nextInt(2); l > 0; l--) {
+        sb.append("<listitem>");
+        description(depth - 1);
+        sb.append("</listitem>");
+      }
+      sb.append("</parlist>");
+    }
+  }
+
+  /**
+   * Returns the specified number of words, separated by spaces.
+   * @param count number of words
+   * @return words
+   */
+  private String words(final int count) {
+    final StringBuilder wb = new StringBuilder();
+    for(int c = 0; c < count; c++) {
+      if(c != 0) wb.append(' ');
+      // skewed distribution
+      final int w = rnd.nextInt(WORDS);
+      wb.append(words[w * w / WORDS]);
+    }
+    return wb.toString();
+  }
+
+  /**
+   * Returns a random price.
+   * @param rnd random generator
+   * @return price
+   */
+  private static String price(final Random rnd) {
+    return rnd.nextInt(300) + "." + rnd.nextInt(10) + rnd.nextInt(10);
+  }
+}
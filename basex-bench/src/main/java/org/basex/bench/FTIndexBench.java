@@ -0,0 +1,47 @@
+package org.basex.bench;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.value.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks full-text queries that are answered by the full-text index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class FTIndexBench extends Bench {
+  /** Number of records. */
+  @Param({ "100000" })
+  public int records;
+  /** Full-text expression. */
+  @Param({ "'ax'", "'ax bx'", "'ax bx' all words", "'cx.*' using wildcards",
+    "'abcx' using fuzzy" })
+  public String search;
+
+  /** Query string. */
+  private String query;
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Setup
+  public void init() throws BaseXException {
+    createDB(Documents.records(records), true);
+    query = "count(db:open('" + NAME + "')//text[text() contains text " + search + "])";
+  }
+
+  /**
+   * Evaluates the query.
+   * @return result
+   * @throws QueryException query exception
+   */
+  @Benchmark
+  public Value query() throws QueryException {
+    try(final QueryProcessor qp = new QueryProcessor(query, context)) {
+      return qp.value();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package org.basex.bench;
+
+import java.io.*;
+
+import org.basex.build.*;
+import org.basex.build.xml.*;
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks the parsing of XML documents with the internal parser and the XML scanner.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class ParseBench extends Bench {
+  /** Number of records. */
+  @Param({ "10000", "100000" })
+  public int records;
+  /** Document type ({@code records}: short texts; {@code auction}: mixed content). */
+  @Param({ "records", "auction" })
+  public String document;
+  /** Whitespace chopping. */
+  @Param({ "true", "false" })
+  public boolean chop;
+
+  /** Input document. */
+  private IO input;
+  /** Main options. */
+  private MainOptions options;
+
+  /** Generates the input document. */
+  @Setup
+  public void init() {
+    input = new IOContent(document.equals("auction") ? Documents.auction(records / 5) :
+      Documents.records(records));
+    options = new MainOptions();
+    options.set(MainOptions.CHOP, chop);
+  }
+
+  /**
+   * Parses the document into a main-memory database.
+   * @return database
+   * @throws IOException I/O exception
+   */
+  @Benchmark
+  public MemData parse() throws IOException {
+    return MemBuilder.build(new XMLParser(input, options));
+  }
+}
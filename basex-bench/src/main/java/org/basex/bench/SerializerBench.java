@@ -0,0 +1,56 @@
+package org.basex.bench;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.io.out.*;
+import org.basex.io.serial.*;
+import org.basex.query.value.node.*;
+import org.basex.util.options.Options.YesNo;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks the serialization of a disk-based database.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class SerializerBench extends Bench {
+  /** Number of records. */
+  @Param({ "100000" })
+  public int records;
+  /** Serialization method. */
+  @Param({ "XML", "HTML", "ADAPTIVE" })
+  public SerialMethod method;
+  /** Indentation. */
+  @Param({ "NO", "YES" })
+  public YesNo indent;
+
+  /** Document node. */
+  private DBNode node;
+  /** Serialization parameters. */
+  private SerializerOptions sopts;
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Setup
+  public void init() throws BaseXException {
+    node = new DBNode(createDB(Documents.records(records), false));
+    sopts = new SerializerOptions();
+    sopts.set(SerializerOptions.METHOD, method);
+    sopts.set(SerializerOptions.INDENT, indent);
+  }
+
+  /**
+   * Serializes the document.
+   * @throws IOException I/O exception
+   */
+  @Benchmark
+  public void serialize() throws IOException {
+    try(final Serializer ser = Serializer.get(new NullOutput(), sopts)) {
+      ser.serialize(node);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package org.basex.bench;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks sequential scans of the table of a disk-based database.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class TableBench extends Bench {
+  /** Number of records. */
+  @Param({ "100000" })
+  public int records;
+
+  /** Data reference. */
+  private Data data;
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Setup
+  public void init() throws BaseXException {
+    data = createDB(Documents.records(records), false);
+  }
+
+  /**
+   * Scans the node kinds, sizes and parents of all nodes.
+   * @return checksum
+   */
+  @Benchmark
+  public long structure() {
+    long sum = 0;
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; pre++) {
+      final int kind = data.kind(pre);
+      sum += data.size(pre, kind) + data.parent(pre, kind);
+    }
+    return sum;
+  }
+
+  /**
+   * Scans the names of all elements.
+   * @return checksum
+   */
+  @Benchmark
+  public long names() {
+    long sum = 0;
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; pre++) {
+      if(data.kind(pre) == Data.ELEM) sum += data.name(pre);
+    }
+    return sum;
+  }
+
+  /**
+   * Scans the string values of all text nodes.
+   * @return checksum
+   */
+  @Benchmark
+  public long texts() {
+    long sum = 0;
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; pre++) {
+      if(data.kind(pre) == Data.TEXT) sum += data.text(pre, true).length;
+    }
+    return sum;
+  }
+}
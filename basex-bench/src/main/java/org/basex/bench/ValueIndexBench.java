@@ -0,0 +1,74 @@
+package org.basex.bench;
+
+import static org.basex.util.Token.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks lookups in the text index of a disk-based database.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class ValueIndexBench extends Bench {
+  /** Number of records. */
+  @Param({ "100000" })
+  public int records;
+  /** Number of distinct keys that will be looked up. */
+  @Param({ "100", "100000" })
+  public int keys;
+
+  /** Data reference. */
+  private Data data;
+  /** Index tokens. */
+  private IndexToken[] tokens;
+  /** Current token. */
+  private int current;
+
+  /**
+   * Creates the database and the index tokens.
+   * @throws BaseXException database exception
+   */
+  @Setup
+  public void init() throws BaseXException {
+    data = createDB(Documents.records(records), false);
+    tokens = new IndexToken[keys];
+    for(int k = 0; k < keys; k++) {
+      tokens[k] = new StringToken(true, token(Documents.value(k * 31 % records)));
+    }
+  }
+
+  /**
+   * Looks up the next key and returns all results.
+   * @return checksum
+   */
+  @Benchmark
+  public long iter() {
+    final IndexIterator ii = data.iter(next());
+    long sum = 0;
+    while(ii.more()) sum += ii.pre();
+    return sum;
+  }
+
+  /**
+   * Returns the number of results for the next key.
+   * @return number of results
+   */
+  @Benchmark
+  public int costs() {
+    return data.costs(next());
+  }
+
+  /**
+   * Returns the next index token.
+   * @return token
+   */
+  private IndexToken next() {
+    final IndexToken it = tokens[current];
+    if(++current == keys) current = 0;
+    return it;
+  }
+}
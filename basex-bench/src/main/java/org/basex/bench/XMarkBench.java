@@ -0,0 +1,90 @@
+package org.basex.bench;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.value.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks representative XMark queries on a generated auction document.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class XMarkBench extends Bench {
+  /** XMark queries, indexed by their number. */
+  private static final String[] QUERIES = {
+    null,
+    // Q1: exact match
+    "for $b in /site/people/person[@id = 'person0'] return $b/name/text()",
+    // Q2: ordered access
+    "for $b in /site/open_auctions/open_auction " +
+    "return <increase>{ $b/bidder[1]/increase/text() }</increase>",
+    // Q3: ordered access with comparison
+    "for $b in /site/open_auctions/open_auction " +
+    "where zero-or-one($b/bidder[1]/increase/text()) * 2 <= $b/bidder[last()]/increase/text() " +
+    "return <increase first='{ $b/bidder[1]/increase/text() }' " +
+    "last='{ $b/bidder[last()]/increase/text() }'/>",
+    null,
+    // Q5: casting
+    "count(for $i in /site/closed_auctions/closed_auction " +
+    "where $i/price/text() >= 40 return $i/price)",
+    // Q6: regular path expressions
+    "for $b in //site/regions return count($b//item)",
+    // Q7: regular path expressions
+    "for $p in /site return count($p//description) + count($p//annotation) + " +
+    "count($p//emailaddress)",
+    // Q8: join on values
+    "for $p in /site/people/person " +
+    "let $a := for $t in /site/closed_auctions/closed_auction " +
+    "where $t/buyer/@person = $p/@id return $t " +
+    "return <item person='{ $p/name/text() }'>{ count($a) }</item>",
+    null, null, null, null, null,
+    // Q14: full-text search
+    "for $i in /site//item where contains(string(exactly-one($i/description)), 'ax') " +
+    "return $i/name/text()",
+    null, null,
+    // Q17: missing elements
+    "for $p in /site/people/person where empty($p/homepage/text()) " +
+    "return <person name='{ $p/name/text() }'/>",
+    null,
+    // Q19: sorting
+    "for $b in /site/regions//item let $k := $b/name/text() " +
+    "order by zero-or-one($b/location) ascending empty greatest " +
+    "return <item name='{ $k }'>{ $b/location/text() }</item>",
+    // Q20: aggregation
+    "<result><preferred>{ count(/site/people/person/profile[@income >= 100000]) }</preferred>" +
+    "<standard>{ count(/site/people/person/profile[@income < 100000 and @income >= 30000]) }" +
+    "</standard><challenge>{ count(/site/people/person/profile[@income < 30000]) }</challenge>" +
+    "<na>{ count(for $p in /site/people/person where empty($p/profile/@income) return $p) }" +
+    "</na></result>"
+  };
+
+  /** Number of persons. */
+  @Param({ "2000" })
+  public int persons;
+  /** Query number. */
+  @Param({ "1", "2", "3", "5", "6", "7", "8", "14", "17", "19", "20" })
+  public int query;
+
+  /**
+   * Creates the database.
+   * @throws BaseXException database exception
+   */
+  @Setup
+  public void init() throws BaseXException {
+    createDB(Documents.auction(persons), false);
+  }
+
+  /**
+   * Evaluates the query.
+   * @return result
+   * @throws QueryException query exception
+   */
+  @Benchmark
+  public Value query() throws QueryException {
+    try(final QueryProcessor qp = new QueryProcessor(QUERIES[query], context)) {
+      return qp.value();
+    }
+  }
+}
@@ -38,6 +38,10 @@ public final class BaseXServer extends CLI implements Runnable {
   private StringList commands;
   /** Server socket. */
   private ServerSocket socket;
+  /** Client selector (if requests are processed by a fixed number of threads). */
+  private ClientSelector selector;
+  /** Timer for authentication timeouts. */
+  private final Timer timer = new Timer(true);
   /** Start as daemon. */
   private boolean service;
   /** Quiet flag. */
@@ -104,9 +108,15 @@ public final class BaseXServer extends CLI implements Runnable {
       // execute initial command-line arguments
       for(final String cmd : commands) execute(cmd);
 
-      socket = new ServerSocket();
-      socket.setReuseAddress(true);
-      socket.bind(new InetSocketAddress(addr, port));
+      final int threads = sopts.get(StaticOptions.SERVERTHREADS);
+      if(threads > 0) {
+        selector = new ClientSelector(new InetSocketAddress(addr, port), threads);
+        socket = selector.socket();
+      } else {
+        socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(new InetSocketAddress(addr, port));
+      }
       esocket = new ServerSocket();
       esocket.setReuseAddress(true);
       esocket.bind(new InetSocketAddress(addr, eport));
@@ -138,7 +148,7 @@ public final class BaseXServer extends CLI implements Runnable {
     running = true;
     while(running) {
       try {
-        final Socket s = socket.accept();
+        final Socket s = selector != null ? selector.accept() : socket.accept();
         if(stopFile.exists()) {
           if(!stopFile.delete()) {
             context.log.writeServer(LogType.ERROR, Util.info(FILE_NOT_DELETED_X, stopFile));
@@ -157,15 +167,17 @@ public final class BaseXServer extends CLI implements Runnable {
           // start authentication timeout
           final long to = context.soptions.get(StaticOptions.KEEPALIVE) * 1000L;
           if(to > 0) {
-            cl.auth.schedule(new TimerTask() {
+            cl.auth = new TimerTask() {
               @Override
               public void run() {
                 cl.quitAuth();
               }
-            }, to);
+            };
+            timer.schedule(cl.auth, to);
             auth.add(cl);
           }
-          cl.start();
+          if(selector != null) selector.start(cl);
+          else cl.start();
         }
       } catch(final SocketException ex) {
         break;
@@ -204,8 +216,10 @@ public final class BaseXServer extends CLI implements Runnable {
 
     try {
       // close interactive input if server was stopped by another process
+      timer.cancel();
       esocket.close();
-      socket.close();
+      if(selector != null) selector.close();
+      else socket.close();
     } catch(final IOException ex) {
       Util.errln(ex);
       context.log.writeServer(LogType.ERROR, Util.message(ex));
@@ -338,7 +352,7 @@ public final class BaseXServer extends CLI implements Runnable {
   public void remove(final ClientListener client) {
     synchronized(auth) {
       auth.remove(client);
-      client.auth.cancel();
+      if(client.auth != null) client.auth.cancel();
     }
   }
 
@@ -4,14 +4,18 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
 import org.basex.core.*;
 import org.basex.core.MainOptions.MainParser;
 import org.basex.core.cmd.*;
+import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.in.*;
+import org.basex.io.serial.*;
+import org.basex.query.value.node.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -19,6 +23,9 @@ import org.basex.util.list.*;
  * This class recursively scans files and directories and parses all
  * relevant files.
  *
+ * If more than one thread is used, files are parsed concurrently into main memory
+ * instances. The instances are then passed on to the builder in the original order.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
@@ -42,6 +49,12 @@ public final class DirParser extends Parser {
   private final boolean dtd;
   /** Raw parsing. */
   private final boolean rawParser;
+  /** Number of parser threads. */
+  private final int threads;
+  /** Pending parse tasks (only used by multiple threads). */
+  private final ArrayDeque<ParseTask> tasks = new ArrayDeque<>();
+  /** Thread pool (only used by multiple threads). */
+  private ExecutorService pool;
   /** Database path for storing binary files. */
   private IOFile rawPath;
 
@@ -67,6 +80,8 @@ public final class DirParser extends Parser {
     addRaw = options.get(MainOptions.ADDRAW);
     dtd = options.get(MainOptions.DTD);
     rawParser = options.get(MainOptions.PARSER) == MainParser.RAW;
+    final int pt = options.get(MainOptions.PARSETHREADS);
+    threads = pt > 0 ? pt : Runtime.getRuntime().availableProcessors();
     filter = !source.isDir() && !source.isArchive() ? null :
       Pattern.compile(IOFile.regex(options.get(MainOptions.CREATEFILTER)));
   }
@@ -86,7 +101,19 @@ public final class DirParser extends Parser {
   public void parse(final Builder build) throws IOException {
     build.meta.filesize = 0;
     build.meta.original = source.path();
-    parse(build, source);
+    if(threads < 2) {
+      parse(build, source);
+      return;
+    }
+    pool = Executors.newFixedThreadPool(threads);
+    try {
+      parse(build, source);
+      while(!tasks.isEmpty()) add(build);
+    } finally {
+      pool.shutdownNow();
+      pool = null;
+      tasks.clear();
+    }
   }
 
   /**
@@ -179,6 +206,17 @@ public final class DirParser extends Parser {
         if(rawPath != null) {
           Store.store(source.inputSource(), new IOFile(rawPath, targ + name));
         }
+      } else if(pool != null) {
+        // parse input in a separate thread; cache streamed archive entries
+        IO in = source;
+        if(in instanceof IOStream) {
+          in = new IOContent(source.read());
+          in.name(source.name());
+        }
+        final ParseTask task = new ParseTask(in, targ, source.path());
+        tasks.add(task);
+        pool.execute(task);
+        if(tasks.size() > threads << 1) add(b);
       } else {
         // store input as XML
         boolean ok = true;
@@ -212,6 +250,60 @@ public final class DirParser extends Parser {
     }
   }
 
+  /**
+   * Waits for the oldest parse task and adds its result to the builder.
+   * @param builder builder
+   * @throws IOException I/O exception
+   */
+  private void add(final Builder builder) throws IOException {
+    final ParseTask task = tasks.poll();
+    final MemData md;
+    try {
+      md = task.get();
+    } catch(final InterruptedException ex) {
+      throw new IOException(ex);
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException && skipCorrupt) {
+        Util.debug(th);
+        skipped.add(task.path);
+        return;
+      }
+      if(th instanceof IOException) throw (IOException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw Util.notExpected(th);
+    }
+    builder.checkStop();
+    new BuilderSerializer(builder).serialize(new DBNode(md, 0));
+    builder.encoding(md.meta.encoding);
+    if(Prop.debug && (++c & 0x3FF) == 0) Util.err(";");
+  }
+
+  /**
+   * Task for parsing a single resource into a main memory instance.
+   */
+  private final class ParseTask extends FutureTask<MemData> {
+    /** Original path of the resource. */
+    private final String path;
+
+    /**
+     * Constructor.
+     * @param input input
+     * @param target target path
+     * @param path original path
+     */
+    ParseTask(final IO input, final String target, final String path) {
+      super(new Callable<MemData>() {
+        @Override
+        public MemData call() throws IOException {
+          return MemBuilder.build("", Parser.singleParser(input, options, target));
+        }
+      });
+      this.path = path;
+    }
+  }
+
   @Override
   public String info() {
     final TokenBuilder tb = new TokenBuilder();
@@ -92,13 +92,23 @@ public final class DiskBuilder extends Builder implements Closeable {
     }
     close();
 
-    // copy temporary values into database table
+    // copy temporary values into database table (which is compressed afterwards)
+    final boolean columnar = meta.columnar;
+    meta.columnar = false;
     try(final DataInput in = new DataInput(meta.dbfile(DATATMP))) {
       final TableAccess ta = new TableDiskAccess(meta, true);
       for(; spos < ssize; ++spos) ta.write4(in.readNum(), 8, in.readNum());
       ta.close();
     }
     meta.dbfile(DATATMP).delete();
+    if(columnar) {
+      TableColumns.convert(meta);
+      meta.columnar = true;
+    }
+    if(meta.blockcompress) {
+      HeapBlocks.convert(meta, DATATXT);
+      HeapBlocks.convert(meta, DATAATV);
+    }
 
     // return database instance
     return new DiskData(meta, elemNames, attrNames, path, ns);
@@ -196,10 +206,10 @@ public final class DiskBuilder extends Builder implements Closeable {
     final long v = Token.toSimpleInt(value);
     if(v != Integer.MIN_VALUE) return v | IO.OFFNUM;
 
-    // store text
+    // store text (packed, unless the whole file will be compressed)
     final DataOutput store = text ? xout : vout;
     final long off = store.size();
-    final byte[] val = comp.pack(value);
+    final byte[] val = meta.blockcompress ? value : comp.pack(value);
     store.writeToken(val);
     return val == value ? off : off | IO.OFFCOMP;
   }
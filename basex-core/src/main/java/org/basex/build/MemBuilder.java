@@ -91,6 +91,12 @@ public final class MemBuilder extends Builder {
     meta.createattr = true;
     meta.textindex = true;
     meta.attrindex = true;
+    // names are not indexed, and nothing is compressed, logged or versioned in main memory mode
+    meta.createname = false;
+    meta.columnar = false;
+    meta.blockcompress = false;
+    meta.wal = false;
+    meta.mvcc = false;
     elemNames = data.elemNames;
     attrNames = data.attrNames;
     path.data(data);
@@ -284,6 +284,7 @@ final class XMLScanner extends Proc {
       } else {
         token.add(c);
       }
+      if(!pe) input.copy(token, true);
     } while((c = consume()) != quote);
   }
 
@@ -323,6 +324,8 @@ final class XMLScanner extends Proc {
           token.add(c);
         }
       }
+      // copy subsequent plain characters
+      if(!pe) input.copy(token, false);
       c = consume();
       f = false;
     }
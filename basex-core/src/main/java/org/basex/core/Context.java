@@ -1,9 +1,13 @@
 package org.basex.core;
 
+import java.io.*;
+import java.util.*;
+
 import org.basex.core.locks.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.io.random.*;
+import org.basex.query.*;
 import org.basex.query.util.pkg.*;
 import org.basex.server.*;
 import org.basex.util.*;
@@ -40,6 +44,8 @@ public final class Context {
   public final Databases databases;
   /** Log. */
   public final Log log;
+  /** Cache for parsed queries. */
+  public final QueryCache queries;
 
   /** Client listener. Set to {@code null} in standalone/server mode. */
   public ClientListener listener;
@@ -52,6 +58,8 @@ public final class Context {
   private User user;
   /** Data reference. */
   private Data data;
+  /** Snapshots that are read by the registered process instead of locked databases. */
+  private final ArrayList<Snapshot> snapshots = new ArrayList<>(0);
 
   // GUI references
 
@@ -93,6 +101,7 @@ public final class Context {
     users = ctx.users;
     repo = ctx.repo;
     log = ctx.log;
+    queries = ctx.queries;
   }
 
   /**
@@ -122,6 +131,7 @@ public final class Context {
     users = new Users(soptions);
     repo = new Repo(soptions);
     log = new Log(soptions);
+    queries = new QueryCache(soptions);
     user = users.get(UserText.ADMIN);
   }
 
@@ -272,20 +282,76 @@ public final class Context {
     // get touched databases
     final LockResult lr = new LockResult();
     pr.databases(lr);
+    final ArrayList<DiskData> mvcc = lr.snapshot && !lr.writeAll && !lr.readAll &&
+        lr.write.isEmpty() ? pinSnapshots(lr.read) : null;
     final StringList write = prepareLock(lr.write, lr.writeAll);
     final StringList read = write == null ? null : prepareLock(lr.read, lr.readAll);
     locks.acquire(pr, read, write);
+    // snapshots are requested after the locks have been acquired (they may wait for updates)
+    if(mvcc != null) {
+      for(final DiskData dd : mvcc) snapshots.add(dd.snapshot());
+    }
   }
 
   /**
    * Unlocks the process and stops the timeout.
    * @param pr process
+   * @throws BaseXException database exception if logged updates could not be made durable
    */
-  public void unregister(final Proc pr) {
+  public void unregister(final Proc pr) throws BaseXException {
     assert pr.registered() : "Not registered:" + pr;
     pr.registered(false);
     locks.release(pr);
-    pr.stopTimeout();
+    for(final Snapshot snapshot : snapshots) {
+      final DiskData dd = snapshot.database();
+      dd.release(snapshot);
+      datas.unpin(dd);
+    }
+    snapshots.clear();
+    try {
+      // wait until the logged updates are durable (the write locks have already been released)
+      WriteAheadLog.await();
+    } catch(final IOException ex) {
+      throw new BaseXException(ex);
+    } finally {
+      pr.stopTimeout();
+    }
+  }
+
+  /**
+   * Returns a snapshot of the specified database that is read by the registered process.
+   * @param name name of the database
+   * @return snapshot or {@code null}
+   */
+  public Snapshot snapshot(final String name) {
+    for(final Snapshot snapshot : snapshots) {
+      final String db = snapshot.database().meta.name;
+      if(Prop.CASE ? db.equals(name) : db.equalsIgnoreCase(name)) return snapshot;
+    }
+    return null;
+  }
+
+  /**
+   * Pins all opened databases that will be read via snapshots, and removes them from the
+   * list of databases to be locked. The currently opened database will always be locked.
+   * @param read names of databases to be read
+   * @return pinned databases
+   */
+  private ArrayList<DiskData> pinSnapshots(final StringList read) {
+    final ArrayList<DiskData> list = new ArrayList<>(0);
+    for(int d = 0; d < read.size(); d++) {
+      final String name = read.get(d);
+      if(name.equals(DBLocking.CONTEXT) || data != null && data.meta.name.equals(name)) continue;
+      final Data dt = datas.pin(name);
+      if(dt == null) continue;
+      if(dt instanceof DiskData && ((DiskData) dt).mvcc()) {
+        list.add((DiskData) dt);
+        read.remove(d--);
+      } else {
+        datas.unpin(dt);
+      }
+    }
+    return list;
   }
 
   /**
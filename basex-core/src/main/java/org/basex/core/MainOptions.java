@@ -33,6 +33,8 @@ public final class MainOptions extends Options {
   public static final BooleanOption SKIPCORRUPT = new BooleanOption("SKIPCORRUPT", false);
   /** Flag for adding remaining files as raw files. */
   public static final BooleanOption ADDRAW = new BooleanOption("ADDRAW", false);
+  /** Number of threads for parsing files in directories and archives (0: available processors). */
+  public static final NumberOption PARSETHREADS = new NumberOption("PARSETHREADS", 1);
   /** Define CSV parser options. */
   public static final OptionsOption<CsvParserOptions> CSVPARSER =
       new OptionsOption<>("CSVPARSER", new CsvParserOptions());
@@ -69,6 +71,17 @@ public final class MainOptions extends Options {
   /** Cache new documents before adding them to a database. */
   public static final BooleanOption ADDCACHE = new BooleanOption("ADDCACHE", false);
 
+  // Storage
+
+  /** Flag for storing the database table in compressed columns. */
+  public static final BooleanOption COLUMNAR = new BooleanOption("COLUMNAR", false);
+  /** Flag for storing texts and attribute values in compressed blocks. */
+  public static final BooleanOption BLOCKCOMPRESS = new BooleanOption("BLOCKCOMPRESS", false);
+  /** Flag for logging updates in a write-ahead log. */
+  public static final BooleanOption WAL = new BooleanOption("WAL", false);
+  /** Flag for snapshot reads that are not blocked by updates. */
+  public static final BooleanOption MVCC = new BooleanOption("MVCC", false);
+
   // Indexing
 
   /** Flag for creating a text index. */
@@ -77,16 +90,24 @@ public final class MainOptions extends Options {
   public static final BooleanOption ATTRINDEX = new BooleanOption("ATTRINDEX", true);
   /** Flag for creating a full-text index. */
   public static final BooleanOption FTINDEX = new BooleanOption("FTINDEX", false);
+  /** Flag for creating an element and attribute name index. */
+  public static final BooleanOption NAMEINDEX = new BooleanOption("NAMEINDEX", false);
 
   /** Maximum number of text/attribute index entries to keep in memory during index creation. */
   public static final NumberOption INDEXSPLITSIZE = new NumberOption("INDEXSPLITSIZE", 0);
   /** Maximum number of fulltext index entries to keep in memory during index creation. */
   public static final NumberOption FTINDEXSPLITSIZE = new NumberOption("FTINDEXSPLITSIZE", 0);
+  /** Number of threads for building index structures (0: number of available processors). */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 1);
 
   /** Maximum length of index entries. */
   public static final NumberOption MAXLEN = new NumberOption("MAXLEN", 96);
   /** Maximum number of name categories. */
   public static final NumberOption MAXCATS = new NumberOption("MAXCATS", 100);
+  /** Maximum number of cached index entries (per index structure). */
+  public static final NumberOption INDEXCACHE = new NumberOption("INDEXCACHE", 10000);
+  /** Flag for creating numeric keys for text and attribute indexes. */
+  public static final BooleanOption RANGEINDEX = new BooleanOption("RANGEINDEX", false);
   /** Flag for activating incremental index structures. */
   public static final BooleanOption UPDINDEX = new BooleanOption("UPDINDEX", false);
   /** Flag for automatic index updates. */
@@ -123,6 +144,12 @@ public final class MainOptions extends Options {
   public static final BooleanOption DEFAULTDB = new BooleanOption("DEFAULTDB", false);
   /** Caches the query results. */
   public static final BooleanOption CACHEQUERY = new BooleanOption("CACHEQUERY", false);
+  /** Number of threads for evaluating for clauses in parallel (0: sequential evaluation). */
+  public static final NumberOption PARALLELFOR = new NumberOption("PARALLELFOR", 0);
+  /** Maximum number of tuples to sort in main memory (0: check available main memory). */
+  public static final NumberOption SORTSPLITSIZE = new NumberOption("SORTSPLITSIZE", 0);
+  /** Maximum number of groups to build in main memory (0: check available main memory). */
+  public static final NumberOption GROUPSPLITSIZE = new NumberOption("GROUPSPLITSIZE", 0);
   /** Forces database creation for unknown documents. */
   public static final BooleanOption FORCECREATE = new BooleanOption("FORCECREATE", false);
   /** Validate string inputs. */
@@ -144,6 +171,10 @@ public final class MainOptions extends Options {
   /** Exporter serialization parameters. */
   public static final OptionsOption<SerializerOptions> EXPORTER =
       new OptionsOption<>("EXPORTER", new SerializerOptions());
+  /** Number of threads for exporting resources (0: number of available processors). */
+  public static final NumberOption EXPORTTHREADS = new NumberOption("EXPORTTHREADS", 1);
+  /** Flag for exporting all resources to a single ZIP or TAR archive. */
+  public static final BooleanOption EXPORTARCHIVE = new BooleanOption("EXPORTARCHIVE", false);
 
   /** Prints an XML plan. */
   public static final BooleanOption XMLPLAN = new BooleanOption("XMLPLAN", false);
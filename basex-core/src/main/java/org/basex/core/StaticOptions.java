@@ -5,6 +5,7 @@ import static org.basex.util.Prop.*;
 import java.util.*;
 
 import org.basex.io.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.options.*;
 
@@ -36,6 +37,12 @@ public final class StaticOptions extends Options {
   public static final BooleanOption LANGKEYS = new BooleanOption("LANGKEYS", false);
   /** Applied locking algorithm: local (database) vs. global (process) locking. */
   public static final BooleanOption GLOBALLOCK = new BooleanOption("GLOBALLOCK", false);
+  /** Flag for reading the database table via memory-mapped files. */
+  public static final BooleanOption MMAP = new BooleanOption("MMAP", false);
+  /** Number of additional table buffers, shared by all opened databases. */
+  public static final NumberOption TABLEBUFFERS = new NumberOption("TABLEBUFFERS", 1 << 12);
+  /** Maximum number of parsed queries that will be cached (disabled if set to 0). */
+  public static final NumberOption QUERYCACHE = new NumberOption("QUERYCACHE", 0);
 
   /** Comment: written to options file. */
   public static final Comment C_CLIENT = new Comment("Client/Server Architecture");
@@ -67,6 +74,8 @@ public final class StaticOptions extends Options {
   public static final NumberOption TIMEOUT = new NumberOption("TIMEOUT", 30);
   /** Keep alive time of clients; deactivated if set to 0. */
   public static final NumberOption KEEPALIVE = new NumberOption("KEEPALIVE", 600);
+  /** Server: number of threads for processing requests (one thread per client if set to 0). */
+  public static final NumberOption SERVERTHREADS = new NumberOption("SERVERTHREADS", 0);
   /** Defines the number of parallel readers. */
   public static final NumberOption PARALLEL = new NumberOption("PARALLEL", 8);
   /** Logging flag. */
@@ -131,6 +140,7 @@ public final class StaticOptions extends Options {
       setSystem("http.nonProxyHosts", nph);
     }
     if(get(IGNORECERT)) IOUrl.ignoreCert();
+    TableDiskAccess.buffers(get(TABLEBUFFERS));
   }
 
   /**
@@ -173,6 +173,8 @@ public interface Text {
   String LI_SIZE = LI + "Size: ";
   /** Index info. */
   String LI_ENTRIES = LI + "Entries: ";
+  /** Index info. */
+  String LI_CACHE = LI + "Cache: ";
 
   /** Index info. */
   String HASH = "Hash";
@@ -287,7 +289,7 @@ public interface Text {
     LI + CmdCreate.EVENT + " [" + S_NAME + "]: " + NL +
     "  " + lang("c_create25") + NL +
     LI + CmdCreate.INDEX + " [" + CmdIndex.TEXT + '|' + CmdIndex.ATTRIBUTE +
-    '|' + CmdIndex.FULLTEXT + "]:" + NL +
+    '|' + CmdIndex.FULLTEXT + '|' + CmdIndex.NAME + "]:" + NL +
     "  " + lang("c_create23") + NL +
     LI + CmdCreate.USER + " [" + S_NAME + "] ([" + S_PW + "]):" + NL +
     "  " + lang("c_create24")
@@ -356,7 +358,7 @@ public interface Text {
     LI + CmdDrop.EVENT + " [" + S_NAME + "]:" + NL +
       "  " + lang("c_drop25") + NL +
     LI + CmdDrop.INDEX + " [" + CmdIndex.TEXT + '|' +
-      CmdIndex.ATTRIBUTE + '|' + CmdIndex.FULLTEXT + "]:" + NL +
+      CmdIndex.ATTRIBUTE + '|' + CmdIndex.FULLTEXT + '|' + CmdIndex.NAME + "]:" + NL +
       "  " + lang("c_drop22") + NL +
     LI + CmdDrop.USER + " [" + S_NAME + "] (" + ON + " [pattern]): " + NL +
       "  " + lang("c_drop23")
@@ -535,6 +537,8 @@ public interface Text {
   String INDEX_ATTRIBUTES_D = lang("index_attributes") + DOTS;
   /** Create full-text index. */
   String INDEX_FULLTEXT_D = lang("index_fulltext") + DOTS;
+  /** Create name index. */
+  String INDEX_NAMES_D = lang("index_names") + DOTS;
 
   /** Database created. */
   String DB_CREATED_X_X = lang("db_created_%_%");
@@ -834,6 +838,8 @@ public interface Text {
   String ATTRIBUTE_INDEX = lang("attribute_index");
   /** Info on full-text indexing. */
   String FULLTEXT_INDEX = lang("fulltext_index");
+  /** Info on name indexing. */
+  String NAME_INDEX = lang("name_index");
   /** Info on path summary. */
   String PATH_INDEX = lang("path_index");
   /** Info on up-to-date. */
@@ -856,6 +862,16 @@ public interface Text {
   String GLOBAL_OPTIONS = lang("global_options");
   /** "Local Options". */
   String LOCAL_OPTIONS = lang("local_options");
+  /** "Table Buffers". */
+  String TABLE_BUFFERS = lang("table_buffers");
+  /** "Buffer Hits". */
+  String BUFFER_HITS = lang("buffer_hits");
+  /** "Buffer Misses". */
+  String BUFFER_MISSES = lang("buffer_misses");
+  /** "Cached Queries". */
+  String CACHED_QUERIES = lang("cached_queries");
+  /** "Query Cache Hits". */
+  String QUERY_CACHE_HITS = lang("query_cache_hits");
 
   /** "(chopped)". */
   String CHOPPED = '(' + lang("chopped") + ") ";
@@ -110,6 +110,8 @@ public abstract class ACreate extends Command {
         data.meta.attrindex = true;
       } else if(type == IndexType.FULLTEXT) {
         data.meta.ftxtindex = true;
+      } else if(type == IndexType.NAME) {
+        data.meta.nameindex = true;
       } else {
         throw Util.notExpected();
       }
@@ -133,6 +135,8 @@ public abstract class ACreate extends Command {
         data.meta.attrindex = false;
       } else if(type == IndexType.FULLTEXT) {
         data.meta.ftxtindex = false;
+      } else if(type == IndexType.NAME) {
+        data.meta.nameindex = false;
       } else {
         throw Util.notExpected();
       }
@@ -139,7 +139,7 @@ public abstract class AQuery extends Command {
       if(name == null) qp.context(value[0], value[1]);
       else qp.bind(name, value[0], value[1]);
     }
-    qp.parse();
+    qp.parseCached();
     if(p != null) info.parsing += p.time();
   }
 
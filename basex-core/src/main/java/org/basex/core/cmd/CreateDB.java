@@ -103,6 +103,7 @@ public final class CreateDB extends ACreate {
           if(data.meta.createtext) create(IndexType.TEXT,      data, options, this);
           if(data.meta.createattr) create(IndexType.ATTRIBUTE, data, options, this);
           if(data.meta.createftxt) create(IndexType.FULLTEXT,  data, options, this);
+          if(data.meta.createname) create(IndexType.NAME,      data, options, this);
         } finally {
           ok = finishUpdate();
         }
@@ -174,6 +175,7 @@ public final class CreateDB extends ACreate {
     if(data.meta.createtext) create(IndexType.TEXT,      data, options, null);
     if(data.meta.createattr) create(IndexType.ATTRIBUTE, data, options, null);
     if(data.meta.createftxt) create(IndexType.FULLTEXT,  data, options, null);
+    if(data.meta.createname) create(IndexType.NAME,      data, options, null);
     return data;
   }
 
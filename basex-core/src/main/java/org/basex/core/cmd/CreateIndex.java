@@ -52,6 +52,10 @@ public final class CreateIndex extends ACreate {
       data.meta.language = Language.get(options);
       data.meta.stopwords = options.get(MainOptions.STOPWORDS);
       type = IndexType.FULLTEXT;
+    } else if(ci == CmdIndex.NAME) {
+      if(data.inMemory()) return error(NO_MAINMEM);
+      data.meta.createname = true;
+      type = IndexType.NAME;
     } else {
       return error(UNKNOWN_CMD_X, this);
     }
@@ -4,6 +4,8 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
 
 import org.basex.core.*;
 import org.basex.core.locks.*;
@@ -43,7 +45,8 @@ public final class Export extends Command {
   protected boolean run() {
     try {
       final Data data = context.data();
-      export(data, args[0], options, this);
+      export(data, args[0], options.get(MainOptions.EXPORTER),
+          options.get(MainOptions.EXPORTTHREADS), options.get(MainOptions.EXPORTARCHIVE), this);
       return info(DB_EXPORTED_X, data.meta.name, perf);
     } catch(final IOException ex) {
       return error(Util.message(ex));
@@ -56,7 +59,7 @@ public final class Export extends Command {
   }
 
   /**
-   * Exports the current database to the specified path.
+   * Exports the current database to the specified directory.
    * Files and directories in {@code path} will be possibly overwritten.
    * @param data data reference
    * @param path directory
@@ -66,23 +69,30 @@ public final class Export extends Command {
    */
   public static void export(final Data data, final String path, final MainOptions options,
       final Export export) throws IOException {
-    export(data, path, options.get(MainOptions.EXPORTER), export);
+    export(data, path, options.get(MainOptions.EXPORTER), options.get(MainOptions.EXPORTTHREADS),
+        false, export);
   }
 
   /**
    * Exports the current database to the specified path.
    * Files and directories in {@code path} will be possibly overwritten.
+   * If an archive is requested, all resources will be written to a single ZIP or TAR archive.
+   * The format is chosen by the suffix of the path.
    * @param data data reference
-   * @param path directory
+   * @param path directory or archive
    * @param sopts serialization parameters
+   * @param threads number of threads (0: number of available processors)
+   * @param archive write resources to an archive
    * @param export calling instance
    * @throws IOException I/O exception
    */
   public static void export(final Data data, final String path, final SerializerOptions sopts,
-      final Export export) throws IOException {
+      final int threads, final boolean archive, final Export export) throws IOException {
 
     final IOFile root = new IOFile(path);
-    root.md();
+    if(archive && (root.isDir() || format(root) == null)) {
+      throw new BaseXException(PATH_INVALID_X, path);
+    }
 
     // XML documents
     final IntList il = data.resources.docs();
@@ -97,45 +107,197 @@ public final class Export extends Command {
       desc = bin.descendants();
     }
 
+    // assign unique names to all resources
+    final HashSet<String> exported = new HashSet<>();
+    final int is = il.size(), ds = desc.size(), rs = is + ds;
+    final String[] names = new String[rs];
+    for(int i = 0; i < is; i++) {
+      names[i] = unique(exported, Token.string(data.text(il.get(i), true)));
+    }
+    for(int d = 0; d < ds; d++) names[is + d] = unique(exported, desc.get(d));
+
     if(export != null) {
       export.progPos = 0;
-      export.progSize = il.size() + desc.size();
+      export.progSize = rs;
     }
 
-    // XML documents
-    final HashSet<String> exported = new HashSet<>();
-    final int is = il.size();
-    for(int i = 0; i < is; i++) {
-      final int pre = il.get(i);
-      // create file path
-      final IOFile fl = root.resolve(Token.string(data.text(pre, true)));
-      if(export != null) {
-        export.checkStop();
-        export.progFile = fl;
-        export.progPos++;
-      }
-      // create dir if necessary
-      fl.parent().md();
+    if(archive) root.parent().md();
+    else root.md();
+
+    // resources are serialized in parallel; archive entries are written in their original order
+    final int ts = Math.max(1, Math.min(threads > 0 ? threads :
+      Runtime.getRuntime().availableProcessors(), rs));
+    final ExecutorService pool = ts > 1 ? Executors.newFixedThreadPool(ts) : null;
+    final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    try(final OutputStream out = archive ? output(root) : null) {
+      for(int r = 0, w = 0; w < rs;) {
+        // submit resources until the maximum number of pending tasks is reached
+        while(r < rs && pending.size() < ts << 1) {
+          if(export != null) export.checkStop();
+          final String name = names[r];
+          final Callable<byte[]> task;
+          if(r < is) {
+            final DBNode node = new DBNode(data, il.get(r));
+            task = new Callable<byte[]>() {
+              @Override
+              public byte[] call() throws IOException {
+                return serialize(node, sopts, archive ? null : root.resolve(name));
+              }
+            };
+          } else {
+            final IOFile source = new IOFile(bin, name);
+            task = new Callable<byte[]>() {
+              @Override
+              public byte[] call() throws IOException {
+                if(!archive) source.copyTo(root.resolve(name));
+                return null;
+              }
+            };
+          }
+          final FutureTask<byte[]> future = new FutureTask<>(task);
+          if(pool == null) future.run();
+          else pool.execute(future);
+          pending.add(future);
+          r++;
+        }
 
-      // serialize file
-      try(final PrintOutput po = new PrintOutput(unique(exported, fl.path()))) {
-        try(final Serializer ser = Serializer.get(po, sopts)) {
-          ser.serialize(new DBNode(data, pre));
+        // wait for the next resource to be finished
+        final byte[] value = pending.poll().get();
+        final String name = names[w];
+        if(archive) {
+          if(w < is) entry(out, name, value);
+          else entry(out, name, new IOFile(bin, name));
         }
+        if(export != null) {
+          export.checkStop();
+          export.progFile = archive ? root : root.resolve(name);
+          export.progPos++;
+        }
+        w++;
       }
+    } catch(final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new BaseXException(ex);
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException) throw (IOException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw Util.notExpected(th);
+    } finally {
+      if(pool != null) pool.shutdownNow();
     }
+  }
+
+  /**
+   * Serializes a document. Each invocation uses its own serializer and output.
+   * @param node document node
+   * @param sopts serialization parameters
+   * @param file target file ({@code null}: return serialized bytes)
+   * @return serialized bytes, or {@code null} if the document was written to a file
+   * @throws IOException I/O exception
+   */
+  private static byte[] serialize(final DBNode node, final SerializerOptions sopts,
+      final IOFile file) throws IOException {
 
-    // export raw files
-    for(final String s : desc) {
-      final IOFile fl = new IOFile(root.path(), s);
-      if(export != null) {
-        export.checkStop();
-        export.progFile = fl;
-        export.progPos++;
+    if(file == null) {
+      final ArrayOutput ao = new ArrayOutput();
+      try(final Serializer ser = Serializer.get(ao, sopts)) {
+        ser.serialize(node);
       }
-      final String u = unique(exported, fl.path());
-      new IOFile(bin, s).copyTo(new IOFile(u));
+      return ao.finish();
+    }
+    // create dir if necessary
+    file.parent().md();
+    try(final PrintOutput po = new PrintOutput(file.path())) {
+      try(final Serializer ser = Serializer.get(po, sopts)) {
+        ser.serialize(node);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the archive suffix of the specified path.
+   * @param file target path
+   * @return ZIP or TAR suffix, or {@code null} if the path has no archive suffix
+   */
+  private static String format(final IOFile file) {
+    final String name = file.name().toLowerCase(Locale.ENGLISH);
+    for(final String suffix : new String[] { IO.ZIPSUFFIX, IO.TARSUFFIX, IO.TGZSUFFIX,
+        IO.TARGZSUFFIX }) {
+      if(name.endsWith(suffix)) return suffix;
     }
+    return null;
+  }
+
+  /**
+   * Returns an output stream for the specified archive.
+   * @param file archive
+   * @return output stream
+   * @throws IOException I/O exception
+   */
+  private static OutputStream output(final IOFile file) throws IOException {
+    final String suffix = format(file);
+    final OutputStream os = new BufferOutput(file.path());
+    if(suffix.equals(IO.ZIPSUFFIX)) return new ZipOutputStream(os);
+    if(suffix.equals(IO.TARSUFFIX)) return new TarOutputStream(os);
+    return new TarOutputStream(new GZIPOutputStream(os));
+  }
+
+  /**
+   * Writes an archive entry.
+   * @param out archive output stream
+   * @param name name of the entry
+   * @param value contents
+   * @throws IOException I/O exception
+   */
+  private static void entry(final OutputStream out, final String name, final byte[] value)
+      throws IOException {
+    open(out, name, value.length);
+    out.write(value);
+    close(out);
+  }
+
+  /**
+   * Writes an archive entry for a raw file.
+   * @param out archive output stream
+   * @param name name of the entry
+   * @param file raw file
+   * @throws IOException I/O exception
+   */
+  private static void entry(final OutputStream out, final String name, final IOFile file)
+      throws IOException {
+    open(out, name, file.length());
+    try(final InputStream in = file.inputStream()) {
+      final byte[] buffer = new byte[IO.BLOCKSIZE];
+      for(int c; (c = in.read(buffer)) != -1;) out.write(buffer, 0, c);
+    }
+    close(out);
+  }
+
+  /**
+   * Opens an archive entry.
+   * @param out archive output stream
+   * @param name name of the entry
+   * @param length byte size of the entry
+   * @throws IOException I/O exception
+   */
+  private static void open(final OutputStream out, final String name, final long length)
+      throws IOException {
+    final String nm = name.replaceAll("^/+", "");
+    if(out instanceof ZipOutputStream) ((ZipOutputStream) out).putNextEntry(new ZipEntry(nm));
+    else ((TarOutputStream) out).putNextEntry(nm, length);
+  }
+
+  /**
+   * Closes an archive entry.
+   * @param out archive output stream
+   * @throws IOException I/O exception
+   */
+  private static void close(final OutputStream out) throws IOException {
+    if(out instanceof ZipOutputStream) ((ZipOutputStream) out).closeEntry();
+    else ((TarOutputStream) out).closeEntry();
   }
 
   @Override
@@ -7,6 +7,7 @@ import java.io.*;
 import org.basex.core.*;
 import org.basex.core.locks.*;
 import org.basex.core.users.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.options.*;
 
@@ -49,6 +50,13 @@ public final class Info extends AInfo {
     if(user.has(Perm.CREATE)) {
       Performance.gc(1);
       info(tb, USED_MEM, Performance.getMemory());
+      final long[] bs = TableDiskAccess.buffers();
+      info(tb, TABLE_BUFFERS, bs[0] + "/" + bs[1]);
+      info(tb, BUFFER_HITS, bs[2]);
+      info(tb, BUFFER_MISSES, bs[3]);
+      final long[] qs = context.queries.stats();
+      info(tb, CACHED_QUERIES, qs[0] + "/" + context.soptions.get(StaticOptions.QUERYCACHE));
+      info(tb, QUERY_CACHE_HITS, qs[1] + "/" + (qs[1] + qs[2]));
     }
     if(user.has(Perm.ADMIN)) {
       final StaticOptions sopts = context.soptions;
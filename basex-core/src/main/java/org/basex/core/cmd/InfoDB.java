@@ -72,6 +72,10 @@ public final class InfoDB extends AInfo {
     info(tb, TIMESTAMP, DateTime.format(new Date(meta.time), DateTime.DATETIME));
     info(tb, ENCODING, meta.encoding);
     info(tb, MainOptions.CHOP.name(), meta.chop);
+    info(tb, MainOptions.COLUMNAR.name(), meta.columnar);
+    info(tb, MainOptions.BLOCKCOMPRESS.name(), meta.blockcompress);
+    info(tb, MainOptions.WAL.name(), meta.wal);
+    info(tb, MainOptions.MVCC.name(), meta.mvcc);
 
     if(index) {
       tb.add(NL).addExt(header, INDEXES);
@@ -82,15 +86,18 @@ public final class InfoDB extends AInfo {
         info(tb, MainOptions.TEXTINDEX.name(), meta.textindex);
         info(tb, MainOptions.ATTRINDEX.name(), meta.attrindex);
         info(tb, MainOptions.FTINDEX.name(), meta.ftxtindex);
+        info(tb, MainOptions.NAMEINDEX.name(), meta.nameindex);
         info(tb, MainOptions.LANGUAGE.name(), meta.language);
         info(tb, MainOptions.STEMMING.name(), meta.stemming);
         info(tb, MainOptions.CASESENS.name(), meta.casesens);
         info(tb, MainOptions.DIACRITICS.name(), meta.diacritics);
         info(tb, MainOptions.STOPWORDS.name(), meta.stopwords);
         info(tb, MainOptions.UPDINDEX.name(), meta.updindex);
+        info(tb, MainOptions.RANGEINDEX.name(), meta.rangeindex);
         info(tb, MainOptions.AUTOOPTIMIZE.name(), meta.autoopt);
         info(tb, MainOptions.MAXCATS.name(), meta.maxcats);
         info(tb, MainOptions.MAXLEN.name(), meta.maxlen);
+        info(tb, MainOptions.INDEXCACHE.name(), meta.indexcache);
       }
     }
     return tb.toString();
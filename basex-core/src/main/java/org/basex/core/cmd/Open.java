@@ -8,6 +8,7 @@ import org.basex.core.*;
 import org.basex.core.locks.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 
 /**
@@ -85,6 +86,10 @@ public final class Open extends Command {
     if(!context.perm(Perm.READ, name)) throw new BaseXException(PERM_REQUIRED_X, Perm.READ);
 
     synchronized(context.datas) {
+      // return snapshot if the database is read by the registered process without locking
+      final Snapshot snapshot = context.snapshot(name);
+      if(snapshot != null) return snapshot.data();
+
       Data data = context.datas.pin(name);
       if(data == null) {
         // check if the addressed database exists
@@ -94,7 +99,8 @@ public final class Open extends Command {
         final MetaData meta = new MetaData(name, options, context.soptions);
         if(meta.updateFile().exists()) throw new BaseXException(DB_UPDATED_X, meta.name);
 
-        // open database
+        // apply logged updates that have not been written back, open database
+        WriteAheadLog.recover(meta);
         data = new DiskData(meta);
         context.datas.pin(data);
       }
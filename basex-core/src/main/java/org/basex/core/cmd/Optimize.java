@@ -8,6 +8,7 @@ import org.basex.core.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.value.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -143,11 +144,43 @@ public final class Optimize extends ACreate {
       md.autoopt = autoopt;
       md.dirty = true;
     }
+    // reassign write-ahead log flag
+    final boolean wal = options.get(MainOptions.WAL);
+    if(wal != md.wal) {
+      md.wal = wal;
+      md.dirty = true;
+    }
+    // reassign snapshot flag
+    final boolean mvcc = options.get(MainOptions.MVCC);
+    if(mvcc != md.mvcc) {
+      md.mvcc = mvcc;
+      md.dirty = true;
+    }
 
     // rebuild value indexes
     optimize(IndexType.ATTRIBUTE, data, options, md.createattr, md.attrindex, enforce, cmd);
     optimize(IndexType.TEXT,      data, options, md.createtext, md.textindex, enforce, cmd);
     optimize(IndexType.FULLTEXT,  data, options, md.createftxt, md.ftxtindex, enforceFT, cmd);
+    optimize(IndexType.NAME,      data, options, md.createname, md.nameindex, enforce, cmd);
+
+    // create or drop numeric keys (may have been dropped by incremental index updates)
+    numeric(data.textIndex, md.rangeindex);
+    numeric(data.attrIndex, md.rangeindex);
+  }
+
+  /**
+   * Creates or drops the numeric keys of the specified value index.
+   * @param index index (may be {@code null})
+   * @param create create or drop numeric keys
+   * @throws IOException I/O exception
+   */
+  private static void numeric(final Index index, final boolean create) throws IOException {
+    if(!(index instanceof DiskValues)) return;
+    final DiskValues dv = (DiskValues) index;
+    if(create != dv.numeric()) {
+      if(create) dv.createNumeric();
+      else dv.dropNumeric();
+    }
   }
 
   /**
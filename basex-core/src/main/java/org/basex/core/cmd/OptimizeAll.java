@@ -109,11 +109,17 @@ public final class OptimizeAll extends ACreate {
 
     // adopt original meta information
     options.set(MainOptions.CHOP, ometa.chop);
+    options.set(MainOptions.COLUMNAR, ometa.columnar);
+    options.set(MainOptions.BLOCKCOMPRESS, ometa.blockcompress);
     // adopt original index options
     options.set(MainOptions.UPDINDEX, ometa.updindex);
+    options.set(MainOptions.RANGEINDEX, ometa.rangeindex);
     options.set(MainOptions.AUTOOPTIMIZE, ometa.autoopt);
+    options.set(MainOptions.WAL, ometa.wal);
+    options.set(MainOptions.MVCC, ometa.mvcc);
     options.set(MainOptions.MAXCATS,  ometa.maxcats);
     options.set(MainOptions.MAXLEN,   ometa.maxlen);
+    options.set(MainOptions.INDEXCACHE, ometa.indexcache);
     // adopt original full-text index options
     options.set(MainOptions.STEMMING,   ometa.stemming);
     options.set(MainOptions.CASESENS,   ometa.casesens);
@@ -132,10 +138,12 @@ public final class OptimizeAll extends ACreate {
         if(ometa.createtext) create(IndexType.TEXT, dt, options, cmd);
         if(ometa.createattr) create(IndexType.ATTRIBUTE, dt, options, cmd);
         if(ometa.createftxt) create(IndexType.FULLTEXT, dt, options, cmd);
+        if(ometa.createname) create(IndexType.NAME, dt, options, cmd);
         // adopt original meta data
         dt.meta.createtext = ometa.createtext;
         dt.meta.createattr = ometa.createattr;
         dt.meta.createftxt = ometa.createftxt;
+        dt.meta.createname = ometa.createname;
         dt.meta.filesize   = ometa.filesize;
         dt.meta.dirty      = true;
 
@@ -5,6 +5,7 @@ import static org.basex.util.Prop.*;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.concurrent.locks.*;
 
 import org.basex.core.*;
@@ -17,6 +18,10 @@ import org.basex.util.list.*;
  *
  * This class prevents locking deadlocks by sorting all all strings
  *
+ * Object locks are stored in a striped table, and their usage is counted without
+ * synchronization. Transactions are only queued if the maximum number of concurrent
+ * transactions has been reached.
+ *
  * Locks can only be released by the same thread which acquired it.
  *
  * Locking methods are not synchronized to each other. The user must make sure not to call
@@ -32,6 +37,8 @@ import org.basex.util.list.*;
 public final class DBLocking implements Locking {
   /** Fair scheduling; prevents starvation, but reduces parallelism. */
   private static final boolean FAIR = true;
+  /** Number of stripes of the lock table. */
+  private static final int STRIPES = 64;
 
   /** Prefix for internal special locks. */
   public static final String PREFIX = "%";
@@ -65,20 +72,18 @@ public final class DBLocking implements Locking {
    */
   private final ReentrantReadWriteLock writeAll = new ReentrantReadWriteLock();
   /** Stores one lock for each object used for locking. */
-  private final Map<String, ReentrantReadWriteLock> locks = new HashMap<>();
-  /** Stores lock usage counters for each object used for locking. */
-  private final Map<String, Integer> lockUsage = new HashMap<>();
-  /**
-   * Currently running transactions.
-   * Used as monitor for atomizing access to {@link #queue}.
-   */
-  private int transactions;
+  private final ConcurrentMap<String, ObjectLock> locks =
+      new ConcurrentHashMap<>(16, 0.75f, STRIPES);
+  /** Number of currently running transactions. */
+  private final AtomicInteger transactions = new AtomicInteger();
+  /** Number of queued transactions. */
+  private final AtomicInteger waiting = new AtomicInteger();
   /**
    * Queue for transactions waiting.
    *
    * Used as monitor for waiting threads in queue.
    */
-  private final Queue<Long> queue = new LinkedList<>();
+  private final Queue<Long> queue = new ArrayDeque<>();
   /**
    * Stores a list of objects each transaction has write-locked.
    * Null means lock everything, an empty array lock nothing.
@@ -107,19 +112,22 @@ public final class DBLocking implements Locking {
       throw new IllegalMonitorStateException("Thread already holds one or more locks.");
 
     // Wait in queue if necessary
-    synchronized(queue) { // Guard queue and transaction, monitor for waiting in queue
-      queue.add(thread);
-      while(transactions >= Math.max(sopts.get(StaticOptions.PARALLEL), 1)
-          || queue.peek() != thread) {
-        try {
-          queue.wait();
-        } catch(final InterruptedException ex) {
-          Thread.currentThread().interrupt();
+    if(!enter(false)) {
+      synchronized(queue) { // Guard queue, monitor for waiting in queue
+        waiting.incrementAndGet();
+        queue.add(thread);
+        while(queue.peek() != thread || !enter(true)) {
+          try {
+            queue.wait();
+          } catch(final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
         }
+        queue.remove();
+        waiting.decrementAndGet();
+        // the next transaction in the queue may be allowed to run as well
+        queue.notifyAll();
       }
-      final int t = transactions++;
-      assert t <= Math.max(sopts.get(StaticOptions.PARALLEL), 1);
-      queue.remove(thread);
     }
 
     // Global write lock if write StringList is not set
@@ -172,35 +180,49 @@ public final class DBLocking implements Locking {
     while(r < rs || w < ws) {
       // Look what token comes earlier in alphabet, prefer writing against reading
       if(w < ws && (r >= rs || writeObjects.get(w).compareTo(readObjects.get(r)) <= 0)) {
-        final String writeObject = writeObjects.get(w++);
-        setLockUsed(writeObject);
-        getOrCreateLock(writeObject).writeLock().lock();
+        lock(writeObjects.get(w++)).writeLock().lock();
       } else
       // Read lock only if not global write locking; otherwise no lock downgrading from
       // global write lock is possible
       if(write != null) {
-        final String readObject = readObjects.get(r++);
-        setLockUsed(readObject);
-        getOrCreateLock(readObject).readLock().lock();
+        lock(readObjects.get(r++)).readLock().lock();
       }
     }
   }
 
   /**
-   * Gets or creates lock on object.
-   * @param object to fetch lock for
-   * @return lock on object
+   * Tries to start a transaction.
+   * @param queued transaction has been queued
+   * @return {@code true} if the maximum number of transactions has not been reached yet
    */
-  private ReentrantReadWriteLock getOrCreateLock(final String object) {
-    ReentrantReadWriteLock lock;
-    synchronized(locks) { // Make sure each object lock is a singleton
-      lock = locks.get(object);
-      if(lock == null) { // Create lock if needed
-        lock = new ReentrantReadWriteLock(FAIR);
-        locks.put(object, lock);
+  private boolean enter(final boolean queued) {
+    final int max = Math.max(sopts.get(StaticOptions.PARALLEL), 1);
+    // new transactions must not overtake queued ones
+    if(!queued && waiting.get() > 0) return false;
+    while(true) {
+      final int t = transactions.get();
+      if(t >= max) return false;
+      if(transactions.compareAndSet(t, t + 1)) return true;
+    }
+  }
+
+  /**
+   * Returns the lock for the specified object and marks it as used.
+   * @param object object
+   * @return lock
+   */
+  private ObjectLock lock(final String object) {
+    while(true) {
+      ObjectLock lock = locks.get(object);
+      if(lock == null) {
+        final ObjectLock created = new ObjectLock();
+        lock = locks.putIfAbsent(object, created);
+        if(lock == null) lock = created;
       }
+      // retry if the lock has been discarded in the meantime
+      if(lock.use()) return lock;
+      locks.remove(object, lock);
     }
-    return lock;
   }
 
   @Override
@@ -209,19 +231,20 @@ public final class DBLocking implements Locking {
     final Long thread = Thread.currentThread().getId();
     final StringList writeObjects = writeLocked.remove(thread);
     if(writeObjects != null) for(final String object : writeObjects) {
-      final ReentrantReadWriteLock lock = getOrCreateLock(object);
+      final ObjectLock lock = locks.get(object);
       assert lock.getWriteHoldCount() == 1 : "Unexpected write lock count: "
           + lock.getWriteHoldCount();
       lock.writeLock().unlock();
-      unsetLockIfUnused(object);
+      release(object, lock);
     }
 
     // Release all read locks
     final StringList readObjects = readLocked.remove(thread);
     if(!writeAll.isWriteLocked() && readObjects != null)
       for(final String object : readObjects) {
-        getOrCreateLock(object).readLock().unlock();
-        unsetLockIfUnused(object);
+        final ObjectLock lock = locks.get(object);
+        lock.readLock().unlock();
+        release(object, lock);
       }
 
     // Release global locks
@@ -236,39 +259,21 @@ public final class DBLocking implements Locking {
     }
 
     // Allow another transaction to run
-    synchronized(queue) {
-      transactions--;
-      queue.notifyAll();
-    }
-  }
-
-  /**
-   * Marks a lock as used.
-   * @param lock Lock to set used
-   */
-  private void setLockUsed(final String lock) {
-    synchronized(lockUsage) {
-      Integer usage = lockUsage.get(lock);
-      if(usage == null) usage = 0;
-      lockUsage.put(lock, ++usage);
+    transactions.decrementAndGet();
+    if(waiting.get() > 0) {
+      synchronized(queue) {
+        queue.notifyAll();
+      }
     }
   }
 
   /**
-   * Unsets lock if unused.
-   * @param object Object to test
+   * Marks the lock of an object as unused, and discards it if it is not used anymore.
+   * @param object object
+   * @param lock lock
    */
-  private void unsetLockIfUnused(final String object) {
-    synchronized(lockUsage) {
-      Integer usage = lockUsage.get(object);
-      assert usage != null;
-      if(--usage == 0) {
-        locks.remove(object);
-        lockUsage.remove(object);
-      } else {
-        lockUsage.put(object, usage);
-      }
-    }
+  private void release(final String object, final ObjectLock lock) {
+    if(lock.release()) locks.remove(object, lock);
   }
 
   /**
@@ -283,7 +288,7 @@ public final class DBLocking implements Locking {
     sb.append(ind + "Transactions running: " + transactions + NL);
     sb.append(ind + "Transaction queue: " + queue + NL);
     sb.append(ind + "Held locks by object:" + NL);
-    for(final Entry<String, ReentrantReadWriteLock> e : locks.entrySet())
+    for(final Entry<String, ObjectLock> e : locks.entrySet())
       sb.append(ind + ind + e.getKey() + " -> " + e.getValue() + NL);
     sb.append(ind + "Held write locks by transaction:" + NL);
     for(final Long thread : writeLocked.keySet())
@@ -294,4 +299,36 @@ public final class DBLocking implements Locking {
     return sb.toString();
   }
 
+  /** Lock on a single object, with a usage counter. */
+  private static final class ObjectLock extends ReentrantReadWriteLock {
+    /** Number of transactions using this lock ({@code -1}: discarded). */
+    private final AtomicInteger usage = new AtomicInteger();
+
+    /** Constructor. */
+    private ObjectLock() {
+      super(FAIR);
+    }
+
+    /**
+     * Marks the lock as used.
+     * @return {@code false} if the lock has already been discarded
+     */
+    boolean use() {
+      while(true) {
+        final int u = usage.get();
+        if(u == -1) return false;
+        if(usage.compareAndSet(u, u + 1)) return true;
+      }
+    }
+
+    /**
+     * Marks the lock as unused.
+     * @return {@code true} if the lock is not used anymore and has been discarded
+     */
+    boolean release() {
+      final int u = usage.decrementAndGet();
+      assert u >= 0 : "Unexpected lock usage: " + u;
+      return u == 0 && usage.compareAndSet(0, -1);
+    }
+  }
 }
@@ -20,6 +20,8 @@ public class LockResult {
   public boolean readAll;
   /** Flag if global write lock is required. */
   public boolean writeAll;
+  /** Flag if read locks on opened databases may be replaced by snapshots. */
+  public boolean snapshot;
 
   /**
    * Merge lock instances.
@@ -34,6 +36,7 @@ public class LockResult {
     write.add(lr.write);
     readAll |= lr.readAll;
     writeAll |= lr.writeAll;
+    snapshot &= lr.snapshot;
   }
 
   @Override
@@ -166,9 +166,9 @@ public interface Commands {
   /** Permission commands. */
   enum CmdPerm { NONE, READ, WRITE, CREATE, ADMIN }
   /** Index types. */
-  enum CmdIndex { TEXT, ATTRIBUTE, FULLTEXT }
+  enum CmdIndex { TEXT, ATTRIBUTE, FULLTEXT, NAME }
   /** Index types. */
-  enum CmdIndexInfo { NULL, TEXT, ATTRIBUTE, FULLTEXT, PATH, TAG, ATTNAME }
+  enum CmdIndexInfo { NULL, TEXT, ATTRIBUTE, FULLTEXT, NAME, PATH, TAG, ATTNAME }
   /** Alter types. */
   enum CmdAlter { DATABASE, DB, PASSWORD, USER }
   /** Repo types. */
@@ -101,6 +101,8 @@ public abstract class Data {
   public Index attrIndex;
   /** Full-text index instance. */
   public Index ftxtIndex;
+  /** Name index. */
+  public Index nameIndex;
 
   /** Table access file. */
   TableAccess table;
@@ -206,6 +208,7 @@ public abstract class Data {
       case ATTRIBUTE: return attrIndex;
       case FULLTEXT:  return ftxtIndex;
       case PATH:      return paths;
+      case NAME:      return nameIndex;
       default:        throw Util.notExpected();
     }
   }
@@ -507,8 +510,9 @@ public abstract class Data {
       // write namespace uri reference
       table.write1(pre, kind == ELEM ? 3 : 11, nuri);
       // write name reference
-      table.write2(pre, 1, (nsFlag(pre) ? 1 << 15 : 0) |
-        (kind == ELEM ? elemNames : attrNames).index(name, null, false));
+      final int nm = (kind == ELEM ? elemNames : attrNames).index(name, null, false);
+      if(meta.updindex) indexRename(pre, kind, nm);
+      table.write2(pre, 1, (nsFlag(pre) ? 1 << 15 : 0) | nm);
       // write namespace flag
       table.write2(npre, 1, (ne || nsFlag(npre) ? 1 << 15 : 0) | name(npre));
     }
@@ -978,6 +982,7 @@ public abstract class Data {
 
     // build and insert new entry
     final int i = newID();
+    indexName(i, name, ELEM);
     final int n = ne ? 1 << 7 : 0;
     s(Math.min(IO.MAXATTS, asize) << 3 | ELEM);
     s(n | (byte) (name >> 8)); s(name); s(uri);
@@ -1018,6 +1023,7 @@ public abstract class Data {
     // add attribute to text storage
     final int i = newID();
     final long v = index(pre, i, value, ATTR);
+    indexName(i, name, ATTR);
     final int n = ne ? 1 << 7 : 0;
     s(Math.min(IO.MAXATTS, dist) << 3 | ATTR);
     s(n | (byte) (name >> 8)); s(name); s(v >> 32);
@@ -1070,6 +1076,22 @@ public abstract class Data {
    */
   protected abstract long index(final int pre, final int id, final byte[] value, final int kind);
 
+  /**
+   * Indexes the name of an element or attribute that is added to the update buffer.
+   * @param id id value
+   * @param name name id
+   * @param kind node kind
+   */
+  void indexName(final int id, final int name, final int kind) { }
+
+  /**
+   * Updates the name index when an element or attribute is renamed.
+   * @param pre pre value
+   * @param kind node kind
+   * @param name id of the new name
+   */
+  void indexRename(final int pre, final int kind, final int name) { }
+
   /** Notify the index structures that an update operation is started. */
   void indexBegin() { }
 
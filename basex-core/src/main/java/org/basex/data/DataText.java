@@ -15,6 +15,8 @@ public interface DataText {
   String STORAGE = "7.8";
   /** Index version; older version cannot open indexes of these instances. */
   String ISTORAGE = "7.8";
+  /** Database version of instances with compressed files; older version cannot open them. */
+  String CSTORAGE = "8.0";
 
   /** Database version. */
   String DBSTR = "STORAGE";
@@ -38,14 +40,24 @@ public interface DataText {
   String DBPTHIDX = "PTHINDEX";
   /** Automatic index update. */
   String DBUPDIDX = "UPDINDEX";
+  /** Columnar table. */
+  String DBCOLUMN = "COLUMNAR";
+  /** Compressed texts and attribute values. */
+  String DBBLKCOMP = "BLKCOMP";
   /** Automatic optimization. */
   String DBAUTOOPT = "AUTOOPT";
+  /** Write-ahead log. */
+  String DBWAL = "WAL";
+  /** Snapshot reads. */
+  String DBMVCC = "MVCC";
   /** Text indexing. */
   String DBTXTIDX = "TXTINDEX";
   /** Attribute indexing. */
   String DBATVIDX = "ATVINDEX";
   /** Full-text indexing. */
   String DBFTXIDX = "FTXINDEX";
+  /** Name indexing. */
+  String DBNAMIDX = "NAMINDEX";
   /** Full-text stemming. */
   String DBFTST = "FTSTEM";
   /** Full-text language. */
@@ -60,6 +72,10 @@ public interface DataText {
   String DBMAXLEN = "MAXLEN";
   /** Maximum number of categories. */
   String DBMAXCATS = "MAXCATS";
+  /** Numeric keys of value indexes. */
+  String DBRNGIDX = "RNGIDX";
+  /** Maximum number of cached index entries. */
+  String DBIDXCACHE = "IDXCACHE";
   /** Up-to-date flag. */
   String DBUPTODATE = "UPTODATE";
   /** Last (highest) id. */
@@ -74,6 +90,8 @@ public interface DataText {
   String DBCRTATV = "CRTATV";
   /** Full-text indexing. */
   String DBCRTFTX = "CRTFTX";
+  /** Name indexing. */
+  String DBCRTNAM = "CRTNAM";
 
   /** Full-text wildcards indexing (legacy, obsolete). */
   String DBWCIDX = "WCINDEX";
@@ -103,6 +121,10 @@ public interface DataText {
   String DATAATV = "atv";
   /** Database - Full-text index. */
   String DATAFTX = "ftx";
+  /** Database - Element name index. */
+  String DATAELN = "eln";
+  /** Database - Attribute name index. */
+  String DATAATN = "atn";
   /** Database - Stopword list. */
   String DATASWL = "swl";
   /** Database - Updating flag. */
@@ -111,6 +133,12 @@ public interface DataText {
   String DATAPTH = "pth";
   /** Database - ID->PRE mapping. */
   String DATAIDP = "idp";
+  /** Database - Block directory of compressed files (prefix). */
+  String DATABLK = "blk";
+  /** Database - Dictionary of compressed files (prefix). */
+  String DATADIC = "dic";
+  /** Database - Write-ahead log. */
+  String DATAWAL = "wal";
 
   // XML SERIALIZATION ============================================================================
 
@@ -4,6 +4,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
@@ -15,6 +16,7 @@ import org.basex.index.path.*;
 import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
@@ -26,6 +28,9 @@ import org.basex.util.list.*;
  * for textual content in a compressed disk structure.
  * The table mapping is documented in {@link Data}.
  *
+ * If snapshot reads are enabled (see {@link MetaData#mvcc}), the last committed version of
+ * the database can be read via a {@link Snapshot} while the database is updated.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
@@ -47,9 +52,24 @@ public final class DiskData extends Data {
   private TokenObjMap<IntList> txtBuffer;
   /** Attribute values buffered for subsequent index updates. */
   private TokenObjMap<IntList> atvBuffer;
+  /** Element names buffered for subsequent index updates. */
+  private IntObjMap<IntList> elnBuffer;
+  /** Attribute names buffered for subsequent index updates. */
+  private IntObjMap<IntList> atnBuffer;
+  /** Write-ahead log ({@code null} if updates are not logged). */
+  private WriteAheadLog wal;
   /** Closed flag. */
   private boolean closed;
 
+  /** Snapshot from which this instance was created ({@code null} for the live database). */
+  private final Snapshot source;
+  /** Open snapshots of this database. */
+  private final ArrayList<Snapshot> snapshots = new ArrayList<>(0);
+  /** Snapshot of the last committed version ({@code null} if it has not been created yet). */
+  private Snapshot current;
+  /** Indicates if the database is currently updated. */
+  private boolean updating;
+
   /**
    * Default constructor, called from {@link Open#open}.
    * @param meta meta data
@@ -57,20 +77,10 @@ public final class DiskData extends Data {
    */
   public DiskData(final MetaData meta) throws IOException {
     super(meta);
+    source = null;
 
     try(final DataInput in = new DataInput(meta.dbfile(DATAINF))) {
-      meta.read(in);
-      while(true) {
-        final String k = string(in.readToken());
-        if(k.isEmpty()) break;
-        switch(k) {
-          case DBTAGS: elemNames = new Names(in, meta); break;
-          case DBATTS: attrNames = new Names(in, meta); break;
-          case DBPATH: paths = new PathSummary(this, in); break;
-          case DBNS:   nspaces = new Namespaces(in); break;
-          case DBDOCS: resources.read(in); break;
-        }
-      }
+      read(in);
     }
 
     // open data and indexes
@@ -84,6 +94,7 @@ public final class DiskData extends Data {
       if(meta.attrindex) attrIndex = new DiskValues(this, false);
     }
     if(meta.ftxtindex) ftxtIndex = new FTIndex(this);
+    if(meta.nameindex) nameIndex = new NameIndex(this);
   }
 
   /**
@@ -105,17 +116,76 @@ public final class DiskData extends Data {
     this.nspaces = nspaces;
     paths.data(this);
     if(meta.updindex) idmap = new IdPreMap(meta.lastid);
+    source = null;
     init();
   }
 
+  /**
+   * Constructor for a snapshot, called from {@link Snapshot#data()}.
+   * @param snapshot snapshot
+   * @throws IOException I/O Exception
+   */
+  DiskData(final Snapshot snapshot) throws IOException {
+    super(new MetaData(snapshot.live.meta));
+    source = snapshot;
+
+    try(final DataInput in = new DataInput(new IOContent(snapshot.info))) {
+      read(in);
+    }
+    table = snapshot.table;
+    texts = snapshot.texts;
+    values = snapshot.values;
+
+    // value indexes are accessed via views, full-text files will only be changed by index
+    // rebuilds, which close all snapshots, and the name index is not versioned
+    final DataAccess[] txt = snapshot.textIndex, atv = snapshot.attrIndex;
+    meta.textindex = txt != null;
+    meta.attrindex = atv != null;
+    meta.nameindex = false;
+    if(meta.updindex) {
+      idmap = new IdPreMap(new IOContent(snapshot.ids));
+      if(txt != null) textIndex = new UpdatableDiskValues(this, true, txt);
+      if(atv != null) attrIndex = new UpdatableDiskValues(this, false, atv);
+    } else {
+      if(txt != null) textIndex = new DiskValues(this, true, txt);
+      if(atv != null) attrIndex = new DiskValues(this, false, atv);
+    }
+    if(meta.ftxtindex) ftxtIndex = new FTIndex(this);
+  }
+
+  /**
+   * Reads the meta data and the main-memory structures.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  private void read(final DataInput in) throws IOException {
+    meta.read(in);
+    while(true) {
+      final String k = string(in.readToken());
+      if(k.isEmpty()) break;
+      switch(k) {
+        case DBTAGS: elemNames = new Names(in, meta); break;
+        case DBATTS: attrNames = new Names(in, meta); break;
+        case DBPATH: paths = new PathSummary(this, in); break;
+        case DBNS:   nspaces = new Namespaces(in); break;
+        case DBDOCS: resources.read(in); break;
+      }
+    }
+  }
+
   /**
    * Initializes the database.
    * @throws IOException I/O exception
    */
   private void init() throws IOException {
     table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    if(meta.blockcompress) {
+      texts = new DataAccess(meta.dbfile(DATATXT), new HeapBlocks(meta, DATATXT));
+      values = new DataAccess(meta.dbfile(DATAATV), new HeapBlocks(meta, DATAATV));
+    } else {
+      texts = new DataAccess(meta.dbfile(DATATXT), meta.mmap);
+      values = new DataAccess(meta.dbfile(DATAATV), meta.mmap);
+    }
   }
 
   /**
@@ -124,29 +194,150 @@ public final class DiskData extends Data {
    */
   private void write() throws IOException {
     if(meta.dirty) {
-      try(final DataOutput out = new DataOutput(meta.dbfile(DATAINF))) {
-        meta.write(out);
-        out.writeToken(token(DBTAGS));
-        elemNames.write(out);
-        out.writeToken(token(DBATTS));
-        attrNames.write(out);
-        out.writeToken(token(DBPATH));
-        paths.write(out);
-        out.writeToken(token(DBNS));
-        nspaces.write(out);
-        out.writeToken(token(DBDOCS));
-        resources.write(out);
-        out.write(0);
+      try(final DataOutput out = meta.output(DATAINF)) {
+        write(out);
       }
-      if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
+      if(idmap != null) idmap.write(meta.output(DATAIDP));
       meta.dirty = false;
     }
   }
 
+  /**
+   * Writes the meta data and the main-memory structures.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    elemNames.write(out);
+    out.writeToken(token(DBATTS));
+    attrNames.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    out.write(0);
+  }
+
+  // SNAPSHOTS ================================================================
+
+  /**
+   * Checks if snapshots of this database can be created.
+   * @return result of check
+   */
+  public boolean mvcc() {
+    return source == null && meta.mvcc && !meta.columnar && !meta.blockcompress;
+  }
+
+  /**
+   * Returns a pinned snapshot of the last committed version of the database.
+   * If the database is currently updated, and if no snapshot has been created before the update
+   * was started, the method waits until the update has been finished.
+   * The snapshot must be released via {@link #release(Snapshot)}.
+   * @return snapshot
+   */
+  public synchronized Snapshot snapshot() {
+    while(updating && current == null) {
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if(current == null) current = capture();
+    current.pins++;
+    return current;
+  }
+
+  /**
+   * Releases a snapshot. Obsolete snapshots will be closed if they are not pinned anymore.
+   * @param snapshot snapshot
+   */
+  public synchronized void release(final Snapshot snapshot) {
+    if(--snapshot.pins == 0 && snapshot.obsolete) {
+      snapshot.close();
+      snapshots.remove(snapshot);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Creates a snapshot of the current version of the database.
+   * Must only be called if the database is not being updated.
+   * @return snapshot
+   */
+  private Snapshot capture() {
+    final ArrayOutput info = new ArrayOutput();
+    ArrayOutput ids = null;
+    try {
+      write(new DataOutput(info));
+      if(idmap != null) {
+        ids = new ArrayOutput();
+        idmap.write(new DataOutput(ids));
+      }
+    } catch(final IOException ex) {
+      throw Util.notExpected(ex);
+    }
+    final DataAccess[] txt = meta.textindex && textIndex instanceof DiskValues ?
+      ((DiskValues) textIndex).snapshot() : null;
+    final DataAccess[] atv = meta.attrindex && attrIndex instanceof DiskValues ?
+      ((DiskValues) attrIndex).snapshot() : null;
+    final Snapshot snapshot = new Snapshot(this, info.toArray(), ids != null ? ids.toArray() :
+      null, ((TableDiskAccess) table).snapshot(), texts.snapshot(), values.snapshot(), txt, atv);
+    snapshots.add(snapshot);
+    return snapshot;
+  }
+
+  /**
+   * Waits until no snapshots are read anymore, and closes them. Called before index structures
+   * are rebuilt or dropped, which are shared by the snapshots.
+   */
+  private synchronized void closeSnapshots() {
+    // no new snapshots will be created until the current update has been finished
+    current = null;
+    while(true) {
+      boolean pinned = false;
+      for(final Snapshot snapshot : snapshots) pinned |= snapshot.pins > 0;
+      if(!pinned) break;
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    for(final Snapshot snapshot : snapshots) snapshot.close();
+    snapshots.clear();
+  }
+
   @Override
   public synchronized void close() {
     if(closed) return;
     closed = true;
+    if(source != null) {
+      // snapshot: close views and index structures, nothing needs to be written
+      try {
+        table.close();
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+      texts.close();
+      values.close();
+      close(IndexType.TEXT);
+      close(IndexType.ATTRIBUTE);
+      close(IndexType.FULLTEXT);
+      return;
+    }
+    for(final Snapshot snapshot : snapshots) snapshot.close();
+    snapshots.clear();
+    current = null;
+    try {
+      if(wal != null) wal.close();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
     try {
       write();
       table.close();
@@ -155,6 +346,7 @@ public final class DiskData extends Data {
       close(IndexType.TEXT);
       close(IndexType.ATTRIBUTE);
       close(IndexType.FULLTEXT);
+      close(IndexType.NAME);
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -182,13 +374,16 @@ public final class DiskData extends Data {
   public void createIndex(final IndexType type, final MainOptions options, final Command cmd)
       throws IOException {
 
-    // close existing index
+    // write back logged changes, close snapshots and existing index
+    if(wal != null) wal.suspend();
+    closeSnapshots();
     close(type);
     final IndexBuilder ib;
     switch(type) {
       case TEXT:      ib = new DiskValuesBuilder(this, options, true); break;
       case ATTRIBUTE: ib = new DiskValuesBuilder(this, options, false); break;
       case FULLTEXT:  ib = new FTBuilder(this, options); break;
+      case NAME:      ib = new NameIndexBuilder(this); break;
       default:        throw Util.notExpected();
     }
     if(cmd != null) cmd.proc(ib);
@@ -197,7 +392,17 @@ public final class DiskData extends Data {
 
   @Override
   public boolean dropIndex(final IndexType type) {
-    // close and drop index (return true if no index exists)
+    // write back logged changes
+    if(wal != null) {
+      try {
+        wal.suspend();
+      } catch(final IOException ex) {
+        Util.stack(ex);
+        return false;
+      }
+    }
+    // close snapshots, close and drop index (return true if no index exists)
+    closeSnapshots();
     final Index index = index(type);
     close(type);
     return index == null || index.drop();
@@ -214,6 +419,7 @@ public final class DiskData extends Data {
       case TEXT:      textIndex = index; break;
       case ATTRIBUTE: attrIndex = index; break;
       case FULLTEXT:  ftxtIndex = index; break;
+      case NAME:      nameIndex = index; break;
       default:        break;
     }
   }
@@ -221,15 +427,71 @@ public final class DiskData extends Data {
   @Override
   public void startUpdate(final MainOptions opts) throws IOException {
     if(!table.lock(true)) throw new BaseXException(Text.DB_PINNED_X, meta.name);
-    if(opts.get(MainOptions.AUTOFLUSH)) {
-      final IOFile uf = meta.updateFile();
-      if(uf.exists()) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
-      if(!uf.touch()) throw Util.notExpected("%: could not create lock file.", meta.name);
+    final boolean auto = opts.get(MainOptions.AUTOFLUSH);
+    if(auto && meta.wal && !meta.columnar && !meta.blockcompress) {
+      // log update: database files will only be changed when a checkpoint is reached
+      if(meta.updateFile().exists()) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
+      if(wal == null) wal = new WriteAheadLog(meta);
+      wal.check();
+      journal();
+    } else {
+      // write back logged changes, mark database as being updated
+      if(wal != null) {
+        wal.close();
+        wal = null;
+      }
+      if(auto) {
+        final IOFile uf = meta.updateFile();
+        if(uf.exists()) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
+        if(!uf.touch()) throw Util.notExpected("%: could not create lock file.", meta.name);
+      }
+    }
+    // create a snapshot of the last committed version, which can be read during the update
+    synchronized(this) {
+      if(current == null && mvcc()) current = capture();
+      updating = true;
     }
   }
 
   @Override
   public synchronized void finishUpdate(final MainOptions opts) {
+    try {
+      finish(opts);
+    } finally {
+      // the snapshot of the previous version will be closed when it is not read anymore
+      if(current != null) {
+        if(current.pins == 0) {
+          current.close();
+          snapshots.remove(current);
+        } else {
+          current.obsolete = true;
+        }
+        current = null;
+      }
+      updating = false;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Finishes an update.
+   * @param opts main options
+   */
+  private void finish(final MainOptions opts) {
+    if(wal != null) {
+      // commit logged update
+      try {
+        commit();
+      } catch(final IOException ex) {
+        // the log is marked as failed; the error is reported by WriteAheadLog.await()
+        Util.debug(ex);
+      }
+      if(!closed && !table.lock(false)) {
+        throw Util.notExpected("Database '%': could not unlock.", meta.name);
+      }
+      return;
+    }
+
     // remove updating file
     final boolean auto = opts.get(MainOptions.AUTOFLUSH);
     if(auto) {
@@ -245,9 +507,43 @@ public final class DiskData extends Data {
     }
   }
 
+  /**
+   * Journals all database files that are changed by updates.
+   */
+  private void journal() {
+    ((TableDiskAccess) table).journal(wal);
+    texts.journal(wal);
+    values.journal(wal);
+    if(textIndex != null) ((DiskValues) textIndex).journal(wal);
+    if(attrIndex != null) ((DiskValues) attrIndex).journal(wal);
+    if(nameIndex != null) ((NameIndex) nameIndex).journal(wal);
+  }
+
+  /**
+   * Commits a logged update. The record will be forced to disk after the write locks have
+   * been released (see {@link WriteAheadLog#await()}).
+   * @throws IOException I/O exception
+   */
+  private void commit() throws IOException {
+    if(wal.suspended()) {
+      // logging was suspended: write changes to the database files
+      if(!closed) flush(true);
+      wal.resume();
+    } else if(!closed) {
+      meta.record = wal;
+      try {
+        write();
+        wal.commit();
+      } finally {
+        meta.record = null;
+      }
+    }
+  }
+
   @Override
   public synchronized void flush(final boolean all) {
     try {
+      if(wal != null && !wal.suspended()) wal.checkpoint();
       table.flush(all);
       if(all) {
         write();
@@ -255,6 +551,7 @@ public final class DiskData extends Data {
         values.flush();
         if(textIndex != null) ((DiskValues) textIndex).flush();
         if(attrIndex != null) ((DiskValues) attrIndex).flush();
+        if(nameIndex != null) ((NameIndex) nameIndex).flush();
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -284,9 +581,10 @@ public final class DiskData extends Data {
     final long o = textOff(pre);
     if(number(o)) return numDigits((int) o);
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final long p = o & IO.OFFCOMP - 1;
+    final int l = da.readNum(p);
     // compressed: next number contains number of compressed bytes
-    return compressed(o) ? da.readNum() : l;
+    return compressed(o) ? da.readNum(p + Num.length(l)) : l;
   }
 
   /**
@@ -349,8 +647,8 @@ public final class DiskData extends Data {
     // new entry (offset or value)
     final long v = toSimpleInt(value);
     if(v == Integer.MIN_VALUE) {
-      // text to be stored (possibly packed)
-      final byte[] val = COMPRESS.get().pack(value);
+      // text to be stored (possibly packed, unless the whole file is compressed)
+      final byte[] val = meta.blockcompress ? value : COMPRESS.get().pack(value);
       // old entry (offset or value)
       final long old = textOff(pre);
 
@@ -377,18 +675,34 @@ public final class DiskData extends Data {
   void indexBegin() {
     txtBuffer = new TokenObjMap<>();
     atvBuffer = new TokenObjMap<>();
+    elnBuffer = new IntObjMap<>();
+    atnBuffer = new IntObjMap<>();
   }
 
   @Override
   protected void indexAdd() {
     if(!txtBuffer.isEmpty()) ((DiskValues) textIndex).add(txtBuffer);
     if(!atvBuffer.isEmpty()) ((DiskValues) attrIndex).add(atvBuffer);
+    if(!elnBuffer.isEmpty()) ((NameIndex) nameIndex).add(true, elnBuffer);
+    if(!atnBuffer.isEmpty()) ((NameIndex) nameIndex).add(false, atnBuffer);
   }
 
   @Override
   void indexDelete() {
     if(!txtBuffer.isEmpty()) ((DiskValues) textIndex).delete(txtBuffer);
     if(!atvBuffer.isEmpty()) ((DiskValues) attrIndex).delete(atvBuffer);
+    if(!elnBuffer.isEmpty()) ((NameIndex) nameIndex).delete(true, elnBuffer);
+    if(!atnBuffer.isEmpty()) ((NameIndex) nameIndex).delete(false, atnBuffer);
+  }
+
+  @Override
+  void indexName(final int id, final int name, final int kind) {
+    if(meta.updindex && meta.nameindex) add(kind == ELEM ? elnBuffer : atnBuffer, name, id);
+  }
+
+  @Override
+  void indexRename(final int pre, final int kind, final int name) {
+    if(meta.nameindex) ((NameIndex) nameIndex).rename(kind == ELEM, name(pre), name, id(pre));
   }
 
   @Override
@@ -421,15 +735,15 @@ public final class DiskData extends Data {
 
     // store text
     final long off = store.length();
-    final byte[] val = COMPRESS.get().pack(value);
+    final byte[] val = meta.blockcompress ? value : COMPRESS.get().pack(value);
     store.writeToken(off, val);
     return val == value ? off : off | IO.OFFCOMP;
   }
 
   @Override
   protected void indexDelete(final int pre, final int size) {
-    final boolean textI = meta.textindex, attrI = meta.attrindex;
-    if(textI || attrI) {
+    final boolean textI = meta.textindex, attrI = meta.attrindex, nameI = meta.nameindex;
+    if(textI || attrI || nameI) {
       // collect all keys and ids
       indexBegin();
       final int l = pre + size;
@@ -449,11 +763,29 @@ public final class DiskData extends Data {
             ids.add(id(p));
           }
         }
+        if(nameI && (k == ELEM || k == ATTR)) {
+          add(k == ELEM ? elnBuffer : atnBuffer, name(p), id(p));
+        }
       }
       indexDelete();
     }
   }
 
+  /**
+   * Adds an id to the buffered ids of a name.
+   * @param map buffer
+   * @param name name id
+   * @param id id
+   */
+  private static void add(final IntObjMap<IntList> map, final int name, final int id) {
+    IntList ids = map.get(name);
+    if(ids == null) {
+      ids = new IntList(1);
+      map.put(name, ids);
+    }
+    ids.add(id);
+  }
+
   @Override
   public boolean inMemory() {
     return false;
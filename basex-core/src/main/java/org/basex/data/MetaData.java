@@ -12,6 +12,7 @@ import org.basex.core.cmd.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.ft.*;
 
@@ -27,6 +28,12 @@ public final class MetaData {
 
   /** Database name. */
   public volatile String name;
+  /** Flag for memory-mapped table access (not stored on disk). */
+  public final boolean mmap;
+  /** Flag for a snapshot of a database (not stored on disk). */
+  public final boolean snapshot;
+  /** Write-ahead log to which written files will be added (not stored on disk). */
+  public volatile WriteAheadLog record;
 
   /** Encoding of original document. */
   public volatile String encoding = UTF8;
@@ -41,22 +48,36 @@ public final class MetaData {
 
   /** Flag for whitespace chopping. */
   public volatile boolean chop;
+  /** Flag for a columnar, compressed table. */
+  public volatile boolean columnar;
+  /** Flag for compressed blocks of texts and attribute values. */
+  public volatile boolean blockcompress;
   /** Flag for activated automatic index update. */
   public volatile boolean updindex;
+  /** Flag for numeric keys of value indexes. */
+  public volatile boolean rangeindex;
   /** Flag for automatic index updating. */
   public volatile boolean autoopt;
+  /** Flag for logging updates in a write-ahead log. */
+  public volatile boolean wal;
+  /** Flag for snapshot reads that are not blocked by updates. */
+  public volatile boolean mvcc;
   /** Indicates if a text index exists. */
   public volatile boolean textindex;
   /** Indicates if an attribute index exists. */
   public volatile boolean attrindex;
   /** Indicates if a full-text index exists. */
   public volatile boolean ftxtindex;
+  /** Indicates if a name index exists. */
+  public volatile boolean nameindex;
   /** Indicates if text index is to be recreated. */
   public volatile boolean createtext;
   /** Indicates if attribute index is to be recreated. */
   public volatile boolean createattr;
   /** Indicates if full-text index is to be recreated. */
   public volatile boolean createftxt;
+  /** Indicates if name index is to be recreated. */
+  public volatile boolean createname;
 
   /** Flag for full-text stemming. */
   public volatile boolean stemming;
@@ -71,6 +92,8 @@ public final class MetaData {
   public volatile int maxcats;
   /** Maximum token length. */
   public volatile int maxlen;
+  /** Maximum number of cached index entries. */
+  public volatile int indexcache;
 
   /** Language of full-text search index. */
   public volatile Language language;
@@ -111,21 +134,42 @@ public final class MetaData {
   public MetaData(final String name, final MainOptions options, final StaticOptions sopts) {
     this.name = name;
     path = sopts != null ? sopts.dbpath(name) : null;
+    mmap = sopts != null && sopts.get(StaticOptions.MMAP);
+    snapshot = false;
     chop = options.get(MainOptions.CHOP);
+    columnar = options.get(MainOptions.COLUMNAR);
+    blockcompress = options.get(MainOptions.BLOCKCOMPRESS);
     createtext = options.get(MainOptions.TEXTINDEX);
     createattr = options.get(MainOptions.ATTRINDEX);
     createftxt = options.get(MainOptions.FTINDEX);
+    createname = options.get(MainOptions.NAMEINDEX);
     diacritics = options.get(MainOptions.DIACRITICS);
     stemming = options.get(MainOptions.STEMMING);
     casesens = options.get(MainOptions.CASESENS);
     updindex = options.get(MainOptions.UPDINDEX);
+    rangeindex = options.get(MainOptions.RANGEINDEX);
     autoopt = options.get(MainOptions.AUTOOPTIMIZE);
+    wal = options.get(MainOptions.WAL);
+    mvcc = options.get(MainOptions.MVCC);
     maxlen = options.get(MainOptions.MAXLEN);
     maxcats = options.get(MainOptions.MAXCATS);
+    indexcache = options.get(MainOptions.INDEXCACHE);
     stopwords = options.get(MainOptions.STOPWORDS);
     language = Language.get(options);
   }
 
+  /**
+   * Constructor for the meta data of a snapshot. The remaining values will be assigned by
+   * {@link #read(DataInput)}.
+   * @param meta meta data of the database
+   */
+  MetaData(final MetaData meta) {
+    name = meta.name;
+    path = meta.path;
+    mmap = false;
+    snapshot = true;
+  }
+
   // STATIC METHODS ==========================================================
 
   /**
@@ -214,6 +258,18 @@ public final class MetaData {
     return file(path, filename);
   }
 
+  /**
+   * Returns an output stream for the specified database file. If a record of the
+   * write-ahead log is assembled, the contents will be added to the record instead.
+   * @param filename filename
+   * @return output stream
+   * @throws IOException I/O exception
+   */
+  public DataOutput output(final String filename) throws IOException {
+    final WriteAheadLog wl = record;
+    return wl != null ? wl.output(filename) : new DataOutput(dbfile(filename));
+  }
+
   /**
    * Returns the binary directory.
    * @return binary directory
@@ -289,19 +345,27 @@ public final class MetaData {
         else if(k.equals(DBSCTYPE))   scoring    = toInt(v);
         else if(k.equals(DBMAXLEN))   maxlen     = toInt(v);
         else if(k.equals(DBMAXCATS))  maxcats    = toInt(v);
+        else if(k.equals(DBIDXCACHE)) indexcache = toInt(v);
         else if(k.equals(DBLASTID))   lastid     = toInt(v);
         else if(k.equals(DBTIME))     time       = toLong(v);
         else if(k.equals(DBFSIZE))    filesize   = toLong(v);
         else if(k.equals(DBFTDC))     diacritics = toBool(v);
         else if(k.equals(DBCHOP))     chop       = toBool(v);
+        else if(k.equals(DBCOLUMN))   columnar   = toBool(v);
+        else if(k.equals(DBBLKCOMP))  blockcompress = toBool(v);
         else if(k.equals(DBUPDIDX))   updindex   = toBool(v);
+        else if(k.equals(DBRNGIDX))   rangeindex = toBool(v);
         else if(k.equals(DBAUTOOPT))  autoopt    = toBool(v);
+        else if(k.equals(DBWAL))      wal        = toBool(v);
+        else if(k.equals(DBMVCC))     mvcc       = toBool(v);
         else if(k.equals(DBTXTIDX))   textindex  = toBool(v);
         else if(k.equals(DBATVIDX))   attrindex  = toBool(v);
         else if(k.equals(DBFTXIDX))   ftxtindex  = toBool(v);
+        else if(k.equals(DBNAMIDX))   nameindex  = toBool(v);
         else if(k.equals(DBCRTTXT))   createtext = toBool(v);
         else if(k.equals(DBCRTATV))   createattr = toBool(v);
         else if(k.equals(DBCRTFTX))   createftxt = toBool(v);
+        else if(k.equals(DBCRTNAM))   createname = toBool(v);
         else if(k.equals(DBWCIDX))    wcindex    = toBool(v);
         else if(k.equals(DBFTST))     stemming   = toBool(v);
         else if(k.equals(DBFTCS))     casesens   = toBool(v);
@@ -313,7 +377,7 @@ public final class MetaData {
 
     // check version of database storage
     if(!storage.equals(STORAGE) && new Version(storage).compareTo(new Version(
-        STORAGE)) > 0) throw new BuildException(H_DB_FORMAT, storage);
+        storage())) > 0) throw new BuildException(H_DB_FORMAT, storage);
     // check version of database indexes
     oldindex = !istorage.equals(ISTORAGE) &&
         new Version(istorage).compareTo(new Version(ISTORAGE)) > 0;
@@ -322,13 +386,21 @@ public final class MetaData {
     if(wcindex) ftxtindex = false;
   }
 
+  /**
+   * Returns the storage version of the database.
+   * @return storage version
+   */
+  private String storage() {
+    return columnar || blockcompress ? CSTORAGE : STORAGE;
+  }
+
   /**
    * Writes the meta data to the specified output stream.
    * @param out output stream
    * @throws IOException I/O Exception
    */
   void write(final DataOutput out) throws IOException {
-    writeInfo(out, DBSTR,      STORAGE);
+    writeInfo(out, DBSTR,      storage());
     writeInfo(out, DBFNAME,    original);
     writeInfo(out, DBTIME,     time);
     writeInfo(out, IDBSTR,     ISTORAGE);
@@ -337,20 +409,28 @@ public final class MetaData {
     writeInfo(out, DBENC,      encoding);
     writeInfo(out, DBSIZE,     size);
     writeInfo(out, DBCHOP,     chop);
+    writeInfo(out, DBCOLUMN,   columnar);
+    writeInfo(out, DBBLKCOMP,  blockcompress);
     writeInfo(out, DBUPDIDX,   updindex);
+    writeInfo(out, DBRNGIDX,   rangeindex);
     writeInfo(out, DBAUTOOPT,  autoopt);
+    writeInfo(out, DBWAL,      wal);
+    writeInfo(out, DBMVCC,     mvcc);
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
     writeInfo(out, DBFTXIDX,   ftxtindex);
+    writeInfo(out, DBNAMIDX,   nameindex);
     writeInfo(out, DBCRTTXT,   createtext);
     writeInfo(out, DBCRTATV,   createattr);
     writeInfo(out, DBCRTFTX,   createftxt);
+    writeInfo(out, DBCRTNAM,   createname);
     writeInfo(out, DBFTST,     stemming);
     writeInfo(out, DBFTCS,     casesens);
     writeInfo(out, DBFTDC,     diacritics);
     writeInfo(out, DBFTSW,     stopwords);
     writeInfo(out, DBMAXLEN,   maxlen);
     writeInfo(out, DBMAXCATS,  maxcats);
+    writeInfo(out, DBIDXCACHE, indexcache);
     writeInfo(out, DBUPTODATE, uptodate);
     writeInfo(out, DBLASTID,   lastid);
     if(language != null) writeInfo(out, DBFTLN, language.toString());
@@ -368,6 +448,7 @@ public final class MetaData {
     if(!updindex) {
       textindex = false;
       attrindex = false;
+      nameindex = false;
     }
     ftxtindex = false;
   }
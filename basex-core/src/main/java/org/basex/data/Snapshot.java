@@ -0,0 +1,113 @@
+package org.basex.data;
+
+import java.io.*;
+
+import org.basex.io.random.*;
+import org.basex.util.*;
+
+/**
+ * This class represents a committed version of a disk-based database, which can be read while
+ * the database is updated. A snapshot is created by {@link DiskData#snapshot()}:
+ * the meta data and the main-memory structures are serialized, and the database files are
+ * accessed via read-only views, which return the original contents of blocks that have been
+ * changed afterwards. The database instance is only created if the snapshot is accessed.
+ *
+ * The name index and raw files are not versioned: the name index will not be available,
+ * and raw files will always be accessed in their current state.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Snapshot {
+  /** Database from which the snapshot was created. */
+  final DiskData live;
+  /** Serialized meta data and main-memory structures. */
+  final byte[] info;
+  /** Serialized id/pre mapping ({@code null} if not available). */
+  final byte[] ids;
+  /** Table view. */
+  final TableAccess table;
+  /** Texts view. */
+  final DataAccess texts;
+  /** Attribute values view. */
+  final DataAccess values;
+  /** Views on the text index files ({@code null} if not available). */
+  final DataAccess[] textIndex;
+  /** Views on the attribute index files ({@code null} if not available). */
+  final DataAccess[] attrIndex;
+
+  /** Number of readers (guarded by the monitor of the live database). */
+  int pins;
+  /** Obsolete flag: the snapshot will be closed if it is not pinned anymore. */
+  boolean obsolete;
+
+  /** Database instance ({@code null} if not created yet). */
+  private DiskData data;
+  /** Closed flag. */
+  private boolean closed;
+
+  /**
+   * Constructor.
+   * @param live database from which the snapshot is created
+   * @param info serialized meta data and main-memory structures
+   * @param ids serialized id/pre mapping (can be {@code null})
+   * @param table table view
+   * @param texts texts view
+   * @param values attribute values view
+   * @param textIndex views on the text index files (can be {@code null})
+   * @param attrIndex views on the attribute index files (can be {@code null})
+   */
+  Snapshot(final DiskData live, final byte[] info, final byte[] ids, final TableAccess table,
+      final DataAccess texts, final DataAccess values, final DataAccess[] textIndex,
+      final DataAccess[] attrIndex) {
+    this.live = live;
+    this.info = info;
+    this.ids = ids;
+    this.table = table;
+    this.texts = texts;
+    this.values = values;
+    this.textIndex = textIndex;
+    this.attrIndex = attrIndex;
+  }
+
+  /**
+   * Returns the database from which the snapshot was created.
+   * @return database
+   */
+  public DiskData database() {
+    return live;
+  }
+
+  /**
+   * Returns the database instance of the snapshot, and creates it if necessary.
+   * @return data reference
+   * @throws IOException I/O exception
+   */
+  public synchronized Data data() throws IOException {
+    if(closed) throw Util.notExpected("Snapshot of '%' is closed.", live.meta.name);
+    if(data == null) data = new DiskData(this);
+    return data;
+  }
+
+  /**
+   * Closes the snapshot and its views.
+   */
+  synchronized void close() {
+    if(closed) return;
+    closed = true;
+    if(data != null) {
+      // closes the views as well
+      data.close();
+    } else {
+      try {
+        table.close();
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+      texts.close();
+      values.close();
+      if(textIndex != null) for(final DataAccess da : textIndex) da.close();
+      if(attrIndex != null) for(final DataAccess da : attrIndex) da.close();
+    }
+  }
+}
@@ -49,10 +49,10 @@ public class IdPreMap {
 
   /**
    * Construct a map by reading it from a file.
-   * @param f file to read from
+   * @param f file or content to read from
    * @throws IOException I/O error while reading from the file
    */
-  public IdPreMap(final IOFile f) throws IOException {
+  public IdPreMap(final IO f) throws IOException {
     try(final DataInput in = new DataInput(f)) {
       baseid = in.readNum();
       rows = in.readNum();
@@ -65,12 +65,12 @@ public class IdPreMap {
   }
 
   /**
-   * Write the map to the specified file.
-   * @param file file to write to
+   * Write the map to the specified output stream, which will be closed.
+   * @param output output stream
    * @throws IOException I/O error while writing to the file
    */
-  public void write(final IOFile file) throws IOException {
-    try(final DataOutput out = new DataOutput(file)) {
+  public void write(final DataOutput output) throws IOException {
+    try(final DataOutput out = output) {
       out.writeNum(baseid);
       out.writeNum(rows);
       out.writeNums(pres);
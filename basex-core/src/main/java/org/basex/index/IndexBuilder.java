@@ -3,6 +3,8 @@ package org.basex.index;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -16,12 +18,17 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public abstract class IndexBuilder extends Proc {
+  /** Minimum number of nodes per partition. */
+  private static final int PARTITION = 1 << 16;
+
   /** Data reference. */
   protected final Data data;
   /** Total parsing value. */
   protected final int size;
   /** Number of index operations to perform before writing a partial index to disk. */
   private final int splitSize;
+  /** Maximum number of threads. */
+  private final int threads;
 
   /** Maximum memory to consume. */
   private final long maxMem = (long) (Runtime.getRuntime().maxMemory() * 0.8);
@@ -35,15 +42,26 @@ public abstract class IndexBuilder extends Proc {
   /** Threshold for freeing memory when estimating main memory consumption. */
   private int gcCount;
 
+  /** Number of partitions. */
+  private int partitions;
+  /** Number of partitions that are currently indexed. */
+  private int active;
+  /** Number of requests for flushing the partial index structures of all partitions. */
+  private int flushes;
+  /** Number of partitions that have not yet flushed their index structures. */
+  private int pending;
+
   /**
    * Constructor.
    * @param data reference
    * @param max maximum number of operations per partial index
+   * @param threads maximum number of threads (0: number of available processors)
    */
-  protected IndexBuilder(final Data data, final int max) {
+  protected IndexBuilder(final Data data, final int max, final int threads) {
     this.data = data;
     size = data.meta.size;
     splitSize = max;
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
     if(Performance.memory() >= maxMem) Performance.gc(1);
   }
 
@@ -54,6 +72,108 @@ public abstract class IndexBuilder extends Proc {
    */
   public abstract Index build() throws IOException;
 
+  /**
+   * Indexes all nodes of the database. The nodes are split into partitions, which
+   * are indexed in parallel if more than one thread is available.
+   * @param partition partition
+   * @throws IOException I/O Exception
+   */
+  protected final void index(final Partition partition) throws IOException {
+    final int parts = Math.max(1, Math.min(threads, size / PARTITION));
+    partitions = parts;
+    active = parts;
+    if(parts == 1) {
+      partition.index(0, 0, size);
+      return;
+    }
+
+    final ExecutorService pool = Executors.newFixedThreadPool(parts);
+    try {
+      final ArrayList<Future<Void>> futures = new ArrayList<>(parts);
+      for(int p = 0; p < parts; p++) {
+        final int part = p, start = (int) ((long) size * p / parts);
+        final int end = (int) ((long) size * (p + 1) / parts);
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            partition.index(part, start, end);
+            return null;
+          }
+        }));
+      }
+      for(final Future<Void> future : futures) future.get();
+    } catch(final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new BaseXException(ex);
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException) throw (IOException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw Util.notExpected(th);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Registers the progress of a partition and decides whether its in-memory index structures
+   * must be written to disk. If the structures of one partition are written, all other
+   * partitions will be requested to write their structures as well.
+   * @param nodes number of nodes that have been processed since the last call
+   * @param ops number of index operations that have been performed since the last call
+   * @param flushed number of times the partition has written its structures
+   * @return true if structures shall be flushed to disk
+   * @throws IOException I/O Exception
+   */
+  protected final synchronized boolean split(final int nodes, final long ops, final int flushed)
+      throws IOException {
+
+    pre += nodes;
+    count += ops;
+    check();
+    if(flushed < flushes) {
+      pending--;
+      return true;
+    }
+    if(pending == 0 && split()) {
+      flushes++;
+      pending = active - 1;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Registers the final progress of a partition.
+   * @param nodes number of nodes that have been processed since the last call
+   * @param ops number of index operations that have been performed since the last call
+   * @param flushed number of times the partition has written its structures
+   */
+  protected final synchronized void finish(final int nodes, final long ops, final int flushed) {
+    pre += nodes;
+    count += ops;
+    if(flushed < flushes) pending--;
+    active--;
+  }
+
+  /**
+   * Checks if the remaining structures of a partition must be written as partial index.
+   * @param flushed number of times the partition has written its structures
+   * @return result of check
+   */
+  protected final boolean partial(final int flushed) {
+    return flushed > 0 || partitions > 1;
+  }
+
+  /**
+   * Returns a new split number.
+   * @return split number
+   */
+  protected final synchronized int nextSplit() {
+    return splits++;
+  }
+
   /**
    * Checks if the command was interrupted, and prints some debug output.
    */
@@ -111,6 +231,20 @@ public abstract class IndexBuilder extends Proc {
     Util.errln(sb);
   }
 
+  /**
+   * Partition of the nodes to be indexed.
+   */
+  protected interface Partition {
+    /**
+     * Indexes the nodes of a partition.
+     * @param part partition number
+     * @param start first pre value
+     * @param end last pre value (exclusive)
+     * @throws IOException I/O Exception
+     */
+    void index(int part, int start, int end) throws IOException;
+  }
+
   @Override
   public final String tit() {
     return CREATING_INDEXES;
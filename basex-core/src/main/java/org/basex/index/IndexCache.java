@@ -1,50 +1,54 @@
 package org.basex.index;
 
+import static org.basex.core.Text.*;
 import static org.basex.util.Token.*;
 
-import java.lang.ref.*;
-import java.util.concurrent.locks.*;
-
 import org.basex.util.*;
 
 /**
  * This class caches sizes and offsets from index results.
  *
+ * The number of cached entries is bounded. Entries are evicted by a segmented LRU strategy:
+ * new entries are added to a probationary segment, and they are promoted to a protected
+ * segment when they are requested again. Entries that are only requested once will thus
+ * be discarded before frequently requested ones. In order to reduce contention, the cache
+ * is split into several partitions, which are locked independently.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Dimitar Popov
  */
 public final class IndexCache {
-  /** Queue used to collect unused keys. */
-  private final ReferenceQueue<IndexEntry> queue = new ReferenceQueue<>();
-  /** Read-write lock. */
-  private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(true);
-  /** Hash table buckets. */
-  private BucketEntry[] buckets = new BucketEntry[Array.CAPACITY];
-  /** Number of entries in the cache. */
-  private int size;
+  /** Number of partitions (must be a power of two). */
+  private static final int PARTITIONS = 16;
+  /** Cache partitions ({@code null} if caching is disabled). */
+  private final Partition[] partitions;
+
+  /**
+   * Constructor.
+   * @param max maximum number of cached entries (caching is disabled if set to 0)
+   */
+  public IndexCache(final int max) {
+    if(max > 0) {
+      // small caches are not partitioned
+      final int ps = max < PARTITIONS << 4 ? 1 : PARTITIONS;
+      partitions = new Partition[ps];
+      for(int p = 0; p < ps; p++) {
+        partitions[p] = new Partition(max / ps + (p < max % ps ? 1 : 0));
+      }
+    } else {
+      partitions = null;
+    }
+  }
 
   /**
    * Gets cached entry for the specified key.
    * @param key key
-   * @return cached entry or {@code null} if the entry is stale
+   * @return cached entry or {@code null} if the entry is not cached
    */
   public IndexEntry get(final byte[] key) {
+    if(partitions == null) return null;
     final int hash = hash(key);
-    rwl.readLock().lock();
-
-    try {
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i];
-      while(e != null) {
-        final IndexEntry entry = e.get();
-        if(entry != null && e.hash == hash && eq(entry.key, key)) return entry;
-        e = e.next;
-      }
-    } finally {
-      rwl.readLock().unlock();
-    }
-
-    return null;
+    return partition(hash).get(key, hash);
   }
 
   /**
@@ -56,32 +60,9 @@ public final class IndexCache {
    * @return cache entry
    */
   public IndexEntry add(final byte[] key, final int sz, final long off) {
+    if(partitions == null) return new IndexEntry(key, sz, off);
     final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry current = buckets[i], prev = current;
-      while(current != null) {
-        final BucketEntry next = current.next;
-        final IndexEntry entry = current.get();
-        if(entry == null) {
-          delete(i, current, prev, next);
-        } else if(current.hash == hash && eq(entry.key, key)) {
-          update(entry, sz, off);
-          return entry;
-        }
-        prev = current;
-        current = next;
-      }
-
-      final IndexEntry entry = new IndexEntry(key, sz, off);
-      add(i, hash, entry);
-      return entry;
-    } finally {
-      rwl.writeLock().unlock();
-    }
+    return partition(hash).add(key, hash, sz, off);
   }
 
   /**
@@ -89,143 +70,255 @@ public final class IndexCache {
    * @param key key
    */
   public void delete(final byte[] key) {
+    if(partitions == null) return;
     final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i], prev = e;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final IndexEntry entry = e.get();
-        if(entry == null) {
-          delete(i, e, prev, next);
-        } else if(e.hash == hash && eq(entry.key, key)) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = e;
-        e = next;
-      }
-    } finally {
-      rwl.writeLock().unlock();
-    }
+    partition(hash).delete(key, hash);
   }
 
   /**
-   * Purges stale entries from the cache.
+   * Returns information on the cache.
+   * @return info string
    */
-  private void purge() {
-    for(Object x; (x = queue.poll()) != null;) {
-      final BucketEntry e = (BucketEntry) x;
-      final int i = indexFor(e.hash, buckets.length);
-      BucketEntry prev = buckets[i], p = prev;
-      while(p != null) {
-        final BucketEntry next = p.next;
-        if(p == e) {
-          delete(i, e, prev, next);
-          break;
+  public byte[] info() {
+    int size = 0, max = 0;
+    long hits = 0, misses = 0;
+    if(partitions != null) {
+      for(final Partition p : partitions) {
+        synchronized(p) {
+          size += p.size;
+          max += p.max;
+          hits += p.hits;
+          misses += p.misses;
         }
-        prev = p;
-        p = next;
       }
     }
+    final TokenBuilder tb = new TokenBuilder(LI_CACHE).addLong(size).add('/').addLong(max);
+    tb.add(" entries");
+    final long lookups = hits + misses;
+    if(lookups != 0) {
+      tb.add(", ").addLong(hits * 100 / lookups).add("% hits (");
+      tb.addLong(hits).add('/').addLong(lookups).add(" lookups)");
+    }
+    return tb.add(NL).finish();
   }
 
   /**
-   * Add a new index entry to the bucket with the specified index.
-   * @param i bucket index
-   * @param hash hash of the new index key
-   * @param entry index entry
+   * Returns the partition responsible for the specified hash value.
+   * @param hash hash value
+   * @return partition
    */
-  private void add(final int i, final int hash, final IndexEntry entry) {
-    buckets[i] = new BucketEntry(hash, buckets[i], entry, queue);
-    if(++size == buckets.length) rehash();
+  private Partition partition(final int hash) {
+    // spread higher bits, as lower bits are used by the hash table of the partition
+    return partitions[(hash ^ hash >>> 16) * 0x9E3779B9 >>> 28 & partitions.length - 1];
   }
 
-  /**
-   * Update an existing index entry.
-   * @param entry index entry to update
-   * @param sz new size
-   * @param off new offset
-   */
-  private static void update(final IndexEntry entry, final int sz, final long off) {
-    entry.size = sz;
-    entry.offset = off;
-  }
+  /** Cache partition with a hash table and two access-ordered segments. */
+  private static final class Partition {
+    /** Probationary segment (sentinel of a circular list). */
+    private final Node probation = new Node(null, 0, null);
+    /** Protected segment (sentinel of a circular list). */
+    private final Node protect = new Node(null, 0, null);
+    /** Maximum number of entries. */
+    private final int max;
+    /** Maximum number of entries in the protected segment. */
+    private final int maxProtected;
+    /** Hash table buckets. */
+    private Node[] buckets = new Node[Array.CAPACITY];
+    /** Number of entries. */
+    private int size;
+    /** Number of entries in the protected segment. */
+    private int protectedSize;
+    /** Number of cache hits. */
+    private long hits;
+    /** Number of cache misses. */
+    private long misses;
 
-  /**
-   * Deletes a cached entry from the buckets with the specified index.
-   * @param i buckets index
-   * @param e cached entry to delete
-   * @param p previous cache entry
-   * @param n next cache entry
-   */
-  private void delete(final int i, final BucketEntry e, final BucketEntry p, final BucketEntry n) {
-    if(p == e) buckets[i] = n;
-    else p.next = n;
-    e.next = null;
-    --size;
-  }
+    /**
+     * Constructor.
+     * @param max maximum number of entries
+     */
+    Partition(final int max) {
+      this.max = max;
+      maxProtected = (int) (max * 0.8);
+    }
 
-  /**
-   * Resizes the hash table.
-   */
-  private void rehash() {
-    purge();
-
-    final int s = size << 1;
-    final BucketEntry[] tmp = new BucketEntry[s];
-
-    final int l = buckets.length;
-    for(int i = 0; i < l; ++i) {
-      BucketEntry e = buckets[i];
-      buckets[i] = null;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final int p = indexFor(e.hash, tmp.length);
-        e.next = tmp[p];
-        tmp[p] = e;
-        e = next;
+    /**
+     * Returns the entry for the specified key.
+     * @param key key
+     * @param hash hash value
+     * @return entry or {@code null}
+     */
+    synchronized IndexEntry get(final byte[] key, final int hash) {
+      final Node node = find(key, hash);
+      if(node == null) {
+        misses++;
+        return null;
       }
+      hits++;
+      promote(node);
+      return node.entry;
     }
-    buckets = tmp;
-  }
 
-  /**
-   * Returns buckets index for a hash code.
-   * @param h hash code
-   * @param n number of available buckets
-   * @return index of a buckets
-   */
-  private static int indexFor(final int h, final int n) {
-    return h & n - 1;
+    /**
+     * Adds or updates an entry.
+     * @param key key
+     * @param hash hash value
+     * @param sz number of index hits
+     * @param off offset to id list
+     * @return cache entry
+     */
+    synchronized IndexEntry add(final byte[] key, final int hash, final int sz, final long off) {
+      Node node = find(key, hash);
+      if(node != null) {
+        node.entry.size = sz;
+        node.entry.offset = off;
+        promote(node);
+        return node.entry;
+      }
+
+      // evict entry if cache is full: first choose probationary, then protected entries
+      if(size == max) remove(probation.prev != probation ? probation.prev : protect.prev);
+
+      node = new Node(new IndexEntry(key, sz, off), hash, buckets[index(hash)]);
+      buckets[index(hash)] = node;
+      node.link(probation);
+      if(++size == buckets.length) rehash();
+      return node.entry;
+    }
+
+    /**
+     * Deletes an entry.
+     * @param key key
+     * @param hash hash value
+     */
+    synchronized void delete(final byte[] key, final int hash) {
+      final Node node = find(key, hash);
+      if(node != null) remove(node);
+    }
+
+    /**
+     * Finds the node for the specified key.
+     * @param key key
+     * @param hash hash value
+     * @return node or {@code null}
+     */
+    private Node find(final byte[] key, final int hash) {
+      for(Node n = buckets[index(hash)]; n != null; n = n.next) {
+        if(n.hash == hash && eq(n.entry.key, key)) return n;
+      }
+      return null;
+    }
+
+    /**
+     * Moves a requested node to the head of the protected segment.
+     * If the protected segment is full, its least recently used node will be demoted.
+     * @param node node
+     */
+    private void promote(final Node node) {
+      final boolean prot = node.prot;
+      node.unlink();
+      node.link(protect);
+      if(prot) return;
+      node.prot = true;
+      if(++protectedSize > maxProtected) {
+        final Node last = protect.prev;
+        last.unlink();
+        last.link(probation);
+        last.prot = false;
+        protectedSize--;
+      }
+    }
+
+    /**
+     * Removes a node from the hash table and its segment.
+     * @param node node
+     */
+    private void remove(final Node node) {
+      final int i = index(node.hash);
+      Node n = buckets[i];
+      if(n == node) {
+        buckets[i] = node.next;
+      } else {
+        while(n.next != node) n = n.next;
+        n.next = node.next;
+      }
+      node.unlink();
+      if(node.prot) protectedSize--;
+      size--;
+    }
+
+    /**
+     * Resizes the hash table.
+     */
+    private void rehash() {
+      final Node[] tmp = new Node[buckets.length << 1];
+      final int tl = tmp.length;
+      for(Node n : buckets) {
+        while(n != null) {
+          final Node next = n.next;
+          final int p = n.hash & tl - 1;
+          n.next = tmp[p];
+          tmp[p] = n;
+          n = next;
+        }
+      }
+      buckets = tmp;
+    }
+
+    /**
+     * Returns the bucket index for a hash value.
+     * @param hash hash value
+     * @return bucket index
+     */
+    private int index(final int hash) {
+      return hash & buckets.length - 1;
+    }
   }
 
-  /**
-   * Cache buckets entry. Used to implement a linked list of cache entries for
-   * each buckets. It also stores the hash of the current entry for better
-   * performance.
-   */
-  private static class BucketEntry extends SoftReference<IndexEntry> {
-    /** Hash code of the stored cache entry key. */
+  /** Cached entry, which is referenced by a bucket and a segment list. */
+  private static final class Node {
+    /** Index entry ({@code null} for sentinels). */
+    final IndexEntry entry;
+    /** Hash value of the key. */
     final int hash;
-    /** Next buckets entry or {@code null} if the last one for this buckets. */
-    BucketEntry next;
+    /** Next node in the same bucket. */
+    Node next;
+    /** Previous node in the segment list. */
+    Node prev = this;
+    /** Next node in the segment list. */
+    Node after = this;
+    /** Indicates if the node is stored in the protected segment. */
+    boolean prot;
 
     /**
      * Constructor.
-     * @param h hash code of the cache entry key
-     * @param n next buckets entry or {@code null} if the last one
-     * @param v stored cache entry
-     * @param rq reference queue
+     * @param entry index entry
+     * @param hash hash value
+     * @param next next node in the same bucket
+     */
+    Node(final IndexEntry entry, final int hash, final Node next) {
+      this.entry = entry;
+      this.hash = hash;
+      this.next = next;
+    }
+
+    /**
+     * Inserts the node after the specified sentinel.
+     * @param head sentinel
+     */
+    void link(final Node head) {
+      prev = head;
+      after = head.after;
+      head.after.prev = this;
+      head.after = this;
+    }
+
+    /**
+     * Removes the node from its segment list.
      */
-    BucketEntry(final int h, final BucketEntry n, final IndexEntry v,
-        final ReferenceQueue<IndexEntry> rq) {
-      super(v, rq);
-      hash = h;
-      next = n;
+    void unlink() {
+      prev.after = after;
+      after.prev = prev;
     }
   }
 }
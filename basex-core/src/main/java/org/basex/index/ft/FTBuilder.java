@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -21,12 +22,10 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class FTBuilder extends IndexBuilder {
-  /** Value trees. */
-  private final FTIndexTrees tree;
-  /** Word parser. */
-  private final FTLexer lex;
-  /** Number of indexed tokens. */
-  private long ntok;
+  /** Full-text options. */
+  private final FTOpt fto;
+  /** Split numbers of the partial index structures, sorted by partitions. */
+  private final TreeMap<Integer, IntList> runs = new TreeMap<>();
 
   /**
    * Constructor.
@@ -35,10 +34,9 @@ public final class FTBuilder extends IndexBuilder {
    * @throws IOException IOException
    */
   public FTBuilder(final Data data, final MainOptions options) throws IOException {
-    super(data, options.get(MainOptions.FTINDEXSPLITSIZE));
-    tree = new FTIndexTrees(data.meta.maxlen);
+    super(data, options.get(MainOptions.FTINDEXSPLITSIZE), options.get(MainOptions.INDEXTHREADS));
 
-    final FTOpt fto = new FTOpt();
+    fto = new FTOpt();
     fto.set(FTFlag.DC, options.get(MainOptions.DIACRITICS));
     fto.set(FTFlag.ST, options.get(MainOptions.STEMMING));
     fto.cs = options.get(MainOptions.CASESENS) ? FTCase.SENSITIVE : FTCase.INSENSITIVE;
@@ -49,8 +47,6 @@ public final class FTBuilder extends IndexBuilder {
       throw new BaseXException(NO_TOKENIZER_X, fto.ln);
     if(options.get(MainOptions.STEMMING) && !Stemmer.supportFor(fto.ln))
       throw new BaseXException(NO_STEMMER_X, fto.ln);
-
-    lex = new FTLexer(fto);
   }
 
   /**
@@ -64,34 +60,56 @@ public final class FTBuilder extends IndexBuilder {
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
-
-      final int k = data.kind(pre);
-      if(k != Data.TEXT) continue;
-
-      /* Current lexer position. */
-      final StopWords sw = lex.ftOpt().sw;
-      lex.init(data.text(pre, true));
-      int pos = -1;
-      while(lex.hasNext()) {
-        final byte[] tok = lex.nextToken();
-        ++pos;
-        // skip too long and stopword tokens
-        if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
-          // check if main memory is exhausted
-          if((ntok++ & 0x0FFF) == 0 && split()) {
-            writeIndex(true);
-            finishSplit();
+    index(new Partition() {
+      @Override
+      public void index(final int part, final int start, final int end) throws IOException {
+        final FTIndexTrees tree = new FTIndexTrees(data.meta.maxlen);
+        final FTLexer lex = new FTLexer(fto);
+        final StopWords sw = fto.sw;
+        final IntList split = new IntList();
+        int flushed = 0, nodes = 0;
+        long ops = 0;
+
+        for(int p = start; p < end; ++p) {
+          if(data.kind(p) == Data.TEXT) {
+            lex.init(data.text(p, true));
+            int pos = -1;
+            while(lex.hasNext()) {
+              final byte[] tok = lex.nextToken();
+              ++pos;
+              // skip too long and stopword tokens
+              if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
+                tree.index(tok, p, pos, flushed);
+                ops++;
+              }
+            }
+          }
+          if(++nodes == 0x1000 || ops >= 0x1000) {
+            // check if main memory is exhausted
+            if(split(nodes, ops, flushed)) {
+              split.add(nextSplit());
+              writeIndex(tree, split.peek(), flushed++);
+              finishSplit();
+            }
+            nodes = 0;
+            ops = 0;
           }
-          tree.index(tok, pre, pos, splits);
-          count++;
+        }
+        finish(nodes, ops, flushed);
+
+        // write complete index, or partial index structure if the index has been split
+        if(partial(flushed)) {
+          split.add(nextSplit());
+          writeIndex(tree, split.peek(), flushed);
+          synchronized(runs) { runs.put(part, split); }
+        } else {
+          writeIndex(tree, -1, flushed);
         }
       }
-    }
+    });
 
-    // finalize partial or all index structures
-    write(splits > 0);
+    // merge partial index structures
+    if(!runs.isEmpty()) merge();
 
     data.meta.ftxtindex = true;
     finishIndex(perf);
@@ -104,24 +122,22 @@ public final class FTBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the index data to disk.
-   * @param partial write partial index
+   * Merges the partial index structures.
    * @throws IOException I/O exception
    */
-  private void write(final boolean partial) throws IOException {
-    writeIndex(partial);
-    if(!partial) return;
-
-    // merges temporary index files
+  private void merge() throws IOException {
     try(final DataOutput outX = new DataOutput(data.meta.dbfile(DATAFTX + 'x'));
         final DataOutput outY = new DataOutput(data.meta.dbfile(DATAFTX + 'y'));
         final DataOutput outZ = new DataOutput(data.meta.dbfile(DATAFTX + 'z'))) {
 
       final IntList ind = new IntList();
 
-      // open all temporary sorted lists
+      // open all temporary sorted lists (pre values must be ascending)
       final FTList[] v = new FTList[splits];
-      for(int b = 0; b < splits; ++b) v[b] = new FTList(data, b);
+      int b = 0;
+      for(final IntList split : runs.values()) {
+        for(final int s : split.toArray()) v[b++] = new FTList(data, s);
+      }
 
       final IntList il = new IntList();
       while(check(v)) {
@@ -181,11 +197,15 @@ public final class FTBuilder extends IndexBuilder {
 
   /**
    * Writes the current index to disk.
-   * @param partial partial flag
+   * @param tree index trees
+   * @param split split number, or {@code -1} if the complete index is written
+   * @param cf number of partial index structures that have been written for the index trees
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
-    final String name = DATAFTX + (partial ? splits : "");
+  private void writeIndex(final FTIndexTrees tree, final int split, final int cf)
+      throws IOException {
+
+    final String name = DATAFTX + (split != -1 ? split : "");
     try(final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
         final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
         final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'))) {
@@ -195,7 +215,7 @@ public final class FTBuilder extends IndexBuilder {
       long dr = 0;
       int tr = 0;
       int j = 0;
-      while(tree.more(splits)) {
+      while(tree.more(cf)) {
         final FTIndexTree t = tree.nextTree();
         t.next();
         final byte[] key = t.nextTok();
@@ -220,9 +240,6 @@ public final class FTBuilder extends IndexBuilder {
       writeInd(outX, ind, ++j, tr);
     }
     tree.initFT();
-
-    // increase split counter
-    splits++;
   }
 
   /**
@@ -66,7 +66,7 @@ public final class FTIndex implements Index {
   private final DataAccess inZ;
 
   /** Cache for number of hits and data reference per token. */
-  private final IndexCache cache = new IndexCache();
+  private final IndexCache cache;
   /** Token positions. */
   private final int[] tp;
 
@@ -77,6 +77,7 @@ public final class FTIndex implements Index {
    */
   public FTIndex(final Data data) throws IOException {
     this.data = data;
+    cache = new IndexCache(data.meta.indexcache);
 
     // cache token length index
     inY = new DataAccess(data.meta.dbfile(DATAFTX + 'y'));
@@ -224,6 +225,7 @@ public final class FTIndex implements Index {
     final TokenBuilder tb = new TokenBuilder();
     final long l = inX.length() + inY.length() + inZ.length();
     tb.add(LI_SIZE + Performance.format(l, true) + NL);
+    tb.add(cache.info());
 
     final IndexStats stats = new IndexStats(options.get(MainOptions.MAXSTAT));
     addOccs(stats);
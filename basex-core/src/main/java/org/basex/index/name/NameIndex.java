@@ -0,0 +1,370 @@
+package org.basex.index.name;
+
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This class provides access to the nodes of all element and attribute names.
+ *
+ * The data is stored on disk in the following format:
+ * <ul>
+ *   <li> {@code DATAELN/ATN + 'l'}: contains the id lists of all names, which are stored in the
+ *        {@link Num} format: [size, id1, id2 - id1, ...]. The first list is empty and
+ *        is referenced by all names without nodes.</li>
+ *   <li> {@code DATAELN/ATN + 'r'}: contains 5-byte references to the id lists, ordered by
+ *        the ids of the names in the {@link Names} instances.</li>
+ * </ul>
+ *
+ * If incremental indexing is enabled, the lists contain node ids, and updated lists will be
+ * appended to the end of the file. The space of the replaced lists will be reclaimed when the
+ * index is rebuilt.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class NameIndex implements Index {
+  /** Data reference. */
+  private final Data data;
+  /** Element names. */
+  private final Lists elems;
+  /** Attribute names. */
+  private final Lists attrs;
+
+  /**
+   * Constructor, initializing the index structure.
+   * @param data data reference
+   * @throws IOException I/O Exception
+   */
+  public NameIndex(final Data data) throws IOException {
+    this.data = data;
+    elems = new Lists(data.meta, DATAELN);
+    attrs = new Lists(data.meta, DATAATN);
+  }
+
+  /**
+   * Writes the id lists of element or attribute names to disk.
+   * @param meta meta data
+   * @param pref file prefix
+   * @param lists sorted id lists, indexed by name ids (entries may be {@code null})
+   * @throws IOException I/O exception
+   */
+  static void write(final MetaData meta, final String pref, final IntList[] lists)
+      throws IOException {
+
+    try(final DataOutput outL = new DataOutput(meta.dbfile(pref + 'l'));
+        final DataOutput outR = new DataOutput(meta.dbfile(pref + 'r'))) {
+      // empty list
+      outL.writeNum(0);
+      for(final IntList ids : lists) {
+        if(ids == null || ids.isEmpty()) {
+          outR.write5(0);
+        } else {
+          outR.write5(outL.size());
+          outL.writeDiffs(ids);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void init() { }
+
+  @Override
+  public byte[] info(final MainOptions options) {
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(LI_STRUCTURE).add(SORTED_LIST).add(NL);
+    long l = 0;
+    int e = 0;
+    for(final Lists lists : new Lists[] { elems, attrs }) {
+      synchronized(lists) {
+        l += lists.idxl.length() + lists.idxr.length();
+        final int s = lists.names();
+        for(int n = 1; n < s; n++) {
+          if(lists.size(n) != 0) e++;
+        }
+      }
+    }
+    tb.add(LI_SIZE).add(Performance.format(l, true)).add(NL);
+    tb.add(LI_ENTRIES).addInt(e).add(NL);
+    return tb.finish();
+  }
+
+  @Override
+  public EntryIterator entries(final IndexEntries entries) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public IndexIterator iter(final IndexToken token) {
+    final NameToken nt = (NameToken) token;
+    final Lists lists = nt.elem ? elems : attrs;
+    final IntList pres = new IntList();
+    final int[] names = names(nt);
+    synchronized(lists) {
+      for(final int name : names) lists.ids(name, pres);
+    }
+    // lists of several names must be merged, and ids are not ordered by their pre values
+    if(names.length > 1 || data.meta.updindex) {
+      final int ps = pres.size();
+      for(int p = 0; p < ps; p++) pres.set(p, pre(pres.get(p)));
+      pres.sort();
+    }
+
+    return new IndexIterator() {
+      final int s = pres.size();
+      int p = -1;
+
+      @Override
+      public boolean more() {
+        return ++p < s;
+      }
+
+      @Override
+      public int pre() {
+        return pres.get(p);
+      }
+
+      @Override
+      public int size() {
+        return s;
+      }
+    };
+  }
+
+  @Override
+  public int costs(final IndexToken token) {
+    final NameToken nt = (NameToken) token;
+    final Lists lists = nt.elem ? elems : attrs;
+    int c = 0;
+    synchronized(lists) {
+      for(final int name : names(nt)) c += lists.size(name);
+    }
+    return c;
+  }
+
+  /**
+   * Adds ids to the index.
+   * @param elem element or attribute names
+   * @param map mapping from name ids to node ids
+   */
+  public void add(final boolean elem, final IntObjMap<IntList> map) {
+    final Lists lists = elem ? elems : attrs;
+    synchronized(lists) {
+      final int ms = map.size();
+      for(int m = 1; m <= ms; m++) {
+        final int name = map.key(m);
+        final IntList ids = new IntList();
+        lists.ids(name, ids);
+        lists.write(name, ids.add(map.get(name).finish()).sort());
+      }
+    }
+  }
+
+  /**
+   * Deletes ids from the index.
+   * @param elem element or attribute names
+   * @param map mapping from name ids to node ids
+   */
+  public void delete(final boolean elem, final IntObjMap<IntList> map) {
+    final Lists lists = elem ? elems : attrs;
+    synchronized(lists) {
+      final int ms = map.size();
+      for(int m = 1; m <= ms; m++) {
+        final int name = map.key(m);
+        final IntList ids = new IntList();
+        lists.ids(name, ids);
+        lists.write(name, delete(ids, map.get(name).sort()));
+      }
+    }
+  }
+
+  /**
+   * Assigns a new name to a node.
+   * @param elem element or attribute name
+   * @param old id of the old name
+   * @param name id of the new name
+   * @param id node id
+   */
+  public void rename(final boolean elem, final int old, final int name, final int id) {
+    if(old == name) return;
+    final Lists lists = elem ? elems : attrs;
+    synchronized(lists) {
+      final IntList ids = new IntList();
+      lists.ids(old, ids);
+      lists.write(old, delete(ids, new IntList(1).add(id)));
+      ids.reset();
+      lists.ids(name, ids);
+      lists.write(name, ids.add(id).sort());
+    }
+  }
+
+  /**
+   * Flushes the buffered data.
+   */
+  public void flush() {
+    for(final Lists lists : new Lists[] { elems, attrs }) {
+      synchronized(lists) {
+        lists.idxl.flush();
+        lists.idxr.flush();
+      }
+    }
+  }
+
+  /**
+   * Journals the index files in the specified write-ahead log.
+   * @param wal write-ahead log
+   */
+  public void journal(final WriteAheadLog wal) {
+    for(final Lists lists : new Lists[] { elems, attrs }) {
+      synchronized(lists) {
+        lists.idxl.journal(wal);
+        lists.idxr.journal(wal);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    for(final Lists lists : new Lists[] { elems, attrs }) {
+      synchronized(lists) {
+        lists.idxl.close();
+        lists.idxr.close();
+      }
+    }
+  }
+
+  @Override
+  public boolean drop() {
+    return data.meta.drop(DATAELN + '.') & data.meta.drop(DATAATN + '.');
+  }
+
+  /**
+   * Returns the ids of all names with the local name of the specified token.
+   * @param token name token
+   * @return name ids
+   */
+  private int[] names(final NameToken token) {
+    final Names names = token.elem ? data.elemNames : data.attrNames;
+    final byte[] local = token.get();
+    final IntList il = new IntList();
+    final int ns = names.size();
+    for(int n = 1; n <= ns; n++) {
+      if(eq(local(names.key(n)), local)) il.add(n);
+    }
+    return il.finish();
+  }
+
+  /**
+   * Returns the pre value for the specified id.
+   * @param id id
+   * @return pre value
+   */
+  private int pre(final int id) {
+    return data.meta.updindex ? data.pre(id) : id;
+  }
+
+  /**
+   * Removes ids from a list.
+   * @param ids sorted ids
+   * @param remove sorted ids to be removed
+   * @return resulting list
+   */
+  private static IntList delete(final IntList ids, final IntList remove) {
+    final IntList il = new IntList(ids.size());
+    final int is = ids.size(), rs = remove.size();
+    for(int i = 0, r = 0; i < is; i++) {
+      final int id = ids.get(i);
+      while(r < rs && remove.get(r) < id) r++;
+      if(r == rs || remove.get(r) != id) il.add(id);
+    }
+    return il;
+  }
+
+  /** Id lists of element or attribute names. */
+  private static final class Lists {
+    /** Id lists. */
+    final DataAccess idxl;
+    /** References to the id lists. */
+    final DataAccess idxr;
+
+    /**
+     * Constructor.
+     * @param meta meta data
+     * @param pref file prefix
+     * @throws IOException I/O Exception
+     */
+    Lists(final MetaData meta, final String pref) throws IOException {
+      idxl = new DataAccess(meta.dbfile(pref + 'l'));
+      idxr = new DataAccess(meta.dbfile(pref + 'r'));
+    }
+
+    /**
+     * Returns the number of referenced names (including the unused id {@code 0}).
+     * @return number of names
+     */
+    int names() {
+      return (int) (idxr.length() / 5);
+    }
+
+    /**
+     * Returns the number of ids of the specified name.
+     * @param name name id
+     * @return number of ids
+     */
+    int size(final int name) {
+      return name < names() ? idxl.readNum(idxr.read5(name * 5L)) : 0;
+    }
+
+    /**
+     * Adds the ids of the specified name to the specified list.
+     * @param name name id
+     * @param ids id list
+     */
+    void ids(final int name, final IntList ids) {
+      final int s = size(name);
+      for(int i = 0, id = 0; i < s; i++) {
+        id += idxl.readNum();
+        ids.add(id);
+      }
+    }
+
+    /**
+     * Writes the ids of the specified name to the end of the id lists.
+     * @param name name id
+     * @param ids sorted ids
+     */
+    void write(final int name, final IntList ids) {
+      // add references to empty lists for new names
+      for(int n = names(); n < name; n++) idxr.write5(n * 5L, 0);
+
+      final int is = ids.size();
+      if(is == 0) {
+        idxr.write5(name * 5L, 0);
+        return;
+      }
+      final long off = idxl.length();
+      final int[] nums = new int[is];
+      for(int i = 0, o = 0; i < is; i++) {
+        final int id = ids.get(i);
+        nums[i] = id - o;
+        o = id;
+      }
+      idxl.writeNums(off, nums);
+      idxr.write5(name * 5L, off);
+    }
+  }
+}
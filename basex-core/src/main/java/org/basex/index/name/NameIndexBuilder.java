@@ -0,0 +1,78 @@
+package org.basex.index.name;
+
+import static org.basex.core.Text.*;
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class builds an index for element and attribute names and stores the result to disk.
+ * The data structure is described in the {@link NameIndex} class.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class NameIndexBuilder extends IndexBuilder {
+  /**
+   * Constructor.
+   * @param data data reference
+   */
+  public NameIndexBuilder(final Data data) {
+    super(data, 0, 1);
+  }
+
+  @Override
+  public NameIndex build() throws IOException {
+    // delete old index
+    abort();
+
+    final Performance perf = Prop.debug ? new Performance() : null;
+    Util.debug(det());
+
+    final IntList[] elems = new IntList[data.elemNames.size() + 1];
+    final IntList[] attrs = new IntList[data.attrNames.size() + 1];
+    final boolean updindex = data.meta.updindex;
+    for(pre = 0; pre < size; pre++) {
+      if((pre & 0x0FFF) == 0) check();
+      final int k = data.kind(pre);
+      if(k != Data.ELEM && k != Data.ATTR) continue;
+
+      final IntList[] lists = k == Data.ELEM ? elems : attrs;
+      final int n = data.name(pre);
+      if(lists[n] == null) lists[n] = new IntList();
+      lists[n].add(updindex ? data.id(pre) : pre);
+      count++;
+    }
+    // ids are not ordered by their pre values
+    if(updindex) {
+      for(final IntList[] lists : new IntList[][] { elems, attrs }) {
+        for(final IntList ids : lists) {
+          if(ids != null) ids.sort();
+        }
+      }
+    }
+    NameIndex.write(data.meta, DATAELN, elems);
+    NameIndex.write(data.meta, DATAATN, attrs);
+    data.meta.nameindex = true;
+
+    finishIndex(perf);
+    return new NameIndex(data);
+  }
+
+  @Override
+  protected void abort() {
+    data.meta.drop(DATAELN + '.');
+    data.meta.drop(DATAATN + '.');
+    data.meta.nameindex = false;
+  }
+
+  @Override
+  protected String det() {
+    return INDEX_NAMES_D;
+  }
+}
@@ -0,0 +1,36 @@
+package org.basex.index.query;
+
+import org.basex.index.*;
+
+/**
+ * This class defines access to element and attribute names in the name index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class NameToken implements IndexToken {
+  /** Element or attribute names. */
+  public final boolean elem;
+  /** Local name. */
+  private final byte[] local;
+
+  /**
+   * Constructor.
+   * @param elem element or attribute names
+   * @param local local name
+   */
+  public NameToken(final boolean elem, final byte[] local) {
+    this.elem = elem;
+    this.local = local;
+  }
+
+  @Override
+  public IndexType type() {
+    return IndexType.NAME;
+  }
+
+  @Override
+  public byte[] get() {
+    return local;
+  }
+}
@@ -58,7 +58,8 @@ final class Docs {
    */
   synchronized void read(final DataInput in) throws IOException {
     docList = in.readDiffs();
-    pathIndex = data.meta.dbfile(DATAPTH).exists();
+    // the path file is not versioned: paths of snapshots will be generated from the table
+    pathIndex = !data.meta.snapshot && data.meta.dbfile(DATAPTH).exists();
   }
 
   /**
@@ -72,7 +73,7 @@ final class Docs {
       // retrieve paths (must be called before file is opened for writing!)
       final TokenList paths = paths();
       // write paths
-      try(final DataOutput doc = new DataOutput(data.meta.dbfile(DATAPTH))) {
+      try(final DataOutput doc = data.meta.output(DATAPTH)) {
         doc.writeNum(paths.size());
         for(final byte[] path : paths) doc.writeToken(path);
       }
@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
@@ -12,6 +13,7 @@ import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
 import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
@@ -32,7 +34,7 @@ public class DiskValues implements Index {
   /** Data reference. */
   final Data data;
   /** Cached index entries: mapping between keys and index entries. */
-  final IndexCache cache = new IndexCache();
+  final IndexCache cache;
   /** Cached texts: mapping between key positions and indexed texts. */
   final IntObjMap<byte[]> ctext = new IntObjMap<>();
   /** Number of current index entries. */
@@ -40,6 +42,10 @@ public class DiskValues implements Index {
 
   /** Value type (texts/attributes). */
   private final boolean text;
+  /** File with numeric keys. */
+  private final IOFile numFile;
+  /** Numeric keys ({@code null} if not available). */
+  private NumericKeys numeric;
   /** Synchronization object. */
   private final Object monitor = new Object();
 
@@ -63,9 +69,38 @@ public class DiskValues implements Index {
   DiskValues(final Data data, final boolean text, final String pref) throws IOException {
     this.data = data;
     this.text = text;
+    cache = new IndexCache(data.meta.indexcache);
     idxl = new DataAccess(data.meta.dbfile(pref + 'l'));
     idxr = new DataAccess(data.meta.dbfile(pref + 'r'));
     size.set(idxl.read4());
+    numFile = data.meta.dbfile(pref + 'n');
+    if(numFile.exists()) numeric = new NumericKeys(numFile);
+  }
+
+  /**
+   * Constructor for a snapshot of the index structure. Numeric keys will not be available.
+   * @param data data reference
+   * @param text value type (texts/attributes)
+   * @param files snapshots of the index files (see {@link #snapshot()})
+   */
+  public DiskValues(final Data data, final boolean text, final DataAccess[] files) {
+    this.data = data;
+    this.text = text;
+    cache = new IndexCache(data.meta.indexcache);
+    idxl = files[0];
+    idxr = files[1];
+    size.set(idxl.read4(0));
+    numFile = data.meta.dbfile((text ? DATATXT : DATAATV) + 'n');
+  }
+
+  /**
+   * Returns snapshots of the index files.
+   * @return snapshots
+   */
+  public final DataAccess[] snapshot() {
+    synchronized(monitor) {
+      return new DataAccess[] { idxl.snapshot(), idxr.snapshot() };
+    }
   }
 
   @Override
@@ -87,6 +122,7 @@ public class DiskValues implements Index {
         if(stats.adding(oc)) stats.add(data.text(pre(idxl.readNum()), text));
       }
     }
+    tb.add(cache.info());
     stats.print(tb);
     return tb.finish();
   }
@@ -94,7 +130,15 @@ public class DiskValues implements Index {
   @Override
   public int costs(final IndexToken it) {
     if(it instanceof StringRange) return idRange((StringRange) it).size();
-    if(it instanceof NumericRange) return idRange((NumericRange) it).size();
+    if(it instanceof NumericRange) {
+      final NumericRange nr = (NumericRange) it;
+      synchronized(monitor) {
+        // numeric keys: return number of distinct keys (lower bound for the number of results)
+        if(numeric != null) return Math.max(0, numeric.first(nr.max, !nr.mxi) -
+            numeric.first(nr.min, nr.mni));
+      }
+      return idRange(nr).size();
+    }
     final byte[] key = it.get();
     return key.length <= data.meta.maxlen ? entry(key).size : Integer.MAX_VALUE;
   }
@@ -117,6 +161,60 @@ public class DiskValues implements Index {
     synchronized(monitor) {
       idxl.close();
       idxr.close();
+      if(numeric != null) numeric.close();
+    }
+  }
+
+  /**
+   * Checks if the numeric keys of the index are available, which allow range queries with
+   * arbitrary numeric limits.
+   * @return result of check
+   */
+  public final boolean numeric() {
+    synchronized(monitor) {
+      return numeric != null;
+    }
+  }
+
+  /**
+   * Creates a file with all numeric keys of the index, sorted by their numeric value.
+   * @throws IOException I/O exception
+   */
+  public final void createNumeric() throws IOException {
+    synchronized(monitor) {
+      dropNumeric();
+      final int s = size();
+      double[] values = new double[Array.CAPACITY];
+      long[] offsets = new long[Array.CAPACITY];
+      int n = 0;
+      for(int m = 0; m < s; ++m) {
+        final long pos = idxr.read5(m * 5L);
+        idxl.readNum(pos);
+        final double v = data.textDbl(pre(idxl.readNum()), text);
+        if(Double.isNaN(v)) continue;
+        if(n == values.length) {
+          final int ns = Array.newSize(n);
+          values = Arrays.copyOf(values, ns);
+          offsets = Arrays.copyOf(offsets, ns);
+        }
+        values[n] = v;
+        offsets[n++] = pos;
+      }
+      NumericKeys.write(numFile, values, offsets, n);
+      numeric = new NumericKeys(numFile);
+    }
+  }
+
+  /**
+   * Drops the numeric keys of the index.
+   * This method must be called if the index is updated.
+   */
+  public final void dropNumeric() {
+    synchronized(monitor) {
+      if(numeric == null) return;
+      numeric.close();
+      numeric = null;
+      numFile.delete();
     }
   }
 
@@ -159,6 +257,15 @@ public class DiskValues implements Index {
     idxr.flush();
   }
 
+  /**
+   * Journals the index files in the specified write-ahead log.
+   * @param wal write-ahead log
+   */
+  public final void journal(final WriteAheadLog wal) {
+    idxl.journal(wal);
+    idxr.journal(wal);
+  }
+
   /**
    * Returns the {@code pre} value for the specified id.
    * @param id id value
@@ -436,12 +543,32 @@ public class DiskValues implements Index {
    * @return results
    */
   private IndexIterator idRange(final NumericRange tok) {
-    // check if min and max are positive integers with the same number of digits
     final double min = tok.min, max = tok.max;
+    final boolean mni = tok.mni, mxi = tok.mxi;
+    final IntList pres = new IntList();
+
+    synchronized(monitor) {
+      // numeric keys: find first key and read results until the maximum is exceeded
+      if(numeric != null) {
+        final int s = numeric.size();
+        for(int n = numeric.first(min, mni); n < s; n++) {
+          final double v = numeric.value(n);
+          if(mxi ? v > max : v >= max) break;
+          final long pos = numeric.offset(n);
+          final int ds = idxl.readNum(pos);
+          for(int d = 0, id = 0; d < ds; ++d) {
+            id += idxl.readNum();
+            pres.add(pre(id));
+          }
+        }
+        return iter(pres.sort());
+      }
+    }
+
+    // check if min and max are positive integers with the same number of digits
     final int len = max > 0 && (long) max == max ? token(max).length : 0;
     final boolean simple = len != 0 && min > 0 && (long) min == min && token(min).length == len;
 
-    final IntList pres = new IntList();
     synchronized(monitor) {
       final int s = size();
       for(int l = 0; l < s; ++l) {
@@ -450,7 +577,7 @@ public class DiskValues implements Index {
         final int pre = pre(id);
 
         final double v = data.textDbl(pre, text);
-        if(v >= min && v <= max) {
+        if((mni ? v >= min : v > min) && (mxi ? v <= max : v < max)) {
           // value is in range
           for(int d = 0; d < ds; ++d) {
             pres.add(pre(id));
@@ -35,8 +35,6 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class DiskValuesBuilder extends IndexBuilder {
-  /** Temporary value tree. */
-  private IndexTree index = new IndexTree();
   /** Index type (attributes/texts). */
   private final boolean text;
 
@@ -47,7 +45,7 @@ public final class DiskValuesBuilder extends IndexBuilder {
    * @param text value type (text/attribute)
    */
   public DiskValuesBuilder(final Data data, final MainOptions options, final boolean text) {
-    super(data, options.get(MainOptions.INDEXSPLITSIZE));
+    super(data, options.get(MainOptions.INDEXSPLITSIZE), options.get(MainOptions.INDEXTHREADS));
     this.text = text;
   }
 
@@ -60,28 +58,38 @@ public final class DiskValuesBuilder extends IndexBuilder {
     Util.debug(det());
 
     final int k = text ? Data.TEXT : Data.ATTR;
-
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
-        // check if main memory is exhausted
-        if(split()) {
-          writeIndex(true);
-          index = new IndexTree();
-          finishSplit();
+    index(new Partition() {
+      @Override
+      public void index(final int part, final int start, final int end) throws IOException {
+        IndexTree index = new IndexTree();
+        int flushed = 0, nodes = 0;
+        long ops = 0;
+        for(int p = start; p < end; ++p) {
+          if((++nodes & 0x0FFF) == 0) {
+            // check if main memory is exhausted
+            if(split(nodes, ops, flushed)) {
+              writeIndex(index, nextSplit());
+              index = new IndexTree();
+              flushed++;
+              finishSplit();
+            }
+            nodes = 0;
+            ops = 0;
+          }
+          // skip too long values
+          if(data.kind(p) == k && data.textLen(p, text) <= data.meta.maxlen) {
+            index.index(data.text(p, text), data.meta.updindex ? data.id(p) : p);
+            ops++;
+          }
         }
+        finish(nodes, ops, flushed);
+        // write complete index, or partial index structure if the index has been split
+        writeIndex(index, partial(flushed) ? nextSplit() : -1);
       }
-      // skip too long values
-      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen) {
-        index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
-        count++;
-      }
-    }
+    });
 
-    writeIndex(splits > 0);
     // merge partial index structures
     if(splits > 1) {
-      index = null;
       Performance.gc(1);
       merge();
     }
@@ -90,7 +98,10 @@ public final class DiskValuesBuilder extends IndexBuilder {
     else data.meta.attrindex = true;
 
     finishIndex(perf);
-    return data.meta.updindex ? new UpdatableDiskValues(data, text) : new DiskValues(data, text);
+    final DiskValues index = data.meta.updindex ? new UpdatableDiskValues(data, text) :
+      new DiskValues(data, text);
+    if(data.meta.rangeindex) index.createNumeric();
+    return index;
   }
 
   /**
@@ -156,13 +167,15 @@ public final class DiskValuesBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current index tree to disk.
-   * @param partial partial flag
+   * Writes an index tree to disk.
+   * @param index index tree
+   * @param split split number, or {@code -1} if the complete index is written
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
+  private void writeIndex(final IndexTree index, final int split) throws IOException {
     // write id arrays and references
-    final String name = (text ? DATATXT : DATAATV) + (partial ? splits : "");
+    final boolean partial = split != -1;
+    final String name = (text ? DATATXT : DATAATV) + (partial ? split : "");
     try(final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
         final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'))) {
       outL.write4(index.size());
@@ -195,8 +208,6 @@ public final class DiskValuesBuilder extends IndexBuilder {
         while(index.more()) outT.writeToken(index.keys.get(index.next()));
       }
     }
-    // increase split counter
-    splits++;
   }
 
   /**
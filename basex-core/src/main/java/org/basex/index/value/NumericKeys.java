@@ -0,0 +1,125 @@
+package org.basex.index.value;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.*;
+
+/**
+ * This class provides access to the numeric keys of a value index, which are sorted in their
+ * numeric order. It allows range queries to seek the first matching key with a binary search
+ * and to read all other results sequentially.
+ * Keys of other types, such as dates, are not stored, and range comparisons on them
+ * are not answered by this class.
+ *
+ * The keys are stored in a single file:
+ * <ul>
+ *   <li> The file starts with the number of keys (4 bytes).</li>
+ *   <li> Each key is represented by its double value (8 bytes) and the offset to the
+ *        id list of the key in the index file {@code ...l.basex} (5 bytes).</li>
+ * </ul>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class NumericKeys {
+  /** Size of a single entry. */
+  private static final int ENTRY = 13;
+  /** Number of keys. */
+  private final int size;
+  /** Key file. */
+  private final DataAccess da;
+
+  /**
+   * Constructor.
+   * @param file key file
+   * @throws IOException I/O exception
+   */
+  NumericKeys(final IOFile file) throws IOException {
+    da = new DataAccess(file);
+    size = da.read4(0);
+  }
+
+  /**
+   * Writes a key file.
+   * @param file key file
+   * @param values numeric values
+   * @param offsets offsets to the id lists
+   * @param size number of keys
+   * @throws IOException I/O exception
+   */
+  static void write(final IOFile file, final double[] values, final long[] offsets,
+      final int size) throws IOException {
+
+    final double[] vals = values.length == size ? values : Arrays.copyOf(values, size);
+    final int[] order = Array.createOrder(vals, true);
+    try(final DataOutput out = new DataOutput(file)) {
+      out.write4(size);
+      for(int i = 0; i < size; i++) {
+        final long bits = Double.doubleToLongBits(vals[i]);
+        out.write4((int) (bits >>> 32));
+        out.write4((int) bits);
+        out.write5(offsets[order[i]]);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of keys.
+   * @return number of keys
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the position of the first key that is larger than (or equal to) the specified
+   * value.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param value value
+   * @param inclusive include keys that are equal to the value
+   * @return position (equal to the number of keys if no key is larger)
+   */
+  int first(final double value, final boolean inclusive) {
+    int l = 0, h = size;
+    while(l < h) {
+      final int m = l + h >>> 1;
+      final double v = value(m);
+      if(v < value || !inclusive && v == value) l = m + 1;
+      else h = m;
+    }
+    return l;
+  }
+
+  /**
+   * Returns the numeric value of the specified key.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param index key position
+   * @return value
+   */
+  double value(final int index) {
+    final long pos = 4L + (long) index * ENTRY;
+    final long bits = (long) da.read4(pos) << 32 | da.read4() & 0xFFFFFFFFL;
+    return Double.longBitsToDouble(bits);
+  }
+
+  /**
+   * Returns the offset to the id list of the specified key.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param index key position
+   * @return offset
+   */
+  long offset(final int index) {
+    return da.read5(4L + (long) index * ENTRY + 8);
+  }
+
+  /**
+   * Closes the key file.
+   */
+  void close() {
+    da.close();
+  }
+}
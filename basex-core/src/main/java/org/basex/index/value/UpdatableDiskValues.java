@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import java.io.*;
 
 import org.basex.data.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
 import org.basex.util.list.*;
@@ -30,6 +31,16 @@ public final class UpdatableDiskValues extends DiskValues {
     super(data, text, text ? DATATXT : DATAATV);
   }
 
+  /**
+   * Constructor for a snapshot of the index structure.
+   * @param data data reference
+   * @param text value type (texts/attributes)
+   * @param files snapshots of the index files
+   */
+  public UpdatableDiskValues(final Data data, final boolean text, final DataAccess[] files) {
+    super(data, text, files);
+  }
+
   @Override
   protected int pre(final int id) {
     return data.pre(id);
@@ -37,6 +48,7 @@ public final class UpdatableDiskValues extends DiskValues {
 
   @Override
   public synchronized void add(final TokenObjMap<IntList> map) {
+    dropNumeric();
     // create a sorted list of the new keys and update the old keys
     final TokenList newKeys = new TokenList();
 
@@ -83,6 +95,7 @@ public final class UpdatableDiskValues extends DiskValues {
 
   @Override
   public synchronized void delete(final TokenObjMap<IntList> map) {
+    dropNumeric();
     // delete ids and create a list of the key positions which should be deleted
     final IntList il = new IntList(map.size());
 
@@ -101,6 +114,7 @@ public final class UpdatableDiskValues extends DiskValues {
 
   @Override
   public synchronized void replace(final byte[] old, final byte[] key, final int id) {
+    dropNumeric();
     // delete the id from the old key
     final int p = get(old);
     if(p >= 0) {
@@ -116,6 +116,15 @@ public class BufferInput extends InputStream {
     return buf[bpos++] & 0xFF;
   }
 
+  /**
+   * Returns the number of buffered bytes that can be read without accessing the input stream.
+   * @return number of bytes
+   */
+  @Override
+  public int available() {
+    return Math.max(0, bsize - bpos);
+  }
+
   /**
    * Reads a string from the input stream, suffixed by a {@code 0} byte.
    * @return string
@@ -56,6 +56,55 @@ public final class NewlineInput extends TextInput {
     return '\n';
   }
 
+  /**
+   * Copies characters from the input buffer to the specified token builder without decoding
+   * them. Copying stops before the first specified ASCII character, before carriage returns,
+   * before UTF-8 sequences that may need to be replaced, and at the end of the buffer.
+   * Nothing is copied if the input is not plain UTF-8 (see {@link #plainUTF8()}).
+   * @param tb token builder
+   * @param stop ASCII characters that end copying (must include {@code '\r'})
+   * @return number of copied newlines
+   */
+  int copy(final TokenBuilder tb, final boolean[] stop) {
+    if(next != -2 || !plainUTF8()) return 0;
+    final byte[] buf = array;
+    final int start = bpos, end = bsize;
+    int p = start, nl = 0;
+    while(p < end) {
+      final int b = buf[p];
+      if(b >= 0) {
+        if(stop[b]) break;
+        if(b == '\n') nl++;
+        p++;
+      } else {
+        // accept complete two- and three-byte sequences, skip overlong encodings
+        final int l = b & 0xFF;
+        if(l >= 0xC2 && l < 0xE0 && p + 1 < end && cont(buf[p + 1])) {
+          p += 2;
+        } else if(l >= 0xE0 && l < 0xF0 && p + 2 < end && cont(buf[p + 1]) &&
+            cont(buf[p + 2]) && (l != 0xE0 || (buf[p + 1] & 0xFF) >= 0xA0)) {
+          p += 3;
+        } else {
+          break;
+        }
+      }
+    }
+    if(p != start) {
+      tb.add(buf, start, p);
+      bpos = p;
+    }
+    return nl;
+  }
+
+  /**
+   * Checks if the specified byte is a UTF-8 continuation byte.
+   * @param b byte
+   * @return result of check
+   */
+  private static boolean cont(final byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+
   /**
    * Reads and returns a single line.
    * @return line or {@code null}
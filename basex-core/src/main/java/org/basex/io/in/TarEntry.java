@@ -21,8 +21,12 @@ public final class TarEntry {
    * @param buffer header buffer
    */
   TarEntry(final byte[] buffer) {
-    // file name
+    // file name, preceded by the ustar name prefix
     final ByteList result = new ByteList();
+    if(buffer[257] == 'u' && buffer[258] == 's' && buffer[345] != 0) {
+      for(int i = 345; i < 500 && buffer[i] != 0; ++i) result.add(buffer[i]);
+      result.add('/');
+    }
     for(int i = 0; i < 100; ++i) {
       if(buffer[i] == 0) break;
       result.add(buffer[i]);
@@ -96,6 +96,15 @@ public class TextInput extends BufferInput {
     return this;
   }
 
+  /**
+   * Checks if the input is decoded as UTF-8 and not checked for valid characters.
+   * In this case, the bytes of the input buffer can be copied without decoding them.
+   * @return result of check
+   */
+  final boolean plainUTF8() {
+    return !valid && decoder.encoding == UTF8;
+  }
+
   /**
    * Sets a new encoding.
    * @param enc encoding (ignored if {@code null} or an empty string)
@@ -13,6 +13,11 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public class XMLInput extends InputStream {
+  /** Characters that end the bulk copying of text. */
+  private static final boolean[] TEXT = stops("\0<&]\r");
+  /** Characters that end the bulk copying of attribute values. */
+  private static final boolean[] ATTVALUE = stops("\0<&'\"\r\n");
+
   /** Input streams. */
   private NewlineInput[] inputs = new NewlineInput[1];
   /** Input pointer. */
@@ -72,6 +77,21 @@ public class XMLInput extends InputStream {
     return ch;
   }
 
+  /**
+   * Copies plain characters of a text or an attribute value from the buffer of the input to
+   * the specified token builder. Copying stops before the first character that needs to be
+   * processed by the scanner (such as {@code <} or {@code &} and, in attribute values, quotes
+   * and newlines), before carriage returns and non-trivial UTF-8 sequences, and at the end of
+   * the buffer. Nothing is copied if characters have been pushed back, if entities are being
+   * read, or if the input is not encoded in UTF-8.
+   * Copied characters cannot be pushed back via {@link #prev(int)}.
+   * @param tb token builder
+   * @param att attribute value
+   */
+  public void copy(final TokenBuilder tb, final boolean att) {
+    if(pp == 0 && ip == 0) line += inputs[0].copy(tb, att ? ATTVALUE : TEXT);
+  }
+
   /**
    * Inserts some bytes in the input stream.
    * @param value values to insert
@@ -123,4 +143,15 @@ public class XMLInput extends InputStream {
   public long length() {
     return inputs[0].length();
   }
+
+  /**
+   * Returns a lookup table for the specified ASCII characters.
+   * @param chars characters
+   * @return table
+   */
+  private static boolean[] stops(final String chars) {
+    final boolean[] stops = new boolean[0x80];
+    for(final char ch : chars.toCharArray()) stops[ch] = true;
+    return stops;
+  }
 }
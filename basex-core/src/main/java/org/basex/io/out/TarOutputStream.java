@@ -0,0 +1,136 @@
+package org.basex.io.out;
+
+import java.io.*;
+
+import org.basex.util.*;
+
+/**
+ * Output stream filter for writing files in the TAR (ustar) file format.
+ * The size of each entry must be known in advance.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class TarOutputStream extends FilterOutputStream {
+  /** Block size. */
+  private static final int BLOCK = 512;
+  /** Maximum length of a name. */
+  private static final int NAME = 100;
+  /** Maximum length of a name prefix. */
+  private static final int PREFIX = 155;
+
+  /** Size of the current entry ({@code -1}: no open entry). */
+  private long size = -1;
+  /** Number of bytes written for the current entry. */
+  private long written;
+
+  /**
+   * Constructor.
+   * @param os output stream
+   */
+  public TarOutputStream(final OutputStream os) {
+    super(os);
+  }
+
+  /**
+   * Closes the current entry (if any) and starts a new entry.
+   * @param name name of the entry
+   * @param length byte size of the entry
+   * @throws IOException I/O exception
+   */
+  public void putNextEntry(final String name, final long length) throws IOException {
+    closeEntry();
+
+    final byte[] header = new byte[BLOCK];
+    final byte[] path = Token.token(name);
+    int split = 0;
+    if(path.length > NAME) {
+      // split long names into prefix and name
+      split = path.length - NAME - 1;
+      while(split < path.length && path[split] != '/') split++;
+      if(split > PREFIX || split == path.length)
+        throw new IOException("Name is too long for TAR archive: " + name);
+      System.arraycopy(path, 0, header, 345, split++);
+    }
+    System.arraycopy(path, split, header, 0, path.length - split);
+    octal(header, 100, 8, 0644);
+    octal(header, 108, 8, 0);
+    octal(header, 116, 8, 0);
+    octal(header, 124, 12, length);
+    octal(header, 136, 12, System.currentTimeMillis() / 1000);
+    header[156] = '0';
+    System.arraycopy(Token.token("ustar"), 0, header, 257, 5);
+    header[263] = '0';
+    header[264] = '0';
+
+    // checksum is computed with the checksum field filled with spaces
+    for(int i = 148; i < 156; i++) header[i] = ' ';
+    long sum = 0;
+    for(final byte b : header) sum += b & 0xFF;
+    octal(header, 148, 7, sum);
+
+    out.write(header);
+    size = length;
+    written = 0;
+  }
+
+  /**
+   * Closes the current entry.
+   * @throws IOException I/O exception
+   */
+  public void closeEntry() throws IOException {
+    if(size == -1) return;
+    if(written != size) throw new IOException(
+        "TAR entry has " + written + " instead of " + size + " bytes.");
+    final int pad = (int) (BLOCK - (size & BLOCK - 1) & BLOCK - 1);
+    out.write(new byte[pad]);
+    size = -1;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    check(1);
+    out.write(b);
+  }
+
+  @Override
+  public void write(final byte[] bytes, final int off, final int len) throws IOException {
+    check(len);
+    out.write(bytes, off, len);
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeEntry();
+    // end of archive: two empty blocks
+    out.write(new byte[BLOCK << 1]);
+    super.close();
+  }
+
+  /**
+   * Checks if the specified number of bytes can be written to the current entry.
+   * @param len number of bytes
+   * @throws IOException I/O exception
+   */
+  private void check(final int len) throws IOException {
+    if(size == -1) throw new IOException("No TAR entry has been started.");
+    written += len;
+    if(written > size) throw new IOException("TAR entry exceeds " + size + " bytes.");
+  }
+
+  /**
+   * Writes a number as zero-padded octal string, followed by a null byte.
+   * @param header header
+   * @param off offset
+   * @param len length of the field (including the null byte)
+   * @param value value
+   */
+  private static void octal(final byte[] header, final int off, final int len, final long value) {
+    long v = value;
+    for(int i = off + len - 2; i >= off; i--) {
+      header[i] = (byte) ('0' + (v & 7));
+      v >>>= 3;
+    }
+    header[off + len - 1] = 0;
+  }
+}
@@ -10,6 +10,7 @@ import org.basex.core.*;
 import org.basex.io.*;
 import org.basex.io.in.*;
 import org.basex.query.value.item.*;
+import org.basex.util.*;
 import org.basex.util.list.*;
 
 /**
@@ -40,6 +41,10 @@ public abstract class CsvConverter extends Proc {
   private final CsvParserOptions copts;
   /** Current input. */
   protected NewlineInput nli;
+  /** Parser, used for the lazy conversion of single records ({@code null} otherwise). */
+  CsvParser parser;
+  /** Indicates if more records may follow (only used for the lazy conversion). */
+  private boolean more;
 
   /**
    * Constructor.
@@ -65,6 +70,36 @@ public abstract class CsvConverter extends Proc {
     return finish();
   }
 
+  /**
+   * Prepares the lazy conversion of the specified input. The records will be returned one
+   * by one via {@link #next()}, and they will not be added to the final result.
+   * The input is expected to be decoded already; the encoding option will be ignored.
+   * @param input input
+   * @return self reference
+   */
+  public final CsvConverter stream(final NewlineInput input) {
+    nli = input;
+    parser = new CsvParser(input, copts, this);
+    more = true;
+    return this;
+  }
+
+  /**
+   * Parses and returns the next record of the input that has been assigned via
+   * {@link #stream(NewlineInput)}.
+   * @return record, or {@code null} if the input has been completely parsed
+   * @throws IOException I/O exception
+   */
+  public final Item next() throws IOException {
+    while(more) {
+      more = parser.line();
+      final Item record = current();
+      if(record != null) return record;
+    }
+    nli.close();
+    return null;
+  }
+
   /**
    * Returns a CSV converter for the given configuration.
    * @param copts options
@@ -96,6 +131,16 @@ public abstract class CsvConverter extends Proc {
    */
   protected abstract void entry(final byte[] value) throws IOException;
 
+  /**
+   * Returns the record that has been parsed last, and resets it.
+   * Overwritten by converters that support the lazy conversion of records.
+   * @return record or {@code null}
+   * @throws IOException I/O exception
+   */
+  protected Item current() throws IOException {
+    throw Util.notExpected();
+  }
+
   /**
    * Returns the resulting byte array.
    * @return result
@@ -29,7 +29,7 @@ final class CsvDirectConverter extends CsvConverter {
   @Override
   protected void record() {
     record = new FElem(RECORD);
-    root.add(record);
+    if(parser == null) root.add(record);
     col = 0;
   }
 
@@ -51,6 +51,13 @@ final class CsvDirectConverter extends CsvConverter {
     record.add(e.add(entry));
   }
 
+  @Override
+  protected FElem current() {
+    final FElem elem = record;
+    record = null;
+    return elem;
+  }
+
   @Override
   protected FDoc finish() {
     return doc;
@@ -5,6 +5,7 @@ import java.util.*;
 import org.basex.build.csv.*;
 import org.basex.query.*;
 import org.basex.query.iter.*;
+import org.basex.query.value.array.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.map.Map;
 
@@ -18,7 +19,7 @@ final class CsvMapConverter extends CsvConverter {
   /** All records. */
   private final ArrayList<ValueBuilder> records = new ArrayList<>(1);
   /** Current record. */
-  private ValueBuilder record = new ValueBuilder();
+  private ValueBuilder record;
 
   /**
    * Constructor.
@@ -37,7 +38,7 @@ final class CsvMapConverter extends CsvConverter {
   protected void record() {
     record = new ValueBuilder();
     if(!headers.isEmpty()) record.add(Map.EMPTY);
-    records.add(record);
+    if(parser == null) records.add(record);
     col = 0;
   }
 
@@ -56,6 +57,21 @@ final class CsvMapConverter extends CsvConverter {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * Records without header are returned as arrays.
+   */
+  @Override
+  protected Item current() {
+    final ValueBuilder vb = record;
+    record = null;
+    if(vb == null) return null;
+    if(!headers.isEmpty()) return vb.get(0);
+    final ArrayBuilder ab = new ArrayBuilder();
+    for(final Item it : vb) ab.append(it);
+    return ab.freeze();
+  }
+
   @Override
   protected Map finish() throws QueryIOException {
     try {
@@ -8,6 +8,7 @@ import org.basex.util.*;
 
 /**
  * A CSV parser generating parse events similar to a SAX XML parser.
+ * The input can be parsed at once or line by line.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -32,6 +33,8 @@ final class CsvParser {
   private boolean quoted;
   /** Data mode. */
   private boolean data;
+  /** Current entry. */
+  private final TokenBuilder entry = new TokenBuilder();
 
   /**
    * Constructor.
@@ -39,13 +42,14 @@ final class CsvParser {
    * @param opts options
    * @param conv converter
    */
-  private CsvParser(final TextInput input, final CsvParserOptions opts, final CsvConverter conv) {
+  CsvParser(final TextInput input, final CsvParserOptions opts, final CsvConverter conv) {
     this.input = input;
     this.conv = conv;
     header = opts.get(CsvOptions.HEADER);
     separator = opts.separator();
     quotes = opts.get(CsvOptions.QUOTES);
     backslashes = opts.get(CsvOptions.BACKSLASHES);
+    data = !header;
   }
 
   /**
@@ -58,17 +62,16 @@ final class CsvParser {
    */
   static void parse(final TextInput input, final CsvParserOptions opts, final CsvConverter conv)
       throws IOException {
-    new CsvParser(input, opts, conv).parse();
+    final CsvParser parser = new CsvParser(input, opts, conv);
+    while(parser.line());
   }
 
   /**
-   * Parses a CSV expression.
+   * Parses the next line of the CSV input. Quoted line breaks do not terminate the line.
+   * @return {@code true} if more input may follow
    * @throws IOException query I/O exception
    */
-  private void parse() throws IOException {
-    final TokenBuilder entry = new TokenBuilder();
-    data = !header;
-
+  boolean line() throws IOException {
     int ch = input.read();
     while(ch != -1) {
       if(quoted) {
@@ -97,13 +100,14 @@ final class CsvParser {
         quoted = true;
       } else if(ch == separator) {
         // parse separator
-        record(entry, true);
+        record(true);
         first = false;
       } else if(ch == '\n') {
         // parse newline
-        record(entry, !entry.isEmpty());
+        record(!entry.isEmpty());
         first = true;
         data = true;
+        return true;
       } else {
         if(backslashes) {
           if(ch == '\\') ch = bs();
@@ -114,7 +118,8 @@ final class CsvParser {
       }
       ch = input.read();
     }
-    record(entry, !entry.isEmpty());
+    record(!entry.isEmpty());
+    return false;
   }
 
   /**
@@ -132,20 +137,19 @@ final class CsvParser {
 
   /**
    * Adds a character.
-   * @param entry token builder
+   * @param tb token builder
    * @param ch character
    */
-  private static void add(final TokenBuilder entry, final int ch) {
-    entry.add(XMLToken.valid(ch) ? ch : '?');
+  private static void add(final TokenBuilder tb, final int ch) {
+    tb.add(XMLToken.valid(ch) ? ch : '?');
   }
 
   /**
    * Adds a new record and entry.
-   * @param entry entry to be added
    * @param record add new record
    * @throws IOException I/O exception
    */
-  private void record(final TokenBuilder entry, final boolean record) throws IOException {
+  private void record(final boolean record) throws IOException {
     if(record && first && data) conv.record();
     if(record || !first) {
       if(data) {
@@ -0,0 +1,193 @@
+package org.basex.io.parse.json;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+
+import org.basex.build.json.*;
+import org.basex.io.in.*;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * This class lazily converts the members of a top-level JSON array. The input is scanned
+ * until the end of the next member has been found, and the member is then converted
+ * like a separate JSON input. If the input is no array, it is converted as a whole.
+ *
+ * Only a single member is kept in memory. The line and column numbers of errors in
+ * a member refer to the beginning of the member.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class JsonMembers {
+  /** Input. */
+  private final TextInput input;
+  /** JSON options. */
+  private final JsonParserOptions jopts;
+  /** Liberal parsing. */
+  private final boolean liberal;
+  /** Token builder for the current member. */
+  private final TokenBuilder tb = new TokenBuilder();
+
+  /** Current character ({@code -1}: end of input). */
+  private int curr;
+  /** Current line. */
+  private int line = 1;
+  /** Current column. */
+  private int col;
+  /** Indicates if the array has been opened. */
+  private boolean array;
+  /** Indicates if the input has been completely parsed. */
+  private boolean finished;
+
+  /**
+   * Constructor.
+   * @param input input
+   * @param jopts JSON options
+   * @throws IOException I/O exception
+   */
+  public JsonMembers(final TextInput input, final JsonParserOptions jopts) throws IOException {
+    this.input = input;
+    this.jopts = jopts;
+    liberal = jopts.get(JsonParserOptions.LIBERAL);
+    read();
+  }
+
+  /**
+   * Converts and returns the next member of the array.
+   * Members that result in an empty sequence will be skipped.
+   * @return member, or {@code null} if all members have been returned
+   * @throws IOException I/O exception
+   */
+  public Item next() throws IOException {
+    while(!finished) {
+      skipWs();
+      if(!array) {
+        if(curr != '[') {
+          // no array: convert complete input
+          tb.reset();
+          for(; curr != -1; read()) tb.add(curr);
+          finish();
+          return convert();
+        }
+        array = true;
+        read();
+        skipWs();
+        if(curr == ']') {
+          closeArray();
+          continue;
+        }
+      }
+      member();
+      final Item it = convert();
+      if(it != null) return it;
+    }
+    return null;
+  }
+
+  /**
+   * Scans the next member and consumes the following comma or the closing bracket.
+   * @throws IOException I/O exception
+   */
+  private void member() throws IOException {
+    tb.reset();
+    int depth = 0;
+    boolean string = false;
+    for(;; read()) {
+      if(curr == -1) throw error("Unexpected end of input");
+      if(string) {
+        if(curr == '\\') {
+          tb.add(curr);
+          read();
+          if(curr == -1) throw error("Unexpected end of input");
+        } else if(curr == '"') {
+          string = false;
+        }
+      } else if(curr == '"') {
+        string = true;
+      } else if(curr == '[' || curr == '{' || curr == '(') {
+        depth++;
+      } else if(curr == ']' || curr == '}' || curr == ')') {
+        if(depth == 0) {
+          if(curr != ']') throw error("Unexpected '%'", (char) curr);
+          closeArray();
+          return;
+        }
+        depth--;
+      } else if(curr == ',' && depth == 0) {
+        read();
+        skipWs();
+        if(curr == ']') {
+          if(!liberal) throw error("Unexpected ']'");
+          closeArray();
+        }
+        return;
+      }
+      tb.add(curr);
+    }
+  }
+
+  /**
+   * Consumes the closing bracket of the array and checks if the input has been completely
+   * parsed.
+   * @throws IOException I/O exception
+   */
+  private void closeArray() throws IOException {
+    read();
+    skipWs();
+    if(curr != -1) throw error("Unexpected trailing content");
+    finish();
+  }
+
+  /**
+   * Finishes parsing and closes the input.
+   * @throws IOException I/O exception
+   */
+  private void finish() throws IOException {
+    finished = true;
+    input.close();
+  }
+
+  /**
+   * Converts the current member.
+   * @return resulting item or {@code null}
+   * @throws QueryIOException query I/O exception
+   */
+  private Item convert() throws QueryIOException {
+    return JsonConverter.get(jopts).convert(tb.toArray(), null);
+  }
+
+  /**
+   * Reads the next character.
+   * @throws IOException I/O exception
+   */
+  private void read() throws IOException {
+    curr = input.read();
+    if(curr == '\n') {
+      line++;
+      col = 0;
+    } else {
+      col++;
+    }
+  }
+
+  /**
+   * Skips whitespaces.
+   * @throws IOException I/O exception
+   */
+  private void skipWs() throws IOException {
+    while(curr == ' ' || curr == '\t' || curr == '\r' || curr == '\n' || curr == '\u00A0') read();
+  }
+
+  /**
+   * Returns an error with the specified message.
+   * @param msg error message
+   * @param ext error details
+   * @return query I/O exception
+   */
+  private QueryIOException error(final String msg, final Object... ext) {
+    return new QueryIOException(BXJS_PARSE_X_X_X.get(null, line, col, Util.inf(msg, ext)));
+  }
+}
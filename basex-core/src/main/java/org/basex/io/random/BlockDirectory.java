@@ -0,0 +1,190 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+
+/**
+ * This class organizes the blocks of a compressed database file, which may have
+ * different sizes on disk.
+ *
+ * The directory is stored in a separate file. It contains the number of blocks, followed by the
+ * offset (bits 63-16), a flag for uncompressed blocks (bit 15) and the reserved space
+ * (bits 14-0) of each block. Blocks that outgrow their space after an update are moved to a
+ * free area or appended to the end of the file, with some additional space for further
+ * updates. Free areas are computed from the directory when a block is moved for the first time.
+ *
+ * NOTE: this class is not thread-safe.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class BlockDirectory {
+  /** Flag for uncompressed blocks. */
+  private static final int RAW = 0x8000;
+  /** Mask for the reserved space of a block. */
+  private static final int SPACE = 0x7FFF;
+  /** Number of bits used for the offset of a free area. */
+  private static final int FREE = 40;
+
+  /** Directory file. */
+  private final IOFile file;
+  /** Block directory: offsets and reserved space of all blocks. */
+  private long[] dir;
+  /** Number of blocks in the directory. */
+  private int size;
+  /** End of the data file. */
+  private long end;
+  /** Dirty flag. */
+  private boolean dirty;
+  /** Free areas: sizes (bits 63-40) and offsets (bits 39-0) ({@code null}: not computed yet). */
+  private TreeSet<Long> free;
+
+  /**
+   * Constructor, reading the block directory.
+   * @param file directory file
+   * @throws IOException I/O exception
+   */
+  BlockDirectory(final IOFile file) throws IOException {
+    this.file = file;
+    try(final DataInput in = new DataInput(file)) {
+      dir = in.readLongs(in.readNum());
+      size = dir.length;
+    }
+    for(int d = 0; d < size; d++) end = Math.max(end, (dir[d] >>> 16) + (dir[d] & SPACE));
+  }
+
+  /**
+   * Returns a directory entry for a block that is written for the first time.
+   * @param off offset of the block
+   * @param bytes stored bytes
+   * @param raw uncompressed flag
+   * @return directory entry
+   */
+  static long entry(final long off, final byte[] bytes, final boolean raw) {
+    return off << 16 | (raw ? RAW : 0) | bytes.length;
+  }
+
+  /**
+   * Writes a block directory.
+   * @param file directory file
+   * @param dir block directory
+   * @throws IOException I/O exception
+   */
+  static void write(final IOFile file, final long[] dir) throws IOException {
+    try(final DataOutput out = new DataOutput(file)) {
+      out.writeLongs(dir);
+    }
+  }
+
+  /**
+   * Reads the stored bytes of the specified block. The returned array may contain additional
+   * bytes from the reserved space.
+   * @param data data file
+   * @param block block index
+   * @return stored bytes, or {@code null} if the block has not been written yet
+   * @throws IOException I/O exception
+   */
+  byte[] read(final RandomAccessFile data, final int block) throws IOException {
+    if(block >= size) return null;
+    final long entry = dir[block];
+    final int len = (int) Math.min(entry & SPACE, IO.BLOCKSIZE);
+    if(len == 0) return null;
+    final byte[] bytes = new byte[len];
+    data.seek(entry >>> 16);
+    data.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * Checks if the specified block is stored uncompressed.
+   * @param block block index
+   * @return result of check
+   */
+  boolean raw(final int block) {
+    return (dir[block] & RAW) != 0;
+  }
+
+  /**
+   * Writes the specified block. It is written to its current position if it fits into
+   * the reserved space, or moved otherwise.
+   * @param data data file
+   * @param block block index
+   * @param bytes bytes to be stored
+   * @param raw uncompressed flag
+   * @throws IOException I/O exception
+   */
+  void write(final RandomAccessFile data, final int block, final byte[] bytes, final boolean raw)
+      throws IOException {
+
+    if(block >= dir.length) dir = Arrays.copyOf(dir, Math.max(dir.length << 1, block + 1));
+    size = Math.max(size, block + 1);
+
+    final int len = bytes.length;
+    long off = dir[block] >>> 16;
+    int space = (int) (dir[block] & SPACE);
+    if(len > space) {
+      // move block, reserve additional space for subsequent updates
+      release(off, space);
+      space = Math.min(len + (len >>> 2), IO.BLOCKSIZE);
+      off = allocate(space);
+      if(off + space > data.length()) data.setLength(off + space);
+    }
+    data.seek(off);
+    data.write(bytes);
+    dir[block] = off << 16 | (raw ? RAW : 0) | space;
+    dirty = true;
+  }
+
+  /**
+   * Writes the block directory if it has been changed.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    if(!dirty) return;
+    write(file, Arrays.copyOf(dir, size));
+    dirty = false;
+  }
+
+  /**
+   * Returns the offset of a free area with the specified size.
+   * @param space size of the area
+   * @return offset
+   */
+  private long allocate(final int space) {
+    final Long area = free.ceiling((long) space << FREE);
+    if(area == null) {
+      final long off = end;
+      end += space;
+      return off;
+    }
+    free.remove(area);
+    final long off = area & (1L << FREE) - 1;
+    release(off + space, (int) (area >>> FREE) - space);
+    return off;
+  }
+
+  /**
+   * Adds a free area.
+   * @param off offset
+   * @param space size of the area
+   */
+  private void release(final long off, final int space) {
+    if(free == null) {
+      // compute free areas between the blocks
+      free = new TreeSet<>();
+      final long[] entries = Arrays.copyOf(dir, size);
+      Arrays.sort(entries);
+      long o = 0;
+      for(final long entry : entries) {
+        final long eo = entry >>> 16;
+        if(eo > o) release(o, (int) Math.min(eo - o, SPACE));
+        o = Math.max(o, eo + (entry & SPACE));
+      }
+    }
+    if(space > 0) free.add((long) space << FREE | off);
+  }
+}
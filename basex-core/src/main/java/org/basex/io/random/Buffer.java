@@ -15,4 +15,6 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+  /** Version of the snapshots for which the original contents have been saved. */
+  int version;
 }
@@ -1,24 +1,128 @@
 package org.basex.io.random;
 
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class provides a simple, scan-resistant buffer management.
+ *
+ * Each instance owns a minimum number of buffers. If the instance is shared, additional buffers
+ * are taken from a process-wide pool, the size of which is set via
+ * {@link org.basex.core.StaticOptions#TABLEBUFFERS}.
+ *
+ * Buffers are replaced according to a simplified 2Q strategy: new blocks are added to a
+ * probationary FIFO queue. Blocks that are requested again are promoted to a protected LRU
+ * queue. Blocks that are requested only once, as it happens when the table is scanned, will
+ * thus not displace frequently requested blocks.
+ *
+ * If an instance with fewer shared buffers was refused an additional buffer, a shared buffer
+ * that holds a probationary block is returned to the pool as soon as a block is evicted.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 final class Buffers {
-  /** Number of buffers (must be 1 << n). */
-  private static final int BUFFERS = 1 << 4;
+  /** Minimum number of buffers per instance. */
+  static final int MIN = 1 << 4;
+
+  /** Maximum number of additional buffers in the shared pool. */
+  private static volatile int capacity;
+  /** Number of additional buffers taken from the shared pool. */
+  private static final AtomicInteger SHARED = new AtomicInteger();
+  /** Instances that take buffers from the shared pool. */
+  private static final Set<Buffers> INSTANCES =
+      Collections.newSetFromMap(new IdentityHashMap<Buffers, Boolean>());
+  /** Block hits of released instances (guarded by {@link #INSTANCES}). */
+  private static long releasedHits;
+  /** Block misses of released instances (guarded by {@link #INSTANCES}). */
+  private static long releasedMisses;
+  /** Instance that was most recently refused an additional buffer (can be {@code null}). */
+  private static final AtomicReference<Buffers> REFUSED = new AtomicReference<>();
+
+  /** Indicates if buffers can be taken from the shared pool. */
+  private final boolean shared;
+  /** Number of buffers taken from the shared pool. */
+  private int taken;
+  /** Number of block requests that were answered by the buffers. */
+  private long hits;
+  /** Number of block requests that required a block to be read. */
+  private long misses;
+
   /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
+  private Buffer[] buf = new Buffer[MIN];
+  /** Number of buffers. */
+  private int size;
   /** Current buffer offset. */
   private int off;
 
+  /** Protected queue flags. */
+  private boolean[] prot = new boolean[MIN];
+  /** Pointers to previous buffers in the queues. */
+  private int[] prev = new int[MIN];
+  /** Pointers to next buffers in the queues. */
+  private int[] next = new int[MIN];
+  /** Oldest buffer in the probationary queue. */
+  private int probHead = -1;
+  /** Newest buffer in the probationary queue. */
+  private int probTail = -1;
+  /** Size of the probationary queue. */
+  private int probSize;
+  /** Least recently used buffer in the protected queue. */
+  private int protHead = -1;
+  /** Most recently used buffer in the protected queue. */
+  private int protTail = -1;
+
+  /** Hash keys: block positions. */
+  private long[] keys = new long[MIN << 1];
+  /** Hash values: buffer offsets (+1; 0: empty slot). */
+  private int[] vals = new int[MIN << 1];
+
   /**
-   * Constructor.
+   * Constructor, creating buffers that do not draw from the shared pool.
    */
   Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
+    this(false);
+  }
+
+  /**
+   * Constructor.
+   * @param shared take additional buffers from the shared pool
+   */
+  Buffers(final boolean shared) {
+    this.shared = shared;
+    if(shared) {
+      synchronized(INSTANCES) {
+        INSTANCES.add(this);
+      }
+    }
+    off = add();
+    linkProb(off);
+  }
+
+  /**
+   * Assigns the maximum number of buffers in the shared pool.
+   * @param max maximum number of buffers
+   */
+  static void capacity(final int max) {
+    capacity = Math.max(0, max);
+  }
+
+  /**
+   * Returns statistics on the shared pool.
+   * The block hits and misses of all instances that draw from the pool are summed up.
+   * As the counters of open instances are read without synchronization, the result may be
+   * slightly outdated.
+   * @return number of shared buffers, maximum number of buffers, block hits and misses
+   */
+  static long[] stats() {
+    synchronized(INSTANCES) {
+      long h = releasedHits, m = releasedMisses;
+      for(final Buffers bs : INSTANCES) {
+        h += bs.hits;
+        m += bs.misses;
+      }
+      return new long[] { SHARED.get(), capacity, h, m };
+    }
   }
 
   /**
@@ -26,7 +130,7 @@ final class Buffers {
    * @return buffers
    */
   Buffer[] all() {
-    return buf;
+    return size == buf.length ? buf : Arrays.copyOf(buf, size);
   }
 
   /**
@@ -39,15 +143,263 @@ final class Buffers {
 
   /**
    * Chooses a buffer and sets the offset.
+   * If the cursor has changed, the caller is responsible for writing the chosen buffer
+   * (if it is dirty) and assigning the new buffer pointer.
    * @param p buffer pointer
    * @return true if cursor has changed
    */
   boolean cursor(final long p) {
-    final int o = off;
-    do {
-      if(buf[off].pos == p) return false;
-    } while((off = off + 1 & BUFFERS - 1) != o);
-    off = o + 1 & BUFFERS - 1;
+    if(buf[off].pos == p) return false;
+
+    final int b = find(p);
+    if(b != -1) {
+      // hit: promote block to the protected queue
+      hits++;
+      unlink(b);
+      linkProt(b);
+      off = b;
+      return false;
+    }
+
+    // miss: add new buffer or replace existing one
+    misses++;
+    int o = grow() ? add() : -1;
+    final boolean evict = o == -1;
+    if(evict) {
+      // 2Q: replace oldest probationary block if its queue exceeds its quota
+      o = probSize > size >>> 2 || protHead == -1 ? probHead : protHead;
+      unlink(o);
+      remove(buf[o].pos);
+    }
+    linkProb(o);
+    put(p, o);
+    off = o;
+    if(evict) shrink();
     return true;
   }
+
+  /**
+   * Releases all buffers that have been taken from the shared pool.
+   * Must be called if the buffers will not be used anymore.
+   */
+  void release() {
+    SHARED.addAndGet(-taken);
+    taken = 0;
+    REFUSED.compareAndSet(this, null);
+    if(shared) {
+      synchronized(INSTANCES) {
+        if(INSTANCES.remove(this)) {
+          releasedHits += hits;
+          releasedMisses += misses;
+        }
+      }
+    }
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Checks if a new buffer can be created.
+   * @return result of check
+   */
+  private boolean grow() {
+    if(size < MIN) return true;
+    if(!shared) return false;
+    if(SHARED.incrementAndGet() <= capacity) {
+      taken++;
+      return true;
+    }
+    SHARED.decrementAndGet();
+    // register request, or replace the request of an instance with more shared buffers
+    final Buffers bs = REFUSED.get();
+    if(bs == null || bs.taken > taken) REFUSED.compareAndSet(bs, this);
+    return false;
+  }
+
+  /**
+   * Returns a buffer to the shared pool if an instance with fewer shared buffers was refused
+   * an additional buffer.
+   * The oldest clean block of the probationary queue is dropped.
+   */
+  private void shrink() {
+    // only serve requests of instances with fewer shared buffers
+    final Buffers bs = REFUSED.get();
+    if(bs == null || bs.taken >= taken || !REFUSED.compareAndSet(bs, null)) return;
+    for(int b = probHead; b != -1; b = next[b]) {
+      if(b != off && !buf[b].dirty) {
+        drop(b);
+        return;
+      }
+    }
+    // no buffer can be dropped without being written: keep request
+    REFUSED.compareAndSet(null, bs);
+  }
+
+  /**
+   * Drops a buffer and returns it to the shared pool.
+   * The last buffer is moved to the free slot.
+   * @param b buffer offset
+   */
+  private void drop(final int b) {
+    unlink(b);
+    remove(buf[b].pos);
+    final int l = --size;
+    if(b != l) {
+      final boolean pr = prot[l];
+      final long pos = buf[l].pos;
+      buf[b] = buf[l];
+      prot[b] = pr;
+      final int p = prev[l], n = next[l];
+      prev[b] = p;
+      next[b] = n;
+      if(p != -1) next[p] = b;
+      else if(pr) protHead = b;
+      else probHead = b;
+      if(n != -1) prev[n] = b;
+      else if(pr) protTail = b;
+      else probTail = b;
+      if(pos != -1) {
+        remove(pos);
+        put(pos, b);
+      }
+      if(off == l) off = b;
+    }
+    buf[l] = null;
+    taken--;
+    SHARED.decrementAndGet();
+  }
+
+  /**
+   * Adds a new buffer.
+   * @return offset of new buffer
+   */
+  private int add() {
+    final int s = size;
+    if(s == buf.length) {
+      final int ns = s << 1;
+      buf = Arrays.copyOf(buf, ns);
+      prot = Arrays.copyOf(prot, ns);
+      prev = Arrays.copyOf(prev, ns);
+      next = Arrays.copyOf(next, ns);
+      rehash(ns << 1);
+    }
+    buf[s] = new Buffer();
+    size = s + 1;
+    return s;
+  }
+
+  /**
+   * Appends a buffer to the probationary queue.
+   * @param b buffer offset
+   */
+  private void linkProb(final int b) {
+    prot[b] = false;
+    prev[b] = probTail;
+    next[b] = -1;
+    if(probTail == -1) probHead = b;
+    else next[probTail] = b;
+    probTail = b;
+    probSize++;
+  }
+
+  /**
+   * Appends a buffer to the protected queue.
+   * @param b buffer offset
+   */
+  private void linkProt(final int b) {
+    prot[b] = true;
+    prev[b] = protTail;
+    next[b] = -1;
+    if(protTail == -1) protHead = b;
+    else next[protTail] = b;
+    protTail = b;
+  }
+
+  /**
+   * Removes a buffer from its queue.
+   * @param b buffer offset
+   */
+  private void unlink(final int b) {
+    final int p = prev[b], n = next[b];
+    if(prot[b]) {
+      if(p == -1) protHead = n;
+      else next[p] = n;
+      if(n == -1) protTail = p;
+      else prev[n] = p;
+    } else {
+      if(p == -1) probHead = n;
+      else next[p] = n;
+      if(n == -1) probTail = p;
+      else prev[n] = p;
+      probSize--;
+    }
+  }
+
+  /**
+   * Returns the offset of the buffer that contains the specified block.
+   * @param p block position
+   * @return buffer offset or {@code -1}
+   */
+  private int find(final long p) {
+    final int m = keys.length - 1;
+    for(int h = hash(p) & m;; h = h + 1 & m) {
+      final int v = vals[h];
+      if(v == 0) return -1;
+      if(keys[h] == p) return v - 1;
+    }
+  }
+
+  /**
+   * Indexes the buffer of the specified block.
+   * @param p block position
+   * @param b buffer offset
+   */
+  private void put(final long p, final int b) {
+    final int m = keys.length - 1;
+    int h = hash(p) & m;
+    while(vals[h] != 0) h = h + 1 & m;
+    keys[h] = p;
+    vals[h] = b + 1;
+  }
+
+  /**
+   * Removes the specified block from the index (backward shift deletion).
+   * @param p block position
+   */
+  private void remove(final long p) {
+    if(p == -1) return;
+    final int m = keys.length - 1;
+    int h = hash(p) & m;
+    while(keys[h] != p || vals[h] == 0) h = h + 1 & m;
+    for(int n = h + 1 & m; vals[n] != 0; n = n + 1 & m) {
+      final int i = hash(keys[n]) & m;
+      // move entry if its home slot is not located between the gap and its current slot
+      if(h <= n ? h < i && i <= n : h < i || i <= n) continue;
+      keys[h] = keys[n];
+      vals[h] = vals[n];
+      h = n;
+    }
+    vals[h] = 0;
+  }
+
+  /**
+   * Rebuilds the index with the specified capacity.
+   * @param c capacity (must be 1 << n)
+   */
+  private void rehash(final int c) {
+    keys = new long[c];
+    vals = new int[c];
+    for(int b = 0; b < size; b++) {
+      if(buf[b].pos != -1) put(buf[b].pos, b);
+    }
+  }
+
+  /**
+   * Returns the hash value of a block position.
+   * @param p block position
+   * @return hash value
+   */
+  private static int hash(final long p) {
+    return (int) (p * 0x9E3779B97F4A7C15L >>> 32);
+  }
 }
@@ -1,17 +1,28 @@
 package org.basex.io.random;
 
 import java.io.*;
+import java.lang.ref.*;
+import java.util.*;
 
 import org.basex.io.*;
 import org.basex.util.*;
 
 /**
  * This class allows positional read and write access to a database file.
+ * If memory mapping is enabled, positional read operations will be performed on the mapped
+ * file without synchronization, and without changing the cursor, until the file is modified.
+ * The mapping will be restored when the file is flushed.
+ * If the file is compressed, its blocks will be decompressed and compressed by the
+ * {@link HeapBlocks} instance when they are read and written.
+ * If the file is journaled by a {@link WriteAheadLog}, changed blocks will only be written back
+ * when a checkpoint is reached.
+ * Snapshots of the file can be read while it is updated: the original contents of changed
+ * blocks are kept by {@link Versions} until the snapshots are closed.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
-public final class DataAccess implements Closeable {
+public final class DataAccess implements Closeable, WriteAheadLog.Journaled {
   /** Buffer manager. */
   private final Buffers bm = new Buffers();
   /** Reference to the data input stream. */
@@ -22,6 +33,24 @@ public final class DataAccess implements Closeable {
   private boolean changed;
   /** Offset. */
   private int off;
+  /** Indicates if the file will be mapped into memory. */
+  private final boolean mmap;
+  /** Memory-mapped segments of the file ({@code null} if file is not mapped). */
+  private volatile Segments mapped;
+  /** Superseded memory-mapped segments, which will be unmapped when the file is closed. */
+  private final ArrayList<WeakReference<Segments>> superseded = new ArrayList<>();
+  /** Compressed blocks ({@code null} if file is not compressed). */
+  private final HeapBlocks heap;
+  /** Name of the file (without suffix). */
+  private final String name;
+  /** Changed blocks that have not been written back ({@code null} if file is not journaled). */
+  private volatile Journal journal;
+  /** Original contents of the blocks that are read by snapshots. */
+  private final Versions versions = new Versions();
+  /** File of which this instance is a snapshot ({@code null} if this is no snapshot). */
+  private final DataAccess source;
+  /** Image with the original contents of changed blocks ({@code null} if this is no snapshot). */
+  private final HashMap<Long, byte[]> image;
 
   /**
    * Constructor, initializing the file reader.
@@ -29,36 +58,133 @@ public final class DataAccess implements Closeable {
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile file) throws IOException {
+    this(file, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param file the file to be read
+   * @param mmap map file into memory
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile file, final boolean mmap) throws IOException {
+    this(file, mmap, null);
+  }
+
+  /**
+   * Constructor, initializing the reader for a compressed file.
+   * @param file the file to be read
+   * @param heap compressed blocks
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile file, final HeapBlocks heap) throws IOException {
+    this(file, false, heap);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param file the file to be read
+   * @param mmap map file into memory
+   * @param heap compressed blocks (can be {@code null})
+   * @throws IOException I/O Exception
+   */
+  private DataAccess(final IOFile file, final boolean mmap, final HeapBlocks heap)
+      throws IOException {
+    this.mmap = mmap;
+    this.heap = heap;
+    name = file.dbname();
+    source = null;
+    image = null;
     RandomAccessFile f = null;
     try {
       f = new RandomAccessFile(file.file(), "rw");
-      length = f.length();
+      length = heap != null ? heap.length() : f.length();
       raf = f;
       cursor(0);
+      if(mmap) mapped = Segments.map(f.getChannel());
     } catch(final IOException ex) {
       if(f != null) f.close();
       throw ex;
     }
   }
 
+  /**
+   * Constructor for a snapshot.
+   * @param source file of which a snapshot is created
+   */
+  private DataAccess(final DataAccess source) {
+    this.source = source;
+    image = source.versions.open(source.bm.all());
+    raf = source.raf;
+    length = source.length;
+    name = source.name;
+    mmap = false;
+    heap = null;
+    cursor(0);
+  }
+
+  /**
+   * Returns a read-only snapshot of the file. Blocks that are changed afterwards will be
+   * copied before they are modified, until the snapshot is closed.
+   * This method must not be called while the file is updated. Compressed files are not supported.
+   * @return snapshot
+   */
+  public synchronized DataAccess snapshot() {
+    return new DataAccess(this);
+  }
+
   /**
    * Flushes the buffered data.
    */
   public synchronized void flush() {
     try {
       for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
-      if(changed) {
+      if(heap != null) {
+        heap.flush(length);
+        changed = false;
+      } else if(changed && (length > raf.length() || !versions.active())) {
+        // the file will not be truncated as long as its blocks may be read by snapshots
         raf.setLength(length);
         changed = false;
       }
+      if(mmap && mapped == null) mapped = Segments.map(raf.getChannel());
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
 
+  /**
+   * Journals the file in the specified write-ahead log. Compressed files will not be journaled.
+   * @param wal write-ahead log
+   */
+  public synchronized void journal(final WriteAheadLog wal) {
+    if(journal != null || heap != null) return;
+    journal = new Journal(wal, name, false);
+    wal.add(this);
+  }
+
+  @Override
+  public synchronized void log() throws IOException {
+    journal.log(bm.all(), length);
+  }
+
+  @Override
+  public synchronized void checkpoint(final boolean detach) throws IOException {
+    journal.write(raf, length);
+    if(detach) journal = null;
+    flush();
+  }
+
   @Override
   public synchronized void close() {
+    if(source != null) {
+      source.versions.close(image);
+      return;
+    }
     flush();
+    unmap();
+    Segments.close(superseded);
+    if(heap != null) heap.close();
     try {
       raf.close();
     } catch(final IOException ex) {
@@ -95,9 +221,13 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized byte read1(final long pos) {
-    cursor(pos);
-    return read1();
+  public byte read1(final long pos) {
+    final Segments sg = mapped;
+    if(sg != null) return sg.get(pos);
+    synchronized(this) {
+      cursor(pos);
+      return read1();
+    }
   }
 
   /**
@@ -113,9 +243,13 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return integer value
    */
-  public synchronized int read4(final long pos) {
-    cursor(pos);
-    return read4();
+  public int read4(final long pos) {
+    final Segments sg = mapped;
+    if(sg != null) return sg.getInt(pos);
+    synchronized(this) {
+      cursor(pos);
+      return read4();
+    }
   }
 
   /**
@@ -131,9 +265,13 @@ public final class DataAccess implements Closeable {
    * @param pos position
    * @return long value
    */
-  public synchronized long read5(final long pos) {
-    cursor(pos);
-    return read5();
+  public long read5(final long pos) {
+    final Segments sg = mapped;
+    if(sg != null) return ((long) (sg.get(pos) & 0xFF) << 32) + (sg.getInt(pos + 1) & 0xFFFFFFFFL);
+    synchronized(this) {
+      cursor(pos);
+      return read5();
+    }
   }
 
   /**
@@ -149,9 +287,13 @@ public final class DataAccess implements Closeable {
    * @param p text position
    * @return read num
    */
-  public synchronized int readNum(final long p) {
-    cursor(p);
-    return readNum();
+  public int readNum(final long p) {
+    final Segments sg = mapped;
+    if(sg != null) return readNum(sg, p);
+    synchronized(this) {
+      cursor(p);
+      return readNum();
+    }
   }
 
   /**
@@ -159,9 +301,16 @@ public final class DataAccess implements Closeable {
    * @param p text position
    * @return text as byte array
    */
-  public synchronized byte[] readToken(final long p) {
-    cursor(p);
-    return readToken();
+  public byte[] readToken(final long p) {
+    final Segments sg = mapped;
+    if(sg != null) {
+      final int l = readNum(sg, p);
+      return sg.get(p + Num.length(l), l);
+    }
+    synchronized(this) {
+      cursor(p);
+      return readToken();
+    }
   }
 
   /**
@@ -179,9 +328,13 @@ public final class DataAccess implements Closeable {
    * @param len length
    * @return byte array
    */
-  public synchronized byte[] readBytes(final long pos, final int len) {
-    cursor(pos);
-    return readBytes(len);
+  public byte[] readBytes(final long pos, final int len) {
+    final Segments sg = mapped;
+    if(sg != null) return sg.get(pos, len);
+    synchronized(this) {
+      cursor(pos);
+      return readBytes(len);
+    }
   }
 
   /**
@@ -219,8 +372,21 @@ public final class DataAccess implements Closeable {
 
     final Buffer bf = bm.current();
     try {
-      if(bf.dirty) writeBlock(bf);
+      if(bf.dirty) {
+        if(journal != null) journal.evict(bf);
+        else writeBlock(bf);
+      }
       bf.pos = b;
+      bf.version = 0;
+      if(source != null) {
+        source.versions.read(image, b, bf.data, source.journal, raf.getChannel(), b);
+        return;
+      }
+      if(heap != null) {
+        heap.read(raf, b, bf.data);
+        return;
+      }
+      if(journal != null && journal.read(b, bf.data)) return;
       raf.seek(bf.pos);
       if(bf.pos < raf.length())
         raf.readFully(bf.data, 0, (int) Math.min(length - bf.pos, IO.BLOCKSIZE));
@@ -310,14 +476,14 @@ public final class DataAccess implements Closeable {
    * @param len token length
    */
   public void writeBytes(final byte[] buffer, final int offset, final int len) {
+    unmap();
     final int last = offset + len;
     int o = offset;
 
     while(o < last) {
-      final Buffer bf = buffer();
+      final Buffer bf = modify();
       final int l = Math.min(last - o, IO.BLOCKSIZE - off);
       System.arraycopy(buffer, o, bf.data, off, l);
-      bf.dirty = true;
       off += l;
       o += l;
       // adjust file size
@@ -345,6 +511,7 @@ public final class DataAccess implements Closeable {
    * @return new offset to store text
    */
   public long free(final long pos, final int size) {
+    unmap();
     // old text size (available space)
     int os = readNum(pos) + (int) (cursor() - pos);
 
@@ -388,6 +555,39 @@ public final class DataAccess implements Closeable {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Invalidates the memory mapping. The current segments will be unmapped when the
+   * file is closed, or when they are not referenced anymore.
+   */
+  private void unmap() {
+    final Segments sg = mapped;
+    if(sg != null) {
+      mapped = null;
+      Segments.supersede(sg, superseded);
+    }
+  }
+
+  /**
+   * Reads a compressed number from the mapped file.
+   * @param sg mapped segments
+   * @param p position
+   * @return number
+   */
+  private static int readNum(final Segments sg, final long p) {
+    final int value = sg.get(p) & 0xFF;
+    switch(value & 0xC0) {
+    case 0:
+      return value;
+    case 0x40:
+      return (value - 0x40 << 8) + (sg.get(p + 1) & 0xFF);
+    case 0x80:
+      return (value - 0x80 << 24) + ((sg.get(p + 1) & 0xFF) << 16) +
+          ((sg.get(p + 2) & 0xFF) << 8) + (sg.get(p + 3) & 0xFF);
+    default:
+      return sg.getInt(p + 1);
+    }
+  }
+
   /**
    * Reads the next byte.
    * @return next byte
@@ -402,8 +602,8 @@ public final class DataAccess implements Closeable {
    * @param value byte to be written
    */
   private void write(final int value) {
-    final Buffer bf = buffer();
-    bf.dirty = true;
+    unmap();
+    final Buffer bf = modify();
     bf.data[off++] = (byte) value;
     final long nl = bf.pos + off;
     if(nl > length) length(nl);
@@ -443,6 +643,11 @@ public final class DataAccess implements Closeable {
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer buffer) throws IOException {
+    if(heap != null) {
+      heap.write(raf, buffer.pos, buffer.data);
+      buffer.dirty = false;
+      return;
+    }
     final long pos = buffer.pos, len = Math.min(IO.BLOCKSIZE, length - pos);
     raf.seek(pos);
     raf.write(buffer.data, 0, (int) len);
@@ -457,6 +662,18 @@ public final class DataAccess implements Closeable {
     return buffer(off == IO.BLOCKSIZE);
   }
 
+  /**
+   * Returns a buffer which is going to be modified, and marks it as dirty.
+   * If snapshots are open, the original contents of the buffer will be saved.
+   * @return buffer
+   */
+  private Buffer modify() {
+    final Buffer bf = buffer();
+    versions.save(bf);
+    bf.dirty = true;
+    return bf;
+  }
+
   /**
    * Returns the current or next buffer.
    * @param next next block
@@ -0,0 +1,257 @@
+package org.basex.io.random;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This class stores the blocks of a heap file (texts or attribute values) in a compressed format.
+ * The logical file positions, which are referenced by the database table, remain unchanged:
+ * Each block is compressed separately, and it is decompressed when it is loaded into the buffers
+ * of the {@link DataAccess} instance.
+ *
+ * Blocks are compressed with Deflate and a preset dictionary, which is trained when the
+ * database is built. It consists of the most frequent entries of the heap file.
+ * Blocks that cannot be compressed are stored as they are.
+ *
+ * The file {@code DATADIC + name} contains the logical file length and the dictionary.
+ * The block directory is stored in the file {@code DATABLK + name}
+ * (see {@link BlockDirectory}).
+ *
+ * NOTE: this class is not thread-safe.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class HeapBlocks implements Closeable {
+  /** Maximum size of the dictionary. */
+  private static final int DICTIONARY = 1 << 15;
+  /** Minimum and maximum length of dictionary entries. */
+  private static final int MIN = 4, MAX = 256;
+  /** Maximum number of distinct entries that will be counted. */
+  private static final int DISTINCT = 1 << 18;
+
+  /** Block directory. */
+  private final BlockDirectory dir;
+  /** Dictionary file. */
+  private final IOFile file;
+  /** Dictionary. */
+  private final byte[] dict;
+  /** Compressor. */
+  private final Deflater deflater = new Deflater();
+  /** Decompressor. */
+  private final Inflater inflater = new Inflater();
+  /** Buffer for compressed blocks. */
+  private final byte[] buffer = new byte[IO.BLOCKSIZE + (IO.BLOCKSIZE >>> 4)];
+  /** Logical file length. */
+  private long length;
+
+  /**
+   * Constructor, reading the block directory and the dictionary.
+   * @param meta meta data
+   * @param name name of the heap file
+   * @throws IOException I/O exception
+   */
+  public HeapBlocks(final MetaData meta, final String name) throws IOException {
+    dir = new BlockDirectory(meta.dbfile(DATABLK + name));
+    file = meta.dbfile(DATADIC + name);
+    try(final DataInput in = new DataInput(file)) {
+      length = in.read8();
+      dict = in.readToken();
+    }
+  }
+
+  /**
+   * Converts a heap file, which has been written sequentially, to the compressed format.
+   * @param meta meta data
+   * @param name name of the heap file
+   * @throws IOException I/O exception
+   */
+  public static void convert(final MetaData meta, final String name) throws IOException {
+    final IOFile heap = meta.dbfile(name), tmp = meta.dbfile(name + 't');
+    final long length = heap.length();
+    final byte[] dict = train(heap, length);
+
+    final Deflater deflater = new Deflater();
+    final byte[] data = new byte[IO.BLOCKSIZE], buffer = new byte[IO.BLOCKSIZE << 1];
+    final long[] dir = new long[(int) ((length + IO.BLOCKSIZE - 1) / IO.BLOCKSIZE)];
+    try(final DataInput in = new DataInput(heap);
+        final DataOutput out = new DataOutput(tmp)) {
+      long pos = 0;
+      for(int b = 0; b < dir.length; b++) {
+        final int l = (int) Math.min(IO.BLOCKSIZE, length - pos);
+        for(int d = 0; d < l; d++) data[d] = (byte) in.read();
+        Arrays.fill(data, l, IO.BLOCKSIZE, (byte) 0);
+        pos += l;
+        final byte[] block = compress(deflater, dict, data, buffer);
+        dir[b] = BlockDirectory.entry(out.size(), block, block == data);
+        out.writeBytes(block);
+      }
+    } finally {
+      deflater.end();
+    }
+    if(!heap.delete() || !tmp.rename(heap)) throw new IOException("Could not convert " + heap);
+    BlockDirectory.write(meta.dbfile(DATABLK + name), dir);
+    write(meta.dbfile(DATADIC + name), length, dict);
+  }
+
+  /**
+   * Returns the logical file length.
+   * @return length
+   */
+  long length() {
+    return length;
+  }
+
+  /**
+   * Reads and decompresses the block at the specified position.
+   * @param raf heap file
+   * @param pos position of the block
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  void read(final RandomAccessFile raf, final long pos, final byte[] data) throws IOException {
+    final int block = (int) (pos / IO.BLOCKSIZE);
+    final byte[] bytes = dir.read(raf, block);
+    if(bytes == null) {
+      Arrays.fill(data, (byte) 0);
+    } else if(dir.raw(block)) {
+      System.arraycopy(bytes, 0, data, 0, IO.BLOCKSIZE);
+    } else {
+      try {
+        inflater.reset();
+        inflater.setInput(bytes);
+        int n = inflater.inflate(data);
+        if(inflater.needsDictionary()) {
+          inflater.setDictionary(dict);
+          n = inflater.inflate(data);
+        }
+        if(n != IO.BLOCKSIZE) throw new IOException("Block " + block + " is corrupt.");
+      } catch(final DataFormatException ex) {
+        throw new IOException(ex);
+      }
+    }
+  }
+
+  /**
+   * Compresses and writes the block at the specified position.
+   * @param raf heap file
+   * @param pos position of the block
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  void write(final RandomAccessFile raf, final long pos, final byte[] data) throws IOException {
+    final byte[] bytes = compress(deflater, dict, data, buffer);
+    dir.write(raf, (int) (pos / IO.BLOCKSIZE), bytes, bytes == data);
+  }
+
+  /**
+   * Writes the block directory and the logical file length if they have been changed.
+   * @param len logical file length
+   * @throws IOException I/O exception
+   */
+  void flush(final long len) throws IOException {
+    dir.flush();
+    if(len != length) {
+      write(file, len, dict);
+      length = len;
+    }
+  }
+
+  @Override
+  public void close() {
+    deflater.end();
+    inflater.end();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Compresses a block.
+   * @param deflater compressor
+   * @param dict dictionary
+   * @param data block data
+   * @param buffer buffer for the compressed data
+   * @return compressed block, or the original array if the data cannot be compressed
+   */
+  private static byte[] compress(final Deflater deflater, final byte[] dict, final byte[] data,
+      final byte[] buffer) {
+    deflater.reset();
+    if(dict.length != 0) deflater.setDictionary(dict);
+    deflater.setInput(data);
+    deflater.finish();
+    final int n = deflater.deflate(buffer);
+    return deflater.finished() && n < IO.BLOCKSIZE ? Arrays.copyOf(buffer, n) : data;
+  }
+
+  /**
+   * Creates a dictionary from the most frequent entries of a heap file.
+   * The entries that promise the highest savings are placed at the end of the dictionary.
+   * @param heap heap file
+   * @param length length of the file
+   * @return dictionary
+   * @throws IOException I/O exception
+   */
+  private static byte[] train(final IOFile heap, final long length) throws IOException {
+    final TokenIntMap counts = new TokenIntMap();
+    try(final DataInput in = new DataInput(heap)) {
+      for(long pos = 0; pos < length;) {
+        final byte[] token = in.readToken();
+        pos += Num.length(token.length) + token.length;
+        if(token.length < MIN || token.length > MAX) continue;
+        final int c = counts.get(token);
+        if(c != -1) counts.put(token, c + 1);
+        else if(counts.size() < DISTINCT) counts.put(token, 1);
+      }
+    }
+
+    // sort entries by their estimated savings
+    final int size = counts.size();
+    final long[] scores = new long[size];
+    int s = 0;
+    for(int id = 1; id <= size; id++) {
+      final byte[] token = counts.key(id);
+      final long score = (long) (counts.get(token) - 1) * token.length;
+      if(score > 0) scores[s++] = Math.min(score, Integer.MAX_VALUE) << 32 | id;
+    }
+    Arrays.sort(scores, 0, s);
+
+    // choose best entries, put them at the end of the dictionary
+    final ArrayList<byte[]> entries = new ArrayList<>();
+    int total = 0;
+    for(int i = s - 1; i >= 0; i--) {
+      final byte[] token = counts.key((int) scores[i]);
+      if(total + token.length > DICTIONARY) continue;
+      entries.add(token);
+      total += token.length;
+    }
+    final ByteList dict = new ByteList(total);
+    for(int e = entries.size() - 1; e >= 0; e--) dict.add(entries.get(e));
+    return dict.finish();
+  }
+
+  /**
+   * Writes the logical file length and the dictionary.
+   * @param file dictionary file
+   * @param length logical file length
+   * @param dict dictionary
+   * @throws IOException I/O exception
+   */
+  private static void write(final IOFile file, final long length, final byte[] dict)
+      throws IOException {
+    try(final DataOutput out = new DataOutput(file)) {
+      out.write8(length);
+      out.writeToken(dict);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+
+/**
+ * This class keeps the changed blocks of a database file that is journaled by a
+ * {@link WriteAheadLog}. Blocks that are evicted from the buffers are kept in memory until
+ * they are written back, and they take precedence over the blocks stored on disk.
+ * As kept blocks may also be requested by the readers of snapshots (see {@link Versions}),
+ * all accesses are synchronized.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Journal {
+  /** Write-ahead log. */
+  private final WriteAheadLog wal;
+  /** Name of the database file. */
+  private final String name;
+  /** Indicates if buffer positions are block indexes or file offsets. */
+  private final boolean index;
+  /** Blocks that have not been written back. */
+  private final HashMap<Long, byte[]> blocks = new HashMap<>();
+  /** Positions of the blocks that have been changed since the last record. */
+  private final HashSet<Long> changed = new HashSet<>();
+  /** Logged file length ({@code -1}: no length has been logged yet). */
+  private long length = -1;
+
+  /**
+   * Constructor.
+   * @param wal write-ahead log
+   * @param name name of the database file
+   * @param index indicates if buffer positions are block indexes or file offsets
+   */
+  Journal(final WriteAheadLog wal, final String name, final boolean index) {
+    this.wal = wal;
+    this.name = name;
+    this.index = index;
+  }
+
+  /**
+   * Copies a block that has not been written back to the specified array.
+   * @param pos buffer position
+   * @param data block data
+   * @return {@code true} if the block was found
+   */
+  synchronized boolean read(final long pos, final byte[] data) {
+    final byte[] block = blocks.get(pos);
+    if(block == null) return false;
+    System.arraycopy(block, 0, data, 0, IO.BLOCKSIZE);
+    return true;
+  }
+
+  /**
+   * Keeps a dirty buffer that is evicted. If the kept blocks exceed the available space,
+   * logging will be suspended.
+   * @param bf buffer
+   * @throws IOException I/O exception
+   */
+  void evict(final Buffer bf) throws IOException {
+    synchronized(this) {
+      keep(bf);
+    }
+    if(wal.exceeded()) wal.suspend();
+  }
+
+  /**
+   * Adds the blocks that have been changed since the last record to the log.
+   * @param buffers buffers
+   * @param len file length ({@link Long#MAX_VALUE} if blocks have a fixed size)
+   * @throws IOException I/O exception
+   */
+  synchronized void log(final Buffer[] buffers, final long len) throws IOException {
+    for(final Buffer bf : buffers) {
+      if(bf.dirty) keep(bf);
+    }
+    for(final long pos : changed) {
+      final long off = offset(pos);
+      final int l = (int) Math.min(IO.BLOCKSIZE, len - off);
+      if(l > 0) wal.block(name, off, blocks.get(pos), l);
+    }
+    changed.clear();
+    if(len != Long.MAX_VALUE && len != length) {
+      wal.length(name, len);
+      length = len;
+    }
+  }
+
+  /**
+   * Writes back all kept blocks.
+   * @param file database file
+   * @param len file length ({@link Long#MAX_VALUE} if blocks have a fixed size)
+   * @throws IOException I/O exception
+   */
+  synchronized void write(final RandomAccessFile file, final long len) throws IOException {
+    for(final Map.Entry<Long, byte[]> block : blocks.entrySet()) {
+      final long off = offset(block.getKey());
+      final int l = (int) Math.min(IO.BLOCKSIZE, len - off);
+      if(l <= 0) continue;
+      file.seek(off);
+      file.write(block.getValue(), 0, l);
+    }
+    wal.kept(-blocks.size());
+    blocks.clear();
+    changed.clear();
+  }
+
+  /**
+   * Keeps a copy of a dirty buffer and resets its dirty flag.
+   * @param bf buffer
+   */
+  private void keep(final Buffer bf) {
+    byte[] block = blocks.get(bf.pos);
+    if(block == null) {
+      block = new byte[IO.BLOCKSIZE];
+      blocks.put(bf.pos, block);
+      wal.kept(1);
+    }
+    System.arraycopy(bf.data, 0, block, 0, IO.BLOCKSIZE);
+    changed.add(bf.pos);
+    bf.dirty = false;
+  }
+
+  /**
+   * Returns the file offset of a buffer.
+   * @param pos buffer position
+   * @return file offset
+   */
+  private long offset(final long pos) {
+    return index ? pos * IO.BLOCKSIZE : pos;
+  }
+}
@@ -0,0 +1,194 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.lang.ref.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.*;
+
+import org.basex.util.*;
+
+/**
+ * This class provides positional read access to a file that has been mapped into memory.
+ * The file is split into segments, which are read via absolute operations.
+ * As no cursor is shared, all methods of this class can be called concurrently.
+ *
+ * Mapped files cannot be deleted or renamed on Windows before they are unmapped.
+ * Segments that are replaced by a new mapping must thus be registered via
+ * {@link #supersede(Segments, List)} and be released via {@link #close(List)} before the
+ * file is closed.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Segments {
+  /** Power of the segment size (segments will be aligned to blocks). */
+  private static final int POWER = 30;
+  /** Segment size. */
+  private static final int SIZE = 1 << POWER;
+
+  /** Unsafe instance (Java 9 and later; can be {@code null}). */
+  private static final Object UNSAFE;
+  /** Method for releasing a buffer via the unsafe instance (can be {@code null}). */
+  private static final Method INVOKE_CLEANER;
+  /** Method for retrieving the cleaner of a buffer (Java 8 and earlier; can be {@code null}). */
+  private static final Method CLEANER;
+
+  static {
+    final Class<?> unsafe = Reflect.find("sun.misc.Unsafe");
+    Method ic = Reflect.method(unsafe, "invokeCleaner", ByteBuffer.class);
+    Object us = null;
+    if(ic != null) {
+      try {
+        final Field f = unsafe.getDeclaredField("theUnsafe");
+        f.setAccessible(true);
+        us = f.get(null);
+      } catch(final Throwable ex) {
+        Util.debug(ex);
+        ic = null;
+      }
+    }
+    UNSAFE = us;
+    INVOKE_CLEANER = ic;
+    CLEANER = ic == null ? Reflect.method(Reflect.find("sun.nio.ch.DirectBuffer"), "cleaner") :
+      null;
+  }
+
+  /** Mapped segments. */
+  private final ByteBuffer[] segments;
+
+  /**
+   * Constructor.
+   * @param segments mapped segments
+   */
+  private Segments(final ByteBuffer[] segments) {
+    this.segments = segments;
+  }
+
+  /**
+   * Maps the file of the specified channel into memory.
+   * @param fc file channel
+   * @return segments, or {@code null} if the file is empty
+   * @throws IOException I/O exception
+   */
+  static Segments map(final FileChannel fc) throws IOException {
+    final long len = fc.size();
+    final int sl = (int) (len + SIZE - 1 >>> POWER);
+    if(sl == 0) return null;
+
+    final ByteBuffer[] segments = new ByteBuffer[sl];
+    for(int s = 0; s < sl; s++) {
+      final long o = (long) s << POWER;
+      segments[s] = fc.map(MapMode.READ_ONLY, o, Math.min(SIZE, len - o));
+    }
+    return new Segments(segments);
+  }
+
+  /**
+   * Registers segments that have been replaced or invalidated. The segments will be unmapped
+   * by the garbage collector as soon as they are not referenced anymore, or by
+   * {@link #close(List)}.
+   * @param sg segments (can be {@code null})
+   * @param list list of superseded segments
+   */
+  static void supersede(final Segments sg, final List<WeakReference<Segments>> list) {
+    if(sg == null) return;
+    synchronized(list) {
+      final Iterator<WeakReference<Segments>> iter = list.iterator();
+      while(iter.hasNext()) {
+        if(iter.next().get() == null) iter.remove();
+      }
+      list.add(new WeakReference<>(sg));
+    }
+  }
+
+  /**
+   * Unmaps all superseded segments that have not been released yet.
+   * Must only be called if no segments will be accessed anymore.
+   * @param list list of superseded segments
+   */
+  static void close(final List<WeakReference<Segments>> list) {
+    synchronized(list) {
+      for(final WeakReference<Segments> ref : list) {
+        final Segments sg = ref.get();
+        if(sg != null) sg.close();
+      }
+      list.clear();
+    }
+  }
+
+  /**
+   * Unmaps all segments. If buffers cannot be unmapped explicitly, they will be released by
+   * the garbage collector.
+   */
+  private void close() {
+    final int sl = segments.length;
+    for(int s = 0; s < sl; s++) {
+      final ByteBuffer bb = segments[s];
+      if(bb == null) continue;
+      // discard reference first: accessing an unmapped buffer crashes the JVM
+      segments[s] = null;
+      if(INVOKE_CLEANER != null) {
+        Reflect.invoke(INVOKE_CLEANER, UNSAFE, bb);
+      } else if(CLEANER != null) {
+        final Object cleaner = Reflect.invoke(CLEANER, bb);
+        if(cleaner != null) Reflect.invoke(Reflect.method(cleaner.getClass(), "clean"), cleaner);
+      }
+    }
+  }
+
+  /**
+   * Reads a byte value.
+   * @param pos file position
+   * @return byte value
+   */
+  byte get(final long pos) {
+    return segments[(int) (pos >>> POWER)].get((int) pos & SIZE - 1);
+  }
+
+  /**
+   * Reads a short value.
+   * @param pos file position
+   * @return short value
+   */
+  short getShort(final long pos) {
+    final int o = (int) pos & SIZE - 1;
+    if(o <= SIZE - 2) return segments[(int) (pos >>> POWER)].getShort(o);
+    return (short) ((get(pos) & 0xFF) << 8 | get(pos + 1) & 0xFF);
+  }
+
+  /**
+   * Reads an integer value.
+   * @param pos file position
+   * @return integer value
+   */
+  int getInt(final long pos) {
+    final int o = (int) pos & SIZE - 1;
+    if(o <= SIZE - 4) return segments[(int) (pos >>> POWER)].getInt(o);
+    return (get(pos) & 0xFF) << 24 | (get(pos + 1) & 0xFF) << 16 |
+        (get(pos + 2) & 0xFF) << 8 | get(pos + 3) & 0xFF;
+  }
+
+  /**
+   * Reads a number of bytes.
+   * @param pos file position
+   * @param len number of bytes
+   * @return byte array
+   */
+  byte[] get(final long pos, final int len) {
+    final byte[] bytes = new byte[len];
+    long p = pos;
+    for(int b = 0; b < len;) {
+      // duplicate buffer: relative operations must not change the state of the segment
+      final ByteBuffer bb = segments[(int) (p >>> POWER)].duplicate();
+      final int o = (int) p & SIZE - 1, l = Math.min(len - b, bb.limit() - o);
+      bb.position(o);
+      bb.get(bytes, b, l);
+      b += l;
+      p += l;
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,293 @@
+package org.basex.io.random;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.list.*;
+
+/**
+ * This class stores the blocks of a database table in a columnar, compressed format.
+ *
+ * The entries of a block are split into five columns, which cover the following bytes of
+ * each entry (see {@link Data} for the semantics of the bytes):
+ * <ul>
+ *   <li> Byte 0: kind, number of attributes or distance</li>
+ *   <li> Byte 1-2: name</li>
+ *   <li> Byte 3-7: text reference, namespace URI or distance</li>
+ *   <li> Byte 8-11: size, distance or namespace</li>
+ *   <li> Byte 12-15: node id</li>
+ * </ul>
+ *
+ * A block starts with the number of stored entries; trailing entries that only consist of
+ * zero bytes are skipped. Each column is bit-packed: it starts with a header byte (bit 7:
+ * delta encoding, bits 6-0: bit width) and the compact base value(s). The values (or the deltas
+ * to their predecessors) are then stored as offsets to the smallest value with the given width.
+ * Blocks that cannot be compressed are stored as they are.
+ *
+ * The block directory is stored in the file {@code DATATBL + 'c'} (see {@link BlockDirectory}).
+ *
+ * Limitation: blocks are always decoded completely into the 4 KB buffers of
+ * {@link TableDiskAccess}. The columnar layout reduces the size of the table file, but it
+ * neither allows single columns to be read nor does it reduce the memory occupied by the
+ * buffers.
+ *
+ * NOTE: this class is not thread-safe.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class TableColumns {
+  /** Byte ranges of the columns. */
+  private static final int[][] COLUMNS = { { 0, 1 }, { 1, 3 }, { 3, 8 }, { 8, 12 }, { 12, 16 } };
+
+  /** Block directory. */
+  private final BlockDirectory dir;
+
+  /**
+   * Constructor, reading the block directory.
+   * @param meta meta data
+   * @throws IOException I/O exception
+   */
+  TableColumns(final MetaData meta) throws IOException {
+    dir = new BlockDirectory(meta.dbfile(DATATBL + 'c'));
+  }
+
+  /**
+   * Converts a table, which has been written block-wise, to the columnar format.
+   * @param meta meta data
+   * @throws IOException I/O exception
+   */
+  public static void convert(final MetaData meta) throws IOException {
+    final IOFile table = meta.dbfile(DATATBL), tmp = meta.dbfile(DATATBL + 't');
+    final byte[] data = new byte[IO.BLOCKSIZE];
+    final long[] dir = new long[(int) (table.length() / IO.BLOCKSIZE)];
+    try(final DataInput in = new DataInput(table);
+        final DataOutput out = new DataOutput(tmp)) {
+      for(int b = 0; b < dir.length; b++) {
+        for(int d = 0; d < IO.BLOCKSIZE; d++) data[d] = (byte) in.read();
+        final byte[] block = encode(data);
+        dir[b] = BlockDirectory.entry(out.size(), block, block == data);
+        out.writeBytes(block);
+      }
+    }
+    if(!table.delete() || !tmp.rename(table)) throw new IOException("Could not convert table.");
+    BlockDirectory.write(meta.dbfile(DATATBL + 'c'), dir);
+  }
+
+  /**
+   * Reads the specified block.
+   * @param file table file
+   * @param block block index
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  void read(final RandomAccessFile file, final int block, final byte[] data) throws IOException {
+    final byte[] bytes = dir.read(file, block);
+    if(bytes == null) return;
+    if(dir.raw(block)) {
+      System.arraycopy(bytes, 0, data, 0, IO.BLOCKSIZE);
+    } else {
+      decode(bytes, data);
+    }
+  }
+
+  /**
+   * Writes the specified block. It is written to its current position if it fits into
+   * the available space, or moved otherwise.
+   * @param file table file
+   * @param block block index
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  void write(final RandomAccessFile file, final int block, final byte[] data)
+      throws IOException {
+    final byte[] bytes = encode(data);
+    dir.write(file, block, bytes, bytes == data);
+  }
+
+  /**
+   * Writes the block directory if it has been changed.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    dir.flush();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Encodes a block.
+   * @param data block data
+   * @return encoded block, or the original array if the data cannot be compressed
+   */
+  private static byte[] encode(final byte[] data) {
+    int n = IO.BLOCKSIZE;
+    while(n > 0 && data[n - 1] == 0) n--;
+    n = n + IO.NODESIZE - 1 >>> IO.NODEPOWER;
+
+    final long[] values = new long[n];
+    final ByteList bl = new ByteList();
+    writeLong(bl, n);
+    for(int c = 0; c < COLUMNS.length && n > 0; c++) {
+      final int[] column = COLUMNS[c];
+      // read column values, compute value range and delta range
+      long min = Long.MAX_VALUE, max = Long.MIN_VALUE, dmin = Long.MAX_VALUE;
+      long dmax = Long.MIN_VALUE;
+      for(int i = 0; i < n; i++) {
+        final long v = value(data, i, column);
+        values[i] = v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+        if(i > 0) {
+          final long d = v - values[i - 1];
+          dmin = Math.min(dmin, d);
+          dmax = Math.max(dmax, d);
+        }
+      }
+      final int vw = width(max - min), dw = n > 1 ? width(dmax - dmin) : vw;
+      final boolean delta = dw < vw;
+      final int w = delta ? dw : vw;
+
+      // write header and base values
+      bl.add(delta ? 0x80 | w : w);
+      if(delta) {
+        writeLong(bl, values[0]);
+        writeLong(bl, dmin << 1 ^ dmin >> 63);
+      } else {
+        writeLong(bl, min);
+      }
+      // write bit-packed values
+      if(w > 0) {
+        long acc = 0;
+        int bits = 0;
+        for(int i = delta ? 1 : 0; i < n; i++) {
+          acc |= (delta ? values[i] - values[i - 1] - dmin : values[i] - min) << bits;
+          bits += w;
+          while(bits >= 8) {
+            bl.add((int) acc);
+            acc >>>= 8;
+            bits -= 8;
+          }
+        }
+        if(bits > 0) bl.add((int) acc);
+      }
+      if(bl.size() >= IO.BLOCKSIZE) return data;
+    }
+    return bl.finish();
+  }
+
+  /**
+   * Decodes a block.
+   * @param bytes encoded block
+   * @param data block data
+   */
+  private static void decode(final byte[] bytes, final byte[] data) {
+    final int[] pos = { 0 };
+    final int n = (int) readLong(bytes, pos);
+    Arrays.fill(data, n << IO.NODEPOWER, IO.BLOCKSIZE, (byte) 0);
+    for(int c = 0; c < COLUMNS.length && n > 0; c++) {
+      final int[] column = COLUMNS[c];
+      final int header = bytes[pos[0]++] & 0xFF, w = header & 0x7F;
+      final boolean delta = (header & 0x80) != 0;
+      long v = readLong(bytes, pos), dmin = 0;
+      if(delta) {
+        final long z = readLong(bytes, pos);
+        dmin = z >>> 1 ^ -(z & 1);
+        value(data, 0, column, v);
+      }
+      final long mask = w == 64 ? -1L : (1L << w) - 1;
+      long acc = 0;
+      int bits = 0, p = pos[0];
+      for(int i = delta ? 1 : 0; i < n; i++) {
+        long o = 0;
+        if(w > 0) {
+          while(bits < w) {
+            acc |= (long) (bytes[p++] & 0xFF) << bits;
+            bits += 8;
+          }
+          o = acc & mask;
+          acc >>>= w;
+          bits -= w;
+        }
+        if(delta) v += o + dmin;
+        value(data, i, column, delta ? v : v + o);
+      }
+      pos[0] = p;
+    }
+  }
+
+  /**
+   * Returns the value of a column.
+   * @param data block data
+   * @param i entry index
+   * @param column byte range
+   * @return value
+   */
+  private static long value(final byte[] data, final int i, final int[] column) {
+    final int o = i << IO.NODEPOWER;
+    long v = 0;
+    for(int c = column[0]; c < column[1]; c++) v = v << 8 | data[o + c] & 0xFF;
+    return v;
+  }
+
+  /**
+   * Assigns the value of a column.
+   * @param data block data
+   * @param i entry index
+   * @param column byte range
+   * @param value value
+   */
+  private static void value(final byte[] data, final int i, final int[] column,
+      final long value) {
+    final int o = i << IO.NODEPOWER;
+    long v = value;
+    for(int c = column[1] - 1; c >= column[0]; c--) {
+      data[o + c] = (byte) v;
+      v >>>= 8;
+    }
+  }
+
+  /**
+   * Returns the number of bits required to store the specified unsigned value.
+   * @param value value
+   * @return number of bits
+   */
+  private static int width(final long value) {
+    return 64 - Long.numberOfLeadingZeros(value);
+  }
+
+  /**
+   * Writes a non-negative long value in 7-bit groups.
+   * @param bl byte list
+   * @param value value
+   */
+  private static void writeLong(final ByteList bl, final long value) {
+    long v = value;
+    while((v & ~0x7FL) != 0) {
+      bl.add((int) (v & 0x7F | 0x80));
+      v >>>= 7;
+    }
+    bl.add((int) v);
+  }
+
+  /**
+   * Reads a long value in 7-bit groups.
+   * @param bytes bytes
+   * @param pos current position (will be updated)
+   * @return value
+   */
+  private static long readLong(final byte[] bytes, final int[] pos) {
+    long v = 0;
+    for(int s = 0;; s += 7) {
+      final int b = bytes[pos[0]++];
+      v |= (long) (b & 0x7F) << s;
+      if(b >= 0) return v;
+    }
+  }
+}
@@ -3,6 +3,7 @@ package org.basex.io.random;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.lang.ref.*;
 import java.nio.channels.*;
 import java.util.*;
 
@@ -15,6 +16,15 @@ import org.basex.util.*;
 
 /**
  * This class stores the table on disk and reads it block-wise.
+ * If {@link MetaData#mmap} is enabled, the table file will be mapped into memory, and read
+ * operations will directly be performed on the mapped segments until the table is modified.
+ * The mapping will be restored as soon as all changes have been flushed.
+ * If {@link MetaData#columnar} is enabled, the blocks are stored in a compressed format,
+ * which is described in the {@link TableColumns} class.
+ * If the table is journaled by a {@link WriteAheadLog}, changed blocks will only be written back
+ * when a checkpoint is reached.
+ * Snapshots of the table can be read while it is updated: the original contents of changed
+ * blocks are kept by {@link Versions} until the snapshots are closed.
  *
  * NOTE: this class is not thread-safe.
  *
@@ -22,15 +32,27 @@ import org.basex.util.*;
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
-public final class TableDiskAccess extends TableAccess {
+public final class TableDiskAccess extends TableAccess implements WriteAheadLog.Journaled {
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm = new Buffers(true);
   /** File storing all blocks. */
   private final RandomAccessFile file;
   /** Bitmap storing free (=0) and used (=1) pages. */
   private BitArray usedPages;
   /** File lock. */
   private FileLock fl;
+  /** Memory-mapped segments of the table file ({@code null} if table is not mapped). */
+  private volatile Segments mapped;
+  /** Superseded memory-mapped segments, which will be unmapped when the file is closed. */
+  private final ArrayList<WeakReference<Segments>> superseded = new ArrayList<>();
+  /** Directory of compressed blocks ({@code null} if table is not columnar). */
+  private final TableColumns columns;
+  /** Changed blocks that have not been written back ({@code null} if table is not journaled). */
+  private volatile Journal journal;
+  /** Original contents of the blocks that are read by snapshots. */
+  private final Versions versions = new Versions();
+  /** Indicates if the page index is shared with snapshots. */
+  private boolean shared;
 
   /** First pre values (ascending order); will be initialized with the first update. */
   private int[] fpres;
@@ -83,8 +105,26 @@ public final class TableDiskAccess extends TableAccess {
     }
 
     // initialize data file
+    columns = md.columnar ? new TableColumns(md) : null;
     file = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw");
     if(!lock(write)) throw new BaseXException(Text.DB_PINNED_X, md.name);
+    if(md.mmap && !write) map();
+  }
+
+  /**
+   * Assigns the maximum number of additional buffers that are shared by all tables.
+   * @param max maximum number of buffers
+   */
+  public static void buffers(final int max) {
+    Buffers.capacity(max);
+  }
+
+  /**
+   * Returns statistics on the shared buffers.
+   * @return number of shared buffers, maximum number of buffers, block hits and misses
+   */
+  public static long[] buffers() {
+    return Buffers.stats();
   }
 
   /**
@@ -106,10 +146,91 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public synchronized void flush(final boolean all) throws IOException {
+    save(all);
+    if(meta.mmap && mapped == null) map();
+  }
+
+  /**
+   * Journals the table in the specified write-ahead log. Columnar tables will not be journaled.
+   * @param wal write-ahead log
+   */
+  public synchronized void journal(final WriteAheadLog wal) {
+    if(journal != null || columns != null) return;
+    journal = new Journal(wal, DATATBL, true);
+    wal.add(this);
+  }
+
+  /**
+   * Returns a read-only snapshot of the table. Blocks that are changed afterwards will be
+   * copied before they are modified, until the snapshot is closed.
+   * This method must not be called while the table is updated.
+   * @return snapshot
+   */
+  public synchronized TableAccess snapshot() {
+    final HashMap<Long, byte[]> image = versions.open(bm.all());
+    shared = true;
+    return new TableSnapshot(this, image, fpres, pages, used);
+  }
+
+  /**
+   * Reads a block of a snapshot.
+   * @param image image of the snapshot
+   * @param b block to fetch
+   * @param data block data
+   * @throws IOException I/O exception
+   */
+  void read(final HashMap<Long, byte[]> image, final long b, final byte[] data)
+      throws IOException {
+    versions.read(image, b, data, journal, file.getChannel(), b * IO.BLOCKSIZE);
+  }
+
+  /**
+   * Discards the image of a snapshot.
+   * @param image image
+   */
+  void release(final HashMap<Long, byte[]> image) {
+    versions.close(image);
+  }
+
+  @Override
+  public synchronized void log() throws IOException {
+    journal.log(bm.all(), Long.MAX_VALUE);
+    if(dirty) writeIndex();
+  }
+
+  @Override
+  public synchronized void checkpoint(final boolean detach) throws IOException {
+    journal.write(file, Long.MAX_VALUE);
+    if(detach) journal = null;
+    flush(true);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    save(true);
+    unmap();
+    Segments.close(superseded);
+    bm.release();
+    file.close();
+  }
+
+  /**
+   * Writes all dirty buffers and, optionally, the page index to disk.
+   * @param all write all contents or only buffers
+   * @throws IOException I/O exception
+   */
+  private void save(final boolean all) throws IOException {
     for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
-    if(!dirty || !all) return;
+    if(columns != null) columns.flush();
+    if(dirty && all) writeIndex();
+  }
 
-    try(final DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'))) {
+  /**
+   * Writes the page index to disk.
+   * @throws IOException I/O exception
+   */
+  private void writeIndex() throws IOException {
+    try(final DataOutput out = meta.output(DATATBL + 'i')) {
       final int blcks = blocks;
       out.writeNum(blcks);
       out.writeNum(used);
@@ -125,12 +246,6 @@ public final class TableDiskAccess extends TableAccess {
     dirty = false;
   }
 
-  @Override
-  public synchronized void close() throws IOException {
-    flush(true);
-    file.close();
-  }
-
   @Override
   public boolean lock(final boolean write) {
     try {
@@ -144,86 +259,100 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    final Segments sg = mapped;
+    if(sg != null) return sg.get(position(pre, off)) & 0xFF;
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return b[o] & 0xFF;
+    }
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    final Segments sg = mapped;
+    if(sg != null) return sg.getShort(position(pre, off)) & 0xFFFF;
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    final Segments sg = mapped;
+    if(sg != null) return sg.getInt(position(pre, off));
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+        ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    final Segments sg = mapped;
+    if(sg != null) {
+      final long o = position(pre, off);
+      return ((long) (sg.get(o) & 0xFF) << 32) + (sg.getInt(o + 1) & 0xFFFFFFFFL);
+    }
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+        ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+    }
   }
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    unmap();
     final int o = off + cursor(pre);
-    final Buffer bf = bm.current();
-    final byte[] b = bf.data;
+    final byte[] b = modify().data;
     b[o] = (byte) v;
-    bf.dirty = true;
   }
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    unmap();
     final int o = off + cursor(pre);
-    final Buffer bf = bm.current();
-    final byte[] b = bf.data;
+    final byte[] b = modify().data;
     b[o] = (byte) (v >>> 8);
     b[o + 1] = (byte) v;
-    bf.dirty = true;
   }
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    unmap();
     final int o = off + cursor(pre);
-    final Buffer bf = bm.current();
-    final byte[] b = bf.data;
+    final byte[] b = modify().data;
     b[o]     = (byte) (v >>> 24);
     b[o + 1] = (byte) (v >>> 16);
     b[o + 2] = (byte) (v >>> 8);
     b[o + 3] = (byte) v;
-    bf.dirty = true;
   }
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    unmap();
     final int o = off + cursor(pre);
-    final Buffer bf = bm.current();
-    final byte[] b = bf.data;
+    final byte[] b = modify().data;
     b[o]     = (byte) (v >>> 32);
     b[o + 1] = (byte) (v >>> 24);
     b[o + 2] = (byte) (v >>> 16);
     b[o + 3] = (byte) (v >>> 8);
     b[o + 4] = (byte) v;
-    bf.dirty = true;
   }
 
   @Override
   protected void copy(final byte[] entries, final int pre, final int last) {
+    unmap();
     for(int o = 0, i = pre; i < last; ++i, o += IO.NODESIZE) {
       final int off = cursor(i);
-      final Buffer bf = bm.current();
-      System.arraycopy(entries, o, bf.data, off, IO.NODESIZE);
-      bf.dirty = true;
+      System.arraycopy(entries, o, modify().data, off, IO.NODESIZE);
     }
   }
 
@@ -329,9 +458,9 @@ public final class TableDiskAccess extends TableAccess {
     // special case: all entries fit in the current block
     Buffer bf = bm.current();
     if(nold + nnew <= IO.BLOCKSIZE) {
+      modify();
       Array.move(bf.data, split, nnew, moved);
       System.arraycopy(entries, 0, bf.data, split, nnew);
-      bf.dirty = true;
 
       // increment first pre-values of blocks after the last modified block
       for(int i = page + 1; i < used; ++i) fpres[i] += nr;
@@ -350,8 +479,7 @@ public final class TableDiskAccess extends TableAccess {
     // number of bytes which fit in the first block
     int nrem = IO.BLOCKSIZE - split;
     if(nrem > 0) {
-      System.arraycopy(all, 0, bf.data, split, nrem);
-      bf.dirty = true;
+      System.arraycopy(all, 0, modify().data, split, nrem);
     }
 
     // number of new required blocks and remaining bytes
@@ -366,10 +494,9 @@ public final class TableDiskAccess extends TableAccess {
         if(remain <= IO.BLOCKSIZE - o) {
           // copy the last records
           readPage(page + 1);
-          bf = bm.current();
+          bf = modify();
           System.arraycopy(bf.data, 0, bf.data, remain, o);
           System.arraycopy(all, all.length - remain, bf.data, 0, remain);
-          bf.dirty = true;
           // reduce the pre value, since it will be later incremented with nr
           fpres[page] -= remain >>> IO.NODEPOWER;
           // go back to the previous block
@@ -417,6 +544,8 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   protected void dirty() {
+    // invalidate memory mapping: changes will only be visible in the buffers
+    unmap();
     // initialize data structures required for performing updates
     if(fpres == null) {
       final int b = blocks;
@@ -427,12 +556,54 @@ public final class TableDiskAccess extends TableAccess {
         pages[i] = i;
       }
       usedPages = new BitArray(used, true);
+    } else if(shared) {
+      // page index is referenced by snapshots: create copies before it is changed
+      fpres = fpres.clone();
+      pages = pages.clone();
     }
+    shared = false;
     dirty = true;
   }
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Invalidates the memory mapping. The current segments will be unmapped when the
+   * table is closed, or when they are not referenced anymore.
+   */
+  private void unmap() {
+    final Segments sg = mapped;
+    if(sg != null) {
+      mapped = null;
+      Segments.supersede(sg, superseded);
+    }
+  }
+
+  /**
+   * Maps the table file into memory. Compressed tables will not be mapped.
+   * @throws IOException I/O exception
+   */
+  private void map() throws IOException {
+    if(columns == null) mapped = Segments.map(file.getChannel());
+  }
+
+  /**
+   * Returns the file offset of the specified entry. In contrast to {@link #cursor(int)},
+   * the cursor variables will not be changed.
+   * @param pre pre value
+   * @param off offset of the value in the entry
+   * @return file offset
+   */
+  private long position(final int pre, final int off) {
+    // regular table: compute offset
+    final int[] fp = fpres;
+    if(fp == null) return ((long) pre << IO.NODEPOWER) + off;
+    // find block with largest first pre value that is not larger than the requested one
+    int b = Arrays.binarySearch(fp, 0, used, pre);
+    if(b < 0) b = -b - 2;
+    return (long) pages[b] * IO.BLOCKSIZE + (pre - fp[b] << IO.NODEPOWER) + off;
+  }
+
   /**
    * Searches for the block containing the entry for the specified pre value.
    * Reads the block and returns its offset inside the block.
@@ -512,10 +683,18 @@ public final class TableDiskAccess extends TableAccess {
 
     final Buffer bf = bm.current();
     try {
-      if(bf.dirty) writeBlock(bf);
+      if(bf.dirty) {
+        if(journal != null) journal.evict(bf);
+        else writeBlock(bf);
+      }
       bf.pos = b;
+      bf.version = 0;
       if(b >= blocks) {
         blocks = b + 1;
+      } else if(journal != null && journal.read(b, bf.data)) {
+        // block has not been written back yet
+      } else if(columns != null) {
+        columns.read(file, b, bf.data);
       } else {
         file.seek(bf.pos * IO.BLOCKSIZE);
         file.readFully(bf.data);
@@ -532,6 +711,8 @@ public final class TableDiskAccess extends TableAccess {
     final int b = usedPages.nextFree(0);
     usedPages.set(b);
     readBlock(b);
+    // discard obsolete data
+    Arrays.fill(modify().data, (byte) 0);
     ++used;
     ++page;
   }
@@ -542,8 +723,12 @@ public final class TableDiskAccess extends TableAccess {
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos * IO.BLOCKSIZE);
-    file.write(bf.data);
+    if(columns != null) {
+      columns.write(file, (int) bf.pos, bf.data);
+    } else {
+      file.seek(bf.pos * IO.BLOCKSIZE);
+      file.write(bf.data);
+    }
     bf.dirty = false;
   }
 
@@ -567,8 +752,8 @@ public final class TableDiskAccess extends TableAccess {
    * @param l source length
    */
   private void copy(final byte[] s, final int sp, final byte[] d, final int dp, final int l) {
+    modify();
     System.arraycopy(s, sp << IO.NODEPOWER, d, dp << IO.NODEPOWER, l << IO.NODEPOWER);
-    bm.current().dirty = true;
   }
 
   /**
@@ -579,13 +764,23 @@ public final class TableDiskAccess extends TableAccess {
    * @return number of written bytes
    */
   private int write(final byte[] s, final int o) {
-    final Buffer bf = bm.current();
     final int len = Math.min(IO.BLOCKSIZE, s.length - o);
-    System.arraycopy(s, o, bf.data, 0, len);
-    bf.dirty = true;
+    System.arraycopy(s, o, modify().data, 0, len);
     return len;
   }
 
+  /**
+   * Returns the current buffer, which is going to be modified, and marks it as dirty.
+   * If snapshots are open, the original contents of the buffer will be saved.
+   * @return buffer
+   */
+  private Buffer modify() {
+    final Buffer bf = bm.current();
+    versions.save(bf);
+    bf.dirty = true;
+    return bf;
+  }
+
   /**
    * Calculate the occupied space in a block.
    * @param i index of the block
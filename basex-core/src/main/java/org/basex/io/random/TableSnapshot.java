@@ -0,0 +1,162 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides read-only access to a snapshot of a database table.
+ * The page index refers to the arrays of the table at the time when the snapshot was created;
+ * they will be copied by the table before they are changed. Blocks are read via
+ * {@link TableDiskAccess#read(HashMap, long, byte[])}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class TableSnapshot extends TableAccess {
+  /** Buffer manager. */
+  private final Buffers bm = new Buffers();
+  /** Table. */
+  private final TableDiskAccess table;
+  /** Image with the original contents of changed blocks. */
+  private final HashMap<Long, byte[]> image;
+  /** First pre values ({@code null} if the page index is regular). */
+  private final int[] fpres;
+  /** Page index ({@code null} if the page index is regular). */
+  private final int[] pages;
+  /** Number of used blocks. */
+  private final int used;
+
+  /**
+   * Constructor.
+   * @param table table
+   * @param image image with the original contents of changed blocks
+   * @param fpres first pre values (can be {@code null})
+   * @param pages page index (can be {@code null})
+   * @param used number of used blocks
+   */
+  TableSnapshot(final TableDiskAccess table, final HashMap<Long, byte[]> image,
+      final int[] fpres, final int[] pages, final int used) {
+    super(table.meta);
+    this.table = table;
+    this.image = image;
+    this.fpres = fpres;
+    this.pages = pages;
+    this.used = used;
+  }
+
+  @Override
+  public void flush(final boolean all) { }
+
+  @Override
+  public synchronized void close() {
+    table.release(image);
+  }
+
+  @Override
+  public boolean lock(final boolean write) {
+    return !write;
+  }
+
+  @Override
+  public synchronized int read1(final int pre, final int off) {
+    final int o = off + cursor(pre);
+    final byte[] b = bm.current().data;
+    return b[o] & 0xFF;
+  }
+
+  @Override
+  public synchronized int read2(final int pre, final int off) {
+    final int o = off + cursor(pre);
+    final byte[] b = bm.current().data;
+    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  }
+
+  @Override
+  public synchronized int read4(final int pre, final int off) {
+    final int o = off + cursor(pre);
+    final byte[] b = bm.current().data;
+    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  }
+
+  @Override
+  public synchronized long read5(final int pre, final int off) {
+    final int o = off + cursor(pre);
+    final byte[] b = bm.current().data;
+    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  }
+
+  @Override
+  public void write1(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write2(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write4(final int pre, final int off, final int v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void write5(final int pre, final int off, final long v) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  protected void dirty() {
+    throw Util.notExpected();
+  }
+
+  @Override
+  protected void copy(final byte[] entries, final int pre, final int last) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void delete(final int pre, final int nr) {
+    throw Util.notExpected();
+  }
+
+  @Override
+  public void insert(final int pre, final byte[] entries) {
+    throw Util.notExpected();
+  }
+
+  /**
+   * Searches for the block containing the entry for the specified pre value.
+   * Reads the block and returns the offset of the entry inside the block.
+   * @param pre pre value
+   * @return offset of the entry in the block
+   */
+  private int cursor(final int pre) {
+    final int p, fpre;
+    if(fpres == null) {
+      p = pre / IO.ENTRIES;
+      fpre = p * IO.ENTRIES;
+    } else {
+      // find block with largest first pre value that is not larger than the requested one
+      final int b = Arrays.binarySearch(fpres, 0, used, pre);
+      p = b < 0 ? -b - 2 : b;
+      fpre = fpres[p];
+    }
+    final int page = pages == null ? p : pages[p];
+    if(bm.cursor(page)) {
+      final Buffer bf = bm.current();
+      bf.pos = page;
+      try {
+        table.read(image, page, bf.data);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+    return pre - fpre << IO.NODEPOWER;
+  }
+}
@@ -0,0 +1,106 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import org.basex.io.*;
+
+/**
+ * This class organizes the versions of the blocks of a database file that are read by
+ * snapshots. As long as a snapshot is open, the original contents of all blocks that are
+ * changed are saved in the image of the snapshot. Blocks that have not been changed since the
+ * snapshot was created will be read from the journal or from disk.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Versions {
+  /** Images of the open snapshots: mapping from buffer positions to original contents. */
+  private final ArrayList<HashMap<Long, byte[]>> images = new ArrayList<>(1);
+  /** Current version (incremented whenever a snapshot is created). */
+  private volatile int version = 1;
+
+  /**
+   * Creates an image for a new snapshot. The contents of all dirty buffers are saved, as they
+   * have not been written to disk yet.
+   * @param buffers buffers
+   * @return image
+   */
+  synchronized HashMap<Long, byte[]> open(final Buffer[] buffers) {
+    final HashMap<Long, byte[]> image = new HashMap<>();
+    for(final Buffer bf : buffers) {
+      if(bf.dirty) image.put(bf.pos, bf.data.clone());
+    }
+    images.add(image);
+    version++;
+    return image;
+  }
+
+  /**
+   * Discards the image of a snapshot.
+   * @param image image
+   */
+  synchronized void close(final HashMap<Long, byte[]> image) {
+    final int is = images.size();
+    for(int i = 0; i < is; i++) {
+      if(images.get(i) == image) {
+        images.remove(i);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Checks if snapshots are open.
+   * @return result of check
+   */
+  synchronized boolean active() {
+    return !images.isEmpty();
+  }
+
+  /**
+   * Saves the contents of a buffer before it is modified for the first time after a snapshot
+   * has been created.
+   * @param bf buffer
+   */
+  void save(final Buffer bf) {
+    final int v = version;
+    if(bf.version == v) return;
+    synchronized(this) {
+      byte[] data = null;
+      for(final HashMap<Long, byte[]> image : images) {
+        if(!image.containsKey(bf.pos)) {
+          if(data == null) data = bf.data.clone();
+          image.put(bf.pos, data);
+        }
+      }
+    }
+    bf.version = v;
+  }
+
+  /**
+   * Reads a block of a snapshot.
+   * @param image image of the snapshot
+   * @param pos buffer position
+   * @param data block data
+   * @param journal journal (can be {@code null})
+   * @param channel file channel
+   * @param off file offset
+   * @throws IOException I/O exception
+   */
+  synchronized void read(final HashMap<Long, byte[]> image, final long pos, final byte[] data,
+      final Journal journal, final FileChannel channel, final long off) throws IOException {
+
+    final byte[] saved = image.get(pos);
+    if(saved != null) {
+      System.arraycopy(saved, 0, data, 0, IO.BLOCKSIZE);
+    } else if(journal == null || !journal.read(pos, data)) {
+      // positional reads do not interfere with the file pointer of the writing thread
+      final ByteBuffer bb = ByteBuffer.wrap(data);
+      while(bb.hasRemaining() && channel.read(bb, off + bb.position()) != -1);
+      Arrays.fill(data, bb.position(), data.length, (byte) 0);
+    }
+  }
+}
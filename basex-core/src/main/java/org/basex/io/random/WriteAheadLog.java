@@ -0,0 +1,534 @@
+package org.basex.io.random;
+
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.ArrayOutput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+
+/**
+ * This class implements the write-ahead log of a database (see {@link MetaData#wal}).
+ *
+ * If an update is committed, its changes are not written back to the database files.
+ * Instead, a single record is appended to the log, which contains the changed blocks of the
+ * table, the heap files and the index files, the new lengths of the heap files, and the files
+ * that are rewritten as a whole (such as the meta data). Changed blocks that are evicted from
+ * the buffers are kept in memory (see {@link Journal}). The write lock of an update is released
+ * before the log is forced to disk, and the committing thread waits for the log afterwards
+ * (see {@link #await()}). This way, the records of concurrent updates are forced to disk
+ * together (group commit).
+ *
+ * The changes are written back, and the log is truncated, when the log or the kept blocks exceed
+ * a maximum size, before indexes are created or dropped, and when the database is closed.
+ * If a database was not closed properly, the records of its log are applied when it is opened
+ * again (see {@link #recover(MetaData)}). If the changes of a single update exceed the maximum
+ * size, logging is suspended for the remaining update, and the database files are updated
+ * directly, as if no log was used.
+ *
+ * Each record consists of its length, a CRC32 checksum and its entries. Incomplete records at
+ * the end of the log are ignored.
+ *
+ * If a record cannot be appended or forced to disk, the log is marked as failed: the error is
+ * reported to the committing thread by {@link #await()}, and further updates are rejected
+ * (see {@link #check()}) until the database is closed and the changes have been written back.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteAheadLog {
+  /** Maximum size of the log and of the kept blocks. */
+  private static final long MAX = 1 << 25;
+  /** Entry types: file contents, block, file length. */
+  private static final int FILE = 1, BLOCK = 2, LENGTH = 3;
+  /** Logs and positions that need to be forced to disk by the current thread. */
+  private static final ThreadLocal<HashMap<WriteAheadLog, Long>> PENDING =
+      new ThreadLocal<HashMap<WriteAheadLog, Long>>() {
+    @Override
+    protected HashMap<WriteAheadLog, Long> initialValue() {
+      return new HashMap<>();
+    }
+  };
+
+  /** Meta data. */
+  private final MetaData meta;
+  /** Log file. */
+  private final IOFile file;
+  /** Channel of the log file. */
+  private final FileChannel channel;
+  /** Journaled database files. */
+  private final ArrayList<Journaled> files = new ArrayList<>();
+  /** Files that have been logged as a whole, but not written back. */
+  private final HashMap<String, byte[]> contents = new HashMap<>();
+  /** Entries of the record that is currently assembled. */
+  private final ArrayOutput record = new ArrayOutput();
+  /** Output stream for the current record. */
+  private final DataOutput out = new DataOutput(record);
+
+  /** Number of kept blocks. */
+  private long kept;
+  /** Indicates if logging has been suspended. */
+  private boolean suspended;
+
+  /** Log position: number of bytes that have been written to the log since it was created. */
+  private long written;
+  /** Log position: number of bytes that have been forced to disk. */
+  private long synced;
+  /** Log position of the start of the log file. */
+  private long start;
+  /** Indicates if the log is currently forced to disk. */
+  private boolean syncing;
+  /** Error that occurred while writing or forcing the log ({@code null} if none occurred). */
+  private IOException failed;
+
+  /**
+   * Constructor, creating an empty log.
+   * @param meta meta data
+   * @throws IOException I/O exception
+   */
+  public WriteAheadLog(final MetaData meta) throws IOException {
+    this.meta = meta;
+    file = meta.dbfile(DATAWAL);
+    channel = new RandomAccessFile(file.file(), "rw").getChannel();
+    channel.truncate(0);
+  }
+
+  /**
+   * Applies the records of an existing log to the database files and deletes the log.
+   * Nothing is done if the database is opened by another process.
+   * @param meta meta data
+   * @throws IOException I/O exception
+   */
+  public static void recover(final MetaData meta) throws IOException {
+    final IOFile log = meta.dbfile(DATAWAL);
+    if(!log.exists()) return;
+
+    try(final RandomAccessFile table = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw")) {
+      final FileLock lock = table.getChannel().tryLock();
+      if(lock == null) return;
+      try {
+        final HashMap<String, RandomAccessFile> rafs = new HashMap<>();
+        try(final DataInput in = new DataInput(log)) {
+          for(byte[] entries; (entries = next(in)) != null;) apply(entries, meta, rafs);
+        } finally {
+          for(final RandomAccessFile raf : rafs.values()) {
+            raf.getFD().sync();
+            raf.close();
+          }
+        }
+        // numeric keys may have been created from changes that were lost
+        meta.dbfile(DATATXT + 'n').delete();
+        meta.dbfile(DATAATV + 'n').delete();
+        sync(meta);
+        if(!log.delete()) throw new IOException("Could not delete " + log);
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  /**
+   * Waits until all records that have been appended by the current thread have been forced
+   * to disk. Must be called after the write locks of an update have been released.
+   * @throws IOException I/O exception if a record could not be written or forced to disk
+   */
+  public static void await() throws IOException {
+    final HashMap<WriteAheadLog, Long> pending = PENDING.get();
+    if(pending.isEmpty()) return;
+    IOException error = null;
+    try {
+      for(final Map.Entry<WriteAheadLog, Long> entry : pending.entrySet()) {
+        try {
+          entry.getKey().sync(entry.getValue());
+        } catch(final IOException ex) {
+          if(error == null) error = ex;
+        }
+      }
+    } finally {
+      pending.clear();
+    }
+    if(error != null) throw error;
+  }
+
+  /**
+   * Checks if updates can be logged.
+   * @throws IOException I/O exception if an earlier record could not be written or forced
+   *   to disk
+   */
+  public synchronized void check() throws IOException {
+    if(failed != null) throw error();
+  }
+
+  /**
+   * Journals a database file.
+   * @param jf journaled file
+   */
+  void add(final Journaled jf) {
+    files.add(jf);
+  }
+
+  /**
+   * Returns an output stream for a file that will be added to the current record.
+   * @param name name of the database file
+   * @return output stream
+   */
+  public DataOutput output(final String name) {
+    return new DataOutput(new ByteArrayOutputStream() {
+      @Override
+      public void close() throws IOException {
+        final byte[] bytes = toByteArray();
+        out.write1(FILE);
+        out.writeToken(token(name));
+        out.writeToken(bytes);
+        contents.put(name, bytes);
+      }
+    });
+  }
+
+  /**
+   * Adds a changed block to the current record.
+   * @param name name of the database file
+   * @param off file offset
+   * @param block block data
+   * @param len number of bytes to be written
+   * @throws IOException I/O exception
+   */
+  void block(final String name, final long off, final byte[] block, final int len)
+      throws IOException {
+    out.write1(BLOCK);
+    out.writeToken(token(name));
+    out.write8(off);
+    out.writeNum(len);
+    out.write(block, 0, len);
+  }
+
+  /**
+   * Adds a file length to the current record.
+   * @param name name of the database file
+   * @param len file length
+   * @throws IOException I/O exception
+   */
+  void length(final String name, final long len) throws IOException {
+    out.write1(LENGTH);
+    out.writeToken(token(name));
+    out.write8(len);
+  }
+
+  /**
+   * Adjusts the number of kept blocks.
+   * @param n number of added or removed blocks
+   */
+  void kept(final int n) {
+    kept += n;
+  }
+
+  /**
+   * Checks if the kept blocks exceed the maximum size.
+   * @return result of check
+   */
+  boolean exceeded() {
+    return kept * IO.BLOCKSIZE > MAX;
+  }
+
+  /**
+   * Indicates if logging has been suspended for the current update.
+   * @return result of check
+   */
+  public boolean suspended() {
+    return suspended;
+  }
+
+  /**
+   * Appends a record with the changes of the current update to the log.
+   * Files that are written as a whole must have been added before via {@link #output(String)}.
+   * The record will be forced to disk by {@link #await()}.
+   * @throws IOException I/O exception
+   */
+  public void commit() throws IOException {
+    try {
+      check();
+      for(final Journaled jf : files) jf.log();
+      if(record.size() == 0) return;
+
+      final byte[] entries = record.toArray();
+      record.reset();
+      final CRC32 crc = new CRC32();
+      crc.update(entries);
+      final ByteBuffer bb = ByteBuffer.allocate(entries.length + 8);
+      bb.putInt(entries.length).putInt((int) crc.getValue()).put(entries).flip();
+
+      final long pos;
+      synchronized(this) {
+        long off = written - start;
+        while(bb.hasRemaining()) off += channel.write(bb, off);
+        written = start + off;
+        pos = written;
+      }
+      PENDING.get().put(this, pos);
+    } catch(final IOException ex) {
+      fail(ex);
+      throw ex;
+    }
+    if(written - start > MAX || exceeded()) checkpoint();
+  }
+
+  /**
+   * Writes back all changes, forces the database files to disk and truncates the log.
+   * @throws IOException I/O exception
+   */
+  public void checkpoint() throws IOException {
+    // the changes of a failed log can still be written back
+    final boolean ok;
+    synchronized(this) {
+      ok = failed == null;
+    }
+    if(ok) sync(written);
+    writeBack(false);
+    truncate();
+  }
+
+  /**
+   * Suspends logging for the current update. All changes, including the uncommitted changes
+   * of the current update, are written back, and the database is marked as being updated.
+   * Logging will be resumed by {@link #resume()}.
+   * @throws IOException I/O exception
+   */
+  public void suspend() throws IOException {
+    if(suspended) return;
+    suspended = true;
+    final IOFile uf = meta.updateFile();
+    if(!uf.touch()) throw new IOException("Could not create " + uf);
+    writeBack(true);
+    truncate();
+  }
+
+  /**
+   * Resumes logging after the changes of the current update have been written to the
+   * database files. The files are forced to disk, and the update marker is deleted.
+   * @throws IOException I/O exception
+   */
+  public void resume() throws IOException {
+    if(!suspended) return;
+    sync(meta);
+    final IOFile uf = meta.updateFile();
+    if(!uf.delete()) throw new IOException("Could not delete " + uf);
+    suspended = false;
+  }
+
+  /**
+   * Writes back all changes and deletes the log.
+   * @throws IOException I/O exception
+   */
+  public void close() throws IOException {
+    checkpoint();
+    synchronized(this) {
+      while(syncing) {
+        try {
+          wait();
+        } catch(final InterruptedException ex) {
+          throw new IOException(ex);
+        }
+      }
+      channel.close();
+    }
+    if(!file.delete()) throw new IOException("Could not delete " + file);
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Forces the log to disk up to the specified position. If the log is currently forced to
+   * disk by another thread, the current thread waits, and the log will be forced once more
+   * for all records that have been appended in the meantime.
+   * @param pos log position
+   * @throws IOException I/O exception
+   */
+  private void sync(final long pos) throws IOException {
+    while(true) {
+      final long target;
+      synchronized(this) {
+        while(syncing && synced < pos) {
+          try {
+            wait();
+          } catch(final InterruptedException ex) {
+            throw new IOException(ex);
+          }
+        }
+        if(failed != null) throw error();
+        if(synced >= pos) return;
+        syncing = true;
+        target = written;
+      }
+      boolean forced = false;
+      try {
+        channel.force(false);
+        forced = true;
+      } catch(final IOException ex) {
+        fail(ex);
+        throw ex;
+      } finally {
+        synchronized(this) {
+          if(forced) synced = Math.max(synced, target);
+          syncing = false;
+          notifyAll();
+        }
+      }
+    }
+  }
+
+  /**
+   * Marks the log as failed. The error will be reported to the current thread by
+   * {@link #await()}.
+   * @param ex I/O exception
+   */
+  private synchronized void fail(final IOException ex) {
+    if(failed == null) failed = ex;
+    PENDING.get().put(this, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns an exception for a failed log.
+   * @return exception
+   */
+  private IOException error() {
+    final IOException ex = new IOException(Util.info("Database '%': write-ahead log failed (%).",
+        meta.name, Util.message(failed)));
+    ex.initCause(failed);
+    return ex;
+  }
+
+  /**
+   * Writes back the kept blocks and the logged files and forces the database files to disk.
+   * @param detach stop journaling the database files
+   * @throws IOException I/O exception
+   */
+  private void writeBack(final boolean detach) throws IOException {
+    for(final Journaled jf : files) jf.checkpoint(detach);
+    if(detach) files.clear();
+    for(final Map.Entry<String, byte[]> entry : contents.entrySet()) {
+      meta.dbfile(entry.getKey()).write(entry.getValue());
+    }
+    contents.clear();
+    record.reset();
+    sync(meta);
+  }
+
+  /**
+   * Truncates the log. All records have been written back at this stage.
+   * @throws IOException I/O exception
+   */
+  private synchronized void truncate() throws IOException {
+    channel.truncate(0);
+    channel.force(false);
+    start = written;
+    synced = written;
+    notifyAll();
+  }
+
+  /**
+   * Returns the entries of the next complete record.
+   * @param in input stream
+   * @return entries, or {@code null} if no more complete records exist
+   * @throws IOException I/O exception
+   */
+  private static byte[] next(final DataInput in) throws IOException {
+    final int[] header = new int[2];
+    for(int h = 0; h < 2; h++) {
+      for(int b = 0; b < 4; b++) {
+        final int v = in.read();
+        if(v == -1) return null;
+        header[h] = header[h] << 8 | v;
+      }
+    }
+    if(header[0] < 0) return null;
+    final byte[] entries = new byte[header[0]];
+    for(int e = 0; e < entries.length; e++) {
+      final int v = in.read();
+      if(v == -1) return null;
+      entries[e] = (byte) v;
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(entries);
+    return (int) crc.getValue() == header[1] ? entries : null;
+  }
+
+  /**
+   * Applies the entries of a record.
+   * @param entries entries
+   * @param meta meta data
+   * @param rafs opened database files
+   * @throws IOException I/O exception
+   */
+  private static void apply(final byte[] entries, final MetaData meta,
+      final HashMap<String, RandomAccessFile> rafs) throws IOException {
+
+    try(final DataInput in = new DataInput(new IOContent(entries))) {
+      for(int type; (type = in.read()) != -1;) {
+        final String name = string(in.readToken());
+        if(type == FILE) {
+          final RandomAccessFile raf = rafs.remove(name);
+          if(raf != null) raf.close();
+          meta.dbfile(name).write(in.readToken());
+          continue;
+        }
+        RandomAccessFile raf = rafs.get(name);
+        if(raf == null) {
+          raf = new RandomAccessFile(meta.dbfile(name).file(), "rw");
+          rafs.put(name, raf);
+        }
+        if(type == BLOCK) {
+          final long off = in.read8();
+          final byte[] block = new byte[in.readNum()];
+          for(int b = 0; b < block.length; b++) block[b] = (byte) in.read();
+          raf.seek(off);
+          raf.write(block);
+        } else if(type == LENGTH) {
+          raf.setLength(in.read8());
+        } else {
+          throw new IOException("Log entry is corrupt: " + type);
+        }
+      }
+    }
+  }
+
+  /**
+   * Forces all database files to disk.
+   * @param meta meta data
+   * @throws IOException I/O exception
+   */
+  private static void sync(final MetaData meta) throws IOException {
+    for(final IOFile child : meta.path.children()) {
+      if(child.isDir()) continue;
+      try(final RandomAccessFile raf = new RandomAccessFile(child.file(), "rw")) {
+        raf.getFD().sync();
+      }
+    }
+  }
+
+  /**
+   * Database file that is journaled by the log.
+   */
+  interface Journaled {
+    /**
+     * Adds the changes since the last record to the current record.
+     * @throws IOException I/O exception
+     */
+    void log() throws IOException;
+
+    /**
+     * Writes back all changes.
+     * @param detach stop journaling
+     * @throws IOException I/O exception
+     */
+    void checkpoint(boolean detach) throws IOException;
+  }
+}
@@ -13,6 +13,7 @@ import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 import org.basex.util.list.*;
 
 /**
@@ -65,6 +66,18 @@ public final class MainModule extends StaticScope {
     this.declType = declType;
   }
 
+  /**
+   * Creates a copy of this module, which can be compiled and evaluated independently.
+   * All global variables must already have been copied to the specified context.
+   * @param qc query context
+   * @return copy
+   */
+  MainModule copy(final QueryContext qc) {
+    final IntObjMap<Var> vs = new IntObjMap<>();
+    final VarScope scp = scope.copy(qc, vs);
+    return new MainModule(expr.copy(qc, scp, vs), scp, declType, docString(), sc, info);
+  }
+
   @Override
   public void compile(final QueryContext qc) throws QueryException {
     if(compiled) return;
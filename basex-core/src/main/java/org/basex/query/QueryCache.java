@@ -0,0 +1,184 @@
+package org.basex.query;
+
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.core.users.*;
+import org.basex.io.serial.*;
+import org.basex.query.var.*;
+import org.basex.util.list.*;
+import org.basex.util.options.*;
+
+/**
+ * This class caches parsed main modules. If the same query is evaluated repeatedly,
+ * it will only be parsed once: each evaluation works on a copy of the cached module, which
+ * will then be compiled and evaluated as usual.
+ *
+ * Queries are identified by the query string, the static base URI and all options that
+ * are considered by the parser. The parsed modules do not depend on the contents of
+ * databases, which will only be accessed when a query is compiled. Queries with
+ * user-defined functions, module imports, initial context declarations or full-text
+ * options are not cached.
+ *
+ * The maximum number of cached queries is set via {@link StaticOptions#QUERYCACHE}.
+ * If the limit is reached, the least recently used query is discarded.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCache {
+  /** Cached queries, ordered by access. */
+  private final LinkedHashMap<String, Template> cache = new LinkedHashMap<>(16, 0.75f, true);
+  /** Static options. */
+  private final StaticOptions sopts;
+  /** Number of cache hits. */
+  private long hits;
+  /** Number of cache misses. */
+  private long misses;
+
+  /**
+   * Constructor.
+   * @param sopts static options
+   */
+  public QueryCache(final StaticOptions sopts) {
+    this.sopts = sopts;
+  }
+
+  /**
+   * Parses the specified query, or copies a cached instance.
+   * @param query query string
+   * @param qc query context
+   * @param sc static context (will only be used if the query is parsed)
+   * @return main module
+   * @throws QueryException query exception
+   */
+  MainModule parse(final String query, final QueryContext qc, final StaticContext sc)
+      throws QueryException {
+
+    final int max = sopts.get(StaticOptions.QUERYCACHE);
+    final MainOptions opts = qc.context.options;
+    if(max <= 0 || !opts.get(MainOptions.BINDINGS).trim().isEmpty() ||
+        !qc.modDeclared.isEmpty()) return qc.parseMain(query, null, sc);
+
+    final String key = key(query, qc);
+    Template tmpl;
+    synchronized(this) {
+      tmpl = cache.get(key);
+      if(tmpl != null) hits++;
+      else misses++;
+    }
+    if(tmpl != null) return tmpl.copy(qc);
+
+    // parse query and cache a copy if it can be evaluated independently
+    final MainModule ctxItem = qc.ctxItem;
+    final MainModule mm = qc.parseMain(query, null, sc);
+    if(qc.funcs.funcs().length == 0 && qc.modParsed.isEmpty() && !qc.resources.imports() &&
+        qc.ctxItem == ctxItem && qc.ftOpt == null && qc.stop == null && qc.thes == null) {
+      final Template t = new Template(qc);
+      synchronized(this) {
+        cache.put(key, t);
+        while(cache.size() > max) {
+          final Iterator<Template> iter = cache.values().iterator();
+          iter.next();
+          iter.remove();
+        }
+      }
+    }
+    return mm;
+  }
+
+  /**
+   * Removes all cached queries and resets the statistics.
+   */
+  public synchronized void clear() {
+    cache.clear();
+    hits = 0;
+    misses = 0;
+  }
+
+  /**
+   * Returns statistics on the cache.
+   * @return number of cached queries, hits and misses
+   */
+  public synchronized long[] stats() {
+    return new long[] { cache.size(), hits, misses };
+  }
+
+  /**
+   * Returns the cache key for the specified query.
+   * @param query query string
+   * @param qc query context
+   * @return key
+   */
+  private static String key(final String query, final QueryContext qc) {
+    final MainOptions opts = qc.context.options;
+    final StringBuilder sb = new StringBuilder();
+    sb.append(opts.get(MainOptions.QUERYPATH)).append('\0');
+    sb.append(opts.get(MainOptions.MIXUPDATES)).append('\0');
+    sb.append(opts.get(MainOptions.SERIALIZER)).append('\0');
+    // file paths are only revealed to admins
+    sb.append(qc.context.user().has(Perm.ADMIN)).append('\0');
+    return sb.append(query).toString();
+  }
+
+  /** Parsed query, which will never be compiled. */
+  private static final class Template {
+    /** Query string. */
+    private final String query;
+    /** Main module. */
+    private final MainModule root;
+    /** Static variables. */
+    private final Variables vars;
+    /** Updating flag. */
+    private final boolean updating;
+    /** Serialization parameters (may be {@code null}). */
+    private final SerializerOptions serialOpts;
+    /** Database options declared in the query. */
+    private final Set<Option<?>> staticOpts;
+    /** Database options (key/value pairs). */
+    private final StringList tempOpts;
+    /** Read locks. */
+    private final StringList readLocks;
+    /** Write locks. */
+    private final StringList writeLocks;
+
+    /**
+     * Constructor.
+     * @param qc query context with a parsed, uncompiled query
+     */
+    private Template(final QueryContext qc) {
+      // a copy is created, as the original module will be compiled. The copy is created
+      // without parent context: resources of the current query must not be referenced
+      final QueryContext tmp = new QueryContext(qc.context);
+      vars = tmp.vars;
+      vars.copy(qc.vars, tmp);
+      root = qc.root.copy(tmp);
+      query = qc.info.query;
+      updating = qc.updating;
+      serialOpts = qc.serialOpts != null ? new SerializerOptions(qc.serialOpts) : null;
+      staticOpts = new HashSet<>(qc.staticOpts.keySet());
+      tempOpts = new StringList().add(qc.tempOpts);
+      readLocks = new StringList().add(qc.readLocks);
+      writeLocks = new StringList().add(qc.writeLocks);
+    }
+
+    /**
+     * Assigns a copy of the query to the specified query context.
+     * @param qc query context
+     * @return main module
+     */
+    private MainModule copy(final QueryContext qc) {
+      qc.info.query = query;
+      qc.vars.copy(vars, qc);
+      qc.root = root.copy(qc);
+      qc.updating = updating;
+      if(serialOpts != null) qc.serialOpts = new SerializerOptions(serialOpts);
+      // remember current values of database options (see QueryContext#close)
+      for(final Option<?> opt : staticOpts) qc.staticOpts.put(opt, qc.context.options.get(opt));
+      qc.tempOpts.add(tempOpts);
+      qc.readLocks.add(readLocks);
+      qc.writeLocks.add(writeLocks);
+      return qc.root;
+    }
+  }
+}
@@ -90,7 +90,7 @@ public final class QueryContext extends Proc implements Closeable {
   /** Current full-text token. */
   public FTLexer ftToken;
   /** Current full-text options. */
-  private FTOpt ftOpt;
+  FTOpt ftOpt;
   /** Full-text token positions (needed for highlighting full-text results). */
   public int ftPos;
   /** Scoring flag. */
@@ -112,6 +112,11 @@ public final class QueryContext extends Proc implements Closeable {
   /** Strings to lock defined by lock:write option. */
   public final StringList writeLocks = new StringList(0);
 
+  /** Namespaces that are added by element constructors during parsing and evaluation. */
+  public Atts namespaces = new Atts();
+  /** Indicates if the context is used for evaluating expressions in parallel. */
+  public boolean parallel;
+
   /** Number of successive tail calls. */
   public int tailCalls;
   /** Maximum number of successive tail calls (will be set before compilation). */
@@ -174,6 +179,35 @@ public final class QueryContext extends Proc implements Closeable {
     info = new QueryInfo(this);
   }
 
+  /**
+   * Creates a copy of this context, which can be used to evaluate expressions of the
+   * current scope in another thread. Query resources are shared with this context.
+   * @return query context
+   */
+  public QueryContext fork() {
+    final QueryContext qc = new QueryContext(this);
+    qc.parallel = true;
+    qc.stack.init(stack);
+    qc.value = value;
+    qc.pos = pos;
+    qc.size = size;
+    qc.root = root;
+    qc.serialOpts = serialOpts;
+    qc.collations = collations;
+    qc.ftOpt = ftOpt;
+    qc.stop = stop;
+    qc.thes = thes;
+    qc.scoring = scoring;
+    qc.maxCalls = maxCalls;
+    qc.date = date;
+    qc.dtm = dtm;
+    qc.time = time;
+    qc.zone = zone;
+    qc.nano = nano;
+    qc.namespaces = namespaces.copy();
+    return qc;
+  }
+
   /**
    * Parses the specified query.
    * @param query query string
@@ -435,6 +469,8 @@ public final class QueryContext extends Proc implements Closeable {
     // replace collection lock with context lock
     if(lr.read.delete(Docs.COLL)) lr.read.add(DBLocking.CONTEXT);
     if(lr.write.delete(Docs.COLL)) lr.write.add(DBLocking.CONTEXT);
+    // read-only queries may access snapshots of databases
+    lr.snapshot = !updating;
   }
 
   /**
@@ -2457,7 +2457,7 @@ public class QueryParser extends InputParser {
    */
   private Expr dirElement() throws QueryException {
     // cache namespace information
-    final int s = sc.ns.size();
+    final int s = qc.namespaces.size();
     final byte[] nse = sc.elemNS;
     final int npos = names.size();
 
@@ -2538,7 +2538,7 @@ public class QueryParser extends InputParser {
             if(eq(pref, XML, XMLNS)) throw error(BINDXML_X, pref);
             if(eq(uri, XML_URI)) throw error(BINDXMLURI_X_X, uri, XML);
             if(eq(uri, XMLNS_URI)) throw error(BINDXMLURI_X_X, uri, XMLNS);
-            sc.ns.add(pref, uri);
+            qc.namespaces.add(pref, uri);
           } else {
             if(eq(uri, XML_URI)) throw error(XMLNSDEF_X, uri);
             sc.elemNS = uri;
@@ -2584,7 +2584,7 @@ public class QueryParser extends InputParser {
       }
     }
 
-    sc.ns.size(s);
+    qc.namespaces.size(s);
     sc.elemNS = nse;
     return new CElem(sc, info(), name, ns, cont.finish());
   }
@@ -3709,7 +3709,7 @@ public class QueryParser extends InputParser {
     if(def == SKIPCHECK) return new QNm(nm);
 
     // create new EQName and set namespace
-    final QNm name = new QNm(nm, sc);
+    final QNm name = new QNm(nm, sc, qc);
     if(!name.hasURI()) {
       if(def == URICHECK) {
         pos = i;
@@ -4177,7 +4177,7 @@ public class QueryParser extends InputParser {
       if(name.hasURI()) return true;
 
       if(name.hasPrefix()) {
-        name.uri(sc.ns.uri(name.prefix()));
+        name.uri(sc.ns.uri(name.prefix(), qc));
         if(check && !name.hasURI()) throw error(NOURI_X, name.string());
       } else if(nsElem) {
         name.uri(sc.elemNS);
@@ -29,7 +29,7 @@ public final class QueryProcessor extends Proc implements Closeable {
   "^(xquery( version ['\"].*?['\"])?( encoding ['\"].*?['\"])? ?; ?)?module namespace.*");
 
   /** Static context. */
-  public final StaticContext sc;
+  public StaticContext sc;
   /** Expression context. */
   public final QueryContext qc;
   /** Query. */
@@ -59,6 +59,19 @@ public final class QueryProcessor extends Proc implements Closeable {
     updating = qc.updating;
   }
 
+  /**
+   * Parses the query. If the query cache is enabled (see {@link StaticOptions#QUERYCACHE}),
+   * a copy of a previously parsed query may be used, and the static context will be
+   * replaced. This method must only be called if the static context has not been modified.
+   * @throws QueryException query exception
+   */
+  public void parseCached() throws QueryException {
+    if(parsed) return;
+    parsed = true;
+    sc = qc.context.queries.parse(query, qc, sc).sc;
+    updating = qc.updating;
+  }
+
   /**
    * Compiles the query.
    * @throws QueryException query exception
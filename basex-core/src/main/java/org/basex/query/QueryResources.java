@@ -48,6 +48,8 @@ public final class QueryResources {
   private ModuleLoader modules;
   /** External resources. */
   private final HashMap<Class<? extends QueryResource>, QueryResource> external = new HashMap<>();
+  /** Opened inputs that are consumed lazily. */
+  private final ArrayList<Closeable> inputs = new ArrayList<>(0);
 
   /** Pending output. */
   public final ValueBuilder output = new ValueBuilder();
@@ -88,10 +90,27 @@ public final class QueryResources {
    * Adds an external resource.
    * @param ext external resource
    */
-  public void add(final QueryResource ext) {
+  public synchronized void add(final QueryResource ext) {
     external.put(ext.getClass(), ext);
   }
 
+  /**
+   * Registers an input that is consumed lazily. It will be closed with the query
+   * if it has not been removed before.
+   * @param input input
+   */
+  public synchronized void addInput(final Closeable input) {
+    inputs.add(input);
+  }
+
+  /**
+   * Removes an input that has been closed.
+   * @param input input
+   */
+  public synchronized void removeInput(final Closeable input) {
+    inputs.remove(input);
+  }
+
   /**
    * Returns an external resource of the specified class.
    * @param <R> resource
@@ -99,7 +118,7 @@ public final class QueryResources {
    * @return resource
    */
   @SuppressWarnings("unchecked")
-  public <R extends QueryResource> R get(final Class<? extends R> resource) {
+  public synchronized <R extends QueryResource> R get(final Class<? extends R> resource) {
     return (R) external.get(resource);
   }
 
@@ -113,6 +132,15 @@ public final class QueryResources {
     if(modules != null) modules.close();
     // close external resources
     for(final QueryResource c : external.values()) c.close();
+    // close inputs that have not been consumed completely
+    for(final Closeable input : inputs) {
+      try {
+        input.close();
+      } catch(final IOException ex) {
+        Util.debug(ex);
+      }
+    }
+    inputs.clear();
   }
 
   /**
@@ -122,7 +150,9 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data database(final String name, final InputInfo info) throws QueryException {
+  public synchronized Data database(final String name, final InputInfo info)
+      throws QueryException {
+
     // check if a database with the same name has already been opened
     for(final Data data : datas) {
       if(data.inMemory()) continue;
@@ -147,7 +177,7 @@ public final class QueryResources {
    * @return document
    * @throws QueryException query exception
    */
-  public DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -181,7 +211,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final InputInfo info) throws QueryException {
+  public synchronized Value collection(final InputInfo info) throws QueryException {
     if(colls.isEmpty()) throw NODEFCOLL.get(info);
     return colls.get(0);
   }
@@ -195,7 +225,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -240,7 +270,7 @@ public final class QueryResources {
    * Returns a reference to the updates.
    * @return updates
    */
-  public Updates updates() {
+  public synchronized Updates updates() {
     if(updates == null) updates = new Updates();
     return updates;
   }
@@ -249,11 +279,19 @@ public final class QueryResources {
    * Returns the module loader.
    * @return module loader
    */
-  public ModuleLoader modules() {
+  public synchronized ModuleLoader modules() {
     if(modules == null) modules = new ModuleLoader(qc.context);
     return modules;
   }
 
+  /**
+   * Checks if the module loader has been requested.
+   * @return result of check
+   */
+  synchronized boolean imports() {
+    return modules != null;
+  }
+
   /**
    * Removes and closes a database if it has not been added by the global context.
    * @param name name of database to be removed
@@ -808,6 +808,12 @@ public interface QueryText {
   /** Optimization info. */
   String OPTPRED = "rewriting % to predicate(s)";
   /** Optimization info. */
+  String OPTLIMIT = "limiting results of % to %";
+  /** Optimization info. */
+  String OPTHASHJOIN = "rewriting % to hash join";
+  /** Optimization info. */
+  String OPTAGGR = "computing % while grouping";
+  /** Optimization info. */
   String OPTCAST = "removing redundant % cast.";
   /** Optimization info. */
   String OPTVAR = "removing variable %";
@@ -826,6 +832,8 @@ public interface QueryText {
   /** Optimization info. */
   String OPTSRNGINDEX = "applying string range index for %";
   /** Optimization info. */
+  String OPTNAMINDEX = "applying name index for %";
+  /** Optimization info. */
   String OPTNOINDEX = "removing path with no index results";
   /** Optimization info. */
   String OPTCHILD = "converting % to child steps";
@@ -53,6 +53,14 @@ public abstract class StaticScope extends ExprInfo implements Scope {
     return compiled;
   }
 
+  /**
+   * Returns the documentation string.
+   * @return documentation or {@code null}
+   */
+  protected final String docString() {
+    return doc == null ? null : Token.string(doc);
+  }
+
   /**
    * Returns a map with all documentation tags found for this scope or {@code null} if
    * no documentation exists. The main description is flagged with the "description" key.
@@ -5,6 +5,7 @@ import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
 import org.basex.query.iter.*;
+import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
@@ -76,6 +77,12 @@ public final class Cast extends Single {
     return v instanceof Item ? seqType.cast((Item) v, qc, sc, info, true) : v;
   }
 
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    // QNames are resolved against the namespaces of the query context
+    return (seqType.type != AtomType.QNM || visitor.sequential(this)) && super.accept(visitor);
+  }
+
   @Override
   public Cast copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     return new Cast(sc, info, expr.copy(qc, scp, vs), seqType);
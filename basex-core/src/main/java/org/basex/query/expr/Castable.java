@@ -3,6 +3,7 @@ package org.basex.query.expr;
 import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
+import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
@@ -56,6 +57,12 @@ public final class Castable extends Single {
         (v.isEmpty() || type.cast((Item) v, qc, sc, info, false) != null));
   }
 
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    // QNames are resolved against the namespaces of the query context
+    return (type.type != AtomType.QNM || visitor.sequential(this)) && super.accept(visitor);
+  }
+
   @Override
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     return new Castable(sc, info, expr.copy(qc, scp, vs), type);
@@ -57,6 +57,15 @@ public abstract class Cmp extends Arr {
    */
   public abstract Cmp invert();
 
+  /**
+   * Checks if this is an equality comparison with the default collation.
+   * Such comparisons can be evaluated by looking up hashed values.
+   * @return result of check
+   */
+  public boolean equality() {
+    return false;
+  }
+
   /**
    * This method is called if the first operand of the comparison expression is a
    * {@code count()} function.
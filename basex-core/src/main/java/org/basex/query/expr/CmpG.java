@@ -310,6 +310,11 @@ public final class CmpG extends Cmp {
         e2.seqType().mayBeArray() ? this : new CmpG(e1, e2, op.invert(), coll, sc, info);
   }
 
+  @Override
+  public boolean equality() {
+    return op == OpG.EQ && coll == null;
+  }
+
   /**
    * Creates a union of the existing and the specified expressions.
    * @param g general comparison
@@ -147,32 +147,42 @@ public final class CmpR extends Single {
     // accept only location path, string and equality expressions
     final Data data = ii.ic.data;
     // sequential main memory scan is assumed to be faster than range index access
-    if(!mni || !mxi || data.inMemory() || !ii.check(expr, false)) return false;
+    if(data.inMemory() || !ii.check(expr, false)) return false;
+    // numeric keys: arbitrary ranges can be accessed with a binary search
+    final boolean numeric = data.meta.rangeindex;
+    if(!numeric && (!mni || !mxi)) return false;
 
     final Stats key = key(ii, ii.text);
     if(key == null) return false;
 
     // estimate costs for range access; all values out of range: no results
-    final NumericRange nr = new NumericRange(ii.text,
-        Math.max(min, key.min), Math.min(max, key.max));
+    final NumericRange nr = new NumericRange(ii.text, Math.max(min, key.min),
+        mni || min < key.min, Math.min(max, key.max), mxi || max > key.max);
 
     // skip queries with no results
-    if(nr.min > nr.max || nr.max < key.min || nr.min > key.max) {
+    if(nr.min > nr.max || nr.max < key.min || nr.min > key.max ||
+        nr.min == nr.max && !(nr.mni && nr.mxi)) {
       ii.costs = 0;
       return true;
     }
 
-    // skip if numbers are negative, doubles, or of different string length
-    final int mnl = min >= 0 && (long) min == min ? token(min).length : -1;
-    final int mxl = max >= 0 && (long) max == max ? token(max).length : -1;
-    if(mnl != mxl || mnl == -1) return false;
+    if(numeric) {
+      // number of distinct keys in the range (no results if zero)
+      ii.costs = data.costs(nr);
+      if(ii.costs == 0) return true;
+    } else {
+      // skip if numbers are negative, doubles, or of different string length
+      final int mnl = min >= 0 && (long) min == min ? token(min).length : -1;
+      final int mxl = max >= 0 && (long) max == max ? token(max).length : -1;
+      if(mnl != mxl || mnl == -1) return false;
 
-    // estimate costs (conservative value)
-    ii.costs = Math.max(2, data.meta.size / 3);
+      // estimate costs (conservative value)
+      ii.costs = Math.max(2, data.meta.size / 3);
 
-    // don't use index if min/max values are infinite
-    if(min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY ||
-        token((int) nr.min).length != token((int) nr.max).length) return false;
+      // don't use index if min/max values are infinite
+      if(min == Double.NEGATIVE_INFINITY && max == Double.POSITIVE_INFINITY ||
+          token((int) nr.min).length != token((int) nr.max).length) return false;
+    }
 
     final TokenBuilder tb = new TokenBuilder();
     tb.add(mni ? '[' : '(').addExt(min).add(',').addExt(max).add(mxi ? ']' : ')');
@@ -238,6 +238,11 @@ public final class CmpV extends Cmp {
         e2.seqType().mayBeArray() ? this : new CmpV(e1, e2, op.invert(), coll, sc, info);
   }
 
+  @Override
+  public boolean equality() {
+    return op == OpV.EQ && coll == null;
+  }
+
   @Override
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     return new CmpV(exprs[0].copy(qc, scp, vs), exprs[1].copy(qc, scp, vs), op, coll, sc, info);
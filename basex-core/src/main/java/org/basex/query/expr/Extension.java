@@ -4,6 +4,7 @@ import static org.basex.query.QueryText.*;
 
 import org.basex.query.*;
 import org.basex.query.iter.*;
+import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.node.*;
 import org.basex.query.var.*;
@@ -69,6 +70,12 @@ public final class Extension extends Single {
     }
   }
 
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    // pragmas may change global options
+    return visitor.sequential(this) && super.accept(visitor);
+  }
+
   @Override
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final Pragma[] prag = pragmas.clone();
@@ -0,0 +1,69 @@
+package org.basex.query.expr;
+
+import static org.basex.query.QueryText.*;
+
+import org.basex.data.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+
+/**
+ * This index class retrieves elements and attributes with a specific name from the name index.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class NameAccess extends IndexAccess {
+  /** Index token. */
+  private final NameToken token;
+
+  /**
+   * Constructor.
+   * @param info input info
+   * @param token index token
+   * @param ictx index context
+   */
+  public NameAccess(final InputInfo info, final NameToken token, final IndexContext ictx) {
+    super(ictx, info);
+    this.token = token;
+    seqType = SeqType.get(token.elem ? NodeType.ELM : NodeType.ATT, Occ.ZERO_MORE);
+  }
+
+  @Override
+  public AxisIter iter(final QueryContext qc) {
+    final byte kind = token.elem ? Data.ELEM : Data.ATTR;
+
+    return new AxisIter() {
+      final IndexIterator it = ictx.data.iter(token);
+      @Override
+      public ANode next() {
+        return it.more() ? new DBNode(ictx.data, it.pre(), kind) : null;
+      }
+    };
+  }
+
+  @Override
+  public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
+    return copyType(new NameAccess(info, token, ictx));
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(DATA, ictx.data.meta.name, NAM, token.get(), TYP,
+        token.elem ? IndexType.TAG : IndexType.ATTNAME));
+  }
+
+  @Override
+  public String toString() {
+    return new TokenBuilder(DB_PREFIX).add(':').add(token.elem ? "element" : "attribute").
+      add("-names(").addExt(ictx.data.meta.name).add(SEP).addExt(token.get()).add(')').toString();
+  }
+}
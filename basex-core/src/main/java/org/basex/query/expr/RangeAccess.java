@@ -62,8 +62,12 @@ public final class RangeAccess extends IndexAccess {
 
   @Override
   public String toString() {
-    return new TokenBuilder(DB_PREFIX).add(':').
+    final TokenBuilder tb = new TokenBuilder(DB_PREFIX).add(':').
       add(index.type().toString().toLowerCase(Locale.ENGLISH)).add("-range(").
-      addExt(index.min).add(SEP).addExt(index.max).add(')').toString();
+      addExt(index.min).add(SEP).addExt(index.max).add(')');
+    // exclusive limits
+    if(!index.mni) tb.add("[. != ").addExt(index.min).add(']');
+    if(!index.mxi) tb.add("[. != ").addExt(index.max).add(']');
+    return tb.toString();
   }
 }
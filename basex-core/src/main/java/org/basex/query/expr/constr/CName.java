@@ -91,7 +91,7 @@ abstract class CName extends CNode {
     // create and update namespace
     final byte[] str = it.string(ii);
     if(XMLToken.isQName(str)) {
-      return elem || Token.contains(str, ':') ? new QNm(str, sc) : new QNm(str);
+      return elem || Token.contains(str, ':') ? new QNm(str, sc, qc) : new QNm(str);
     }
     throw INVNAME_X.get(info, str);
   }
@@ -440,7 +440,8 @@ public final class FTWords extends FTExpr {
 
   @Override
   public boolean accept(final ASTVisitor visitor) {
-    return super.accept(visitor) && query.accept(visitor) &&
+    // tokenizer and data reference are initialized on first evaluation
+    return visitor.sequential(this) && super.accept(visitor) && query.accept(visitor) &&
         (occ == null || visitAll(visitor, occ));
   }
 
@@ -2,6 +2,8 @@ package org.basex.query.expr.gflwor;
 
 import java.util.*;
 
+import org.basex.core.*;
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.path.*;
@@ -29,6 +31,8 @@ public final class GFLWOR extends ParseExpr {
   private final LinkedList<Clause> clauses;
   /** Return expression. */
   public Expr ret;
+  /** Maximum number of results that will be requested ({@code Long.MAX_VALUE}: no limit). */
+  private long limit = Long.MAX_VALUE;
 
   /**
    * Constructor.
@@ -43,7 +47,14 @@ public final class GFLWOR extends ParseExpr {
   }
 
   @Override
-  public Iter iter(final QueryContext qc) {
+  public Iter iter(final QueryContext qc) throws QueryException {
+    // evaluate clauses in parallel if requested and possible (skip nested expressions)
+    final int threads = qc.context.options.get(MainOptions.PARALLELFOR);
+    if(threads > 1 && !qc.parallel) {
+      final ParallelFor pf = ParallelFor.get(clauses, ret);
+      if(pf != null) return pf.iter(qc, threads);
+    }
+
     // Start evaluator, doing nothing, once.
     Eval e = new Eval() {
       /** First-evaluation flag. */
@@ -56,7 +67,12 @@ public final class GFLWOR extends ParseExpr {
       }
     };
 
-    for(final Clause cls : clauses) e = cls.eval(e);
+    // only sort the tuples that will be requested
+    final int ob = limit == Long.MAX_VALUE ? -1 : topK();
+    int c = 0;
+    for(final Clause cls : clauses) {
+      e = c++ == ob ? ((OrderBy) cls).eval(e, limit) : cls.eval(e);
+    }
     final Eval ev = e;
 
     return new Iter() {
@@ -216,6 +232,12 @@ public final class GFLWOR extends ParseExpr {
        * */
     } while(changed);
 
+    // evaluate independent for clauses with equality predicates as hash joins
+    hashJoins(qc, scp);
+
+    // compute aggregated values of non-grouping variables while grouping the tuples
+    aggregate(qc, scp);
+
     mergeWheres();
 
     size = calcSize();
@@ -532,7 +554,8 @@ public final class GFLWOR extends ParseExpr {
           final Clause before = clauses.get(b4);
           if(before instanceof For) {
             final For f = (For) before;
-            if(f.toPredicate(qc, scp, wh.expr)) {
+            // keep join predicates, which will be evaluated as hash joins
+            if(!joinable(b4, wh) && f.toPredicate(qc, scp, wh.expr)) {
               fors.add((For) before);
               clauses.remove(newPos);
               i--;
@@ -551,6 +574,103 @@ public final class GFLWOR extends ParseExpr {
     return changed;
   }
 
+  /**
+   * Rewrites for clauses with subsequent where clauses to hash joins.
+   * @param qc query context
+   * @param scp variable scope
+   * @throws QueryException query exception
+   */
+  private void hashJoins(final QueryContext qc, final VarScope scp)
+      throws QueryException {
+    boolean loop = false;
+    for(int i = 0; i < clauses.size(); i++) {
+      final Clause clause = clauses.get(i);
+      if(loop && clause instanceof For) {
+        for(int w = i + 1; w < clauses.size() && clauses.get(w) instanceof Where; w++) {
+          final Where wh = (Where) clauses.get(w);
+          if(joinable(i, wh)) {
+            final For fr = (For) clause;
+            qc.compInfo(QueryText.OPTHASHJOIN, fr);
+            clauses.remove(w);
+            clauses.set(i, new HashJoin(fr.var, fr.expr, wh.expr, fr.info).optimize(qc, scp));
+            break;
+          }
+        }
+      }
+      if(!(clause instanceof Let)) loop = true;
+    }
+  }
+
+  /**
+   * Rewrites group by clauses with non-grouping variables that are only used as arguments
+   * of aggregate functions.
+   * @param qc query context
+   * @param scp variable scope
+   * @throws QueryException query exception
+   */
+  private void aggregate(final QueryContext qc, final VarScope scp) throws QueryException {
+    boolean changed = false;
+    final int cs = clauses.size();
+    for(int c = 0; c < cs; c++) {
+      final Clause clause = clauses.get(c);
+      if(clause instanceof GroupBy) {
+        final ArrayList<Expr> exprs = new ArrayList<Expr>(clauses.subList(c + 1, cs));
+        exprs.add(ret);
+        final GroupBy gb = ((GroupBy) clause).aggregate(
+            exprs.toArray(new Expr[exprs.size()]), qc, scp);
+        if(gb != null) {
+          clauses.set(c, gb);
+          changed = true;
+        }
+      }
+    }
+    // update the variables that are passed on by order by clauses
+    if(changed) cleanDeadVars();
+  }
+
+  /**
+   * Checks if a for clause and a where clause can be evaluated as hash join.
+   * This is the case if the bound expression of the for clause does not depend on
+   * the tuples of the preceding clauses, and if the where clause is an equality comparison
+   * with one operand that depends on the for variable, and another one that depends on
+   * other variables.
+   * @param i index of the for clause
+   * @param wh where clause
+   * @return result of check
+   */
+  private boolean joinable(final int i, final Where wh) {
+    final Clause clause = clauses.get(i);
+    if(!(clause instanceof For) || wh.has(Flag.NDT) || wh.has(Flag.UPD)) return false;
+    final For fr = (For) clause;
+    if(fr.vars.length != 1 || fr.empty || fr.expr.has(Flag.NDT) || fr.expr.has(Flag.CNS) ||
+        fr.expr.has(Flag.UPD)) return false;
+
+    // bound expression must not depend on iterated variables
+    boolean loop = false;
+    for(int c = 0; c < i; c++) {
+      final Clause cl = clauses.get(c);
+      if(!(cl instanceof Let)) loop = true;
+      if(loop) for(final Var v : cl.vars) if(fr.expr.uses(v)) return false;
+    }
+    // hash joins are only created for clauses that are preceded by iterating clauses
+    if(!loop) return false;
+
+    final int b = HashJoin.build(wh.expr, fr.var);
+    if(b == -1) return false;
+    final Expr[] ops = ((Cmp) wh.expr).exprs;
+    // skip comparisons that can be rewritten for index access
+    final Data data = fr.expr.data();
+    if(data != null && ops[b] instanceof Path && (data.meta.textindex || data.meta.attrindex))
+      return false;
+    // check if the other operand depends on variables
+    return !ops[b ^ 1].accept(new ASTVisitor() {
+      @Override
+      public boolean used(final VarRef ref) {
+        return false;
+      }
+    });
+  }
+
   /**
    * Rewrite positional variables to predicates.
    * @param qc query context
@@ -740,7 +860,38 @@ public final class GFLWOR extends ParseExpr {
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final LinkedList<Clause> cls = new LinkedList<>();
     for(final Clause clause : clauses) cls.add(clause.copy(qc, scp, vs));
-    return copyType(new GFLWOR(info, cls, ret.copy(qc, scp, vs)));
+    final GFLWOR gflwor = new GFLWOR(info, cls, ret.copy(qc, scp, vs));
+    gflwor.limit = limit;
+    return copyType(gflwor);
+  }
+
+  /**
+   * Limits the number of results that will be requested by the parent expression.
+   * If the results are sorted, only the tuples with the smallest sort keys will be sorted.
+   * @param max maximum number of results
+   * @param qc query context
+   */
+  public void limit(final long max, final QueryContext qc) {
+    if(max < limit && topK() != -1) {
+      qc.compInfo(QueryText.OPTLIMIT, this, max);
+      limit = max;
+    }
+  }
+
+  /**
+   * Returns the index of an order by clause, which will return exactly one result per tuple.
+   * This is the case if it is only followed by let clauses, and if the return expression
+   * yields exactly one item.
+   * @return index of the order by clause, or {@code -1}
+   */
+  private int topK() {
+    if(!ret.seqType().one()) return -1;
+    for(int c = clauses.size(); --c >= 0;) {
+      final Clause clause = clauses.get(c);
+      if(clause instanceof OrderBy) return c;
+      if(!(clause instanceof Let)) break;
+    }
+    return -1;
   }
 
   /**
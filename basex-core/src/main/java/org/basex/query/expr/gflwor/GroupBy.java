@@ -1,16 +1,26 @@
 package org.basex.query.expr.gflwor;
 
+import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
+import java.io.*;
 import java.util.*;
 
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.ArrayOutput;
+import org.basex.io.out.DataOutput;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.GFLWOR.Clause;
 import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.expr.gflwor.TupleIO.TempFiles;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.util.collation.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
@@ -27,12 +37,24 @@ import org.basex.util.hash.*;
  * @author Leo Woerteler
  */
 public final class GroupBy extends Clause {
+  /** Number of partitions to which tuples are written. */
+  private static final int PARTS = 1 << 4;
+  /** Number of hash bits that are consumed by a partition level. */
+  private static final int BITS = 4;
+  /** Maximum partition level (all bits of the hash values have been consumed). */
+  private static final int MAXLEVEL = 32 / BITS;
+  /** Number of tuples after which the memory consumption is checked. */
+  private static final int CHECK = 1 << 12;
+
   /** Grouping specs. */
   private final Spec[] specs;
   /** Non-grouping variable expressions. */
   private Expr[] preExpr;
   /** Non-grouping variables. */
   private Var[] post;
+  /** Aggregate function calls, which are the only consumers of the non-grouping variables
+   * ({@code null} entries: the values of the variables are bound as sequences). */
+  private StandardFunc[] aggr;
   /** Number of non-occluded grouping variables. */
   private final int nonOcc;
 
@@ -49,6 +71,7 @@ public final class GroupBy extends Clause {
     this.post = post;
     preExpr = new Expr[pre.length];
     System.arraycopy(pre, 0, preExpr, 0, pre.length);
+    aggr = new StandardFunc[post.length];
     int n = 0;
     for(final Spec spec : specs) if(!spec.occluded) n++;
     nonOcc = n;
@@ -59,15 +82,17 @@ public final class GroupBy extends Clause {
    * @param specs grouping specs
    * @param pre pre-grouping expressions
    * @param post post-grouping variables
+   * @param aggr aggregate function calls
    * @param nonOcc number of non-occluded grouping variables
    * @param info input info
    */
-  private GroupBy(final Spec[] specs, final Expr[] pre, final Var[] post, final int nonOcc,
-      final InputInfo info) {
+  private GroupBy(final Spec[] specs, final Expr[] pre, final Var[] post,
+      final StandardFunc[] aggr, final int nonOcc, final InputInfo info) {
     super(info, vars(specs, post));
     this.specs = specs;
     preExpr = pre;
     this.post = post;
+    this.aggr = aggr;
     this.nonOcc = nonOcc;
   }
 
@@ -88,19 +113,37 @@ public final class GroupBy extends Clause {
   @Override
   Eval eval(final Eval sub) {
     return new Eval() {
-      /** Groups to iterate over. */
+      /** Partitions of tuples that have not been grouped yet. */
+      private final ArrayList<Partition> parts = new ArrayList<>();
+      /** Serializer for tuples that are written to partitions. */
+      private TupleIO io;
+      /** Groups in main memory ({@code null} if no tuples have been grouped yet). */
       private Group[] groups;
       /** Current position. */
       private int pos;
+      /** Runs with the groups of all partitions ({@code null} if not built yet). */
+      private MinHeap<Run, Run> runs;
 
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
-        if(groups == null) groups = init(qc);
-        if(pos == groups.length) return false;
+        if(groups == null) {
+          io = new TupleIO(qc, info);
+          groups = init(qc);
+        }
 
-        final Group curr = groups[pos];
-        // be nice to the garbage collector
-        groups[pos++] = null;
+        // groups in main memory precede all groups of the partitions
+        final Group curr;
+        if(pos < groups.length) {
+          curr = groups[pos];
+          // be nice to the garbage collector
+          groups[pos++] = null;
+        } else {
+          if(runs == null) runs = runs(qc);
+          if(runs.isEmpty()) return false;
+          final Run run = runs.removeMin();
+          curr = run.group;
+          if(run.next()) runs.insert(run, run);
+        }
 
         int p = 0;
         for(final Spec spec : specs) {
@@ -110,79 +153,101 @@ public final class GroupBy extends Clause {
           }
         }
         final int pl = post.length;
-        for(int i = 0; i < pl; i++) qc.set(post[i], curr.ngv[i].value(), info);
+        for(int i = 0; i < pl; i++) qc.set(post[i], value(curr, i), info);
         return true;
       }
 
       /**
        * Builds up the groups.
        * @param qc query context
+       * @return groups
        * @throws QueryException query exception
        */
       private Group[] init(final QueryContext qc) throws QueryException {
-        final ArrayList<Group> grps = new ArrayList<>();
-        final IntObjMap<Group> map = new IntObjMap<>();
-        final Collation[] colls = new Collation[nonOcc];
-        int c = 0;
-        for(final Spec spec : specs) {
-          if(!spec.occluded) colls[c++] = spec.coll;
-        }
-
-        while(sub.next(qc)) {
+        final Groups grps = new Groups(0, io, qc);
+        final int pl = preExpr.length;
+        for(long t = 0; sub.next(qc); t++) {
           final Item[] key = new Item[nonOcc];
-          int p = 0, hash = 1;
+          int p = 0;
           for(final Spec spec : specs) {
             final Item atom = spec.atomItem(qc, info);
-            if(!spec.occluded) {
-              key[p++] = atom;
-              // If the values are compared using a special collation, we let them collide
-              // here and let the comparison do all the work later.
-              // This enables other non-collation specs to avoid the collision.
-              hash = 31 * hash + (atom == null || spec.coll != null ? 0 : atom.hash(info));
-            }
+            if(!spec.occluded) key[p++] = atom;
             qc.set(spec.var, atom == null ? Empty.SEQ : atom, info);
           }
+          final Value[] vals = new Value[pl];
+          for(int g = 0; g < pl; g++) vals[g] = preExpr[g].value(qc);
+          grps.add(key, vals, t);
+        }
+        return grps.finish(parts);
+      }
 
-          // find the group for this key
-          final Group fst;
-          Group grp = null;
-          // no collations, so we can use hashing
-          for(Group g = fst = map.get(hash); g != null; g = g.next) {
-            if(eq(key, g.key, colls)) {
-              grp = g;
-              break;
-            }
-          }
-
-          final int pl = preExpr.length;
-          if(grp == null) {
-            // new group, add it to the list
-            final ValueBuilder[] ngs = new ValueBuilder[pl];
-            final int nl = ngs.length;
-            for(int n = 0; n < nl; n++) ngs[n] = new ValueBuilder();
-            grp = new Group(key, ngs);
-            grps.add(grp);
-
-            // insert the group into the hash table
-            if(fst == null) {
-              map.put(hash, grp);
-            } else {
-              final Group nxt = fst.next;
-              fst.next = grp;
-              grp.next = nxt;
-            }
+      /**
+       * Builds up the groups of all partitions. The groups of each partition are sorted by
+       * their first tuples and form a run; the runs are merged to restore the original order.
+       * @param qc query context
+       * @return runs
+       * @throws QueryException query exception
+       */
+      private MinHeap<Run, Run> runs(final QueryContext qc) throws QueryException {
+        final MinHeap<Run, Run> heap = new MinHeap<>(new Comparator<Run>() {
+          @Override
+          public int compare(final Run a, final Run b) {
+            return Long.compare(a.group.first, b.group.first);
           }
-
-          // add values of non-grouping variables to the group
-          for(int g = 0; g < pl; g++) grp.ngv[g].add(preExpr[g].value(qc));
+        });
+        while(!parts.isEmpty()) {
+          final Partition part = parts.remove(parts.size() - 1);
+          final Groups grps = new Groups(part.level, io, qc);
+          grps.read(part.file);
+          final Run run = new Run(grps.finish(parts), io, qc);
+          if(run.next()) heap.insert(run, run);
         }
-
-        // we're finished, copy the array so the list can be garbage-collected
-        return grps.toArray(new Group[grps.size()]);
+        return heap;
       }
     };
   }
 
+  /**
+   * Returns the value to be bound to a non-grouping variable.
+   * @param grp group
+   * @param p index of the variable
+   * @return value
+   * @throws QueryException query exception
+   */
+  private Value value(final Group grp, final int p) throws QueryException {
+    final StandardFunc func = aggr[p];
+    if(func == null) return grp.ngv[p].value();
+    if(grp.failed != null && grp.failed[p] != null) return grp.failed[p].value();
+
+    // the values of aggregated variables will only be passed on to the aggregate function
+    final long c = grp.count[p];
+    if(c == 0) return Empty.SEQ;
+    final Function kind = kind(func);
+    if(kind == Function.COUNT) return RangeSeq.get(1, c, true);
+    final Item acc = grp.acc[p];
+    return kind == Function.AVG ? Calc.DIV.ev(info, acc, Int.get(c)) : acc;
+  }
+
+  /**
+   * Computes the hash value of a grouping key.
+   * @param key grouping key
+   * @param colls collations
+   * @return hash value
+   * @throws QueryException query exception
+   */
+  private int hash(final Item[] key, final Collation[] colls) throws QueryException {
+    int hash = 1;
+    final int kl = key.length;
+    for(int k = 0; k < kl; k++) {
+      final Item atom = key[k];
+      // If the values are compared using a special collation, we let them collide
+      // here and let the comparison do all the work later.
+      // This enables other non-collation specs to avoid the collision.
+      hash = 31 * hash + (atom == null || colls[k] != null ? 0 : atom.hash(info));
+    }
+    return hash;
+  }
+
   /**
    * Checks two keys for equality.
    * @param its1 first keys
@@ -219,12 +284,115 @@ public final class GroupBy extends Clause {
   public GroupBy optimize(final QueryContext qc, final VarScope scp) throws QueryException {
     final int pl = preExpr.length;
     for(int p = 0; p < pl; p++) {
-      final SeqType it = preExpr[p].seqType();
-      post[p].refineType(it.withOcc(it.mayBeZero() ? Occ.ZERO_MORE : Occ.ONE_MORE), qc, info);
+      final StandardFunc func = aggr[p];
+      if(func == null) {
+        final SeqType it = preExpr[p].seqType();
+        post[p].refineType(it.withOcc(it.mayBeZero() ? Occ.ZERO_MORE : Occ.ONE_MORE), qc, info);
+      } else {
+        post[p].refineType(kind(func) == Function.COUNT ? SeqType.ITR_ZM : SeqType.AAT_ZO, qc,
+            info);
+      }
     }
     return this;
   }
 
+  /**
+   * Rewrites non-grouping variables that are only referenced as arguments of the aggregate
+   * functions {@code count}, {@code sum}, {@code avg}, {@code min} and {@code max}
+   * (or {@code exists} and {@code empty}). For each kind of aggregation, a new variable is
+   * introduced, and its value is computed while the tuples are grouped. The values of the
+   * original variables need not be cached anymore. If a value cannot be aggregated, the
+   * remaining values are collected, and the error is raised when the function is evaluated.
+   * @param exprs subsequent clauses and return expression
+   * @param qc query context
+   * @param scp variable scope
+   * @return new clause, or {@code null} if no variables were rewritten
+   * @throws QueryException query exception
+   */
+  GroupBy aggregate(final Expr[] exprs, final QueryContext qc, final VarScope scp)
+      throws QueryException {
+
+    final ArrayList<Expr> pres = new ArrayList<>();
+    final ArrayList<Var> posts = new ArrayList<>();
+    final ArrayList<StandardFunc> aggrs = new ArrayList<>();
+    boolean changed = false;
+    final int pl = post.length;
+    for(int p = 0; p < pl; p++) {
+      final Var var = post[p];
+      final ArrayList<StandardFunc> calls = new ArrayList<>();
+      if(aggr[p] == null) {
+        final int[] refs = { 0 };
+        final ASTVisitor visitor = new ASTVisitor() {
+          @Override
+          public boolean funcCall(final StandardFunc func) {
+            if(aggregatable(func) && ((VarRef) func.exprs[0]).var.is(var)) calls.add(func);
+            return true;
+          }
+
+          @Override
+          public boolean used(final VarRef ref) {
+            if(ref.var.is(var)) refs[0]++;
+            return true;
+          }
+        };
+        for(final Expr expr : exprs) expr.accept(visitor);
+        if(refs[0] != calls.size()) calls.clear();
+      }
+
+      if(calls.isEmpty()) {
+        pres.add(preExpr[p]);
+        posts.add(var);
+        aggrs.add(aggr[p]);
+      } else {
+        // bind the result of each function to a new variable
+        changed = true;
+        final EnumMap<Function, Var> vars = new EnumMap<>(Function.class);
+        for(final StandardFunc call : calls) {
+          final Function kind = kind(call);
+          Var v = vars.get(kind);
+          if(v == null) {
+            qc.compInfo(OPTAGGR, call);
+            v = scp.newLocal(qc, var.name, null, false);
+            vars.put(kind, v);
+            pres.add(vars.size() == 1 ? preExpr[p] :
+              preExpr[p].copy(qc, scp, new IntObjMap<Var>()));
+            posts.add(v);
+            aggrs.add(call);
+          }
+          call.exprs[0] = new VarRef(((VarRef) call.exprs[0]).info, v);
+        }
+      }
+    }
+    if(!changed) return null;
+
+    return new GroupBy(specs, pres.toArray(new Expr[pres.size()]),
+        posts.toArray(new Var[posts.size()]), aggrs.toArray(new StandardFunc[aggrs.size()]),
+        nonOcc, info).optimize(qc, scp);
+  }
+
+  /**
+   * Checks if the specified function is an aggregate function with a single variable argument.
+   * @param func function
+   * @return result of check
+   */
+  private static boolean aggregatable(final StandardFunc func) {
+    final Function kind = kind(func);
+    return (kind == Function.COUNT || kind == Function.SUM || kind == Function.AVG ||
+        kind == Function.MIN || kind == Function.MAX) && func.exprs.length == 1 &&
+        func.exprs[0] instanceof VarRef;
+  }
+
+  /**
+   * Returns the kind of aggregation that is performed by the specified function.
+   * The functions {@code exists} and {@code empty} only depend on the number of items.
+   * @param func function
+   * @return kind of aggregation
+   */
+  private static Function kind(final StandardFunc func) {
+    final Function sig = func.sig;
+    return sig == Function.EXISTS || sig == Function.EMPTY ? Function.COUNT : sig;
+  }
+
   @Override
   public boolean removable(final Var var) {
     for(final Spec b : specs) if(!b.removable(var)) return false;
@@ -258,7 +426,7 @@ public final class GroupBy extends Clause {
     }
 
     // done
-    return new GroupBy(Arr.copyAll(qc, scp, vs, specs), pEx, ps, nonOcc, info);
+    return new GroupBy(Arr.copyAll(qc, scp, vs, specs), pEx, ps, aggr.clone(), nonOcc, info);
   }
 
   @Override
@@ -276,6 +444,7 @@ public final class GroupBy extends Clause {
     for(int p = 0; p < post.length; p++) {
       if(!used.get(post[p].id)) {
         preExpr = Array.delete(preExpr, p);
+        aggr = Array.delete(aggr, p);
         post = Array.delete(post, p--);
       }
     }
@@ -310,6 +479,15 @@ public final class GroupBy extends Clause {
   public void plan(final FElem plan) {
     final FElem e = planElem();
     for(final Spec spec : specs) spec.plan(e);
+    // aggregated values of non-grouping variables
+    final int pl = post.length;
+    for(int p = 0; p < pl; p++) {
+      if(aggr[p] == null) continue;
+      final FElem a = new FElem(Util.className(aggr[p]));
+      post[p].plan(a);
+      preExpr[p].plan(a);
+      e.add(a);
+    }
     plan.add(e);
   }
 
@@ -319,7 +497,8 @@ public final class GroupBy extends Clause {
     final int pl = post.length;
     for(int p = 0; p < pl; p++) {
       sb.append(LET).append(" (: post-group :) ").append(post[p]);
-      sb.append(' ').append(ASSIGN).append(' ').append(preExpr[p]).append(' ');
+      sb.append(' ').append(ASSIGN).append(' ');
+      sb.append(aggr[p] == null ? preExpr[p] : aggr[p].sig.args(preExpr[p])).append(' ');
     }
     sb.append(GROUP).append(' ').append(BY);
     final int sl = specs.length;
@@ -396,6 +575,441 @@ public final class GroupBy extends Clause {
     }
   }
 
+  /**
+   * Hash table of groups. If the number of groups exceeds {@link MainOptions#GROUPSPLITSIZE},
+   * or if main memory gets exhausted, no new groups will be created. Instead, the tuples of
+   * new groups are written to partitions on disk, which will be grouped later on.
+   * If a tuple cannot be written to disk, all partitions are read back into main memory.
+   * Each group references the position of its first tuple, which is used to return the groups
+   * of all partitions in the order of their first occurrence.
+   *
+   * @author BaseX Team 2005-15, BSD License
+   * @author Christian Gruen
+   */
+  private final class Groups {
+    /** Groups in the order of their creation. */
+    private final ArrayList<Group> list = new ArrayList<>();
+    /** Groups, indexed by the hash values of their keys. */
+    private final IntObjMap<Group> map = new IntObjMap<>();
+    /** Collations of the non-occluded grouping specs. */
+    private final Collation[] colls = new Collation[nonOcc];
+    /** Functions that compute aggregated values ({@code null}: values are collected or
+     * counted). */
+    private final StandardFunc[] funcs;
+    /** Indicates if aggregated values are computed. */
+    private final boolean aggregate;
+    /** Partition level. */
+    private final int level;
+    /** Tuple serializer. */
+    private final TupleIO io;
+    /** Query context. */
+    private final QueryContext qc;
+    /** Maximum number of groups in main memory ({@code 0}: check main memory). */
+    private final int splitSize;
+    /** Buffer for serialized tuples. */
+    private final ArrayOutput buffer = new ArrayOutput();
+    /** Indicates if tuples can be written to disk. */
+    private boolean spill;
+    /** Partition files ({@code null} if tuples are not written to disk). */
+    private IOFile[] files;
+    /** Output streams of the partition files. */
+    private DataOutput[] outs;
+    /** Number of added tuples. */
+    private long added;
+
+    /**
+     * Constructor.
+     * @param level partition level
+     * @param io tuple serializer
+     * @param qc query context
+     */
+    Groups(final int level, final TupleIO io, final QueryContext qc) {
+      this.level = level;
+      this.io = io;
+      this.qc = qc;
+      splitSize = qc.context.options.get(MainOptions.GROUPSPLITSIZE);
+      spill = level < MAXLEVEL;
+
+      int c = 0;
+      for(final Spec spec : specs) {
+        if(!spec.occluded) colls[c++] = spec.coll;
+      }
+      final int al = aggr.length;
+      funcs = new StandardFunc[al];
+      boolean agg = false;
+      for(int a = 0; a < al; a++) {
+        final StandardFunc func = aggr[a];
+        if(func == null) continue;
+        agg = true;
+        final Function kind = kind(func);
+        if(kind != Function.COUNT) {
+          // averages are computed from the sums and counts of the items
+          final Function f = kind == Function.AVG ? Function.SUM : kind;
+          funcs[a] = f.get(func.sc, func.info, Empty.SEQ);
+        }
+      }
+      aggregate = agg;
+    }
+
+    /**
+     * Adds a tuple.
+     * @param key grouping key (entries may be {@code null})
+     * @param vals values of the non-grouping variables
+     * @param pos position of the tuple
+     * @throws QueryException query exception
+     */
+    void add(final Item[] key, final Value[] vals, final long pos) throws QueryException {
+      final int hash = hash(key, colls);
+      Group grp = find(key, hash);
+      if(grp == null && outs != null) {
+        if(write(key, hash, vals, pos)) return;
+        // tuples have been read back into main memory
+        grp = find(key, hash);
+      }
+      if(grp == null) {
+        final int pl = post.length;
+        final ValueBuilder[] ngv = new ValueBuilder[pl];
+        for(int p = 0; p < pl; p++) {
+          if(aggr[p] == null) ngv[p] = new ValueBuilder();
+        }
+        grp = new Group(key, ngv, aggregate ? new Item[pl] : null, aggregate ? new long[pl] : null,
+            pos);
+        list.add(grp);
+
+        // insert the group into the hash table
+        final Group fst = map.get(hash);
+        if(fst == null) {
+          map.put(hash, grp);
+        } else {
+          grp.next = fst.next;
+          fst.next = grp;
+        }
+        if(spill && splitSize > 0 && list.size() >= splitSize) split();
+      }
+      if(spill && splitSize == 0 && outs == null && ++added % CHECK == 0 && TupleIO.full()) {
+        split();
+      }
+
+      // add values of non-grouping variables to the group
+      final int pl = vals.length;
+      for(int p = 0; p < pl; p++) {
+        final Value val = vals[p];
+        if(aggr[p] == null) {
+          grp.ngv[p].add(val);
+        } else if(funcs[p] == null) {
+          grp.count[p] += val.size();
+        } else if(grp.failed != null && grp.failed[p] != null) {
+          grp.failed[p].add(val);
+        } else {
+          try {
+            final Value atoms = val.atomValue(info);
+            final long as = atoms.size();
+            if(as == 0) continue;
+            final Item acc = grp.acc[p];
+            final StandardFunc func = funcs[p];
+            func.exprs[0] = acc == null ? atoms : new ValueBuilder().add(acc).add(atoms).value();
+            grp.acc[p] = func.item(qc, info);
+            grp.count[p] += as;
+          } catch(final QueryException ex) {
+            // collect the remaining values: the aggregate function will raise the error
+            // when (and if) it is evaluated
+            if(grp.failed == null) grp.failed = new ValueBuilder[pl];
+            final ValueBuilder vb = new ValueBuilder();
+            if(grp.acc[p] != null) vb.add(grp.acc[p]);
+            grp.failed[p] = vb.add(val);
+          }
+        }
+      }
+    }
+
+    /**
+     * Finds the group of the specified key.
+     * @param key grouping key
+     * @param hash hash value of the key
+     * @return group, or {@code null}
+     * @throws QueryException query exception
+     */
+    private Group find(final Item[] key, final int hash) throws QueryException {
+      for(Group g = map.get(hash); g != null; g = g.next) {
+        if(eq(key, g.key, colls)) return g;
+      }
+      return null;
+    }
+
+    /**
+     * Starts writing the tuples of new groups to partitions.
+     */
+    private void split() {
+      files = new IOFile[PARTS];
+      outs = new DataOutput[PARTS];
+      spill = false;
+    }
+
+    /**
+     * Writes a tuple to its partition.
+     * @param key grouping key
+     * @param hash hash value of the key
+     * @param vals values of the non-grouping variables
+     * @param pos position of the tuple
+     * @return {@code true} if the tuple was written, {@code false} if all tuples have been read
+     *   back into main memory
+     * @throws QueryException query exception
+     */
+    private boolean write(final Item[] key, final int hash, final Value[] vals, final long pos)
+        throws QueryException {
+      try {
+        buffer.reset();
+        final DataOutput out = new DataOutput(buffer);
+        boolean ok = true;
+        for(final Item it : key) ok = ok && io.write(out, it);
+        out.write8(pos);
+        for(final Value val : vals) ok = ok && io.write(out, val);
+        if(!ok) {
+          // tuple cannot be written to disk: keep all tuples in main memory
+          for(final IOFile file : close()) {
+            if(file != null) read(file);
+          }
+          return false;
+        }
+
+        final int p = hash >>> level * BITS & PARTS - 1;
+        if(outs[p] == null) {
+          files[p] = TempFiles.get(qc).create(info);
+          outs[p] = new DataOutput(files[p]);
+        }
+        outs[p].write(buffer.buffer(), 0, (int) buffer.size());
+        return true;
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Adds the tuples of a partition and deletes its file.
+     * @param file partition file
+     * @throws QueryException query exception
+     */
+    void read(final IOFile file) throws QueryException {
+      final int pl = preExpr.length;
+      try(final DataInput in = new DataInput(file)) {
+        for(int tp; (tp = in.read()) != -1;) {
+          final Item[] key = new Item[nonOcc];
+          key[0] = io.read(in, tp);
+          for(int k = 1; k < nonOcc; k++) key[k] = io.read(in);
+          final long pos = in.read8();
+          final Value[] vals = new Value[pl];
+          for(int p = 0; p < pl; p++) vals[p] = io.value(in);
+          add(key, vals, pos);
+        }
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+      TempFiles.get(qc).delete(file);
+    }
+
+    /**
+     * Returns the groups in main memory, and registers the written partitions.
+     * @param parts list of partitions
+     * @return groups
+     * @throws QueryException query exception
+     */
+    Group[] finish(final ArrayList<Partition> parts) throws QueryException {
+      if(outs != null) {
+        try {
+          for(final IOFile file : close()) {
+            if(file != null) parts.add(new Partition(file, level + 1));
+          }
+        } catch(final IOException ex) {
+          throw IOERR_X.get(info, ex);
+        }
+      }
+      // groups that have been read back from partitions may have been created too late
+      Collections.sort(list, new Comparator<Group>() {
+        @Override
+        public int compare(final Group a, final Group b) {
+          return Long.compare(a.first, b.first);
+        }
+      });
+      // we're finished, copy the array so the list can be garbage-collected
+      return list.toArray(new Group[list.size()]);
+    }
+
+    /**
+     * Closes the output streams of the partitions.
+     * @return partition files (entries may be {@code null})
+     * @throws IOException I/O exception
+     */
+    private IOFile[] close() throws IOException {
+      for(final DataOutput out : outs) {
+        if(out != null) out.close();
+      }
+      final IOFile[] fls = files;
+      files = null;
+      outs = null;
+      return fls;
+    }
+  }
+
+  /**
+   * Partition with tuples that have been written to disk.
+   *
+   * @author BaseX Team 2005-15, BSD License
+   * @author Christian Gruen
+   */
+  private static final class Partition {
+    /** Partition file. */
+    final IOFile file;
+    /** Partition level. */
+    final int level;
+
+    /**
+     * Constructor.
+     * @param file partition file
+     * @param level partition level
+     */
+    Partition(final IOFile file, final int level) {
+      this.file = file;
+      this.level = level;
+    }
+  }
+
+  /**
+   * Run with the groups of a partition, sorted by the positions of their first tuples.
+   * The groups are written to disk if all their values can be stored.
+   *
+   * @author BaseX Team 2005-15, BSD License
+   * @author Christian Gruen
+   */
+  private final class Run {
+    /** Groups in main memory ({@code null} if the groups have been written to disk). */
+    private Group[] groups;
+    /** Number of groups. */
+    private final int size;
+    /** Number of returned groups. */
+    private int pos;
+    /** File ({@code null} if the groups are kept in main memory). */
+    private IOFile file;
+    /** Input stream ({@code null} if the file is not opened yet). */
+    private DataInput in;
+    /** Tuple serializer. */
+    private final TupleIO io;
+    /** Query context. */
+    private final QueryContext qc;
+    /** Current group. */
+    Group group;
+
+    /**
+     * Constructor.
+     * @param groups groups
+     * @param io tuple serializer
+     * @param qc query context
+     * @throws QueryException query exception
+     */
+    Run(final Group[] groups, final TupleIO io, final QueryContext qc) throws QueryException {
+      this.io = io;
+      this.qc = qc;
+      size = groups.length;
+      if(size == 0) return;
+
+      file = TempFiles.get(qc).create(info);
+      boolean ok = true;
+      try(final DataOutput out = new DataOutput(file)) {
+        for(int g = 0; g < size && ok; g++) ok = write(out, groups[g]);
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+      if(!ok) {
+        // groups cannot be written to disk: keep them in main memory
+        TempFiles.get(qc).delete(file);
+        file = null;
+        this.groups = groups;
+      }
+    }
+
+    /**
+     * Moves to the next group.
+     * @return {@code true} if a group was found
+     * @throws QueryException query exception
+     */
+    boolean next() throws QueryException {
+      if(pos == size) return false;
+      if(groups != null) {
+        group = groups[pos];
+        groups[pos++] = null;
+        return true;
+      }
+      try {
+        if(in == null) in = new DataInput(file);
+        group = read(in);
+        if(++pos == size) {
+          in.close();
+          TempFiles.get(qc).delete(file);
+        }
+        return true;
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Writes a group.
+     * @param out output stream
+     * @param grp group
+     * @return {@code true} if the group was written, {@code false} if it cannot be stored
+     * @throws IOException I/O exception
+     * @throws QueryException query exception
+     */
+    private boolean write(final DataOutput out, final Group grp)
+        throws IOException, QueryException {
+      // values that could not be aggregated are not written to disk
+      if(grp.failed != null) return false;
+      out.write8(grp.first);
+      for(final Item it : grp.key) {
+        if(!io.write(out, it)) return false;
+      }
+      final int pl = post.length;
+      for(int p = 0; p < pl; p++) {
+        if(aggr[p] == null) {
+          if(!io.write(out, grp.ngv[p].value())) return false;
+        } else {
+          if(!io.write(out, grp.acc[p])) return false;
+          out.write8(grp.count[p]);
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Reads a group.
+     * @param input input stream
+     * @return group
+     * @throws IOException I/O exception
+     * @throws QueryException query exception
+     */
+    private Group read(final DataInput input) throws IOException, QueryException {
+      final long first = input.read8();
+      final Item[] key = new Item[nonOcc];
+      for(int k = 0; k < nonOcc; k++) key[k] = io.read(input);
+      final int pl = post.length;
+      final ValueBuilder[] ngv = new ValueBuilder[pl];
+      Item[] acc = null;
+      long[] count = null;
+      for(int p = 0; p < pl; p++) {
+        if(aggr[p] == null) {
+          ngv[p] = new ValueBuilder().add(io.value(input));
+        } else {
+          if(acc == null) {
+            acc = new Item[pl];
+            count = new long[pl];
+          }
+          acc[p] = io.read(input);
+          count[p] = input.read8();
+        }
+      }
+      return new Group(key, ngv, acc, count, first);
+    }
+  }
+
   /**
    * A group of tuples of post-grouping variables.
    *
@@ -405,8 +1019,16 @@ public final class GroupBy extends Clause {
   private static final class Group {
     /** Grouping key, may contain {@code null} values. */
     final Item[] key;
-    /** Non-grouping variables. */
+    /** Non-grouping variables ({@code null} entries: values are aggregated). */
     final ValueBuilder[] ngv;
+    /** Aggregated values ({@code null} if no values are aggregated). */
+    final Item[] acc;
+    /** Number of aggregated items ({@code null} if no values are aggregated). */
+    final long[] count;
+    /** Position of the first tuple of the group. */
+    final long first;
+    /** Values that could not be aggregated ({@code null} if no error occurred). */
+    ValueBuilder[] failed;
     /** Overflow list. */
     Group next;
 
@@ -414,10 +1036,17 @@ public final class GroupBy extends Clause {
      * Constructor.
      * @param k grouping key
      * @param ng non-grouping variables
+     * @param ac aggregated values
+     * @param cn number of aggregated items
+     * @param fs position of the first tuple
      */
-    Group(final Item[] k, final ValueBuilder[] ng) {
+    Group(final Item[] k, final ValueBuilder[] ng, final Item[] ac, final long[] cn,
+        final long fs) {
       key = k;
       ngv = ng;
+      acc = ac;
+      count = cn;
+      first = fs;
     }
   }
 }
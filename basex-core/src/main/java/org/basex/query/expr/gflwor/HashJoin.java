@@ -0,0 +1,397 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryText.*;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.GFLWOR.Clause;
+import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.util.*;
+import org.basex.query.util.hash.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * FLWOR {@code for} clause with a subsequent {@code where} clause, which is evaluated as
+ * hash join: {@code for $c in E where K1 = K2($c)}.
+ *
+ * The bound expression {@code E} does not depend on the preceding clauses. It is evaluated
+ * once, and its items are indexed by the atomized values of the comparison operand that
+ * references the bound variable ({@code K2}). For each incoming tuple, the values of the other
+ * operand ({@code K1}) are looked up, and the predicate is evaluated for the found items only.
+ * Items whose keys cannot be hashed are always evaluated. If a looked up value may not be
+ * comparable with all indexed items (e.g., a number and a string), the predicate is evaluated
+ * for all items, and type errors will be raised as usual.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class HashJoin extends Clause {
+  /** Item variable. */
+  final Var var;
+  /** Bound expression. */
+  Expr expr;
+  /** Join predicate. */
+  Expr pred;
+  /** Index of the comparison operand that references the variable ({@code -1}: no hashing). */
+  private int build = -1;
+  /** Indicates if the predicate is a general comparison. */
+  private boolean general;
+
+  /**
+   * Constructor.
+   * @param var item variable
+   * @param expr bound expression
+   * @param pred join predicate
+   * @param info input info
+   */
+  HashJoin(final Var var, final Expr expr, final Expr pred, final InputInfo info) {
+    super(info, var);
+    this.var = var;
+    this.expr = expr;
+    this.pred = pred;
+  }
+
+  /**
+   * Returns the index of the comparison operand that can be used for building the hash table.
+   * @param pred predicate
+   * @param var bound variable
+   * @return index of operand, or {@code -1}
+   */
+  static int build(final Expr pred, final Var var) {
+    if(!(pred instanceof Cmp) || !((Cmp) pred).equality()) return -1;
+    final Expr[] ops = ((Cmp) pred).exprs;
+    for(int o = 0; o < 2; o++) {
+      final Expr op = ops[o];
+      if(op.uses(var) && !ops[o ^ 1].uses(var) && !op.has(Flag.NDT) && !op.has(Flag.CNS))
+        return o;
+    }
+    return -1;
+  }
+
+  @Override
+  Eval eval(final Eval sub) {
+    return new Eval() {
+      /** Items of the bound expression ({@code null} if not evaluated yet). */
+      private Value value;
+      /** Hashed keys. */
+      private HashItemSet keys;
+      /** Positions of the items, indexed by the ids of the keys. */
+      private ArrayList<IntList> lists;
+      /** Positions of the items with keys that cannot be hashed. */
+      private IntList rest;
+      /** Indicates if numeric keys have been indexed. */
+      private boolean nums;
+      /** Indicates if string keys have been indexed. */
+      private boolean strs;
+      /** Indicates if untyped keys have been indexed. */
+      private boolean untyped;
+      /** Indicates if untyped keys have been indexed that cannot be converted to numbers. */
+      private boolean unparsed;
+      /** Positions of all items (only assigned if required). */
+      private IntList all;
+      /** Positions of the items to be checked for the current tuple. */
+      private IntList cands;
+      /** Current position in the candidate list. */
+      private int c;
+
+      @Override
+      public boolean next(final QueryContext qc) throws QueryException {
+        while(true) {
+          if(cands != null) {
+            while(c < cands.size()) {
+              qc.set(var, value.itemAt(cands.get(c++)), info);
+              if(pred.ebv(qc, info).bool(info)) return true;
+            }
+          }
+          if(!sub.next(qc)) return false;
+          if(value == null) index(qc);
+          cands = candidates(qc);
+          c = 0;
+        }
+      }
+
+      /**
+       * Evaluates the bound expression and indexes its items.
+       * @param qc query context
+       * @throws QueryException query exception
+       */
+      private void index(final QueryContext qc) throws QueryException {
+        value = qc.value(expr);
+        rest = new IntList();
+        if(build == -1) return;
+
+        keys = new HashItemSet();
+        lists = new ArrayList<>();
+        lists.add(null);
+        final Expr op = ((Cmp) pred).exprs[build];
+        final int vs = (int) value.size();
+        for(int p = 0; p < vs; p++) {
+          qc.set(var, value.itemAt(p), info);
+          final Value v = op.atomValue(qc, info);
+          // value comparisons with multiple items will raise an error
+          if(!general && v.size() > 1) {
+            addPos(rest, p);
+            continue;
+          }
+          for(final Item it : v) {
+            final Item key = key(it);
+            if(key == null) {
+              addPos(rest, p);
+            } else {
+              add(key, p);
+              final Type type = it.type;
+              if(type.isNumber()) {
+                nums = true;
+              } else if(type.isUntyped()) {
+                untyped = true;
+                final Item num = num(it);
+                if(num != null) add(num, p);
+                else unparsed = true;
+              } else {
+                strs = true;
+              }
+            }
+          }
+        }
+      }
+
+      /**
+       * Adds a position for the specified key.
+       * @param key key
+       * @param p position
+       * @throws QueryException query exception
+       */
+      private void add(final Item key, final int p) throws QueryException {
+        final int id = keys.put(key, info);
+        if(id == lists.size()) lists.add(new IntList(1));
+        addPos(lists.get(id), p);
+      }
+
+      /**
+       * Returns the positions of the items that may match the current tuple.
+       * @param qc query context
+       * @return positions
+       * @throws QueryException query exception
+       */
+      private IntList candidates(final QueryContext qc) throws QueryException {
+        if(build == -1) return all();
+
+        // collect positions of all keys
+        final ArrayList<IntList> found = new ArrayList<>(1);
+        if(!rest.isEmpty()) found.add(rest);
+        final Value v = ((Cmp) pred).exprs[build ^ 1].atomValue(qc, info);
+        if(!general && v.size() > 1) return all();
+        for(final Item it : v) {
+          final Item key = key(it);
+          if(key == null || !comparable(it)) return all();
+          find(key, found);
+          final Item num = num(it);
+          if(num != null) find(num, found);
+        }
+        if(found.size() == 1) return found.get(0);
+
+        // merge positions, preserve the order of the bound items
+        final IntList il = new IntList();
+        for(final IntList list : found) {
+          final int ls = list.size();
+          for(int l = 0; l < ls; l++) il.add(list.get(l));
+        }
+        return il.isEmpty() ? il : il.sort().distinct();
+      }
+
+      /**
+       * Checks if the specified item can be compared with all indexed items without errors.
+       * @param it atomized item
+       * @return result of check
+       * @throws QueryException query exception
+       */
+      private boolean comparable(final Item it) throws QueryException {
+        final Type type = it.type;
+        // general comparisons: untyped items are compared as numbers if the other item is numeric
+        if(type.isNumber()) return !strs && !(untyped && (!general || unparsed));
+        if(type.isUntyped()) return !nums || general && num(it) != null;
+        return !nums;
+      }
+
+      /**
+       * Adds the positions of the specified key to the list.
+       * @param key key
+       * @param found list of positions
+       * @throws QueryException query exception
+       */
+      private void find(final Item key, final ArrayList<IntList> found) throws QueryException {
+        final int id = -keys.id(key, info);
+        if(id > 0) {
+          final IntList list = lists.get(id);
+          if(!found.contains(list)) found.add(list);
+        }
+      }
+
+      /**
+       * Returns the positions of all items.
+       * @return positions
+       */
+      private IntList all() {
+        if(all == null) {
+          final int vs = (int) value.size();
+          all = new IntList(Math.max(1, vs));
+          for(int p = 0; p < vs; p++) all.add(p);
+        }
+        return all;
+      }
+    };
+  }
+
+  /**
+   * Adds a position to a list if it has not been added before.
+   * @param list list
+   * @param p position
+   */
+  private static void addPos(final IntList list, final int p) {
+    if(list.isEmpty() || list.peek() != p) list.add(p);
+  }
+
+  /**
+   * Returns the hash key of an atomized item. Items that are equal according to general and
+   * value comparisons will have at least one common key (untyped items may also be compared as
+   * numbers, see {@link #num(Item)}).
+   * @param it item
+   * @return key, or {@code null} if the item cannot be hashed
+   * @throws QueryException query exception
+   */
+  private Item key(final Item it) throws QueryException {
+    final Type type = it.type;
+    if(type.isNumber()) return num(it.dbl(info));
+    if(type.isStringOrUntyped()) return Str.get(it.string(info));
+    return null;
+  }
+
+  /**
+   * Returns a numeric key for an untyped item.
+   * @param it item
+   * @return key, or {@code null} if the item is not untyped or cannot be converted to a number
+   * @throws QueryException query exception
+   */
+  private Item num(final Item it) throws QueryException {
+    if(!it.type.isUntyped()) return null;
+    try {
+      return num(Dbl.parse(it.string(info), info));
+    } catch(final QueryException ex) {
+      Util.debug(ex);
+      return null;
+    }
+  }
+
+  /**
+   * Returns a numeric key.
+   * @param d double value
+   * @return key
+   */
+  private static Item num(final double d) {
+    // positive and negative zero are equal
+    return Dbl.get(d == 0 ? 0 : d);
+  }
+
+  @Override
+  public HashJoin compile(final QueryContext qc, final VarScope scp) throws QueryException {
+    expr = expr.compile(qc, scp);
+    pred = pred.compile(qc, scp).optimizeEbv(qc, scp);
+    return optimize(qc, scp);
+  }
+
+  @Override
+  public HashJoin optimize(final QueryContext qc, final VarScope scp) throws QueryException {
+    seqType = SeqType.get(expr.seqType().type, SeqType.Occ.ONE);
+    var.refineType(seqType, qc, info);
+    size = 1;
+    var.size = size;
+    var.data = expr.data();
+    if(pred.isValue()) pred = pred.ebv(qc, info);
+    build = build(pred, var);
+    general = pred instanceof CmpG;
+    return this;
+  }
+
+  @Override
+  public Clause inline(final QueryContext qc, final VarScope scp, final Var v, final Expr ex)
+      throws QueryException {
+    final Expr e = expr.inline(qc, scp, v, ex), p = pred.inline(qc, scp, v, ex);
+    if(e == null && p == null) return null;
+    if(e != null) expr = e;
+    if(p != null) pred = p;
+    return optimize(qc, scp);
+  }
+
+  @Override
+  public HashJoin copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
+    final Var v = scp.newCopyOf(qc, var);
+    vs.put(var.id, v);
+    return new HashJoin(v, expr.copy(qc, scp, vs), pred.copy(qc, scp, vs), info);
+  }
+
+  @Override
+  public boolean has(final Flag flag) {
+    return expr.has(flag) || pred.has(flag);
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return expr.removable(v) && pred.removable(v);
+  }
+
+  @Override
+  public VarUsage count(final Var v) {
+    // the predicate may be evaluated for each item of the bound expression
+    return expr.count(v).plus(pred.count(v).times(expr.size()));
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return expr.accept(visitor) && visitor.declared(var) && pred.accept(visitor);
+  }
+
+  @Override
+  public void checkUp() throws QueryException {
+    checkNoUp(expr);
+    checkNoUp(pred);
+  }
+
+  @Override
+  void calcSize(final long[] minMax) {
+    final long sz = expr.size();
+    minMax[0] = 0;
+    final long max = minMax[1];
+    minMax[1] = sz < 0 ? -1 : max > 0 ? max * sz : max;
+  }
+
+  @Override
+  public int exprSize() {
+    return expr.exprSize() + pred.exprSize();
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    final FElem e = planElem();
+    var.plan(e);
+    expr.plan(e);
+    final FElem e2 = new FElem(WHERE);
+    pred.plan(e2);
+    e.add(e2);
+    plan.add(e);
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(FOR).append(' ').append(var).append(' ').append(IN).append(' ').
+        append(expr).append(' ').append(WHERE).append(' ').append(pred).toString();
+  }
+}
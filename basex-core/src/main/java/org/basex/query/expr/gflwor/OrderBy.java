@@ -1,11 +1,7 @@
 package org.basex.query.expr.gflwor;
 
-import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
-import java.util.*;
-import java.util.List;
-
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.GFLWOR.Clause;
@@ -45,21 +41,25 @@ public final class OrderBy extends Clause {
 
   @Override
   Eval eval(final Eval sub) {
+    return eval(sub, Long.MAX_VALUE);
+  }
+
+  /**
+   * Returns an evaluator for this clause, which returns the specified maximum number of tuples.
+   * @param sub wrapped evaluator
+   * @param max maximum number of tuples to return
+   * @return evaluator
+   */
+  Eval eval(final Eval sub, final long max) {
     return new Eval() {
-      /** Sorted output tuples. */
-      private Value[][] tpls;
-      /** Permutation of the values. */
-      private Integer[] perm;
-      /** Current position. */
-      int pos;
+      /** Sorted tuples ({@code null} if not sorted yet). */
+      private TupleSort tuples;
+
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
-        if(tpls == null) sort(qc);
-        if(pos == tpls.length) return false;
-        final int p = perm[pos++];
-        final Value[] tuple = tpls[p];
-        // free the space occupied by the tuple
-        tpls[p] = null;
+        if(tuples == null) sort(qc);
+        final Value[] tuple = tuples.next();
+        if(tuple == null) return false;
         final int rl = refs.length;
         for(int r = 0; r < rl; r++) qc.set(refs[r].var, tuple[r], info);
         return true;
@@ -71,59 +71,14 @@ public final class OrderBy extends Clause {
        * @throws QueryException evaluation exception
        */
       private void sort(final QueryContext qc) throws QueryException {
-        // keys are stored at odd positions, values at even ones
-        List<Value[]> tuples = new ArrayList<>();
+        final int kl = keys.length, rl = refs.length;
+        tuples = new TupleSort(keys, rl, max, qc, info);
         while(sub.next(qc)) {
-          final int kl = keys.length;
           final Item[] key = new Item[kl];
           for(int k = 0; k < kl; k++) key[k] = keys[k].expr.atomItem(qc, keys[k].info);
-          tuples.add(key);
-
-          final int rl = refs.length;
           final Value[] vals = new Value[rl];
           for(int r = 0; r < rl; r++) vals[r] = refs[r].value(qc);
-          tuples.add(vals);
-        }
-
-        final int len = tuples.size() >>> 1;
-        final Item[][] ks = new Item[len][];
-        perm = new Integer[len];
-        tpls = new Value[len][];
-        for(int i = 0; i < len; i++) {
-          perm[i] = i;
-          tpls[i] = tuples.get(i << 1 | 1);
-          ks[i] = (Item[]) tuples.get(i << 1);
-        }
-        // be nice to the garbage collector
-        tuples = null;
-        try {
-          Arrays.sort(perm, new Comparator<Integer>() {
-            @Override
-            public int compare(final Integer x, final Integer y) {
-              try {
-                final Item[] a = ks[x], b = ks[y];
-                final int kl = keys.length;
-                for(int k = 0; k < kl; k++) {
-                  final Key or = keys[k];
-                  Item m = a[k], n = b[k];
-                  if(m == Dbl.NAN || m == Flt.NAN) m = null;
-                  if(n == Dbl.NAN || n == Flt.NAN) n = null;
-                  if(m != null && n != null && !m.comparable(n))
-                    throw castError(or.info, n, m.type);
-
-                  final int c = m == null
-                      ? n == null ? 0                 : or.least ? -1 : 1
-                      : n == null ? or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
-                  if(c != 0) return or.desc ? -c : c;
-                }
-                return 0;
-              } catch(final QueryException ex) {
-                throw new QueryRTException(ex);
-              }
-            }
-          });
-        } catch(final QueryRTException ex) {
-          throw ex.getCause();
+          tuples.add(key, vals);
         }
       }
     };
@@ -239,11 +194,11 @@ public final class OrderBy extends Clause {
    */
   public static final class Key extends Single {
     /** Descending order flag. */
-    private final boolean desc;
+    final boolean desc;
     /** Position of empty sort keys. */
-    private final boolean least;
+    final boolean least;
     /** Collation. */
-    private final Collation coll;
+    final Collation coll;
 
     /**
      * Constructor.
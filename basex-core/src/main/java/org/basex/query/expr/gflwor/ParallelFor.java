@@ -0,0 +1,263 @@
+package org.basex.query.expr.gflwor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.Expr.Flag;
+import org.basex.query.expr.gflwor.GFLWOR.Clause;
+import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+
+/**
+ * Parallel evaluation of a FLWOR expression. The items bound by the first {@code for} clause
+ * are split into chunks, which are evaluated by the threads of a shared fork/join pool.
+ * The results of the chunks are returned lazily and in their original order: the number of
+ * chunks that are evaluated in advance is limited by the number of threads, and chunk sizes
+ * grow with each chunk.
+ *
+ * Parallel evaluation is only applied if all clauses can be evaluated independently for each
+ * item of the first clause, and if no expression constructs nodes, resolves namespaces,
+ * calls user-defined or higher-order functions, or accesses other state that is shared by the
+ * threads.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class ParallelFor {
+  /** Maximum number of items per chunk. */
+  private static final int CHUNK = 1 << 8;
+  /** Visitor that rejects expressions that cannot be evaluated in parallel. */
+  private static final ASTVisitor SAFE = new ASTVisitor() {
+    @Override
+    public boolean staticVar(final StaticVar var) {
+      return false;
+    }
+    @Override
+    public boolean inlineFunc(final Scope sub) {
+      return false;
+    }
+    @Override
+    public boolean staticFuncCall(final StaticFuncCall call) {
+      return false;
+    }
+    @Override
+    public boolean funcCall(final StandardFunc func) {
+      return func.sig.parallel();
+    }
+    @Override
+    public boolean dynFuncCall(final DynFuncCall call) {
+      return false;
+    }
+    @Override
+    public boolean funcItem(final FuncItem func) {
+      return false;
+    }
+    @Override
+    public boolean sequential(final Expr expr) {
+      return false;
+    }
+  };
+  /** Shared fork/join pool (created on demand). */
+  private static ForkJoinPool pool;
+
+  /** Clauses. */
+  private final LinkedList<Clause> clauses;
+  /** Return expression. */
+  private final Expr ret;
+  /** First for clause. */
+  private final For first;
+
+  /**
+   * Constructor.
+   * @param clauses clauses (the first clause must be a {@code for} clause)
+   * @param ret return expression
+   */
+  private ParallelFor(final LinkedList<Clause> clauses, final Expr ret) {
+    this.clauses = clauses;
+    this.ret = ret;
+    first = (For) clauses.getFirst();
+  }
+
+  /**
+   * Returns an instance for parallel evaluation, or {@code null} if the specified
+   * FLWOR expression cannot be evaluated in parallel.
+   * @param clauses clauses
+   * @param ret return expression
+   * @return instance or {@code null}
+   */
+  static ParallelFor get(final LinkedList<Clause> clauses, final Expr ret) {
+    final Clause fst = clauses.getFirst();
+    if(!(fst instanceof For)) return null;
+    final For fr = (For) fst;
+    if(fr.empty || fr.scoring || fr.score != null) return null;
+    for(final Clause cl : clauses) {
+      if(!(cl instanceof ForLet || cl instanceof Where || cl instanceof HashJoin) ||
+          cl instanceof ForLet && ((ForLet) cl).scoring || !safe(cl)) return null;
+    }
+    return safe(ret) ? new ParallelFor(clauses, ret) : null;
+  }
+
+  /**
+   * Checks if the specified expression can be evaluated by multiple threads in parallel.
+   * @param expr expression
+   * @return result of check
+   */
+  private static boolean safe(final Expr expr) {
+    return !expr.has(Flag.CNS) && !expr.has(Flag.UPD) && !expr.has(Flag.NDT) &&
+        !expr.has(Flag.HOF) && expr.accept(SAFE);
+  }
+
+  /**
+   * Returns the shared fork/join pool.
+   * @return pool
+   */
+  private static synchronized ForkJoinPool pool() {
+    if(pool == null) pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    return pool;
+  }
+
+  /**
+   * Returns an iterator for the results.
+   * @param qc query context
+   * @param threads maximum number of chunks that are evaluated in parallel
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  Iter iter(final QueryContext qc, final int threads) throws QueryException {
+    // assign date and time before the context is copied
+    qc.initDateTime();
+    final Iter input = qc.iter(first.expr);
+
+    return new Iter() {
+      /** Chunks that are currently evaluated. */
+      private final ArrayDeque<Future<Value>> pending = new ArrayDeque<>(threads);
+      /** Results of the current chunk. */
+      private Iter results;
+      /** Number of items that have been assigned to chunks. */
+      private long pos;
+      /** Size of the next chunk. */
+      private int size = 1;
+      /** Indicates if all input items have been assigned to chunks. */
+      private boolean done;
+
+      @Override
+      public Item next() throws QueryException {
+        while(true) {
+          if(results != null) {
+            final Item it = results.next();
+            if(it != null) return it;
+            results = null;
+          }
+          submit();
+          final Future<Value> future = pending.poll();
+          if(future == null) return null;
+          results = result(future).iter();
+        }
+      }
+
+      /**
+       * Assigns input items to new chunks until the maximum number of chunks is reached.
+       * @throws QueryException query exception
+       */
+      private void submit() throws QueryException {
+        while(!done && pending.size() < threads) {
+          final ValueBuilder vb = new ValueBuilder();
+          for(Item it; vb.size() < size && (it = input.next()) != null;) vb.add(it);
+          final Value value = vb.value();
+          final long n = value.size();
+          if(n < size) done = true;
+          if(n == 0) break;
+
+          final long start = pos;
+          final QueryContext wqc = qc.fork();
+          pending.add(pool().submit(new Callable<Value>() {
+            @Override
+            public Value call() throws QueryException {
+              return chunk(value, start, wqc, qc);
+            }
+          }));
+          pos += n;
+          size = Math.min(size << 1, CHUNK);
+        }
+      }
+
+      /**
+       * Returns the result of a chunk.
+       * @param future future
+       * @return resulting value
+       * @throws QueryException query exception
+       */
+      private Value result(final Future<Value> future) throws QueryException {
+        try {
+          return future.get();
+        } catch(final InterruptedException ex) {
+          cancel();
+          Thread.currentThread().interrupt();
+          throw Util.notExpected(ex);
+        } catch(final ExecutionException ex) {
+          cancel();
+          // checked exceptions may be wrapped by the pool
+          final Throwable th = ex.getCause();
+          for(Throwable t = th; t != null; t = t.getCause()) {
+            if(t instanceof QueryException) throw (QueryException) t;
+          }
+          if(th instanceof RuntimeException) throw (RuntimeException) th;
+          if(th instanceof Error) throw (Error) th;
+          throw Util.notExpected(th);
+        }
+      }
+
+      /**
+       * Cancels all chunks that are currently evaluated.
+       */
+      private void cancel() {
+        for(final Future<Value> future : pending) future.cancel(true);
+        pending.clear();
+        done = true;
+      }
+    };
+  }
+
+  /**
+   * Evaluates a chunk of items.
+   * @param value items of the chunk
+   * @param start position of the first item in the sequence bound by the first clause
+   * @param qc query context of the worker thread
+   * @param parent query context of the calling thread
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  private Value chunk(final Value value, final long start, final QueryContext qc,
+      final QueryContext parent) throws QueryException {
+
+    Eval ev = new Eval() {
+      /** Current position. */
+      private int p;
+      @Override
+      public boolean next(final QueryContext q) throws QueryException {
+        if(p == value.size()) return false;
+        q.set(first.var, value.itemAt(p++), first.info);
+        if(first.pos != null) q.set(first.pos, Int.get(start + p), first.info);
+        return true;
+      }
+    };
+    final Iterator<Clause> cls = clauses.iterator();
+    for(cls.next(); cls.hasNext();) ev = cls.next().eval(ev);
+
+    final ValueBuilder vb = new ValueBuilder();
+    while(ev.next(qc)) {
+      parent.checkStop();
+      final Iter iter = qc.iter(ret);
+      for(Item it; (it = iter.next()) != null;) vb.add(it);
+    }
+    return vb.value();
+  }
+}
@@ -0,0 +1,278 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Writes and reads the items of tuples that are temporarily stored on disk.
+ *
+ * Only items that can be restored exactly are stored: database nodes without scores and
+ * full-text matches, and atomic items of types with a lossless string representation.
+ * Database nodes are represented by their pre values and a reference to their database,
+ * which is kept in main memory.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class TupleIO {
+  /** Item type: empty sequence. */
+  private static final int EMPTY = 0;
+  /** Item type: database node. */
+  private static final int NODE = 1;
+  /** Item type: integer. */
+  private static final int INT = 2;
+  /** Item type: double. */
+  private static final int DBL = 3;
+  /** Item type: string. */
+  private static final int STR = 4;
+  /** Item type: untyped atomic. */
+  private static final int ATM = 5;
+  /** Item type: boolean. */
+  private static final int BLN = 6;
+  /** Item type: other atomic item, which will be cast from its string representation. */
+  private static final int ATOM = 7;
+
+  /** Heap memory pools that hold long-living objects. */
+  private static final ArrayList<MemoryPoolMXBean> POOLS = new ArrayList<>();
+
+  static {
+    // only the tenured pools support usage thresholds
+    for(final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if(pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() &&
+          pool.isCollectionUsageThresholdSupported()) POOLS.add(pool);
+    }
+  }
+
+  /** Databases of the written nodes. */
+  private final ArrayList<Data> datas = new ArrayList<>();
+  /** Query context. */
+  private final QueryContext qc;
+  /** Input info. */
+  private final InputInfo info;
+
+  /**
+   * Constructor.
+   * @param qc query context
+   * @param info input info
+   */
+  TupleIO(final QueryContext qc, final InputInfo info) {
+    this.qc = qc;
+    this.info = info;
+  }
+
+  /**
+   * Checks if main memory is exhausted, and if tuples should be written to disk.
+   * The check is based on the memory that was still in use after the last garbage collection.
+   * The currently used memory, which includes garbage, is only considered if it comes close
+   * to the maximum.
+   * @return result of check
+   */
+  static boolean full() {
+    for(final MemoryPoolMXBean pool : POOLS) {
+      final MemoryUsage usage = pool.getCollectionUsage();
+      final long max = pool.getUsage().getMax();
+      if(usage != null && max > 0 && usage.getUsed() >= max * 0.8) return true;
+    }
+    return Performance.memory() >= Runtime.getRuntime().maxMemory() * 0.95;
+  }
+
+  /**
+   * Writes a value.
+   * @param out output stream
+   * @param val value
+   * @return {@code true} if the value was written, {@code false} if it cannot be stored
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  boolean write(final DataOutput out, final Value val) throws IOException, QueryException {
+    final long vs = val.size();
+    if(vs > Integer.MAX_VALUE) return false;
+    out.writeNum((int) vs);
+    for(final Item it : val) {
+      if(!write(out, it)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Writes an item.
+   * @param out output stream
+   * @param it item (can be {@code null})
+   * @return {@code true} if the item was written, {@code false} if it cannot be stored
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  boolean write(final DataOutput out, final Item it) throws IOException, QueryException {
+    if(it == null) {
+      out.write1(EMPTY);
+    } else if(it.score() != 0 || it instanceof FTNode) {
+      // scores and full-text matches would get lost
+      return false;
+    } else if(it instanceof DBNode) {
+      final DBNode node = (DBNode) it;
+      int d = datas.indexOf(node.data);
+      if(d == -1) {
+        d = datas.size();
+        datas.add(node.data);
+      }
+      out.write1(NODE);
+      out.writeNum(d);
+      out.writeNum(node.pre);
+    } else if(it instanceof Int) {
+      out.write1(INT);
+      out.writeNum(((AtomType) it.type).ordinal());
+      out.write8(((Int) it).itr());
+    } else if(it instanceof Dbl) {
+      out.write1(DBL);
+      out.write8(Double.doubleToRawLongBits(it.dbl(info)));
+    } else if(it.type == AtomType.STR) {
+      out.write1(STR);
+      out.writeToken(it.string(info));
+    } else if(it.type == AtomType.ATM) {
+      out.write1(ATM);
+      out.writeToken(it.string(info));
+    } else if(it instanceof Bln) {
+      out.write1(BLN);
+      out.writeBool(it.bool(info));
+    } else if(it instanceof Str || it instanceof Uri || it instanceof Dec ||
+        it instanceof ADate || it instanceof Dur) {
+      out.write1(ATOM);
+      out.writeNum(((AtomType) it.type).ordinal());
+      out.writeToken(it.string(info));
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Reads a value.
+   * @param in input stream
+   * @return value
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  Value value(final DataInput in) throws IOException, QueryException {
+    final int n = in.readNum();
+    final ValueBuilder vb = new ValueBuilder(Math.max(1, n));
+    for(int i = 0; i < n; i++) vb.add(read(in));
+    return vb.value();
+  }
+
+  /**
+   * Reads an item.
+   * @param in input stream
+   * @return item (can be {@code null})
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  Item read(final DataInput in) throws IOException, QueryException {
+    return read(in, in.read());
+  }
+
+  /**
+   * Reads an item.
+   * @param in input stream
+   * @param tp item type
+   * @return item (can be {@code null})
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  Item read(final DataInput in, final int tp) throws IOException, QueryException {
+    switch(tp) {
+      case NODE:
+        final Data data = datas.get(in.readNum());
+        return new DBNode(data, in.readNum());
+      case INT:
+        final AtomType type = AtomType.values()[in.readNum()];
+        return Int.get(in.read8(), type);
+      case DBL:
+        return Dbl.get(Double.longBitsToDouble(in.read8()));
+      case STR:
+        return Str.get(in.readToken());
+      case ATM:
+        return new Atm(in.readToken());
+      case BLN:
+        return Bln.get(in.readBool());
+      case ATOM:
+        final AtomType at = AtomType.values()[in.readNum()];
+        return at.cast(Str.get(in.readToken()), qc, null, info);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Temporary files of a query, which will be deleted when the query is closed.
+   *
+   * @author BaseX Team 2005-15, BSD License
+   * @author Christian Gruen
+   */
+  static final class TempFiles implements QueryResource {
+    /** Files. */
+    private final ArrayList<IOFile> files = new ArrayList<>();
+
+    /**
+     * Returns the temporary files of the specified query.
+     * @param qc query context
+     * @return temporary files
+     */
+    static TempFiles get(final QueryContext qc) {
+      final QueryResources res = qc.resources;
+      synchronized(res) {
+        TempFiles tf = res.get(TempFiles.class);
+        if(tf == null) {
+          tf = new TempFiles();
+          res.add(tf);
+        }
+        return tf;
+      }
+    }
+
+    /**
+     * Creates a new temporary file.
+     * @param info input info
+     * @return file
+     * @throws QueryException query exception
+     */
+    synchronized IOFile create(final InputInfo info) throws QueryException {
+      try {
+        final IOFile file = new IOFile(File.createTempFile(Prop.NAME + "-tuples", ".tmp"));
+        files.add(file);
+        return file;
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Deletes a temporary file.
+     * @param file file
+     */
+    synchronized void delete(final IOFile file) {
+      file.delete();
+      files.remove(file);
+    }
+
+    @Override
+    public synchronized void close() {
+      for(final IOFile file : files) file.delete();
+      files.clear();
+    }
+  }
+}
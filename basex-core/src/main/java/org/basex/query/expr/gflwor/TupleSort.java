@@ -0,0 +1,596 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.expr.gflwor.OrderBy.Key;
+import org.basex.query.expr.gflwor.TupleIO.TempFiles;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * Sorts the tuples of an {@code order by} clause.
+ *
+ * Tuples are cached in main memory. Before they are sorted, the sort keys of each column are
+ * extracted to primitive arrays if they all have the same type, and the tuples are sorted via
+ * a permutation array. If the number of cached tuples exceeds {@link MainOptions#SORTSPLITSIZE},
+ * or if main memory gets exhausted, the cached tuples are sorted and written to a temporary
+ * file. The resulting runs are merged when the tuples are returned.
+ *
+ * Tuples can only be written to disk if they consist of database nodes and atomic items.
+ * Otherwise, all tuples will be kept in main memory.
+ *
+ * If only the first tuples will be requested, a bounded heap is used to select the tuples with
+ * the smallest keys, and all other tuples are discarded.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class TupleSort {
+  /** Maximum number of runs to be merged at the same time. */
+  private static final int MAXRUNS = 64;
+  /** Number of tuples after which the memory consumption is checked. */
+  private static final int CHECK = 1 << 12;
+  /** Maximum number of tuples that will be selected with a bounded heap. */
+  private static final int MAXTOPK = 1 << 16;
+
+  /** Column type: generic items. */
+  private static final int ITEMS = 0;
+  /** Column type: integers. */
+  private static final int LONGS = 1;
+  /** Column type: doubles. */
+  private static final int DOUBLES = 2;
+  /** Column type: strings. */
+  private static final int TOKENS = 3;
+
+  /** Sort keys. */
+  private final Key[] keys;
+  /** Number of values per tuple. */
+  private final int width;
+  /** Query context. */
+  private final QueryContext qc;
+  /** Input info. */
+  private final InputInfo info;
+  /** Maximum number of tuples to keep in main memory ({@code 0}: check main memory). */
+  private final int splitSize;
+
+  /** Sort keys of the cached tuples. */
+  private Item[][] ks = new Item[Array.CAPACITY][];
+  /** Values of the cached tuples. */
+  private Value[][] vs = new Value[Array.CAPACITY][];
+  /** Number of cached tuples. */
+  private int size;
+  /** Indicates if tuples can be written to disk. */
+  private boolean spill = true;
+
+  /** Runs that have been written to disk. */
+  private final ArrayList<IOFile> runs = new ArrayList<>();
+  /** Serializer for written tuples. */
+  private final TupleIO io;
+
+  /** Permutation of the cached tuples (assigned after sorting). */
+  private int[] perm;
+  /** Current position in the permutation. */
+  private int pos;
+  /** Merged sources ({@code null} if all tuples are kept in main memory). */
+  private MinHeap<Source, Source> heap;
+
+  /** Maximum number of tuples to select ({@code 0}: no limit). */
+  private final int topK;
+  /** Selected tuples, largest key first ({@code null} if there is no limit). */
+  private MinHeap<Tuple, Tuple> top;
+  /** Number of added tuples. */
+  private long added;
+
+  /**
+   * Constructor.
+   * @param keys sort keys
+   * @param width number of values per tuple
+   * @param max maximum number of tuples that will be requested
+   * @param qc query context
+   * @param info input info
+   */
+  TupleSort(final Key[] keys, final int width, final long max, final QueryContext qc,
+      final InputInfo info) {
+    this.keys = keys;
+    this.width = width;
+    this.qc = qc;
+    this.info = info;
+    io = new TupleIO(qc, info);
+    splitSize = qc.context.options.get(MainOptions.SORTSPLITSIZE);
+    topK = max <= MAXTOPK ? (int) Math.max(1, max) : 0;
+    if(topK > 0) {
+      top = new MinHeap<>(Math.min(topK + 1, Array.CAPACITY), new Comparator<Tuple>() {
+        @Override
+        public int compare(final Tuple a, final Tuple b) {
+          try {
+            // the largest keys come first; tuples added later are larger
+            final int c = diff(a.key, b.key);
+            return c != 0 ? -c : a.id < b.id ? 1 : a.id > b.id ? -1 : 0;
+          } catch(final QueryException ex) {
+            throw new QueryRTException(ex);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Adds a tuple.
+   * @param key sort keys (entries may be {@code null})
+   * @param vals values
+   * @throws QueryException query exception
+   */
+  void add(final Item[] key, final Value[] vals) throws QueryException {
+    if(top != null) {
+      // keep tuples with the smallest keys
+      try {
+        final Tuple tuple = new Tuple(key, vals, added++);
+        top.insert(tuple, tuple);
+        if(top.size() > topK) top.removeMin();
+      } catch(final QueryRTException ex) {
+        throw ex.getCause();
+      }
+      return;
+    }
+    if(size == ks.length) {
+      final int s = Array.newSize(size);
+      ks = Array.copy(ks, new Item[s][]);
+      vs = Array.copy(vs, new Value[s][]);
+    }
+    ks[size] = key;
+    vs[size++] = vals;
+    if(spill && (splitSize > 0 ? size >= splitSize : size % CHECK == 0 && TupleIO.full())) write();
+  }
+
+  /**
+   * Returns the next tuple in sort order. Must be called after all tuples have been added.
+   * @return tuple, or {@code null} if all tuples have been returned
+   * @throws QueryException query exception
+   */
+  Value[] next() throws QueryException {
+    if(perm == null) {
+      if(top != null) select();
+      perm = sort();
+      if(!runs.isEmpty()) merge();
+    }
+    if(heap == null) {
+      if(pos == size) return null;
+      final int p = perm[pos++];
+      final Value[] tuple = vs[p];
+      // free the space occupied by the tuple
+      ks[p] = null;
+      vs[p] = null;
+      return tuple;
+    }
+    if(heap.isEmpty()) return null;
+    try {
+      final Source src = heap.removeMin();
+      final Value[] tuple = src.tuple;
+      if(src.next()) heap.insert(src, src);
+      return tuple;
+    } catch(final QueryRTException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Moves the selected tuples to the cache.
+   */
+  private void select() {
+    size = top.size();
+    ks = new Item[size][];
+    vs = new Value[size][];
+    for(int s = size; --s >= 0;) {
+      final Tuple tuple = top.removeMin();
+      ks[s] = tuple.key;
+      vs[s] = tuple.vals;
+    }
+    top = null;
+  }
+
+  /**
+   * Sorts the cached tuples and returns the resulting permutation.
+   * @return permutation
+   * @throws QueryException query exception
+   */
+  private int[] sort() throws QueryException {
+    final int kl = keys.length;
+    final int[] types = new int[kl];
+    final Object[] cols = new Object[kl];
+    final boolean[][] empty = new boolean[kl][];
+    for(int k = 0; k < kl; k++) {
+      // choose column type: all sort keys must have the same type
+      int type = -1;
+      for(int t = 0; t < size && type != ITEMS; t++) {
+        final Item it = key(ks[t][k]);
+        if(it == null) continue;
+        final int tp = it instanceof Int ? LONGS : it instanceof Dbl ? DOUBLES :
+          (it instanceof Str || it instanceof Atm) && keys[k].coll == null ? TOKENS : ITEMS;
+        type = type == -1 || type == tp ? tp : ITEMS;
+      }
+      if(type == -1) type = ITEMS;
+
+      // extract sort keys
+      types[k] = type;
+      if(type == ITEMS) continue;
+      final boolean[] em = new boolean[size];
+      final long[] longs = type == LONGS ? new long[size] : null;
+      final double[] doubles = type == DOUBLES ? new double[size] : null;
+      final byte[][] tokens = type == TOKENS ? new byte[size][] : null;
+      for(int t = 0; t < size; t++) {
+        final Item it = key(ks[t][k]);
+        if(it == null) {
+          em[t] = true;
+        } else if(type == LONGS) {
+          longs[t] = ((Int) it).itr();
+        } else if(type == DOUBLES) {
+          doubles[t] = it.dbl(info);
+        } else {
+          tokens[t] = it.string(info);
+        }
+      }
+      empty[k] = em;
+      cols[k] = type == LONGS ? longs : type == DOUBLES ? doubles : tokens;
+    }
+
+    final int[] order = new int[size];
+    for(int i = 0; i < size; i++) order[i] = i;
+    mergeSort(order.clone(), order, 0, size, new Comparison() {
+      @Override
+      public int diff(final int a, final int b) throws QueryException {
+        for(int k = 0; k < kl; k++) {
+          final Key key = keys[k];
+          final int type = types[k];
+          final int c;
+          if(type == ITEMS) {
+            c = TupleSort.diff(key, key(ks[a][k]), key(ks[b][k]));
+          } else {
+            final boolean ea = empty[k][a], eb = empty[k][b];
+            if(ea || eb) {
+              c = ea ? eb ? 0 : key.least ? -1 : 1 : key.least ? 1 : -1;
+            } else if(type == LONGS) {
+              final long[] l = (long[]) cols[k];
+              c = l[a] < l[b] ? -1 : l[a] > l[b] ? 1 : 0;
+            } else if(type == DOUBLES) {
+              final double[] d = (double[]) cols[k];
+              c = d[a] < d[b] ? -1 : d[a] > d[b] ? 1 : 0;
+            } else {
+              final byte[][] t = (byte[][]) cols[k];
+              c = Token.diff(t[a], t[b]);
+            }
+          }
+          if(c != 0) return key.desc ? -c : c;
+        }
+        return 0;
+      }
+    });
+    return order;
+  }
+
+  /**
+   * Sorts the cached tuples and writes them to a new run.
+   * @throws QueryException query exception
+   */
+  private void write() throws QueryException {
+    final int[] order = sort();
+    final IOFile file = TempFiles.get(qc).create(info);
+    boolean ok = true;
+    try(final DataOutput out = new DataOutput(file)) {
+      for(int o = 0; o < size && ok; o++) ok = write(out, ks[order[o]], vs[order[o]]);
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    }
+
+    if(ok) {
+      runs.add(file);
+      Arrays.fill(ks, 0, size, null);
+      Arrays.fill(vs, 0, size, null);
+      size = 0;
+      if(runs.size() == MAXRUNS) compact();
+    } else {
+      // tuples cannot be written to disk: keep all remaining tuples in main memory
+      TempFiles.get(qc).delete(file);
+      spill = false;
+    }
+  }
+
+  /**
+   * Merges all runs to a single run.
+   * @throws QueryException query exception
+   */
+  private void compact() throws QueryException {
+    final MinHeap<Source, Source> h = sources();
+    final IOFile file = TempFiles.get(qc).create(info);
+    try(final DataOutput out = new DataOutput(file)) {
+      while(!h.isEmpty()) {
+        final Source src = h.removeMin();
+        write(out, src.key, src.tuple);
+        if(src.next()) h.insert(src, src);
+      }
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    } catch(final QueryRTException ex) {
+      throw ex.getCause();
+    }
+    for(final IOFile run : runs) TempFiles.get(qc).delete(run);
+    runs.clear();
+    runs.add(file);
+  }
+
+  /**
+   * Prepares the merging of all runs and the cached tuples.
+   * @throws QueryException query exception
+   */
+  private void merge() throws QueryException {
+    heap = sources();
+    // cached tuples were added last
+    final Source mem = new Source(runs.size()) {
+      @Override
+      boolean next() {
+        if(pos == size) return false;
+        final int p = perm[pos++];
+        key = ks[p];
+        tuple = vs[p];
+        ks[p] = null;
+        vs[p] = null;
+        return true;
+      }
+    };
+    try {
+      if(mem.next()) heap.insert(mem, mem);
+    } catch(final QueryRTException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Returns a heap with readers for all runs.
+   * @return heap
+   * @throws QueryException query exception
+   */
+  private MinHeap<Source, Source> sources() throws QueryException {
+    final MinHeap<Source, Source> h = new MinHeap<>(runs.size() + 1, new Comparator<Source>() {
+      @Override
+      public int compare(final Source a, final Source b) {
+        try {
+          final int c = diff(a.key, b.key);
+          // preserve the order of tuples with equal keys
+          return c != 0 ? c : a.id - b.id;
+        } catch(final QueryException ex) {
+          throw new QueryRTException(ex);
+        }
+      }
+    });
+    final int rs = runs.size();
+    try {
+      for(int r = 0; r < rs; r++) {
+        final Source src = new Run(r, runs.get(r));
+        if(src.next()) h.insert(src, src);
+      }
+    } catch(final QueryRTException ex) {
+      throw ex.getCause();
+    }
+    return h;
+  }
+
+  /**
+   * Compares the sort keys of two tuples.
+   * @param a sort keys of the first tuple
+   * @param b sort keys of the second tuple
+   * @return difference
+   * @throws QueryException query exception
+   */
+  private int diff(final Item[] a, final Item[] b) throws QueryException {
+    final int kl = keys.length;
+    for(int k = 0; k < kl; k++) {
+      final Key key = keys[k];
+      final int c = diff(key, key(a[k]), key(b[k]));
+      if(c != 0) return key.desc ? -c : c;
+    }
+    return 0;
+  }
+
+  /**
+   * Compares two sort keys.
+   * @param key sort key
+   * @param m first item (can be {@code null})
+   * @param n second item (can be {@code null})
+   * @return difference
+   * @throws QueryException query exception
+   */
+  private static int diff(final Key key, final Item m, final Item n) throws QueryException {
+    if(m != null && n != null && !m.comparable(n)) throw castError(key.info, n, m.type);
+    return m == null ? n == null ? 0 : key.least ? -1 : 1 :
+      n == null ? key.least ? 1 : -1 : m.diff(n, key.coll, key.info);
+  }
+
+  /**
+   * Returns a sort key, or {@code null} if it is empty or {@code NaN}.
+   * @param it item (can be {@code null})
+   * @return sort key
+   */
+  private static Item key(final Item it) {
+    return it == Dbl.NAN || it == Flt.NAN ? null : it;
+  }
+
+  /**
+   * Sorts the specified range of positions. The merge sort is stable: positions of tuples
+   * with equal keys will keep their order.
+   * @param src source positions
+   * @param dst sorted positions
+   * @param lo lower bound (inclusive)
+   * @param hi upper bound (exclusive)
+   * @param cmp comparison
+   * @throws QueryException query exception
+   */
+  private static void mergeSort(final int[] src, final int[] dst, final int lo, final int hi,
+      final Comparison cmp) throws QueryException {
+
+    if(hi - lo < 8) {
+      // insertion sort for small ranges
+      for(int i = lo + 1; i < hi; i++) {
+        final int p = dst[i];
+        int j = i;
+        for(; j > lo && cmp.diff(dst[j - 1], p) > 0; j--) dst[j] = dst[j - 1];
+        dst[j] = p;
+      }
+      return;
+    }
+    final int mid = lo + hi >>> 1;
+    mergeSort(dst, src, lo, mid, cmp);
+    mergeSort(dst, src, mid, hi, cmp);
+    // skip merging if both halves are already in order
+    if(cmp.diff(src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, lo, dst, lo, hi - lo);
+      return;
+    }
+    for(int i = lo, l = lo, r = mid; i < hi; i++) {
+      dst[i] = r >= hi || l < mid && cmp.diff(src[l], src[r]) <= 0 ? src[l++] : src[r++];
+    }
+  }
+
+  /**
+   * Writes a tuple.
+   * @param out output stream
+   * @param key sort keys
+   * @param vals values
+   * @return {@code true} if the tuple was written, {@code false} if it cannot be stored
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  private boolean write(final DataOutput out, final Item[] key, final Value[] vals)
+      throws IOException, QueryException {
+    for(final Item it : key) {
+      if(!io.write(out, it)) return false;
+    }
+    for(final Value val : vals) {
+      if(!io.write(out, val)) return false;
+    }
+    return true;
+  }
+
+  /** Comparison of two tuples, specified by their positions. */
+  private interface Comparison {
+    /**
+     * Compares two tuples.
+     * @param a position of the first tuple
+     * @param b position of the second tuple
+     * @return difference
+     * @throws QueryException query exception
+     */
+    int diff(int a, int b) throws QueryException;
+  }
+
+  /** Selected tuple. */
+  private static final class Tuple {
+    /** Sort keys. */
+    final Item[] key;
+    /** Values. */
+    final Value[] vals;
+    /** Id (tuples with equal keys are returned in the order of the ids). */
+    final long id;
+
+    /**
+     * Constructor.
+     * @param key sort keys
+     * @param vals values
+     * @param id id
+     */
+    Tuple(final Item[] key, final Value[] vals, final long id) {
+      this.key = key;
+      this.vals = vals;
+      this.id = id;
+    }
+  }
+
+  /** Source of sorted tuples. */
+  private abstract static class Source {
+    /** Id of the source (tuples with equal keys are returned in the order of the ids). */
+    final int id;
+    /** Sort keys of the current tuple. */
+    Item[] key;
+    /** Values of the current tuple. */
+    Value[] tuple;
+
+    /**
+     * Constructor.
+     * @param id id
+     */
+    Source(final int id) {
+      this.id = id;
+    }
+
+    /**
+     * Moves to the next tuple. Query exceptions are wrapped into {@link QueryRTException}s.
+     * @return {@code true} if a tuple was found
+     */
+    abstract boolean next();
+  }
+
+  /** Tuples of a run that has been written to disk. */
+  private final class Run extends Source {
+    /** Input stream ({@code null} if all tuples have been read). */
+    private DataInput in;
+    /** File. */
+    private final IOFile file;
+
+    /**
+     * Constructor.
+     * @param id id
+     * @param file file
+     * @throws QueryException query exception
+     */
+    Run(final int id, final IOFile file) throws QueryException {
+      super(id);
+      this.file = file;
+      try {
+        in = new DataInput(file);
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    @Override
+    boolean next() {
+      if(in == null) return false;
+      try {
+        // the first byte of a tuple is the type of the first sort key
+        final int tp = in.read();
+        if(tp == -1) {
+          close();
+          return false;
+        }
+        final int kl = keys.length;
+        key = new Item[kl];
+        key[0] = io.read(in, tp);
+        for(int k = 1; k < kl; k++) key[k] = io.read(in);
+        tuple = new Value[width];
+        for(int w = 0; w < width; w++) tuple[w] = io.value(in);
+        return true;
+      } catch(final IOException ex) {
+        throw new QueryRTException(IOERR_X.get(info, ex));
+      } catch(final QueryException ex) {
+        throw new QueryRTException(ex);
+      }
+    }
+
+    /**
+     * Closes the input stream and deletes the file.
+     * @throws IOException I/O exception
+     */
+    private void close() throws IOException {
+      in.close();
+      in = null;
+      TempFiles.get(qc).delete(file);
+    }
+  }
+}
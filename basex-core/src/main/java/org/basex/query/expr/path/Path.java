@@ -2,12 +2,16 @@ package org.basex.query.expr.path;
 
 import static org.basex.query.QueryText.*;
 import static org.basex.query.expr.path.Axis.*;
+import static org.basex.util.Token.*;
 
 import java.util.*;
 
 import org.basex.core.locks.*;
 import org.basex.data.*;
+import org.basex.index.name.*;
 import org.basex.index.path.*;
+import org.basex.index.query.*;
+import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.constr.*;
 import org.basex.query.expr.*;
@@ -35,6 +39,8 @@ public abstract class Path extends ParseExpr {
   /** XPath axes that are expected to be expensive when at the start of a path. */
   private static final EnumSet<Axis> EXPENSIVE =
       EnumSet.of(DESC, DESCORSELF, PREC, PRECSIBL, FOLL, FOLLSIBL);
+  /** Minimum ratio between database size and name index results for rewriting a path. */
+  private static final int NAMESEL = 10;
 
   /** Root expression. */
   public Expr root;
@@ -170,6 +176,10 @@ public abstract class Path extends ParseExpr {
       // recompile path
       if(e != this) return e.optimize(qc, scp);
 
+      // check name index access
+      e = names(qc, v);
+      if(e != this) return e.optimize(qc, scp);
+
       /* rewrite descendant to child steps. this optimization is located after the index rewriting,
        * as it is cheaper to invert a descendant step. examples:
        * - //C[. = '...']     ->  IA('...', C)
@@ -731,6 +741,70 @@ public abstract class Path extends ParseExpr {
     return resultSteps.isEmpty() ? resultRoot : get(info, resultRoot, resultSteps.finish());
   }
 
+  /**
+   * Returns an equivalent expression which accesses the name index.
+   * If the expression cannot be rewritten, the original expression is returned.
+   *
+   * A leading descendant step will be rewritten if it references all documents of a
+   * database, and if the statistics indicate that the name is selective:
+   *
+   * <pre>
+   * //A[...]/B  -> NA(A)/self::node()[...]/B
+   * //@a        -> NA(@a)</pre>
+   *
+   * @param qc query context
+   * @param rt root value
+   * @return original or new expression
+   */
+  private Expr names(final QueryContext qc, final Value rt) {
+    // skip if no index exists, or if context does not contain all database nodes
+    final Data data = rt.data();
+    if(data == null || !data.meta.nameindex || data.meta.ndocs != rt.size()) return this;
+
+    // accept descendant element steps and descendant-or-self attribute steps
+    final int sl = steps.length;
+    int s = 0;
+    Step step = axisStep(0);
+    if(step != null && sl > 1 && step.simple(DESCORSELF, false)) {
+      step = axisStep(++s);
+      if(step == null || step.axis != ATTR) return this;
+    } else if(step == null || step.axis != DESC) {
+      return this;
+    }
+    // only accept name tests without positional predicates
+    if(step.test.kind != Kind.NAME || step.has(Flag.FCS)) return this;
+
+    // skip rewriting if the name is not selective
+    final boolean elem = step.axis != ATTR;
+    final NameToken token = new NameToken(elem, step.test.name.local());
+    final long costs = data.meta.uptodate ? count(elem ? data.elemNames : data.attrNames,
+        token.get()) : data.costs(token);
+    if(costs * NAMESEL > data.meta.size) return this;
+
+    qc.compInfo(OPTNAMINDEX, step);
+    final ExprList stps = new ExprList(sl - s);
+    if(step.preds.length != 0) stps.add(Step.get(info, SELF, Test.NOD, step.preds));
+    for(int t = s + 1; t < sl; t++) stps.add(steps[t]);
+    final NameAccess na = new NameAccess(info, token, new IndexContext(data, true));
+    return stps.isEmpty() ? na : get(info, na, stps.finish());
+  }
+
+  /**
+   * Returns the number of elements or attributes with the specified local name.
+   * @param names names
+   * @param local local name
+   * @return number of occurrences
+   */
+  private static long count(final Names names, final byte[] local) {
+    long c = 0;
+    final int ns = names.size();
+    for(int n = 1; n <= ns; n++) {
+      final Stats stats = names.stat(n);
+      if(stats != null && eq(local(names.key(n)), local)) c += stats.count;
+    }
+    return c;
+  }
+
   /**
    * Checks if steps before index step need to be inverted and traversed.
    * @param data data reference
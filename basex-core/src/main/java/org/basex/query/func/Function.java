@@ -736,6 +736,9 @@ public enum Function {
   /** XQuery function. */
   _CSV_PARSE(CsvParse.class, "parse(string[,config])", arg(STR, MAP_O), ITEM, CSV_URI),
   /** XQuery function. */
+  _CSV_PARSE_RECORDS(CsvParseRecords.class, "parse-records(string[,config])", arg(STR, MAP_O),
+      ITEM_ZM, CSV_URI),
+  /** XQuery function. */
   _CSV_SERIALIZE(CsvSerialize.class, "serialize(item[,params])", arg(ITEM_ZO, ITEM_ZO), STR,
       CSV_URI),
 
@@ -1052,6 +1055,9 @@ public enum Function {
   /** XQuery function. */
   _JSON_PARSE(JsonParse.class, "parse(string[,config])", arg(STR, MAP_O), ITEM, JSON_URI),
   /** XQuery function. */
+  _JSON_PARSE_MEMBERS(JsonParseMembers.class, "parse-members(string[,config])",
+      arg(STR, MAP_O), ITEM_ZM, JSON_URI),
+  /** XQuery function. */
   _JSON_SERIALIZE(JsonSerialize.class, "serialize(items[,params])", arg(ITEM_ZO, ITEM_ZO), STR,
       JSON_URI),
 
@@ -1400,6 +1406,18 @@ public enum Function {
     return uri;
   }
 
+  /**
+   * Checks if calls to this function can be evaluated by multiple threads in parallel.
+   * This is only the case for functions of the standard libraries that do not resolve
+   * namespaces of the static context.
+   * @return result of check
+   */
+  public boolean parallel() {
+    return (uri == FN_URI || uri == MATH_URI || uri == MAP_URI || uri == ARRAY_URI) &&
+        this != RESOLVE_QNAME && this != IN_SCOPE_PREFIXES && this != NAMESPACE_URI_FOR_PREFIX &&
+        this != FORMAT_NUMBER;
+  }
+
   /**
    * Indicates if an expression has the specified compiler property.
    * @param flag flag to be found
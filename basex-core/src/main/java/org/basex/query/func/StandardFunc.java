@@ -13,6 +13,7 @@ import org.basex.core.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.io.*;
+import org.basex.io.in.*;
 import org.basex.io.out.*;
 import org.basex.io.serial.*;
 import org.basex.query.*;
@@ -131,6 +132,11 @@ public abstract class StandardFunc extends Arr {
     return sig.has(flag) || flag != Flag.HOF && super.has(flag);
   }
 
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return visitor.funcCall(this) && super.accept(visitor);
+  }
+
   @Override
   public final boolean isFunction(final Function f) {
     return sig == f;
@@ -241,6 +247,26 @@ public abstract class StandardFunc extends Arr {
     throw err.get(info, enc);
   }
 
+  /**
+   * Returns a text input for the string argument at the specified index.
+   * Streamable strings will be read lazily. All line breaks are normalized to newlines.
+   * @param i index of string argument
+   * @param qc query context
+   * @return text input
+   * @throws QueryException query exception
+   */
+  protected final NewlineInput toInput(final int i, final QueryContext qc)
+      throws QueryException {
+
+    final Item it = toAtomItem(exprs[i], qc);
+    if(it instanceof StrStream) return ((StrStream) it).lines(info);
+    try {
+      return new NewlineInput(new IOContent(toToken(it)));
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    }
+  }
+
   /**
    * Parses the options at the specified index.
    * @param <E> options type
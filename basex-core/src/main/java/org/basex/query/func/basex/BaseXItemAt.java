@@ -2,6 +2,7 @@ package org.basex.query.func.basex;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.item.*;
@@ -37,8 +38,16 @@ public final class BaseXItemAt extends StandardFunc {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
-    seqType = exprs[0].seqType().withOcc(Occ.ZERO_ONE);
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
+    final Expr ex = exprs[0];
+    seqType = ex.seqType().withOcc(Occ.ZERO_ONE);
+
+    // limit number of results of FLWOR expression: (for ... order by ...)[10]
+    if(ex instanceof GFLWOR && exprs[1].isValue()) {
+      final double ds = toDouble(exprs[1], qc);
+      final long pos = (long) ds;
+      if(ds == pos) ((GFLWOR) ex).limit(Math.max(0, pos), qc);
+    }
     return this;
   }
 }
@@ -0,0 +1,49 @@
+package org.basex.query.func.csv;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+
+import org.basex.build.csv.*;
+import org.basex.io.in.*;
+import org.basex.io.parse.csv.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+
+/**
+ * Function implementation.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class CsvParseRecords extends CsvFn {
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    final CsvParserOptions opts = toOptions(1, Q_OPTIONS, new CsvParserOptions(), qc);
+    final NewlineInput input = toInput(0, qc);
+    // input will be closed with the query if the results are not consumed completely
+    qc.resources.addInput(input);
+    final CsvConverter conv = CsvConverter.get(opts).stream(input);
+    return new Iter() {
+      @Override
+      public Item next() throws QueryException {
+        try {
+          final Item it = conv.next();
+          if(it == null) qc.resources.removeInput(input);
+          return it;
+        } catch(final QueryIOException ex) {
+          throw ex.getCause(info);
+        } catch(final IOException ex) {
+          throw BXCS_PARSE_X.get(info, ex);
+        }
+      }
+    };
+  }
+
+  @Override
+  public Value value(final QueryContext qc) throws QueryException {
+    return iter(qc).value();
+  }
+}
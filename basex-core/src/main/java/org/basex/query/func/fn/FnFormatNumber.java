@@ -27,7 +27,7 @@ public final class FnFormatNumber extends StandardFunc {
     // retrieve picture
     final byte[] pic = toToken(exprs[1], qc);
     // retrieve format declaration
-    final QNm frm = exprs.length == 3 ? new QNm(trim(toEmptyToken(exprs[2], qc)), sc) :
+    final QNm frm = exprs.length == 3 ? new QNm(trim(toEmptyToken(exprs[2], qc)), sc, qc) :
       new QNm(EMPTY);
     final DecFormatter df = sc.decFormats.get(frm.id());
     if(df == null) throw FORMNUM_X.get(info, frm.prefixId(XML));
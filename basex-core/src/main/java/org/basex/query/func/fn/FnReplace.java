@@ -36,7 +36,14 @@ public final class FnReplace extends RegEx {
         (i + 1 == rl || !digit(rep[i + 1]))) throw FUNREPDOL_X.get(info, rep);
     }
 
-    final Pattern p = pattern(exprs[1], exprs.length == 4 ? exprs[3] : null, qc, true);
+    // replacement strings with group references or escapes require a regular expression
+    final Compiled c = regex(exprs[1], exprs.length == 4 ? exprs[3] : null, qc, true);
+    final SimplePattern sp = c.simple;
+    if(sp != null && (sp.quoted || !contains(rep, '$') && !contains(rep, '\\'))) {
+      return Str.get(sp.replace(value, rep));
+    }
+
+    final Pattern p = c.pattern(info);
     String r = string(rep);
     if((p.flags() & Pattern.LITERAL) != 0) {
       r = SLASH.matcher(BSLASH.matcher(r).replaceAll("\\\\\\\\")).replaceAll("\\\\\\$");
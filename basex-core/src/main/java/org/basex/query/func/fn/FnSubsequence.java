@@ -2,6 +2,7 @@ package org.basex.query.func.fn;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.func.basex.*;
 import org.basex.query.iter.*;
@@ -137,9 +138,19 @@ public class FnSubsequence extends StandardFunc {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
-    final SeqType st = exprs[0].seqType();
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
+    final Expr ex = exprs[0];
+    final SeqType st = ex.seqType();
     seqType = SeqType.get(st.type, st.zeroOrOne() ? Occ.ZERO_ONE : Occ.ZERO_MORE);
+
+    // limit number of results of FLWOR expression: subsequence(for ... order by ..., 1, 10)
+    if(ex instanceof GFLWOR && exprs[1].isValue() && (exprs.length < 3 || exprs[2].isValue())) {
+      final long[] range = range(qc);
+      if(range != null && range != ALL) {
+        final long start = range[0], len = range[1];
+        if(len < Long.MAX_VALUE - start) ((GFLWOR) ex).limit(Math.max(0, start + len - 1), qc);
+      }
+    }
     return this;
   }
 }
@@ -28,7 +28,10 @@ public final class FnTokenize extends RegEx {
     final byte[] val = toEmptyToken(exprs[0], qc);
     if(exprs.length < 2) return StrSeq.get(split(normalize(val), ' '));
 
-    final Pattern p = pattern(exprs[1], exprs.length == 3 ? exprs[2] : null, qc, true);
+    final Compiled c = regex(exprs[1], exprs.length == 3 ? exprs[2] : null, qc, true);
+    if(c.simple != null) return StrSeq.get(c.simple.split(val));
+
+    final Pattern p = c.pattern(info);
     if(p.matcher("").matches()) throw REGROUP.get(info);
 
     final TokenList tl = new TokenList();
@@ -1,5 +1,6 @@
 package org.basex.query.func.fn;
 
+import java.util.*;
 import java.util.regex.*;
 
 import org.basex.query.*;
@@ -7,17 +8,30 @@ import org.basex.query.expr.*;
 import org.basex.query.func.*;
 import org.basex.query.util.regex.parse.*;
 import org.basex.util.*;
-import org.basex.util.hash.*;
 
 /**
  * Regular expression functions.
  *
+ * Compiled patterns are shared by all queries. The cache is bounded: if the maximum size is
+ * reached, the least recently used pattern is discarded.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 abstract class RegEx extends StandardFunc {
-  /** Pattern cache. */
-  private final TokenObjMap<Pattern> patterns = new TokenObjMap<>();
+  /** Maximum number of cached patterns. */
+  private static final int MAX = 1 << 10;
+  /** Pattern cache, ordered by access. */
+  private static final LinkedHashMap<String, Compiled> CACHE =
+    new LinkedHashMap<String, Compiled>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Compiled> eldest) {
+        return size() > MAX;
+      }
+    };
+
+  /** Last compiled pattern of this expression (can be {@code null}). */
+  private Compiled last;
 
   /**
    * Returns a regular expression pattern.
@@ -30,17 +44,90 @@ abstract class RegEx extends StandardFunc {
    */
   Pattern pattern(final Expr pattern, final Expr modifier, final QueryContext qc,
                   final boolean check) throws QueryException {
+    return regex(pattern, modifier, qc, check).pattern(info);
+  }
+
+  /**
+   * Returns a compiled regular expression.
+   * @param pattern input pattern
+   * @param modifier modifier item
+   * @param qc query context
+   * @param check check result for empty strings
+   * @return compiled expression
+   * @throws QueryException query exception
+   */
+  Compiled regex(final Expr pattern, final Expr modifier, final QueryContext qc,
+      final boolean check) throws QueryException {
 
     final byte[] pat = toToken(pattern, qc);
     final byte[] mod = modifier != null ? toToken(modifier, qc) : null;
-    final TokenBuilder tb = new TokenBuilder(pat);
-    if(mod != null) tb.add(0).add(mod);
-    final byte[] key = tb.finish();
-    Pattern p = patterns.get(key);
-    if(p == null) {
-      p = RegExParser.parse(pat, mod, info, check);
-      patterns.put(key, p);
+    final TokenBuilder tb = new TokenBuilder(pat).add(0);
+    if(mod != null) tb.add(mod);
+    final String key = tb.add(0).add(check ? '+' : '-').toString();
+
+    // skip cache lookup if the pattern is evaluated repeatedly
+    Compiled c = last;
+    if(c != null && c.key.equals(key)) return c;
+    synchronized(CACHE) {
+      c = CACHE.get(key);
+      if(c == null) {
+        c = new Compiled(key, pat, mod, check);
+        CACHE.put(key, c);
+      }
+    }
+    last = c;
+    return c;
+  }
+
+  /**
+   * Compiled regular expression. Patterns without metacharacters and simple character classes
+   * are evaluated without {@code java.util.regex}.
+   *
+   * @author BaseX Team 2005-15, BSD License
+   * @author Christian Gruen
+   */
+  static final class Compiled {
+    /** Cache key. */
+    final String key;
+    /** Simple pattern ({@code null} if a regular expression is required). */
+    final SimplePattern simple;
+    /** Input pattern. */
+    private final byte[] pat;
+    /** Modifiers (can be {@code null}). */
+    private final byte[] mod;
+    /** Check result for empty strings. */
+    private final boolean check;
+    /** Java pattern (will be created on demand). */
+    private volatile Pattern pattern;
+
+    /**
+     * Constructor.
+     * @param key cache key
+     * @param pat input pattern
+     * @param mod modifiers (can be {@code null})
+     * @param check check result for empty strings
+     */
+    private Compiled(final String key, final byte[] pat, final byte[] mod, final boolean check) {
+      this.key = key;
+      this.pat = pat;
+      this.mod = mod;
+      this.check = check;
+      simple = SimplePattern.get(pat, mod);
+    }
+
+    /**
+     * Returns the Java pattern.
+     * @param info input info
+     * @return pattern
+     * @throws QueryException query exception
+     */
+    Pattern pattern(final InputInfo info) throws QueryException {
+      Pattern p = pattern;
+      if(p == null) {
+        p = RegExParser.parse(pat, mod, info, check);
+        pattern = p;
+      }
+      return p;
     }
-    return p;
   }
 }
@@ -0,0 +1,254 @@
+package org.basex.query.func.fn;
+
+import static org.basex.util.Token.*;
+
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Simple regular expression, which is evaluated on tokens without {@code java.util.regex}.
+ * Supported are:
+ * <ul>
+ *   <li> strings without metacharacters, optionally anchored with {@code ^} and {@code $}
+ *        (e.g. {@code ERROR}, {@code ^GET /}, {@code \.log$})</li>
+ *   <li> strings specified with the {@code q} flag</li>
+ *   <li> character classes with ASCII characters, optionally repeated with {@code +}
+ *        (e.g. {@code [,;]}, {@code [a-z]+}, {@code \s+})</li>
+ * </ul>
+ * A simple pattern never matches the empty string.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class SimplePattern {
+  /** Metacharacters. */
+  private static final byte[] META = token("\\|.?*+(){}[]^$");
+  /** Whitespace characters (class escape {@code \s}). */
+  private static final byte[] SPACES = { ' ', '\t', '\n', '\r' };
+
+  /** Indicates if the pattern was specified with the {@code q} flag. */
+  final boolean quoted;
+  /** Literal string ({@code null} for character classes). */
+  private final byte[] literal;
+  /** Start anchor. */
+  private final boolean start;
+  /** End anchor. */
+  private final boolean end;
+  /** Characters of the character class, indexed by their codepoints. */
+  private final boolean[] chars;
+  /** Indicates if the character class is repeated. */
+  private final boolean plus;
+
+  /**
+   * Constructor for literal strings.
+   * @param literal literal string
+   * @param start start anchor
+   * @param end end anchor
+   * @param quoted {@code q} flag
+   */
+  private SimplePattern(final byte[] literal, final boolean start, final boolean end,
+      final boolean quoted) {
+    this.literal = literal;
+    this.start = start;
+    this.end = end;
+    this.quoted = quoted;
+    chars = null;
+    plus = false;
+  }
+
+  /**
+   * Constructor for character classes.
+   * @param chars characters
+   * @param plus repetition flag
+   */
+  private SimplePattern(final boolean[] chars, final boolean plus) {
+    this.chars = chars;
+    this.plus = plus;
+    literal = null;
+    start = false;
+    end = false;
+    quoted = false;
+  }
+
+  /**
+   * Returns a simple pattern for the specified regular expression.
+   * @param pattern pattern
+   * @param mod modifiers (can be {@code null})
+   * @return simple pattern, or {@code null} if a regular expression is required
+   */
+  static SimplePattern get(final byte[] pattern, final byte[] mod) {
+    final int pl = pattern.length;
+    if(pl == 0) return null;
+    if(mod != null && mod.length != 0) {
+      return mod.length == 1 && mod[0] == 'q' ? new SimplePattern(pattern, false, false, true) :
+        null;
+    }
+    if(pattern[0] == '[' || pattern[0] == '\\' && pl > 1 && pattern[1] == 's') {
+      return charClass(pattern);
+    }
+
+    final boolean start = pattern[0] == '^';
+    boolean end = false;
+    final TokenBuilder tb = new TokenBuilder(pl);
+    for(int p = start ? 1 : 0; p < pl; p++) {
+      final byte b = pattern[p];
+      if(b == '\\') {
+        final int ch = ++p < pl ? escape(pattern[p]) : -1;
+        if(ch == -1) return null;
+        tb.addByte((byte) ch);
+      } else if(b == '$' && p == pl - 1) {
+        end = true;
+      } else if(contains(META, b)) {
+        return null;
+      } else {
+        tb.addByte(b);
+      }
+    }
+    return tb.isEmpty() ? null : new SimplePattern(tb.finish(), start, end, false);
+  }
+
+  /**
+   * Returns a simple pattern for a character class.
+   * @param pattern pattern
+   * @return simple pattern, or {@code null} if a regular expression is required
+   */
+  private static SimplePattern charClass(final byte[] pattern) {
+    final boolean[] chars = new boolean[128];
+    final int pl = pattern.length;
+    int p;
+    if(pattern[0] == '\\') {
+      for(final byte b : SPACES) chars[b] = true;
+      p = 2;
+    } else {
+      // negated classes and subtractions are not supported
+      p = 1;
+      if(p < pl && (pattern[p] == '^' || pattern[p] == ']')) return null;
+      while(p < pl && pattern[p] != ']') {
+        int c = pattern[p++];
+        if(c == '\\' && p < pl && pattern[p] == 's') {
+          for(final byte b : SPACES) chars[b] = true;
+          p++;
+          continue;
+        }
+        // unescaped hyphens are only allowed at the start of the class
+        if(c == '\\') c = p < pl ? escape(pattern[p++]) : -1;
+        else if(c == '[' || c < 0 || c == '-' && p != 2) c = -1;
+        if(c == -1) return null;
+
+        // range of characters (the last character must not be escaped)
+        int to = c;
+        if(p < pl && pattern[p] == '-') {
+          to = p + 1 < pl ? pattern[p + 1] : -1;
+          if(to < c || to == '\\' || to == '[' || to == ']' || to == '-') return null;
+          p += 2;
+        }
+        for(int ch = c; ch <= to; ch++) chars[ch] = true;
+      }
+      if(p++ == pl) return null;
+    }
+    final boolean plus = p < pl && pattern[p] == '+';
+    return p + (plus ? 1 : 0) == pl ? new SimplePattern(chars, plus) : null;
+  }
+
+  /**
+   * Returns the character of a single character escape.
+   * @param b escaped character
+   * @return character, or {@code -1} if the escape is not supported
+   */
+  private static int escape(final byte b) {
+    return b == 'n' ? '\n' : b == 'r' ? '\r' : b == 't' ? '\t' :
+      contains(META, b) || b == '-' ? b : -1;
+  }
+
+  /**
+   * Checks if the pattern is found in the specified token.
+   * @param token token
+   * @return result of check
+   */
+  boolean find(final byte[] token) {
+    return find(token, 0) != -1;
+  }
+
+  /**
+   * Replaces all matches with the specified replacement string.
+   * @param token token
+   * @param rep replacement string
+   * @return resulting token
+   */
+  byte[] replace(final byte[] token, final byte[] rep) {
+    int s = find(token, 0);
+    if(s == -1) return token;
+    final TokenBuilder tb = new TokenBuilder(token.length);
+    int p = 0;
+    do {
+      tb.add(token, p, s).add(rep);
+      p = end(token, s);
+      s = find(token, p);
+    } while(s != -1);
+    return tb.add(token, p, token.length).finish();
+  }
+
+  /**
+   * Splits the specified token into the strings between the matches.
+   * @param token token
+   * @return strings
+   */
+  TokenList split(final byte[] token) {
+    final TokenList tl = new TokenList();
+    if(token.length != 0) {
+      int p = 0;
+      for(int s; (s = find(token, p)) != -1; p = end(token, s)) tl.add(substring(token, p, s));
+      tl.add(substring(token, p, token.length));
+    }
+    return tl;
+  }
+
+  /**
+   * Returns the start position of the next match.
+   * @param token token
+   * @param pos position from which the token is scanned
+   * @return position, or {@code -1} if no match is found
+   */
+  private int find(final byte[] token, final int pos) {
+    final int tl = token.length;
+    if(chars == null) {
+      if(start) {
+        return pos == 0 && (end ? eq(token, literal) : startsWith(token, literal)) ? 0 : -1;
+      }
+      if(end) {
+        final int s = tl - literal.length;
+        return s >= pos && endsWith(token, literal) ? s : -1;
+      }
+      return indexOf(token, literal, pos);
+    }
+    for(int p = pos; p < tl; p++) {
+      if(matches(token[p])) return p;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the end position of a match.
+   * @param token token
+   * @param pos start position of the match
+   * @return position
+   */
+  private int end(final byte[] token, final int pos) {
+    if(chars == null) return pos + literal.length;
+    int p = pos + 1;
+    if(plus) {
+      final int tl = token.length;
+      while(p < tl && matches(token[p])) p++;
+    }
+    return p;
+  }
+
+  /**
+   * Checks if a byte is contained in the character class.
+   * @param b byte
+   * @return result of check
+   */
+  private boolean matches(final byte b) {
+    return b >= 0 && chars[b];
+  }
+}
@@ -0,0 +1,54 @@
+package org.basex.query.func.json;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+
+import org.basex.build.json.*;
+import org.basex.io.in.*;
+import org.basex.io.parse.json.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+
+/**
+ * Function implementation.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class JsonParseMembers extends JsonFn {
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    final JsonParserOptions opts = toOptions(1, Q_OPTIONS, new JsonParserOptions(), qc);
+    final NewlineInput input = toInput(0, qc);
+    // input will be closed with the query if the results are not consumed completely
+    qc.resources.addInput(input);
+    final JsonMembers members;
+    try {
+      members = new JsonMembers(input, opts);
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    }
+    return new Iter() {
+      @Override
+      public Item next() throws QueryException {
+        try {
+          final Item it = members.next();
+          if(it == null) qc.resources.removeInput(input);
+          return it;
+        } catch(final QueryIOException ex) {
+          throw ex.getCause(info);
+        } catch(final IOException ex) {
+          throw IOERR_X.get(info, ex);
+        }
+      }
+    };
+  }
+
+  @Override
+  public Value value(final QueryContext qc) throws QueryException {
+    return iter(qc).value();
+  }
+}
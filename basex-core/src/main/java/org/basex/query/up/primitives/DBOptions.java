@@ -19,16 +19,18 @@ import org.basex.util.options.*;
 public final class DBOptions {
   /** Parsing options. */
   public static final Option<?>[] PARSING = { MainOptions.CREATEFILTER, MainOptions.ADDARCHIVES,
-    MainOptions.SKIPCORRUPT, MainOptions.ADDRAW, MainOptions.ADDCACHE, MainOptions.CSVPARSER,
-    MainOptions.TEXTPARSER, MainOptions.JSONPARSER, MainOptions.HTMLPARSER, MainOptions.PARSER,
-    MainOptions.CHOP, MainOptions.INTPARSE, MainOptions.STRIPNS, MainOptions.DTD,
-    MainOptions.CATFILE };
+    MainOptions.SKIPCORRUPT, MainOptions.ADDRAW, MainOptions.ADDCACHE, MainOptions.PARSETHREADS,
+    MainOptions.CSVPARSER, MainOptions.TEXTPARSER, MainOptions.JSONPARSER, MainOptions.HTMLPARSER,
+    MainOptions.PARSER, MainOptions.CHOP, MainOptions.INTPARSE, MainOptions.STRIPNS,
+    MainOptions.DTD, MainOptions.CATFILE };
   /** Indexing options. */
   public static final Option<?>[] INDEXING = { MainOptions.MAXCATS, MainOptions.MAXLEN,
-    MainOptions.INDEXSPLITSIZE, MainOptions.FTINDEXSPLITSIZE, MainOptions.LANGUAGE,
-    MainOptions.STOPWORDS, MainOptions.TEXTINDEX, MainOptions.ATTRINDEX, MainOptions.FTINDEX,
-    MainOptions.STEMMING, MainOptions.CASESENS, MainOptions.DIACRITICS, MainOptions.UPDINDEX,
-    MainOptions.AUTOOPTIMIZE };
+    MainOptions.INDEXCACHE, MainOptions.INDEXSPLITSIZE, MainOptions.FTINDEXSPLITSIZE,
+    MainOptions.LANGUAGE, MainOptions.STOPWORDS, MainOptions.TEXTINDEX, MainOptions.ATTRINDEX,
+    MainOptions.FTINDEX, MainOptions.STEMMING, MainOptions.CASESENS, MainOptions.DIACRITICS,
+    MainOptions.NAMEINDEX, MainOptions.RANGEINDEX, MainOptions.UPDINDEX, MainOptions.AUTOOPTIMIZE,
+    MainOptions.COLUMNAR, MainOptions.BLOCKCOMPRESS, MainOptions.WAL,
+    MainOptions.MVCC };
 
   /** Runtime options. */
   private final HashMap<Option<?>, Object> map = new HashMap<>();
@@ -46,7 +46,10 @@ public final class DBOptimize extends DBUpdate {
 
     final ArrayList<Option<?>> supported = new ArrayList<>();
     for(final Option<?> option : DBOptions.INDEXING) {
-      if(all || option != MainOptions.UPDINDEX) supported.add(option);
+      if(all || option != MainOptions.UPDINDEX && option != MainOptions.COLUMNAR &&
+          option != MainOptions.BLOCKCOMPRESS) {
+        supported.add(option);
+      }
     }
     options = new DBOptions(opts, supported, info);
   }
@@ -66,15 +69,25 @@ public final class DBOptimize extends DBUpdate {
     options.assign(MainOptions.TEXTINDEX,    meta.createtext);
     options.assign(MainOptions.ATTRINDEX,    meta.createattr);
     options.assign(MainOptions.FTINDEX,      meta.createftxt);
+    options.assign(MainOptions.NAMEINDEX,    meta.createname);
     options.assign(MainOptions.UPDINDEX,     meta.updindex);
+    options.assign(MainOptions.COLUMNAR,     meta.columnar);
+    options.assign(MainOptions.BLOCKCOMPRESS, meta.blockcompress);
+    options.assign(MainOptions.RANGEINDEX,   meta.rangeindex);
     options.assign(MainOptions.AUTOOPTIMIZE, meta.autoopt);
+    options.assign(MainOptions.WAL,          meta.wal);
+    options.assign(MainOptions.MVCC,         meta.mvcc);
     options.assignTo(opts);
 
     // adopt runtime options
     meta.createtext = opts.get(MainOptions.TEXTINDEX);
     meta.createattr = opts.get(MainOptions.ATTRINDEX);
     meta.createftxt = opts.get(MainOptions.FTINDEX);
+    meta.createname = opts.get(MainOptions.NAMEINDEX);
     meta.updindex = opts.get(MainOptions.UPDINDEX);
+    meta.columnar = opts.get(MainOptions.COLUMNAR);
+    meta.blockcompress = opts.get(MainOptions.BLOCKCOMPRESS);
+    meta.rangeindex = opts.get(MainOptions.RANGEINDEX);
 
     // check if indexing options have changed
     final int mc = opts.get(MainOptions.MAXCATS);
@@ -97,6 +110,7 @@ public final class DBOptimize extends DBUpdate {
     meta.stopwords  = sw;
     meta.maxcats    = mc;
     meta.maxlen     = ml;
+    meta.indexcache = opts.get(MainOptions.INDEXCACHE);
 
     try {
       if(all) OptimizeAll.optimizeAll(data, qc.context, opts, null);
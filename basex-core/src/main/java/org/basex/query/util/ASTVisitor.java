@@ -63,6 +63,16 @@ public abstract class ASTVisitor {
     return true;
   }
 
+  /**
+   * Notifies the visitor of a built-in function call.
+   * @param func function call
+   * @return if more expressions should be visited
+   */
+  @SuppressWarnings("unused")
+  public boolean funcCall(final StandardFunc func) {
+    return true;
+  }
+
   /**
    * Notifies the visitor of a dynamic function call.
    * @param call function call
@@ -83,6 +93,17 @@ public abstract class ASTVisitor {
     return true;
   }
 
+  /**
+   * Notifies the visitor of an expression that must not be evaluated by multiple threads
+   * in parallel.
+   * @param expr expression
+   * @return if more expressions should be visited
+   */
+  @SuppressWarnings("unused")
+  public boolean sequential(final Expr expr) {
+    return true;
+  }
+
   /**
    * Notifies the visitor of a database lock. Overwritten by {@link MainModule}.
    * @param db database to be locked
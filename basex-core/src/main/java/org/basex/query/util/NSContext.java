@@ -16,8 +16,6 @@ import org.basex.util.*;
 public final class NSContext {
   /** Static namespaces, containing prefixes and URIs. */
   private final Atts ns = new Atts();
-  /** Dynamically added namespaces. */
-  private Atts stack;
 
   /**
    * Validates and adds the specified namespace at parsing time.
@@ -58,64 +56,29 @@ public final class NSContext {
 
   /**
    * Returns the namespace URI for the specified prefix if it is either
-   * found in the dynamic, static or predefined namespaces.
+   * found in the static or predefined namespaces.
    * @param pref prefix of the namespace
    * @return namespace URI or {@code null}
    */
   public byte[] uri(final byte[] pref) {
-    if(stack != null) {
-      for(int s = stack.size() - 1; s >= 0; s--) {
-        if(eq(stack.name(s), pref)) return stack.value(s);
-      }
-    }
-    final byte[] u = staticURI(pref);
-    return u == null ? pref.length == 0 ? null : NSGlobal.uri(pref) : u.length == 0 ? null : u;
+    return uri(pref, null);
   }
 
   /**
-   * Returns the number of dynamic namespaces.
-   * @return namespaces
-   */
-  public int size() {
-    return stack().size();
-  }
-
-  /**
-   * Sets the number of dynamic namespaces.
-   * @param s namespaces
-   */
-  public void size(final int s) {
-    stack().size(s);
-  }
-
-  /**
-   * Adds a namespace to the namespace stack.
-   * @param pref namespace prefix
-   * @param uri namespace URI
-   */
-  public void add(final byte[] pref, final byte[] uri) {
-    stack().add(pref, uri);
-  }
-
-  /**
-   * Returns the namespace stack.
-   * @return stack
-   */
-  public Atts stack() {
-    if(stack == null) stack = new Atts();
-    return stack;
-  }
-
-  /**
-   * Adds the namespaces that are currently in scope.
-   * @param atts namespaces
+   * Returns the namespace URI for the specified prefix if it is either
+   * found in the dynamic, static or predefined namespaces.
+   * @param pref prefix of the namespace
+   * @param qc query context with the dynamically added namespaces (can be {@code null})
+   * @return namespace URI or {@code null}
    */
-  public void inScope(final Atts atts) {
-    if(stack != null) {
-      for(int s = stack.size() - 1; s >= 0; s--) {
-        final byte[] nm = stack.name(s);
-        if(!atts.contains(nm)) atts.add(nm, stack.value(s));
+  public byte[] uri(final byte[] pref, final QueryContext qc) {
+    if(qc != null) {
+      final Atts st = qc.namespaces;
+      for(int s = st.size() - 1; s >= 0; s--) {
+        if(eq(st.name(s), pref)) return st.value(s);
       }
     }
+    final byte[] u = staticURI(pref);
+    return u == null ? pref.length == 0 ? null : NSGlobal.uri(pref) : u.length == 0 ? null : u;
   }
 }
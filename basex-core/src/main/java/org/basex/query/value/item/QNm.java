@@ -95,8 +95,19 @@ public final class QNm extends Item {
    * @param sc static context
    */
   public QNm(final byte[] name, final StaticContext sc) {
+    this(name, sc, null);
+  }
+
+  /**
+   * Constructor, binding a statically known or dynamically added namespace.
+   * If no namespace is found, the namespace uri is set to {@code null}.
+   * @param name name
+   * @param sc static context
+   * @param qc query context with the dynamically added namespaces (can be {@code null})
+   */
+  public QNm(final byte[] name, final StaticContext sc, final QueryContext qc) {
     this(name);
-    uri(sc.ns.uri(prefix()));
+    uri(sc.ns.uri(prefix(), qc));
   }
 
   /**
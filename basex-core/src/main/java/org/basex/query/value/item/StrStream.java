@@ -57,9 +57,30 @@ public final class StrStream extends AStr {
 
   @Override
   public TextInput input(final InputInfo ii) throws QueryException {
+    return input(false, ii);
+  }
+
+  /**
+   * Returns an input stream, in which all line breaks are normalized to newline characters.
+   * @param ii input info
+   * @return input stream
+   * @throws QueryException query exception
+   */
+  public NewlineInput lines(final InputInfo ii) throws QueryException {
+    return (NewlineInput) input(true, ii);
+  }
+
+  /**
+   * Returns an input stream.
+   * @param lines normalize line breaks
+   * @param ii input info
+   * @return input stream
+   * @throws QueryException query exception
+   */
+  private TextInput input(final boolean lines, final InputInfo ii) throws QueryException {
     TextInput ti = null;
     try {
-      ti = new TextInput(input);
+      ti = lines ? new NewlineInput(input) : new TextInput(input);
       ti.encoding(encoding).validate(validate);
       return ti;
     } catch(final IOException ex) {
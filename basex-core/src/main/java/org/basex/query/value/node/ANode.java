@@ -153,10 +153,10 @@ public abstract class ANode extends Item {
 
   /**
    * Returns a copy of the namespace hierarchy.
-   * @param sc static context
+   * @param qc query context with the dynamically added namespaces (can be {@code null})
    * @return namespaces
    */
-  public final Atts nsScope(final StaticContext sc) {
+  public final Atts nsScope(final QueryContext qc) {
     final Atts ns = new Atts();
     ANode node = this;
     do {
@@ -169,7 +169,13 @@ public abstract class ANode extends Item {
       }
       node = node.parent();
     } while(node != null && node.type == NodeType.ELM);
-    if(sc != null) sc.ns.inScope(ns);
+    if(qc != null) {
+      final Atts st = qc.namespaces;
+      for(int s = st.size() - 1; s >= 0; s--) {
+        final byte[] nm = st.name(s);
+        if(!ns.contains(nm)) ns.add(nm, st.value(s));
+      }
+    }
     return ns;
   }
 
@@ -720,7 +720,7 @@ public enum AtomType implements Type {
       if(item.type != STR && !item.type.isUntyped()) throw castError(ii, item, this);
       final byte[] nm = trim(item.string(ii));
       if(!XMLToken.isQName(nm)) throw funCastErr(item, ii);
-      final QNm qn = new QNm(nm, sc);
+      final QNm qn = new QNm(nm, sc, qc);
       if(!qn.hasURI() && qn.hasPrefix()) throw NSDECL_X.get(ii, qn.prefix());
       return qn;
     }
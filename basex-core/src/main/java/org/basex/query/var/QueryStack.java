@@ -65,6 +65,19 @@ public final class QueryStack {
     if(len != sl) resize(len);
   }
 
+  /**
+   * Initializes the stack with the current stack frame of another stack.
+   * @param qs query stack
+   */
+  public void init(final QueryStack qs) {
+    final int s = qs.start, l = qs.end - s;
+    ensureCapacity(l);
+    System.arraycopy(qs.stack, s, stack, 0, l);
+    System.arraycopy(qs.vars, s, vars, 0, l);
+    start = 0;
+    end = l;
+  }
+
   /**
    * Ensures that the query stack has at least the given size.
    * @param newSize required size of the stack
@@ -15,6 +15,7 @@ import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * Static variable to which an expression can be assigned.
@@ -52,6 +53,28 @@ public final class StaticVar extends StaticDecl {
     lazy = anns.contains(Annotation._BASEX_LAZY);
   }
 
+  /**
+   * Creates an uncompiled copy of this variable, without the bound expression
+   * (see {@link #copyExpr}).
+   * @param qc query context
+   * @param vs variable mapping
+   * @return copy
+   */
+  StaticVar copy(final QueryContext qc, final IntObjMap<Var> vs) {
+    return new StaticVar(sc, scope.copy(qc, vs), anns, name, declType, null, external,
+        docString(), info);
+  }
+
+  /**
+   * Assigns a copy of the expression of the specified variable.
+   * @param var original variable
+   * @param qc query context
+   * @param vs variable mapping
+   */
+  void copyExpr(final StaticVar var, final QueryContext qc, final IntObjMap<Var> vs) {
+    if(var.expr != null) expr = var.expr.copy(qc, scope, vs);
+  }
+
   @Override
   public void compile(final QueryContext qc) throws QueryException {
     if(expr == null) throw VAREMPTY_X.get(info, '$' + Token.string(name.string()));
@@ -73,7 +73,9 @@ final class StaticVarRef extends ParseExpr {
   @Override
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final StaticVarRef ref = new StaticVarRef(info, name, sc);
-    ref.var = var;
+    // reference the variable of the target context (differs if a cached query is copied)
+    final StaticVar sv = qc.vars.get(name);
+    ref.var = sv != null ? sv : var;
     return ref;
   }
 
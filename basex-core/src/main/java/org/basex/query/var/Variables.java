@@ -13,6 +13,7 @@ import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * Container of global variables of a module.
@@ -49,6 +50,38 @@ public final class Variables extends ExprInfo implements Iterable<StaticVar> {
     return var;
   }
 
+  /**
+   * Adds uncompiled copies of the variables of another query.
+   * @param vrs variables to be copied
+   * @param qc query context
+   */
+  public void copy(final Variables vrs, final QueryContext qc) {
+    // declare all variables before their expressions are copied
+    final ArrayList<StaticVar> origs = new ArrayList<>(), copies = new ArrayList<>();
+    final ArrayList<IntObjMap<Var>> maps = new ArrayList<>();
+    for(final Entry<QNm, VarEntry> e : vrs.vars.entrySet()) {
+      final StaticVar var = e.getValue().var;
+      final IntObjMap<Var> vs = new IntObjMap<>();
+      final StaticVar cvar = var.copy(qc, vs);
+      origs.add(var);
+      copies.add(cvar);
+      maps.add(vs);
+      vars.put(e.getKey(), new VarEntry(cvar));
+    }
+    final int vl = copies.size();
+    for(int v = 0; v < vl; v++) copies.get(v).copyExpr(origs.get(v), qc, maps.get(v));
+  }
+
+  /**
+   * Returns the declared variable with the specified name.
+   * @param name variable name
+   * @return variable or {@code null}
+   */
+  StaticVar get(final QNm name) {
+    final VarEntry ve = vars.get(name);
+    return ve != null ? ve.var : null;
+  }
+
   /**
    * Checks if none of the variables contains an updating expression.
    * @throws QueryException query exception
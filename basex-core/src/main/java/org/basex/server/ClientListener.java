@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import org.basex.*;
@@ -26,8 +27,8 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class ClientListener extends Thread {
-  /** Timer for authentication time out. */
-  public final Timer auth = new Timer();
+  /** Authentication timeout (may be {@code null}). */
+  public TimerTask auth;
   /** Timestamp of last interaction. */
   public long last;
 
@@ -76,105 +77,134 @@ public final class ClientListener extends Thread {
   @Override
   public void run() {
     if(!authenticate()) return;
+    while(running) process();
+  }
 
+  /**
+   * Processes a single client request.
+   */
+  void process() {
     try {
-      while(running) {
-        command = null;
-        String cmd;
-        final ServerCmd sc;
-        try {
-          final int b = in.read();
-          if(b == -1) {
-            // end of stream: exit session
-            quit();
-            break;
-          }
-
-          last = System.currentTimeMillis();
-          perf.time();
-          sc = ServerCmd.get(b);
-          cmd = null;
-          if(sc == ServerCmd.CREATE) {
-            create();
-          } else if(sc == ServerCmd.ADD) {
-            add();
-          } else if(sc == ServerCmd.WATCH) {
-            watch();
-          } else if(sc == ServerCmd.UNWATCH) {
-            unwatch();
-          } else if(sc == ServerCmd.REPLACE) {
-            replace();
-          } else if(sc == ServerCmd.STORE) {
-            store();
-          } else if(sc != ServerCmd.COMMAND) {
-            query(sc);
-          } else {
-            // database command
-            cmd = new ByteList().add(b).add(in.readBytes()).toString();
-          }
-        } catch(final IOException ex) {
-          // this exception may be thrown if a session is stopped
+      command = null;
+      String cmd;
+      final ServerCmd sc;
+      try {
+        final int b = in.read();
+        if(b == -1) {
+          // end of stream: exit session
           quit();
-          break;
-        }
-        if(sc != ServerCmd.COMMAND) continue;
-
-        // parse input and create command instance
-        try {
-          command = new CommandParser(cmd, context).parseSingle();
-          log(LogType.REQUEST, command.toString(true));
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log(LogType.REQUEST, cmd);
-          log(LogType.ERROR, msg);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.print(msg);
-          out.write(0);
-          // send 1 to mark error
-          send(false);
-          continue;
+          return;
         }
 
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info;
-        try {
-          // run command
-          command.execute(context, new EncodingOutput(out));
-          info = command.info();
-        } catch(final BaseXException ex) {
-          ok = false;
-          info = ex.getMessage();
-          if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+        last = System.currentTimeMillis();
+        perf.time();
+        sc = ServerCmd.get(b);
+        cmd = null;
+        if(sc == ServerCmd.CREATE) {
+          create();
+        } else if(sc == ServerCmd.ADD) {
+          add();
+        } else if(sc == ServerCmd.WATCH) {
+          watch();
+        } else if(sc == ServerCmd.UNWATCH) {
+          unwatch();
+        } else if(sc == ServerCmd.REPLACE) {
+          replace();
+        } else if(sc == ServerCmd.STORE) {
+          store();
+        } else if(sc != ServerCmd.COMMAND) {
+          query(sc);
+        } else {
+          // database command
+          cmd = new ByteList().add(b).add(in.readBytes()).toString();
         }
-
-        // send 0 to mark end of result
+      } catch(final IOException ex) {
+        // this exception may be thrown if a session is stopped
+        quit();
+        return;
+      }
+      if(sc != ServerCmd.COMMAND) return;
+
+      // parse input and create command instance
+      try {
+        command = new CommandParser(cmd, context).parseSingle();
+        log(LogType.REQUEST, command.toString(true));
+      } catch(final QueryException ex) {
+        // log invalid command
+        final String msg = ex.getMessage();
+        log(LogType.REQUEST, cmd);
+        log(LogType.ERROR, msg);
+        // send 0 to mark end of potential result
         out.write(0);
-        // send info
-        info(info, ok);
+        // send {INFO}0
+        out.print(msg);
+        out.write(0);
+        // send 1 to mark error
+        send(false);
+        return;
+      }
 
-        // stop console
-        if(command instanceof Exit) {
-          command = null;
-          quit();
-        }
+      // execute command and send {RESULT}
+      boolean ok = true;
+      String info;
+      try {
+        // run command
+        command.execute(context, new EncodingOutput(out));
+        info = command.info();
+      } catch(final BaseXException ex) {
+        ok = false;
+        info = ex.getMessage();
+        if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+      }
+
+      // send 0 to mark end of result
+      out.write(0);
+      // send info
+      info(info, ok);
+
+      // stop console
+      if(command instanceof Exit) {
+        command = null;
+        quit();
       }
     } catch(final IOException ex) {
       log(LogType.ERROR, Util.message(ex));
       command = null;
       quit();
+    } finally {
+      command = null;
     }
-    command = null;
+  }
+
+  /**
+   * Indicates if the session is running.
+   * @return result of check
+   */
+  boolean running() {
+    return running;
+  }
+
+  /**
+   * Indicates if the input of the next request has already been buffered.
+   * @return result of check
+   */
+  boolean buffered() {
+    return in.available() > 0;
+  }
+
+  /**
+   * Returns the socket channel of this session.
+   * @return channel (only available if the socket was created by a channel)
+   */
+  SocketChannel channel() {
+    return socket.getChannel();
   }
 
   /**
    * Initializes a session via digest authentication.
    * @return success flag
    */
-  private boolean authenticate() {
+  boolean authenticate() {
     try {
       final String nonce = Long.toString(System.nanoTime());
       final byte[] address = socket.getInetAddress().getAddress();
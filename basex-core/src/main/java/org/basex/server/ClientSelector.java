@@ -0,0 +1,173 @@
+package org.basex.server;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class multiplexes the connections of all clients with a single selector.
+ * Sessions that are waiting for their next request are registered with the selector and
+ * occupy no thread. As soon as a request arrives, the session is dispatched to a worker
+ * pool with a fixed number of threads, which processes the request with the blocking
+ * client/server protocol of the {@link ClientListener}.
+ *
+ * Logins and requests are read by the worker threads as well. As a worker thread is blocked
+ * until a login or request has been completely received, a read timeout is assigned to all
+ * connections: new clients must log in, and clients that have started sending a request must
+ * send the remaining data within {@link #TIMEOUT} milliseconds, or their session is closed.
+ * Clients with very slow connections should use a server with one thread per client.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientSelector {
+  /** Timeout for reading the remaining data of a login or request (ms). */
+  static final int TIMEOUT = 5000;
+
+  /** Server channel. */
+  private final ServerSocketChannel server;
+  /** Selector. */
+  private final Selector selector;
+  /** Worker threads. */
+  private final ExecutorService workers;
+  /** Sessions that are waiting to be registered with the selector. */
+  private final ConcurrentLinkedQueue<ClientListener> idle = new ConcurrentLinkedQueue<>();
+  /** Accepted connections. */
+  private final ArrayDeque<Socket> accepted = new ArrayDeque<>();
+
+  /**
+   * Constructor.
+   * @param address socket address
+   * @param threads number of worker threads
+   * @throws IOException I/O exception
+   */
+  public ClientSelector(final InetSocketAddress address, final int threads) throws IOException {
+    server = ServerSocketChannel.open();
+    server.socket().setReuseAddress(true);
+    server.socket().bind(address);
+    server.configureBlocking(false);
+    selector = Selector.open();
+    server.register(selector, SelectionKey.OP_ACCEPT);
+
+    workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Returns the server socket.
+   * @return server socket
+   */
+  public ServerSocket socket() {
+    return server.socket();
+  }
+
+  /**
+   * Waits for the next incoming connection. In the meantime, requests of connected
+   * clients are dispatched to the worker threads.
+   * @return socket
+   * @throws IOException I/O exception
+   */
+  public Socket accept() throws IOException {
+    try {
+      while(accepted.isEmpty()) {
+        selector.select();
+
+        // register sessions that are waiting for their next request
+        for(ClientListener cl; (cl = idle.poll()) != null;) {
+          try {
+            cl.channel().register(selector, SelectionKey.OP_READ, cl);
+          } catch(final ClosedChannelException ex) {
+            cl.quit();
+          }
+        }
+
+        final ArrayList<ClientListener> ready = new ArrayList<>();
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while(keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          if(!key.isValid()) continue;
+          if(key.isAcceptable()) {
+            final SocketChannel sc = server.accept();
+            if(sc != null) {
+              sc.socket().setSoTimeout(TIMEOUT);
+              accepted.add(sc.socket());
+            }
+          } else if(key.isReadable()) {
+            key.cancel();
+            ready.add((ClientListener) key.attachment());
+          }
+        }
+
+        if(!ready.isEmpty()) {
+          // deregister cancelled channels before they are switched to blocking mode
+          selector.selectNow();
+          for(final ClientListener cl : ready) execute(cl, false);
+        }
+      }
+      return accepted.poll();
+    } catch(final ClosedSelectorException ex) {
+      throw new SocketException(ex.toString());
+    }
+  }
+
+  /**
+   * Authenticates a new session and processes its requests.
+   * @param cl session
+   */
+  public void start(final ClientListener cl) {
+    execute(cl, true);
+  }
+
+  /**
+   * Closes the selector and stops all worker threads.
+   * @throws IOException I/O exception
+   */
+  public void close() throws IOException {
+    workers.shutdownNow();
+    selector.close();
+    server.close();
+  }
+
+  /**
+   * Processes the requests of a session in a worker thread. Afterwards, the session
+   * will be registered with the selector again.
+   * @param cl session
+   * @param auth authenticate session
+   */
+  private void execute(final ClientListener cl, final boolean auth) {
+    workers.execute(new Runnable() {
+      @Override
+      public void run() {
+        final SocketChannel sc = cl.channel();
+        try {
+          sc.configureBlocking(true);
+          if(auth) {
+            if(!cl.authenticate()) {
+              sc.close();
+              return;
+            }
+          } else {
+            cl.process();
+          }
+          // process requests that have already been sent
+          while(cl.running() && cl.buffered()) cl.process();
+          if(!cl.running()) return;
+          sc.configureBlocking(false);
+          idle.add(cl);
+          selector.wakeup();
+        } catch(final IOException ex) {
+          cl.quit();
+        }
+      }
+    });
+  }
+}
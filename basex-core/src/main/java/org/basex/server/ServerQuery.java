@@ -178,7 +178,7 @@ public final class ServerQuery extends Proc {
     if(!parsed) {
       try {
         perf.time();
-        init().parse();
+        init().parseCached();
         qp.qc.info.parsing = perf.time();
         parsed = true;
       } catch(final QueryException ex) {
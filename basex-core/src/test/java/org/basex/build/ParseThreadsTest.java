@@ -0,0 +1,100 @@
+package org.basex.build;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link MainOptions#PARSETHREADS} option.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ParseThreadsTest extends SandboxTest {
+  /** Test directory. */
+  private static final String DIR = "src/test/resources/dir";
+  /** Test ZIP file. */
+  private static final String ZIPFILE = "src/test/resources/xml.zip";
+  /** Query for serializing all documents with their paths. */
+  private static final String QUERY =
+    "for $d in db:open('" + NAME + "') return (document-uri($d), $d)";
+  /** Temporary directory. */
+  private static final IOFile TEMP = new IOFile(Prop.TMP, NAME + "-dir");
+
+  /**
+   * Resets the options.
+   * @throws BaseXException exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new Set(MainOptions.PARSETHREADS, 1).execute(context);
+    new Set(MainOptions.SKIPCORRUPT, false).execute(context);
+    new DropDB(NAME).execute(context);
+    TEMP.delete();
+  }
+
+  /**
+   * Imports a directory.
+   * @throws BaseXException exception
+   */
+  @Test
+  public void dir() throws BaseXException {
+    compare(DIR);
+  }
+
+  /**
+   * Imports a ZIP archive.
+   * @throws BaseXException exception
+   */
+  @Test
+  public void zip() throws BaseXException {
+    compare(ZIPFILE);
+  }
+
+  /**
+   * Imports a directory with many small files, some of which are corrupt.
+   * @throws Exception exception
+   */
+  @Test
+  public void manyFiles() throws Exception {
+    TEMP.md();
+    for(int i = 0; i < 200; i++) {
+      final String xml = i % 37 == 5 ? "<x" : "<x a='" + i + "'><y>" + i + "</y></x>";
+      new IOFile(TEMP, i + IO.XMLSUFFIX).write(Token.token(xml));
+    }
+    new Set(MainOptions.SKIPCORRUPT, true).execute(context);
+    compare(TEMP.path());
+  }
+
+  /**
+   * Creates a database sequentially and in parallel and compares the results.
+   * @param input input
+   * @throws BaseXException exception
+   */
+  private static void compare(final String input) throws BaseXException {
+    new CreateDB(NAME, input).execute(context);
+    final String expected = new XQuery(QUERY).execute(context);
+    final String info = new InfoDB().execute(context);
+    for(final int threads : new int[] { 2, 4, 0 }) {
+      new Set(MainOptions.PARSETHREADS, threads).execute(context);
+      new CreateDB(NAME, input).execute(context);
+      assertEquals(expected, new XQuery(QUERY).execute(context));
+      assertEquals(strip(info), strip(new InfoDB().execute(context)));
+    }
+  }
+
+  /**
+   * Removes timestamps from database information.
+   * @param info database information
+   * @return resulting string
+   */
+  private static String strip(final String info) {
+    return info.replaceAll("\\d+ \\w+ ago|\\d+-\\d+-\\d+.*", "");
+  }
+}
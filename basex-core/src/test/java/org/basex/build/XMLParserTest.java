@@ -120,4 +120,39 @@ public final class XMLParserTest extends SandboxTest {
       assertEquals("Internal parser: " + b, out, result);
     }
   }
+
+  /**
+   * Compares the results of the internal and the default parser for texts and attribute
+   * values with line breaks, entities and non-ASCII characters, which partially exceed the
+   * size of the input buffer.
+   * @throws Exception exceptions
+   */
+  @Test
+  public void text() throws Exception {
+    context.options.set(MainOptions.CHOP, false);
+    context.options.set(MainOptions.SERIALIZER, SerializerOptions.get(false));
+
+    final String[] strings = { "abc ", "\r\n", "\r", "\n", "\t", "&amp;", "&#x41;", "&#xe4;",
+        "\u00e4", "\u20ac", "\ud83d\ude00", "]", "]]", "&gt;", "'", "\"" };
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 20000; i++) {
+      final String s = strings[i * 7 % strings.length];
+      sb.append(s.equals("]]") ? "]] " : s);
+      if(i % 1000 == 999) {
+        sb.append("<a b='").append(sb.substring(sb.length() - 50).replaceAll("['<\\t]", ""));
+        sb.append("'/>");
+      }
+    }
+    final String doc = sb.append("</x>").toString();
+
+    String expected = null;
+    for(final boolean b : new boolean[] { false, true }) {
+      context.options.set(MainOptions.INTPARSE, b);
+      new CreateDB(NAME, doc).execute(context);
+      final String result = new XQuery("(//text(), //@b) ! string-to-codepoints(.)").
+          execute(context);
+      if(expected == null) expected = result;
+      else assertEquals(expected, result);
+    }
+  }
 }
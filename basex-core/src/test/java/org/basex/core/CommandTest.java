@@ -273,6 +273,44 @@ public class CommandTest extends SandboxTest {
     ok(io.delete());
   }
 
+  /** Command test. */
+  @Test
+  public final void exportArchive() throws IOException {
+    ok(new CreateDB(NAME));
+    for(int i = 0; i < 20; i++) ok(new Add("dir/" + i + ".xml", "<x>" + i + "</x>"));
+    ok(new XQuery(_DB_STORE.args(NAME, "raw.bin", "abc")));
+    ok(new Set(MainOptions.EXPORTTHREADS, 4));
+
+    // parallel export to a directory
+    final IOFile dir = new IOFile(sandbox(), "export");
+    ok(new Export(dir.path()));
+    assertEquals(20, new IOFile(dir, "dir").children().length);
+    assertEquals("<x>7</x>", string(new IOFile(dir, "dir/7.xml").read()));
+    assertEquals("abc", string(new IOFile(dir, "raw.bin").read()));
+
+    // paths with archive suffixes are only treated as archives if this is requested
+    final IOFile zip = new IOFile(sandbox(), "export" + IO.ZIPSUFFIX);
+    ok(new Export(zip.path()));
+    ok(zip.isDir());
+    ok(zip.delete());
+    ok(new Set(MainOptions.EXPORTARCHIVE, true));
+    no(new Export(new IOFile(sandbox(), "export.xml").path()));
+
+    // export to archives, and create new databases from the archives
+    for(final String suffix : new String[] { IO.ZIPSUFFIX, IO.TARSUFFIX, IO.TGZSUFFIX }) {
+      final IOFile archive = new IOFile(sandbox(), "export" + suffix);
+      ok(new Export(archive.path()));
+      ok(!archive.isDir());
+      ok(new CreateDB(NAME2, archive.path()));
+      assertEquals("20", ok(new XQuery("count(" + _DB_LIST.args(NAME2) + ')')));
+      assertEquals("<x>7</x>", ok(new XQuery(_DB_OPEN.args(NAME2, "dir/7.xml"))));
+      ok(archive.delete());
+    }
+    ok(new Set(MainOptions.EXPORTARCHIVE, false));
+    ok(new Set(MainOptions.EXPORTTHREADS, 1));
+    ok(dir.delete());
+  }
+
   /** Command test. */
   @Test
   public final void find() {
@@ -0,0 +1,66 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.random.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the columnar, compressed storage of the {@link TableColumns} class.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ColumnarTableTest extends TwinDatabaseTest {
+  /**
+   * Creates a compressed and an uncompressed test database.
+   */
+  @Before
+  public void setUp() {
+    create("<b x='{ . }'>{ . }<!--c--></b>", "'columnar': true()", "");
+  }
+
+  /**
+   * Reads a compressed table.
+   */
+  @Test
+  public void read() {
+    assertEquals("true", query("db:info('" + NAME + "')//columnar/string()"));
+    assertEquals("false", query("db:info('" + NAME2 + "')//columnar/string()"));
+    assertEquals(String.valueOf(SIZE), query("count(db:open('" + NAME + "')//b)"));
+    assertEquals("100", query("string(db:open('" + NAME + "')//b[@x = '100'])"));
+    check();
+    // the compressed table is smaller
+    assertEquals("true", query("let $p := db:system()//dbpath || '/' return " +
+        "file:size($p || '" + NAME + "/tbl.basex') * 2 < file:size($p || '" + NAME2 +
+        "/tbl.basex')"));
+  }
+
+  /**
+   * Updates a compressed table, and checks it before and after reopening and optimizing
+   * the database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    for(final String db : new String[] { NAME, NAME2 }) {
+      query("delete node db:open('" + db + "')/a/b[position() <= " + SIZE / 2 + ']');
+      query("insert node (1 to 1000) ! <c/> into db:open('" + db + "')/a/b[100]");
+      query("for $b in db:open('" + db + "')/a/b[position() mod 10 = 0] " +
+          "return rename node $b as 'd'");
+    }
+    check();
+    new Open(NAME).execute(context);
+    new Close().execute(context);
+    check();
+    new Open(NAME).execute(context);
+    new OptimizeAll().execute(context);
+    new Close().execute(context);
+    assertEquals("true", query("db:info('" + NAME + "')//columnar/string()"));
+    check();
+  }
+
+}
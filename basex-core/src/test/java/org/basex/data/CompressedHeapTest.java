@@ -0,0 +1,70 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.random.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the compressed texts and attribute values of the {@link HeapBlocks} class.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedHeapTest extends TwinDatabaseTest {
+  /**
+   * Creates a compressed and an uncompressed test database.
+   */
+  @Before
+  public void setUp() {
+    create("<b x='value { . }'>text { . }<!--c--></b>", "'blockcompress': true()", "");
+  }
+
+  /**
+   * Reads compressed texts and attribute values.
+   */
+  @Test
+  public void read() {
+    assertEquals("true", query("db:info('" + NAME + "')//blockcompress/string()"));
+    assertEquals("false", query("db:info('" + NAME2 + "')//blockcompress/string()"));
+    assertEquals(String.valueOf(SIZE), query("count(db:open('" + NAME + "')//b)"));
+    assertEquals("text 100", query("string(db:open('" + NAME + "')//b[@x = 'value 100'])"));
+    check();
+    // the compressed files are smaller
+    for(final String file : new String[] { "txt", "atv" }) {
+      assertEquals("true", query("let $p := db:system()//dbpath || '/' return " +
+          "file:size($p || '" + NAME + '/' + file + ".basex') * 2 < file:size($p || '" + NAME2 +
+          '/' + file + ".basex')"));
+    }
+  }
+
+  /**
+   * Updates compressed texts and attribute values, and checks them before and after reopening
+   * and optimizing the database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    for(final String db : new String[] { NAME, NAME2 }) {
+      query("delete node db:open('" + db + "')/a/b[position() <= " + SIZE / 2 + ']');
+      query("insert node (1 to 1000) ! <c y='{ . }'>c { . }</c> " +
+          "into db:open('" + db + "')/a/b[100]");
+      query("for $b in db:open('" + db + "')/a/b[position() mod 10 = 0] " +
+          "return (replace value of node $b/text() with 'new text ' || $b, " +
+          "replace value of node $b/@x with string-join((1 to 100) ! string()))");
+    }
+    check();
+    new Open(NAME).execute(context);
+    new Close().execute(context);
+    check();
+    new Open(NAME).execute(context);
+    new OptimizeAll().execute(context);
+    new Close().execute(context);
+    assertEquals("true", query("db:info('" + NAME + "')//blockcompress/string()"));
+    check();
+  }
+
+}
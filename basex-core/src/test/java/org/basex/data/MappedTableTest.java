@@ -0,0 +1,111 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for memory-mapped read access of the {@link TableDiskAccess} class.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedTableTest extends SandboxTest {
+  /** Number of generated elements (spans several blocks). */
+  private static final int SIZE = 20000;
+
+  /**
+   * Enables memory mapping and creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    context.soptions.set(StaticOptions.MMAP, true);
+    new CreateDB(NAME, "<a/>").execute(context);
+    query("insert node (1 to " + SIZE + ") ! <b x='{ . }'>{ . }</b> into /a");
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+  }
+
+  /**
+   * Drops the test database and resets the option.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.soptions.set(StaticOptions.MMAP, false);
+  }
+
+  /**
+   * Reads a regular table.
+   */
+  @Test
+  public void read() {
+    assertEquals(String.valueOf(SIZE), query("count(//b)"));
+    assertEquals(String.valueOf(SIZE), query("count(//b/@x)"));
+    assertEquals(String.valueOf(SIZE), query("string(/a/b[last()])"));
+    assertEquals("100", query("string(//b[@x = '100'])"));
+  }
+
+  /**
+   * Reads the table after updates, before and after reopening the database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    query("delete node /a/b[position() <= " + SIZE / 2 + ']');
+    query("insert node (1 to 1000) ! <c/> into /a/b[100]");
+    check();
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    check();
+  }
+
+  /**
+   * Checks if the files of a database are unmapped when it is closed.
+   * @throws Exception exception
+   */
+  @Test
+  public void unmap() throws Exception {
+    // mappings of the current process can only be checked on Linux
+    final IOFile maps = new IOFile("/proc/self/maps");
+    if(!maps.exists()) return;
+    final String path = context.soptions.dbpath(NAME).path();
+    assertTrue(maps.string().contains(path));
+    // invalidate mappings
+    query("insert node <c/> into /a");
+    assertEquals("1", query("count(//c)"));
+    new Close().execute(context);
+    assertFalse(maps.string().contains(path));
+  }
+
+  /**
+   * Checks the contents of the updated database.
+   */
+  private static void check() {
+    assertEquals(String.valueOf(SIZE / 2), query("count(//b)"));
+    assertEquals("1000", query("count(//c)"));
+    assertEquals(String.valueOf(SIZE / 2 + 100), query("string(/a/b[c]/@x)"));
+    assertEquals(String.valueOf(SIZE), query("string(/a/b[last()])"));
+  }
+
+  /**
+   * Runs the specified query.
+   * @param query query string
+   * @return result
+   */
+  private static String query(final String query) {
+    try {
+      return new XQuery(query).execute(context);
+    } catch(final BaseXException ex) {
+      throw new AssertionError(ex);
+    }
+  }
+}
\ No newline at end of file
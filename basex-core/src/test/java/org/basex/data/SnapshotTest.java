@@ -0,0 +1,106 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.api.client.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.index.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for snapshot reads of databases that are updated.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class SnapshotTest extends TwinDatabaseTest {
+  /**
+   * Creates and opens the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    createDB(NAME, "<b x='{ . }'>{ . }</b>", "'mvcc': true(), 'updindex': true()");
+    new Open(NAME).execute(context);
+  }
+
+  /**
+   * Reads the last committed version while the database is updated.
+   * @throws Exception exception
+   */
+  @Test
+  public void read() throws Exception {
+    assertEquals("true", snapshot("db:info('" + NAME + "')//mvcc/string()"));
+
+    final Data data = context.data();
+    data.startUpdate(context.options);
+    try {
+      // delete root element
+      data.delete(1);
+      assertEquals(String.valueOf(SIZE), snapshot("count(db:open('" + NAME + "')//b)"));
+      assertEquals("17", snapshot("db:open('" + NAME + "')//b[text() = '17']/string()"));
+      assertEquals("19", snapshot("db:open('" + NAME + "')//b[@x = '19']/string()"));
+    } finally {
+      data.finishUpdate(context.options);
+    }
+    assertEquals("0", snapshot("count(db:open('" + NAME + "')//b)"));
+    assertEquals("", snapshot("db:open('" + NAME + "')//b[text() = '17']/string()"));
+  }
+
+  /**
+   * Reads snapshots while the database is updated by another session.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrent() throws Exception {
+    final Thread writer = new Thread() {
+      @Override
+      public void run() {
+        try(final Session session = new LocalSession(context)) {
+          for(int i = 0; i < 20; i++) {
+            session.execute(new XQuery("insert node (1 to 100) ! <b x='{ . }'/> into " +
+                "db:open('" + NAME + "')/a"));
+          }
+        } catch(final Exception ex) {
+          throw new AssertionError(ex);
+        }
+      }
+    };
+    writer.start();
+    while(writer.isAlive()) {
+      // the number of elements must always reflect a committed version
+      final int count = Integer.parseInt(snapshot("count(db:open('" + NAME + "')//b)"));
+      assertEquals(0, (count - SIZE) % 100);
+    }
+    writer.join();
+    assertEquals(String.valueOf(SIZE + 2000), snapshot("count(db:open('" + NAME + "')//b)"));
+  }
+
+  /**
+   * Rebuilds an index after snapshots have been read.
+   * @throws Exception exception
+   */
+  @Test
+  public void createIndex() throws Exception {
+    assertEquals("1", snapshot("count(db:open('" + NAME + "')//b[text() = '5'])"));
+    new CreateIndex(IndexType.TEXT).execute(context);
+    new XQuery("delete node /a/b[1]").execute(context);
+    assertEquals("0", snapshot("count(db:open('" + NAME + "')//b[text() = '1'])"));
+    new DropIndex(IndexType.ATTRIBUTE).execute(context);
+    assertEquals("1", snapshot("count(db:open('" + NAME + "')//b[@x = '5'])"));
+  }
+
+  /**
+   * Runs a query in a new session.
+   * @param query query string
+   * @return result
+   * @throws Exception exception
+   */
+  private static String snapshot(final String query) throws Exception {
+    try(final Session session = new LocalSession(context)) {
+      return session.execute(new XQuery(query));
+    }
+  }
+}
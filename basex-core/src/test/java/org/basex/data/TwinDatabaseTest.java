@@ -0,0 +1,71 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.junit.*;
+
+/**
+ * This class contains methods for tests that compare a database, which is created with
+ * specific options, with a twin database that is created with the default options.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public abstract class TwinDatabaseTest extends AdvancedQueryTest {
+  /** Number of generated elements (spans several blocks). */
+  protected static final int SIZE = 20000;
+  /** Name of the twin database. */
+  protected static final String NAME2 = NAME + '2';
+
+  /**
+   * Creates the test database and its twin.
+   * Both databases contain a root element with {@link #SIZE} child elements.
+   * @param child child element, in which the context item is bound to the current position
+   * @param options options of the test database
+   * @param shared options of both databases (can be empty)
+   */
+  protected static void create(final String child, final String options, final String shared) {
+    createDB(NAME, child, options + (shared.isEmpty() ? "" : ", " + shared));
+    createDB(NAME2, child, shared);
+  }
+
+  /**
+   * Creates a single database with a root element and {@link #SIZE} child elements.
+   * @param name name of the database
+   * @param child child element, in which the context item is bound to the current position
+   * @param options database options (can be empty)
+   */
+  protected static void createDB(final String name, final String child, final String options) {
+    query("db:create('" + name + "', <a>{ (1 to " + SIZE + ") ! " + child + " }</a>, " +
+        "'a.xml', map { " + options + " })");
+  }
+
+  /**
+   * Drops the test database and its twin (if it exists).
+   * @throws BaseXException database exception
+   */
+  @After
+  public final void drop() throws BaseXException {
+    new Close().execute(context);
+    new DropDB(NAME).execute(context);
+    new DropDB(NAME2).execute(context);
+  }
+
+  /**
+   * Compares the test database with its twin.
+   */
+  protected static void check() {
+    check(NAME);
+  }
+
+  /**
+   * Compares the specified database with the twin database.
+   * @param db name of database
+   */
+  protected static void check(final String db) {
+    assertEquals("true", query("deep-equal(db:open('" + db + "'), db:open('" + NAME2 + "'))"));
+  }
+}
@@ -0,0 +1,132 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.index.*;
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for updates that are logged by the {@link WriteAheadLog}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteAheadLogTest extends TwinDatabaseTest {
+  /** Name of the recovered database. */
+  private static final String NAME3 = NAME + '3';
+
+  /**
+   * Creates a logged and an unlogged test database.
+   */
+  @Before
+  public void setUp() {
+    create("<b x='value { . }'>text { . }</b>", "'wal': true()", "'updindex': true()");
+  }
+
+  /**
+   * Drops the recovered database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void tearDown() throws BaseXException {
+    new Close().execute(context);
+    new DropDB(NAME3).execute(context);
+  }
+
+  /**
+   * Performs logged updates, and checks the database before and after reopening it.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    assertEquals("true", query("db:info('" + NAME + "')//wal/string()"));
+    new Open(NAME).execute(context);
+    updates();
+    compare(NAME);
+    // changes have not been written back yet
+    assertTrue(wal(NAME).length() > 0);
+    assertEquals("text 17", query("string(db:open('" + NAME + "')//b[text() = 'text 17'])"));
+    assertEquals("c 5", query("string(db:open('" + NAME + "')//c[@y = '5'][1])"));
+
+    new Close().execute(context);
+    assertFalse(wal(NAME).exists());
+    compare(NAME);
+  }
+
+  /**
+   * Recovers a database from the log.
+   * @throws Exception exception
+   */
+  @Test
+  public void recover() throws Exception {
+    new Open(NAME).execute(context);
+    updates();
+    // simulate a crash: copy database files while the database is opened
+    final IOFile source = context.soptions.dbpath(NAME), target = context.soptions.dbpath(NAME3);
+    target.md();
+    for(final IOFile file : source.children()) file.copyTo(new IOFile(target, file.name()));
+    assertTrue(wal(NAME3).length() > 0);
+
+    new Open(NAME3).execute(context);
+    assertFalse(wal(NAME3).exists());
+    compare(NAME3);
+    assertEquals(String.valueOf(SIZE), query("count(db:open('" + NAME3 + "')//b)"));
+  }
+
+  /**
+   * Creates an index after logged updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void createIndex() throws BaseXException {
+    new Open(NAME).execute(context);
+    updates();
+    new CreateIndex(IndexType.FULLTEXT).execute(context);
+    assertEquals(0, wal(NAME).length());
+    updates();
+    new Close().execute(context);
+    new Open(NAME2).execute(context);
+    updates();
+    new Close().execute(context);
+    compare(NAME);
+  }
+
+  /**
+   * Performs several small updates on both databases.
+   */
+  private static void updates() {
+    for(final String db : new String[] { NAME, NAME2 }) {
+      for(int i = 1; i <= 20; i++) {
+        query("insert node <c y='" + i + "'>c { " + i + " }</c> " +
+            "into db:open('" + db + "')/a/b[" + i * 500 + ']');
+        query("replace value of node db:open('" + db + "')/a/b[" + i * 700 + "]/@x " +
+            "with 'new " + i + "'");
+        query("delete node db:open('" + db + "')/a/b[" + i * 300 + "]/text()");
+      }
+    }
+  }
+
+  /**
+   * Compares the specified database and its updated index with the database without log.
+   * @param db name of database
+   */
+  private static void compare(final String db) {
+    check(db);
+    assertEquals(query("count(db:open('" + NAME2 + "')//*[text() = 'c 3'])"),
+        query("count(db:open('" + db + "')//*[text() = 'c 3'])"));
+  }
+
+  /**
+   * Returns the log file of a database.
+   * @param db name of database
+   * @return log file
+   */
+  private static IOFile wal(final String db) {
+    return new IOFile(context.soptions.dbpath(db), DataText.DATAWAL + IO.BASEXSUFFIX);
+  }
+}
@@ -0,0 +1,98 @@
+package org.basex.index;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.basex.query.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the parallel creation of index structures
+ * (see {@link MainOptions#INDEXTHREADS}).
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexBuilderTest extends AdvancedQueryTest {
+  /** Number of elements (results in several partitions). */
+  private static final int SIZE = 50000;
+  /** Queries for checking the index structures. */
+  private static final String[] QUERIES = {
+    "count(" + _DB_TEXT.args(NAME, "17") + ')',
+    "sum(" + _DB_TEXT.args(NAME, "999") + " ! db:node-pre(.))",
+    "sum(" + _DB_ATTRIBUTE.args(NAME, "v976") + " ! db:node-pre(.))",
+    "sum(" + _DB_OPEN.args(NAME) + "//b[text() contains text 'text3'] ! db:node-pre(.))",
+    "count(" + _DB_OPEN.args(NAME) + "//b[text() contains text 'common'])",
+    "count(" + _FT_TOKENS.args(NAME) + ')',
+    "sum(" + _FT_TOKENS.args(NAME) + " ! xs:integer(@count))"
+  };
+
+  /**
+   * Initializes the test.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void before() throws BaseXException {
+    run(new Set(MainOptions.FTINDEX, true));
+    run(new CreateDB(NAME, query("<a>{ (1 to " + SIZE + ") ! <b x='v{ . mod 977 }'>word{ . } " +
+        "common text{ . mod 7 }<c>{ . mod 1013 }</c></b> }</a>")));
+  }
+
+  /**
+   * Finalizes the test.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void after() throws BaseXException {
+    run(new DropDB(NAME));
+    run(new Set(MainOptions.FTINDEX, false));
+    run(new Set(MainOptions.INDEXTHREADS, 1));
+    run(new Set(MainOptions.INDEXSPLITSIZE, 0));
+    run(new Set(MainOptions.FTINDEXSPLITSIZE, 0));
+  }
+
+  /**
+   * Compares the results of sequentially and concurrently built index structures.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void parallel() throws BaseXException {
+    final String[] expected = results(1);
+    assertArrayEquals(expected, results(4));
+    run(new Set(MainOptions.INDEXSPLITSIZE, 10000));
+    run(new Set(MainOptions.FTINDEXSPLITSIZE, 10000));
+    assertArrayEquals(expected, results(1));
+    assertArrayEquals(expected, results(4));
+  }
+
+  /**
+   * Rebuilds all index structures and returns the results of the test queries.
+   * @param threads number of threads
+   * @return results
+   * @throws BaseXException database exception
+   */
+  private static String[] results(final int threads) throws BaseXException {
+    run(new Set(MainOptions.INDEXTHREADS, threads));
+    run(new CreateIndex(CmdIndex.TEXT));
+    run(new CreateIndex(CmdIndex.ATTRIBUTE));
+    run(new CreateIndex(CmdIndex.FULLTEXT));
+    final int ql = QUERIES.length;
+    final String[] results = new String[ql];
+    for(int q = 0; q < ql; q++) results[q] = query(QUERIES[q]);
+    return results;
+  }
+
+  /**
+   * Runs the specified command.
+   * @param cmd command to be run
+   * @return string result
+   * @throws BaseXException database exception
+   */
+  private static String run(final Command cmd) throws BaseXException {
+    return cmd.execute(context);
+  }
+}
@@ -14,13 +14,15 @@ import org.junit.*;
  * @author Dimitar Popov
  */
 public final class IndexCacheTest {
+  /** Maximum number of cached entries. */
+  private static final int MAX = 5000;
   /** Test instance. */
   private IndexCache cache;
 
   /** Set up method. */
   @Before
   public void setUp() {
-    cache = new IndexCache();
+    cache = new IndexCache(MAX);
   }
 
   /** Test for method {@link IndexCache#get(byte[])}. */
@@ -74,6 +76,33 @@ public final class IndexCacheTest {
     assertNull(cache.get(key));
   }
 
+  /** Test for the eviction of least recently used entries. */
+  @Test
+  public void testEvict() {
+    // request first entries repeatedly
+    for(int i = 0; i < 100; ++i) cache.add(token("keyEvict" + i), i, i);
+    for(int i = 0; i < 100; ++i) assertCacheEntry(token("keyEvict" + i), i, i);
+
+    // add entries that exceed the cache size
+    for(int i = 100; i < MAX * 2; ++i) cache.add(token("keyEvict" + i), i, i);
+    for(int i = 0; i < 100; ++i) assertCacheEntry(token("keyEvict" + i), i, i);
+    int cached = 0;
+    for(int i = 100; i < MAX * 2; ++i) {
+      if(cache.get(token("keyEvict" + i)) != null) cached++;
+    }
+    assertTrue(cached < MAX);
+    assertNull(cache.get(token("keyEvict100")));
+  }
+
+  /** Test for a disabled cache. */
+  @Test
+  public void testDisabled() {
+    cache = new IndexCache(0);
+    final byte[] key = token("keyDisabled");
+    assertEquals(12L, cache.add(key, 10, 12L).offset);
+    assertNull(cache.get(key));
+  }
+
   /**
    * Test that new records can be continuously added without hitting
    * {@link OutOfMemoryError}.
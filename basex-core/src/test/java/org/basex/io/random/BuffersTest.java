@@ -0,0 +1,124 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+/**
+ * Tests for class {@link Buffers}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class BuffersTest {
+  /** Instance under test. */
+  private Buffers bm;
+
+  /**
+   * Set up method.
+   */
+  @Before
+  public void setUp() {
+    bm = new Buffers();
+  }
+
+  /**
+   * Checks if recently requested blocks are found in the buffers.
+   */
+  @Test
+  public void hits() {
+    for(int b = 0; b < Buffers.MIN; b++) assertTrue(request(b));
+    for(int b = 0; b < Buffers.MIN; b++) assertFalse(request(b));
+    assertEquals(Buffers.MIN, bm.all().length);
+  }
+
+  /**
+   * Checks if frequently requested blocks survive a scan.
+   */
+  @Test
+  public void scan() {
+    final int hot = Buffers.MIN / 2;
+    for(int i = 0; i < 2; i++) {
+      for(int b = 0; b < hot; b++) request(b);
+    }
+    for(int b = 1000; b < 2000; b++) assertTrue(request(b));
+    for(int b = 0; b < hot; b++) assertFalse("Block " + b + " was replaced.", request(b));
+  }
+
+  /**
+   * Checks if the buffer contents are consistent after many replacements.
+   */
+  @Test
+  public void replace() {
+    for(int i = 0; i < 100000; i++) {
+      final long b = i * 7919L % 97;
+      request(b);
+      assertEquals(b, bm.current().pos);
+    }
+  }
+
+  /**
+   * Checks if shared buffers are returned to the pool when blocks are evicted.
+   */
+  @Test
+  public void shared() {
+    final long[] stats = Buffers.stats();
+    Buffers.capacity(Buffers.MIN);
+    final Buffers bs1 = new Buffers(true), bs2 = new Buffers(true);
+    try {
+      // first instance takes all shared buffers
+      for(int b = 0; b < Buffers.MIN * 3; b++) request(bs1, b);
+      assertEquals(Buffers.MIN * 2, bs1.all().length);
+      // second instance is refused a buffer; first instance returns one on eviction
+      for(int b = 0; b < Buffers.MIN + 1; b++) request(bs2, b);
+      assertEquals(Buffers.MIN, bs2.all().length);
+      request(bs1, 1000);
+      assertEquals(Buffers.MIN * 2 - 1, bs1.all().length);
+      request(bs2, 1000);
+      assertEquals(Buffers.MIN + 1, bs2.all().length);
+
+      // buffers remain consistent
+      for(int b = 0; b < Buffers.MIN * 3; b++) request(bs1, b);
+      for(int b = 0; b < Buffers.MIN * 3; b++) request(bs2, b);
+      for(final Buffers bs : new Buffers[] { bs1, bs2 }) {
+        final Buffer[] all = bs.all();
+        for(int i = 0; i < all.length; i++) {
+          for(int j = i + 1; j < all.length; j++) assertTrue(all[i].pos != all[j].pos);
+        }
+        for(final Buffer buf : all) {
+          if(buf.pos != -1) assertFalse(request(bs, buf.pos));
+        }
+      }
+    } finally {
+      bs1.release();
+      bs2.release();
+      Buffers.capacity((int) stats[1]);
+    }
+    // counters of released instances are preserved
+    final long[] st = Buffers.stats();
+    assertEquals(stats[0], st[0]);
+    assertTrue(st[2] > stats[2]);
+    assertTrue(st[3] >= stats[3] + Buffers.MIN * 4 + 3);
+  }
+
+  /**
+   * Requests a block.
+   * @param b block position
+   * @return {@code true} if block was not found in the buffers
+   */
+  private boolean request(final long b) {
+    return request(bm, b);
+  }
+
+  /**
+   * Requests a block from the specified buffers.
+   * @param bs buffers
+   * @param b block position
+   * @return {@code true} if block was not found in the buffers
+   */
+  private static boolean request(final Buffers bs, final long b) {
+    final boolean miss = bs.cursor(b);
+    if(miss) bs.current().pos = b;
+    return miss;
+  }
+}
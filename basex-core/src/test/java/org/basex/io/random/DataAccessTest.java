@@ -81,7 +81,17 @@ public class DataAccessTest {
     try(final RandomAccessFile f = new RandomAccessFile(file.file(), "rw")) {
       initialContent(f);
     }
-    da = new DataAccess(file);
+    da = open(file);
+  }
+
+  /**
+   * Opens the instance under test.
+   * @param f file to be opened
+   * @return instance
+   * @throws IOException I/O exception
+   */
+  protected DataAccess open(final IOFile f) throws IOException {
+    return new DataAccess(f);
   }
 
   /**
@@ -0,0 +1,48 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link DataAccess}, using memory-mapped files.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedDataAccessTest extends DataAccessTest {
+  @Override
+  protected DataAccess open(final IOFile f) throws IOException {
+    return new DataAccess(f, true);
+  }
+
+  /**
+   * Checks if all mappings of a file are released when it is closed.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void unmap() throws IOException {
+    // mappings of the current process can only be checked on Linux
+    final IOFile maps = new IOFile("/proc/self/maps");
+    if(!maps.exists()) return;
+
+    final IOFile file = new IOFile(Prop.TMP, "mapped" + IO.BASEXSUFFIX);
+    final DataAccess da = open(file);
+    try {
+      // each flush replaces the current mapping
+      for(int i = 0; i < 3; i++) {
+        da.write4(i << 2, i);
+        da.flush();
+      }
+      assertTrue(maps.string().contains(file.path()));
+    } finally {
+      da.close();
+    }
+    assertFalse(maps.string().contains(file.path()));
+    assertTrue(file.delete());
+  }
+}
@@ -21,6 +21,39 @@ import org.junit.Test;
  * @author Christian Gruen
  */
 public final class IndexOptimizeTest extends AdvancedQueryTest {
+  /**
+   * Checks the name index.
+   * @throws Exception unexpected exception
+   */
+  @Test
+  public void nameIndex() throws Exception {
+    new Set(MainOptions.NAMEINDEX, true).execute(context);
+    new Set(MainOptions.UPDINDEX, true).execute(context);
+    try {
+      new CreateDB(NAME, query("<xml><a><b x='1'>1</b></a><a><b x='2'>2</b><c/></a>" +
+          "{ (1 to 100) ! <a/> }</xml>")).execute(context);
+      check("data(//b)", "1\n2");
+      check("data(//b[@x = 2])", "2");
+      check("sum(//@x)", "3");
+      check("count(//c/..)", "1");
+
+      // index is updated incrementally
+      query("insert node <b x='3'>3</b> into /xml/a[3]");
+      check("data(//b)", "1\n2\n3");
+      query("delete node (//b)[1]");
+      check("data(//b)", "2\n3");
+      check("sum(//@x)", "5");
+      query("rename node //b[. = 3] as 'c'");
+      check("data(//b)", "2");
+      check("count(//c)", "2");
+      new Optimize().execute(context);
+      check("data(//b)", "2");
+    } finally {
+      new Set(MainOptions.NAMEINDEX, false).execute(context);
+      new Set(MainOptions.UPDINDEX, false).execute(context);
+    }
+  }
+
   /**
    * Creates a test database.
    * @throws Exception exception
@@ -219,6 +252,34 @@ public final class IndexOptimizeTest extends AdvancedQueryTest {
     query("//a[not(. = '')]/text()", "1\n2 3");
 }
 
+  /**
+   * Checks range queries on numeric keys (see {@link MainOptions#RANGEINDEX}).
+   * @throws Exception unexpected exception
+   */
+  @Test
+  public void numericRange() throws Exception {
+    new Set(MainOptions.RANGEINDEX, true).execute(context);
+    new Set(MainOptions.UPDINDEX, true).execute(context);
+    try {
+      new CreateDB(NAME, "<xml><a x='-1.5'>10</a><a x='2'>9.5</a><a x='11'>-3</a>" +
+          "<a x='2'>100</a></xml>").execute(context);
+      check("data(//a[text() > 9.5])", "10\n100");
+      check("data(//a[text() >= 9.5][text() < 100])", "10\n9.5");
+      check("data(//a[text() > -5 and text() < 0])", "-3");
+      check("data(//a[@x > -2 and @x <= 2])", "10\n9.5\n100");
+
+      // numeric keys are dropped by updates and recreated by optimizations
+      query("insert node <a x='3'>50</a> into /xml");
+      query("data(//a[text() > 9.5])", "10\n100\n50");
+      new Optimize().execute(context);
+      check("data(//a[text() > 9.5])", "10\n100\n50");
+      check("data(//a[@x >= 2.5])", "-3\n50");
+    } finally {
+      new Set(MainOptions.RANGEINDEX, false).execute(context);
+      new Set(MainOptions.UPDINDEX, false).execute(context);
+    }
+  }
+
   /**
    * Creates a test database.
    * @throws Exception exception
@@ -268,6 +329,8 @@ public final class IndexOptimizeTest extends AdvancedQueryTest {
       // check if index is used
       try(QueryProcessor qp = new QueryProcessor(plan + "/descendant-or-self::*" +
             "[self::" + Util.className(ValueAccess.class) +
+            "|self::" + Util.className(RangeAccess.class) +
+            "|self::" + Util.className(NameAccess.class) +
             "|self::" + Util.className(FTIndexAccess.class) + ']', context)) {
         final String string = qp.execute().serialize();
         assertFalse("No index used:\n- Query: " + query + "\n- Plan: " + plan + "\n- " +
@@ -0,0 +1,134 @@
+package org.basex.query;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the cache of parsed queries ({@link QueryCache}).
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCacheTest extends SandboxTest {
+  /** Enables the cache. */
+  @Before
+  public void init() {
+    context.soptions.set(StaticOptions.QUERYCACHE, 4);
+    context.queries.clear();
+  }
+
+  /** Disables the cache. */
+  @After
+  public void finish() {
+    context.soptions.set(StaticOptions.QUERYCACHE, 0);
+    context.queries.clear();
+  }
+
+  /**
+   * Evaluates a cached query with different variable bindings.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void bindings() throws BaseXException {
+    final String query = "declare variable $x external; declare variable $y := $x * 2; " +
+        "for $i in 1 to $y return $i + $x";
+    assertEquals("2\n3", query(query, "1"));
+    assertEquals("3\n4\n5\n6", query(query, "2"));
+    assertEquals("4\n5\n6\n7\n8\n9", query(query, "3"));
+    assertArrayEquals(new long[] { 1, 2, 1 }, context.queries.stats());
+  }
+
+  /**
+   * Evaluates cached queries with namespaces, options and element constructors.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void prolog() throws BaseXException {
+    final String query = "declare namespace p = 'U'; declare option output:indent 'no';" +
+        "declare variable $x external; <p:a xmlns:q='V'>{ element q:b { $x } }</p:a>";
+    for(int i = 0; i < 3; i++) {
+      assertEquals("<p:a xmlns:p=\"U\" xmlns:q=\"V\"><q:b>" + i + "</q:b></p:a>",
+          query(query, Integer.toString(i)));
+    }
+    assertEquals(2, context.queries.stats()[1]);
+  }
+
+  /**
+   * Evaluates copies of a cached query with in-scope namespaces in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void parallel() throws Exception {
+    final String query = "declare option output:indent 'no'; declare variable $x external;" +
+        "for $i in 1 to 1000 return <a xmlns:p='U'>{ element p:b { $x }, " +
+        "<c xmlns:p='V'>{ element p:b { $x } }</c>, element { 'p:d' } { $x } }</a>";
+    final Throwable[] error = { null };
+    final Thread[] threads = new Thread[8];
+    for(int t = 0; t < threads.length; t++) {
+      final String value = Integer.toString(t);
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            final String result = query(query, value);
+            final String a = "<a xmlns:p=\"U\"><p:b>" + value + "</p:b><c xmlns:p=\"V\"><p:b>" +
+                value + "</p:b></c><p:d>" + value + "</p:d></a>";
+            assertEquals(1000 * (a.length() + 1) - 1, result.length());
+            assertTrue(result.startsWith(a));
+            assertTrue(result.endsWith(a));
+          } catch(final Throwable th) {
+            error[0] = th;
+          }
+        }
+      };
+    }
+    for(final Thread thread : threads) thread.start();
+    for(final Thread thread : threads) thread.join();
+    if(error[0] != null) throw new AssertionError(error[0]);
+    assertEquals(1, context.queries.stats()[0]);
+  }
+
+  /**
+   * Checks that updating queries are detected.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updating() throws BaseXException {
+    new CreateDB(NAME, "<a/>").execute(context);
+    final String query = "declare variable $x external; insert node <b>{ $x }</b> into /a";
+    for(int i = 0; i < 3; i++) query(query, Integer.toString(i));
+    assertEquals("3", new XQuery("count(/a/b)").execute(context));
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Checks that queries with functions are not cached, and that the least recently used
+   * queries are discarded.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void limits() throws BaseXException {
+    final String query = "declare function local:f($x) { $x }; local:f($x)";
+    assertEquals("1", query("declare variable $x external; " + query, "1"));
+    assertEquals(0, context.queries.stats()[0]);
+
+    for(int i = 0; i < 10; i++) new XQuery(Integer.toString(i)).execute(context);
+    assertEquals(4, context.queries.stats()[0]);
+  }
+
+  /**
+   * Runs a query with a bound variable.
+   * @param query query string
+   * @param value value to be bound
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query, final String value) throws BaseXException {
+    return new XQuery(query).bind("x", value, "xs:integer").execute(context);
+  }
+}
@@ -1,5 +1,6 @@
 package org.basex.query.ast;
 
+import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.basex.*;
@@ -256,4 +257,135 @@ public final class GFLWOROptimizeTest extends QueryPlanTest {
         "exists(//Let)"
     );
   }
+
+  /** Tests the rewriting of nested equality predicates to hash joins. */
+  @Test public void hashJoin() {
+    final String cs = "let $cs := (0 to 3) ! <c id='{ . }'>{ . * 10 }</c> ";
+    check(cs + "for $o in 1 to 7 for $c in $cs where $o mod 4 = $c/@id " +
+        "return $o + $c",
+        "11\n22\n33\n4\n15\n26\n37",
+        "exists(//HashJoin)"
+    );
+    // order of outer and inner items is preserved
+    check(cs + "for $o in (3, 0, '2', 3, 5) " +
+        "for $c in ($cs, $cs[1]) where $c/@id = $o return $o || $c",
+        "330\n00\n00\n220\n330",
+        "exists(//HashJoin)"
+    );
+    // untyped and numeric keys, multiple keys, further where clauses
+    check(cs + "for $o in ('1', 1.0, <o>1.0</o>, <o>1</o>) for $c in $cs " +
+        "where $c/@id = $o and $c = 10 return string($c)",
+        "10\n10\n10",
+        "exists(//HashJoin)"
+    );
+    check(cs + "for $o in (<o>1.0</o>, <o>x</o>) for $c in $cs " +
+        "where $c/@id = (tokenize($o), 3) return $c/string()",
+        "30\n30",
+        "exists(//HashJoin)"
+    );
+    check(cs + "for $o in (-0e0, 4) for $c in $cs " +
+        "where xs:double($c/@id) = $o return string($c)",
+        "0",
+        "exists(//HashJoin)"
+    );
+    // keys that cannot be hashed
+    check("for $o in (xs:duration('PT0S'), xs:duration('P1D')) " +
+        "for $c in (xs:duration('P0M'), xs:duration('P1D'), xs:duration('P1M')) " +
+        "where $c = $o return string($c)",
+        "PT0S\nP1D",
+        "exists(//HashJoin)"
+    );
+    // keys that cannot be compared
+    error("for $o in (1, 2, 3) for $c in ('1', '2') where $o = $c return $c",
+        QueryError.CMPTYPES_X_X);
+    error("for $o in (1, 2, 3) for $c in ('1', '2') where $o eq $c return $c",
+        QueryError.CMPTYPES_X_X);
+    error("for $o in ('1', '2') for $c in (1, 2, 3) where $o = $c return $c",
+        QueryError.CMPTYPES_X_X);
+    error("for $o in (1, 2) for $c in (<c>x</c>, <c>1</c>) where $o = $c return $c",
+        QueryError.FUNCAST_X_X);
+    error("for $o in (1, 2) for $c in (<c>1</c>, <c>2</c>) where $o eq $c return $c",
+        QueryError.CMPTYPES_X_X);
+    error("for $o in (1, 2) for $c in (1, 2) where $o eq ($c, $c) return $c",
+        QueryError.SEQFOUND_X);
+  }
+
+  /** Tests if the bound expression of a hash join is independent from the preceding clauses. */
+  @Test public void dontHashJoin() {
+    check("for $o in 1 to 3 for $c in 1 to $o where $c = $o return $c",
+        "1\n2\n3",
+        "empty(//HashJoin)"
+    );
+    check("for $o in 1 to 3 for $c in (1 to 3) ! <c>{ . }</c> where $c = $o return string($c)",
+        "1\n2\n3",
+        "empty(//HashJoin)"
+    );
+    check("for $o in 1 to 3 for $c in 1 to 3 where $c != $o return $c",
+        "2\n3\n1\n3\n1\n2",
+        "empty(//HashJoin)"
+    );
+
+    // join predicates are converted to predicates if no hash join will be created
+    check("let $k := <a>2</a> for $x in 1 to 5 where $x = $k return $x",
+        "2",
+        "empty(//HashJoin)",
+        "empty(//Where)"
+    );
+    check("for $x in 1 to 5 let $k := <a>2</a> where $x = $k return $x",
+        "2",
+        "empty(//HashJoin)"
+    );
+  }
+
+  /** Tests the computation of aggregated values while grouping tuples. */
+  @Test public void aggregate() {
+    check("for $i in 1 to 10 group by $k := $i mod 3 order by $k " +
+        "return $k || ':' || count($i) || ',' || sum($i)",
+        "0:3,18\n1:4,22\n2:3,15",
+        "count(//GroupBy/FnCount) = 1",
+        "count(//GroupBy/FnSum) = 1"
+    );
+    // multiple calls, having clause, empty groups
+    check("for $i in (1, 2, 4e0, 3, 5) let $v := $i[. > 2] group by $k := $i mod 2 " +
+        "where count($v) > 0 " +
+        "return avg($v) || ',' || min($v) || ',' || max($v) || ',' || count($v)",
+        "4,3,5,2\n4,4,4,1",
+        "count(//GroupBy/*[starts-with(name(), 'Fn')]) = 4"
+    );
+    check("for $i in 1 to 2 let $v := () group by $i return (sum($v), avg($v), count($v))",
+        "0\n0\n0\n0",
+        "exists(//GroupBy/FnSum)"
+    );
+    // untyped values, strings, durations
+    check("for $i in (<i>2</i>, <i>1</i>, <i>3</i>) group by $k := 1 " +
+        "return (sum($i), min($i), avg($i))",
+        "6\n1\n2",
+        "exists(//GroupBy/FnMin)"
+    );
+    check("for $s in ('b', 'c', 'a') group by $k := 1 return max($s)",
+        "c",
+        "exists(//GroupBy/FnMax)"
+    );
+    check("for $s in ('PT1S', 'PT2S') ! xs:dayTimeDuration(.) group by $k := 1 return sum($s)",
+        "PT3S",
+        "exists(//GroupBy/FnSum)"
+    );
+    error("for $s in ('a', 1) group by $k := 1 return sum($s)", QueryError.SUM_X_X);
+  }
+
+  /** Tests if non-grouping variables with other references are not aggregated. */
+  @Test public void dontAggregate() {
+    check("for $i in 1 to 4 group by $k := $i mod 2 return count($i) + $i[1]",
+        "3\n4",
+        "empty(//GroupBy/FnCount)"
+    );
+    check("for $i in 1 to 4 group by $k := $i mod 2 return sum(($i, 1))",
+        "5\n7",
+        "empty(//GroupBy/FnSum)"
+    );
+    check("for $i in 1 to 4 group by $k := $i mod 2 return count($i[. > 1])",
+        "1\n2",
+        "empty(//GroupBy/FnCount)"
+    );
+  }
 }
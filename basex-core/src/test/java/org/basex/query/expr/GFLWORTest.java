@@ -3,9 +3,11 @@ package org.basex.query.expr;
 import static org.basex.query.QueryError.*;
 import static org.junit.Assert.*;
 
+import org.basex.core.cmd.*;
 import org.basex.query.*;
 import org.basex.util.*;
 import org.junit.*;
+import org.junit.Test;
 
 /**
  * Test cases for FLWOR expressions.
@@ -28,6 +30,193 @@ public final class GFLWORTest extends AdvancedQueryTest {
     query("let $i := 1 group by $i, $i return $i", "1");
   }
 
+  /** Tests the parallel evaluation of for clauses. */
+  @Test
+  public void parallelTest() {
+    final String pragma = "(# db:parallelfor 4 #) ";
+    query(pragma + "{ string-join(for $i in 1 to 20 return string($i), ',') }",
+        "1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20");
+    query(pragma + "{ sum(for $i at $p in 1 to 10000 let $s := string($i) "
+        + "where ends-with($s, '7') return $i + $p) }", "10004000");
+    query(pragma + "{ string-join(for $i in 1 to 3 for $j in 1 to $i "
+        + "return string($i * $j), ',') }", "1,2,4,3,6,9");
+    query(pragma + "{ string-join(for $i in 1 to 3 order by $i descending return string($i)) }",
+        "321");
+    query(pragma + "{ for $i in () return $i }", "");
+    error(pragma + "{ for $i in 1 to 100 return $i div ($i - 50) }", DIVZERO_X);
+
+    // results are returned lazily
+    query(pragma + "{ head(for $i in 1 to 1000000000000 where $i > 10 return $i) }", "11");
+    query(pragma + "{ (for $i at $p in 1 to 1000000000000 return $i + $p)[1000] }", "2000");
+
+    // constructors and namespaces
+    query(pragma + "{ string-join(for $i in 1 to 1000 return <a>{ $i }</a>) }",
+        string(1000));
+    query(pragma + "{ count(for $i in 1 to 1000 return <a>{ $i }</a>/text()) }", "1000");
+    query(pragma + "{ <a xmlns:p='U'>{ for $i in 1 to 100 return element { 'p:b' } { } }</a>"
+        + "/*[namespace-uri() = 'U'] => count() }", "100");
+    query(pragma + "{ <a xmlns:p='U'>{ string-join(for $i in 1 to 100 "
+        + "return namespace-uri-from-QName(xs:QName('p:b'))) }</a>/string() }",
+        new String(new char[100]).replace("\0", "U"));
+    query("declare namespace p = 'U'; " + pragma + "{ string-join(for $i in 1 to 100 "
+        + "return namespace-uri-from-QName(resolve-QName('p:b', <p:a/>))) }",
+        new String(new char[100]).replace("\0", "U"));
+  }
+
+  /**
+   * Returns the concatenated string values of the specified number of integers.
+   * @param n number of integers
+   * @return string
+   */
+  private static String string(final int n) {
+    final StringBuilder sb = new StringBuilder();
+    for(int i = 1; i <= n; i++) sb.append(i);
+    return sb.toString();
+  }
+
+  /**
+   * Tests the sorting of tuples that are written to disk.
+   * @throws Exception exception
+   */
+  @Test
+  public void orderSpillTest() throws Exception {
+    final String pragma = "(# db:sortsplitsize 3 #) ";
+    query(pragma + "{ string-join(for $i in (5, 3, 1, 4, 2, 3, 0) order by $i "
+        + "return string($i), ',') }", "0,1,2,3,3,4,5");
+    // stable order of equal keys
+    query(pragma + "{ string-join(for $i in 1 to 20 order by $i mod 3 return string($i), ',') }",
+        "3,6,9,12,15,18,1,4,7,10,13,16,19,2,5,8,11,14,17,20");
+    // empty keys, NaN, multiple keys
+    query(pragma + "{ string-join(for $s in ('3', '', 'NaN', '1', '2', '', '1') "
+        + "let $k := if($s) then number($s) else () "
+        + "order by $k descending empty greatest, $s return $s, ',') }", ",,NaN,3,2,1,1");
+    query(pragma + "{ string-join(for $d in ('2001', '1999', '2000', '1998') "
+        + "let $x := xs:date($d || '-01-01') order by $x descending return $d, ',') }",
+        "2001,2000,1999,1998");
+    // values that cannot be written to disk
+    query(pragma + "{ string-join(for $i in 1 to 10 let $e := <e>{ $i }</e> "
+        + "order by -$i return $e, ',') }", "10,9,8,7,6,5,4,3,2,1");
+    query(pragma + "{ string-join(for $i in 1 to 10 let $s := (string($i), $i) "
+        + "order by -$i return string($s[1]), ',') }", "10,9,8,7,6,5,4,3,2,1");
+    error(pragma + "{ for $i in (1, 2, 'a', 3) order by $i return $i }", INVCAST_X_X_X);
+    query(pragma + "{ string-join(for $i in 1 to 5 let $o := Q{java:java.util.ArrayList}new() "
+        + "order by -$i return string(Q{java:java.util.ArrayList}size($o)), ',') }",
+        "0,0,0,0,0");
+    final String items = "(1, 2.5, xs:date('2001-01-01'), xs:float('0.1'), xs:NCName('a'), "
+        + "xs:anyURI('b'), xs:hexBinary('FF'))";
+    query(pragma + "{ string-join(for $i at $p in " + items + " order by -$p "
+        + "return string($i), ',') }",
+        query("string-join(reverse(" + items + ") ! string(), ',')"));
+
+    // database nodes
+    final StringBuilder sb = new StringBuilder("<a>");
+    for(int i = 1; i <= 100; i++) sb.append("<b x='").append(i % 7).append("'>a</b>");
+    new CreateDB(NAME, sb.append("</a>").toString()).execute(context);
+    try {
+      final String db = "db:open('" + NAME + "')";
+      // full-text scores
+      query(pragma + "{ every $d in for $b score $s in " + db + "//b[text() contains text 'a'] "
+          + "let $n := $b order by $b/@x return ft:score($n) satisfies $d > 0 }", "true");
+      query(pragma + "{ let $s := for $b in " + db + "//b order by $b/@x return $b "
+          + "let $e := for $x in 0 to 6 return " + db + "//b[@x = $x] "
+          + "return count($s) = 100 and (every $i in 1 to 100 satisfies $s[$i] is $e[$i]) }",
+          "true");
+      query(pragma + "{ count(for $b in " + db + "//b "
+          + "order by xs:integer($b/@x) descending, $b return $b) }", "100");
+    } finally {
+      new DropDB(NAME).execute(context);
+    }
+  }
+
+  /**
+   * Tests the grouping of tuples that are written to disk.
+   * @throws Exception exception
+   */
+  @Test
+  public void groupSpillTest() throws Exception {
+    final String pragma = "(# db:groupsplitsize 3 #) ";
+    final String groups = "for $i in 1 to 1000 let $s := string($i), $k := $i mod 97 "
+        + "group by $k order by $k ";
+    query(pragma + "{ string-join(" + groups + "return $k || ':' || count($i) || ',' "
+        + "|| sum($i) || ',' || max($s), ' ') }", query("string-join(" + groups
+        + "return $k || ':' || count($i) || ',' || sum($i) || ',' || max($s), ' ')"));
+    query(pragma + "{ sum(" + groups + "return sum($i[. mod 2 = 0]) - count($s[1])) }",
+        "250403");
+    // grouping keys with collations, values that cannot be written to disk
+    query(pragma + "{ string-join(for $i in 1 to 20 let $e := <e>{ $i }</e> "
+        + "group by $k := $i mod 4 order by $k return string-join($e, ','), ' ') }",
+        "4,8,12,16,20 1,5,9,13,17 2,6,10,14,18 3,7,11,15,19");
+    query(pragma + "{ string-join(for $s in ('a', 'B', 'b', 'c', 'A', 'C', 'd') "
+        + "group by $k := $s collation '?lang=en;strength=primary' order by $k "
+        + "return string-join($s, ''), ' ') }", "Bb aA cC d");
+
+    // groups are returned in the order of their first occurrence
+    final String order = "for $i in (reverse(1 to 500), 1 to 500) let $k := $i * 7919 mod 101 "
+        + "group by $k return $k || ':' || count($i) || ',' || sum($i)";
+    query(pragma + "{ string-join(" + order + ", ' ') }",
+        query("string-join(" + order + ", ' ')"));
+    query(pragma + "{ string-join(for $i in (1 to 20) ! (21 - .) let $e := <e>{ $i }</e> "
+        + "group by $k := $i mod 7 return string($k), ',') }", "6,5,4,3,2,1,0");
+
+    // database nodes
+    final StringBuilder sb = new StringBuilder("<a>");
+    for(int i = 1; i <= 100; i++) sb.append("<b x='").append(i % 7).append("'/>");
+    new CreateDB(NAME, sb.append("</a>").toString()).execute(context);
+    try {
+      query(pragma + "{ string-join(for $b in db:open('" + NAME + "')//b group by $x := $b/@x "
+          + "order by $x return string(count($b[@x = $x])), ',') }", "14,15,15,14,14,14,14");
+    } finally {
+      new DropDB(NAME).execute(context);
+    }
+  }
+
+  /** Tests errors raised by aggregated values of non-grouping variables. */
+  @Test
+  public void groupAggregateErrors() {
+    // errors are only raised if the aggregated values are requested
+    query("for $x in (1, 'a') group by $k := 1 "
+        + "return if(count($x) > 5) then sum($x) else count($x)", "2");
+    query("for $x in (1, 'a') group by $k := 1 return try { sum($x) } catch * { 'caught' }",
+        "caught");
+    query("for $x in (<a>1</a>, <a>x</a>) group by $k := 1 "
+        + "return if(count($x) > 5) then max($x) else 0", "0");
+    query("(# db:groupsplitsize 3 #) { string-join(for $i in 1 to 20 "
+        + "let $x := if($i = 5) then 'a' else $i group by $k := $i mod 4 order by $k "
+        + "return try { string(sum($x)) } catch * { 'caught' }, ',') }", "60,caught,50,55");
+    error("for $x in (1, 'a') group by $k := 1 return sum($x)", SUMNUM_X_X);
+    error("for $x in (1, 2, 'a', 3) group by $k := 1 return avg($x)", SUMNUM_X_X);
+    error("for $x in (<a>1</a>, <a>x</a>) group by $k := 1 return max($x)", FUNCAST_X_X);
+  }
+
+  /** Tests the selection of the first sorted tuples. */
+  @Test
+  public void topKTest() {
+    final String flwor = "(for $i in (5, 3, 8, 1, 9, 2, 7, 1, 6) order by $i descending return $i)";
+    query(flwor + "[position() <= 3]", "9\n8\n7");
+    query(flwor + "[position() = 3 to 5]", "7\n6\n5");
+    query(flwor + "[1]", "9");
+    query(flwor + "[20]", "");
+    query("head(" + flwor + ")", "9");
+    query("subsequence(" + flwor + ", 8)", "1\n1");
+    query("subsequence(" + flwor + ", 0, 3)", "9\n8");
+    query("subsequence(" + flwor + ", 2, 0)", "");
+
+    // stable order of equal keys, empty keys, trailing let clauses
+    query("(for $i in 1 to 100 order by $i mod 10 let $s := string($i) return $s)"
+        + "[position() <= 12]", "10\n20\n30\n40\n50\n60\n70\n80\n90\n100\n1\n11");
+    query("(for $i in (2, 0, 1, 0, 3) let $k := $i[. != 0] order by $k empty greatest "
+        + "return $i)[position() < 5]", "1\n2\n3\n0");
+    query("(for $i in (2, 0, 1, 0, 3) let $k := $i[. != 0] order by $k "
+        + "return $i)[position() < 3]", "0\n0");
+
+    // return expressions with no or multiple items
+    query("(for $i in 1 to 5 order by $i descending return ($i, $i))[position() <= 3]",
+        "5\n5\n4");
+    query("(for $i in 1 to 5 order by $i descending return $i[. mod 2 = 0])[1]", "4");
+    query("(for $i in 1 to 5 order by $i descending where $i < 4 return $i)[1]", "3");
+    error("(for $i in (1, 'a') order by $i return $i)[1]", INVCAST_X_X_X);
+  }
+
   /**
    * Runs an updating query and matches the result of the second query
    * against the expected output.
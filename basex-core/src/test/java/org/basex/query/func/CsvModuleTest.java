@@ -2,7 +2,10 @@ package org.basex.query.func;
 
 import static org.basex.query.QueryError.*;
 import static org.basex.query.func.Function.*;
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
 
+import org.basex.io.*;
 import org.basex.query.*;
 import org.junit.*;
 
@@ -35,6 +38,31 @@ public final class CsvModuleTest extends AdvancedQueryTest {
     parseError("", "'separator':'XXX'");
   }
 
+  /**
+   * Test method.
+   * @throws Exception exception
+   */
+  @Test
+  public void parseRecords() throws Exception {
+    query(_CSV_PARSE_RECORDS.args(""), "");
+    query(_CSV_PARSE_RECORDS.args("X"), "<record>\n<entry>X</entry>\n</record>");
+    query("count(" + _CSV_PARSE_RECORDS.args("X,\"A\nB\"\nC\n\nD") + ')', "3");
+    query(_CSV_PARSE_RECORDS.args("A,B\nX,Y", " map { 'header': true() }") + "/B/text()", "Y");
+    query(_CSV_PARSE_RECORDS.args("A\nX\nY", " map { 'header': true(), 'format': 'map' }") +
+        "?A", "X\nY");
+    query(_ARRAY_SIZE.args(_CSV_PARSE_RECORDS.args("X,Y", " map { 'format': 'map' }")), "2");
+    query("head(" + _CSV_PARSE_RECORDS.args("string-join((1 to 100000) ! string(), '&#10;')") +
+        ")/entry/text()", "1");
+    error(_CSV_PARSE_RECORDS.args("", " map { 'x': 'y' }"), INVALIDOPT_X);
+
+    // the input is closed with the query if only parts of the result are consumed
+    final IOFile file = new IOFile(sandbox(), "records.csv");
+    file.write(token("A\nB\nC"));
+    query("head(" + _CSV_PARSE_RECORDS.args(_FILE_READ_TEXT.args(file.path())) +
+        ")/entry/text()", "A");
+    assertTrue(file.delete());
+  }
+
   /** Test method. */
   @Test
   public void serialize() {
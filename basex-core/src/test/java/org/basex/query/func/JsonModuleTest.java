@@ -2,7 +2,10 @@ package org.basex.query.func;
 
 import static org.basex.query.QueryError.*;
 import static org.basex.query.func.Function.*;
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
 
+import org.basex.io.*;
 import org.basex.query.*;
 import org.junit.*;
 
@@ -90,6 +93,36 @@ public final class JsonModuleTest extends AdvancedQueryTest {
     query(_JSON_PARSE.args("null", map), "");
   }
 
+  /**
+   * Test method.
+   * @throws Exception exception
+   */
+  @Test
+  public void parseMembers() throws Exception {
+    final String map = " map { 'format': 'map' }";
+    query(_JSON_PARSE_MEMBERS.args("[]"), "");
+    query(_JSON_PARSE_MEMBERS.args("[1, \"]\", null, true]", map), "1\n]\ntrue");
+    query(_JSON_PARSE_MEMBERS.args("[{ \"A\": [1, 2] }, { \"A\": [] }]", map) +
+        "?A ! array:size(.)", "2\n0");
+    query(_JSON_PARSE_MEMBERS.args("[{ \"A\": 1 }]") + "/json/A/text()", "1");
+    query(_JSON_PARSE_MEMBERS.args("{ \"A\": 1 }", map) + "?A", "1");
+    query(_JSON_PARSE_MEMBERS.args("[1,]", " map { 'liberal': true() }"),
+        "<json type=\"number\">1</json>");
+    query("head(" + _JSON_PARSE_MEMBERS.args(
+        " '[' || string-join((1 to 100000) ! string(), ',') || ']'", map) + ')', "1");
+
+    error(_JSON_PARSE_MEMBERS.args("[1,]"), BXJS_PARSE_X_X_X);
+    error(_JSON_PARSE_MEMBERS.args("[1"), BXJS_PARSE_X_X_X);
+    error(_JSON_PARSE_MEMBERS.args("[1] 2"), BXJS_PARSE_X_X_X);
+    error(_JSON_PARSE_MEMBERS.args("[1, ?]"), BXJS_PARSE_X_X_X);
+
+    // the input is closed with the query if only parts of the result are consumed
+    final IOFile file = new IOFile(sandbox(), "members.json");
+    file.write(token("[1, 2, 3]"));
+    query("head(" + _JSON_PARSE_MEMBERS.args(_FILE_READ_TEXT.args(file.path()), map) + ')', "1");
+    assertTrue(file.delete());
+  }
+
   /** Test method. */
   @Test
   public void serialize() {
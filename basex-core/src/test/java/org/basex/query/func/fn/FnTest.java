@@ -49,6 +49,37 @@ public final class FnTest extends AdvancedQueryTest {
     error("replace('asdf','a{12,3}','')", REGPAT_X);
   }
 
+  /** Tests for simple patterns, which are evaluated without regular expressions. */
+  @Test
+  public void simplePattern() {
+    query("matches('abc', 'b')", "true");
+    query("matches('abc', '^b')", "false");
+    query("matches('abc', 'c$')", "true");
+    query("matches('abc', '^abc$')", "true");
+    query("matches('a.c', '\\.')", "true");
+    query("matches('a.c', '.', 'q')", "true");
+    query("matches('abc', '[x-z]')", "false");
+    query("matches('ä', 'ä')", "true");
+
+    query("replace('a.b.c', '.', '-', 'q')", "a-b-c");
+    query("replace('a.b.c', '\\.', '$0$0')", "a..b..c");
+    query("replace('abab', '^ab', 'x')", "xab");
+    query("replace('abab', 'ab$', 'x')", "abx");
+    query("replace('a  b\tc', '\\s+', ' ')", "a b c");
+    query("replace('a,;b', '[,;]', '')", "ab");
+    query("replace('a.b', '.', '\\$', 'q')", "a\\$b");
+
+    query("string-join(tokenize('a,b,,c', ','), '|')", "a|b||c");
+    query("string-join(tokenize(',a,', ','), '|')", "|a|");
+    query("string-join(tokenize('a1b22c', '[0-9]+'), '|')", "a|b|c");
+    query("tokenize('', ',')", "");
+    query("count(tokenize('a.b', '.', 'q'))", "2");
+
+    error("matches('a', '[a-]')", REGPAT_X);
+    error("matches('a', 'a', 'z')", REGMOD_X);
+    error("tokenize('a', '', 'q')", REGROUP);
+  }
+
   /** Tests for the {@code sum} function. */
   @Test
   public void sum() {
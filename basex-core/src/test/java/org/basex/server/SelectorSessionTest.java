@@ -0,0 +1,103 @@
+package org.basex.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the client/server session API with a server that multiplexes all
+ * connections (see {@link StaticOptions#SERVERTHREADS}).
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class SelectorSessionTest extends SessionTest {
+  /** Name of the system property. */
+  private static final String THREADS = Prop.DBPREFIX +
+      StaticOptions.SERVERTHREADS.name().toLowerCase(Locale.ENGLISH);
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void startServer() throws IOException {
+    System.setProperty(THREADS, "2");
+    try {
+      server = createServer();
+    } finally {
+      System.clearProperty(THREADS);
+    }
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /** Starts a session. */
+  @Before
+  public void startSession() {
+    try {
+      session = createClient();
+      session.setOutputStream(out);
+    } catch(final IOException ex) {
+      fail(Util.message(ex));
+    }
+  }
+
+  /**
+   * Runs more idle sessions than worker threads.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void idleSessions() throws IOException {
+    final ArrayList<ClientSession> sessions = new ArrayList<>();
+    try {
+      for(int s = 0; s < 20; s++) sessions.add(createClient());
+      for(int i = 0; i < 3; i++) {
+        for(final ClientSession cs : sessions) {
+          assertEquals(String.valueOf(i), cs.query(String.valueOf(i)).execute());
+        }
+      }
+    } finally {
+      for(final ClientSession cs : sessions) cs.close();
+    }
+  }
+
+  /**
+   * Checks that connections without login do not block the worker threads permanently.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void stalledLogins() throws IOException {
+    final ArrayList<Socket> sockets = new ArrayList<>();
+    try {
+      for(int s = 0; s < 2; s++) sockets.add(new Socket(S_LOCALHOST, DB_PORT));
+      final ClientSession cs = createClient();
+      try {
+        assertEquals("1", cs.query("1").execute());
+      } finally {
+        cs.close();
+      }
+    } finally {
+      for(final Socket socket : sockets) socket.close();
+    }
+  }
+}
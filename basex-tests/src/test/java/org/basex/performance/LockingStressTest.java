@@ -0,0 +1,143 @@
+package org.basex.performance;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.locks.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class measures the throughput of the lock manager ({@link DBLocking})
+ * with a specified number of threads and lock requests. The test fails if a worker
+ * raises an error, if locks are not exclusive, or if the workers do not finish in time.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class LockingStressTest extends SandboxTest {
+  /** Number of lock requests per thread. */
+  private static final int RUNS = 100000;
+  /** Number of databases. */
+  private static final int DBS = 64;
+  /** Timeout for all workers (minutes). */
+  private static final int TIMEOUT = 5;
+
+  /**
+   * Runs the test with threads that lock disjoint databases.
+   * @throws Exception exception
+   */
+  @Test
+  public void disjoint() throws Exception {
+    run(16, DBS, 0);
+  }
+
+  /**
+   * Runs the test with threads that read the same databases.
+   * @throws Exception exception
+   */
+  @Test
+  public void shared() throws Exception {
+    run(16, 1, 0);
+  }
+
+  /**
+   * Runs the test with threads that read and write the same databases.
+   * @throws Exception exception
+   */
+  @Test
+  public void mixed() throws Exception {
+    run(16, 4, 10);
+  }
+
+  /**
+   * Runs the stress test.
+   * @param threads number of threads
+   * @param dbs number of databases
+   * @param writes percentage of write requests
+   * @throws Exception exception
+   */
+  private static void run(final int threads, final int dbs, final int writes) throws Exception {
+    final int parallel = context.soptions.get(StaticOptions.PARALLEL);
+    context.soptions.set(StaticOptions.PARALLEL, threads);
+    try {
+      final DBLocking locking = new DBLocking(context.soptions);
+      final int[] counters = new int[dbs];
+      final AtomicInteger[] writers = new AtomicInteger[dbs];
+      for(int d = 0; d < dbs; d++) writers[d] = new AtomicInteger();
+      final AtomicLong expected = new AtomicLong();
+      final AtomicInteger finished = new AtomicInteger();
+      final AtomicReference<Throwable> error = new AtomicReference<>();
+
+      final ExecutorService pool = Executors.newFixedThreadPool(threads);
+      final long start = System.nanoTime();
+      for(int t = 0; t < threads; t++) {
+        final int seed = t;
+        pool.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              for(int r = 0; r < RUNS && error.get() == null; r++) {
+                final int db = (seed + r) % dbs;
+                final StringList list = new StringList(NAME + db);
+                if((seed * RUNS + r) % 100 < writes) {
+                  locking.acquire(null, new StringList(), list);
+                  try {
+                    if(writers[db].incrementAndGet() != 1) {
+                      throw new IllegalStateException("Write lock is not exclusive: " + db);
+                    }
+                    counters[db]++;
+                    expected.incrementAndGet();
+                    writers[db].decrementAndGet();
+                  } finally {
+                    locking.release(null);
+                  }
+                } else {
+                  locking.acquire(null, list, new StringList());
+                  try {
+                    if(writers[db].get() != 0) {
+                      throw new IllegalStateException(
+                          "Database is written while it is read: " + db);
+                    }
+                  } finally {
+                    locking.release(null);
+                  }
+                }
+              }
+              finished.incrementAndGet();
+            } catch(final Throwable th) {
+              error.compareAndSet(null, th);
+            }
+          }
+        });
+      }
+      pool.shutdown();
+      if(!pool.awaitTermination(TIMEOUT, TimeUnit.MINUTES)) {
+        pool.shutdownNow();
+        fail("Workers did not finish within " + TIMEOUT + " minutes (deadlock?): " +
+            finished.get() + " of " + threads + " finished.");
+      }
+      final Throwable th = error.get();
+      if(th != null) throw new AssertionError(th);
+      assertEquals(threads, finished.get());
+
+      final long requests = (long) threads * RUNS;
+      final double ms = (System.nanoTime() - start) / 1000000d;
+      Util.outln(threads + " threads, " + dbs + " databases, " + writes + "% writes: " +
+          requests + " requests, " + (long) (requests * 1000 / ms) + " requests/s");
+
+      // write locks must be exclusive
+      long sum = 0;
+      for(final int c : counters) sum += c;
+      assertEquals(expected.get(), sum);
+    } finally {
+      context.soptions.set(StaticOptions.PARALLEL, parallel);
+    }
+  }
+}